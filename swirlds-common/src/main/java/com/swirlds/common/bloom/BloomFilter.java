@@ -19,6 +19,8 @@ import com.swirlds.common.io.SerializableDataInputStream;
 import com.swirlds.common.io.SerializableDataOutputStream;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 
 import static com.swirlds.common.Units.BITS_TO_BYTES;
@@ -36,7 +38,9 @@ import static com.swirlds.common.Units.BYTES_TO_BITS;
  * </p>
  *
  * <p>
- * This data structure is not thread safe. External synchronization required if used in a multi-threaded environment.
+ * Adding hashes ({@link #add(long[])}) and checking hashes ({@link #contains(long[])}) are thread safe, and may be
+ * done concurrently, bits are set atomically and once set are seen by all threads that check them afterwards. The
+ * methods that take an element use a shared hash buffer and are not thread safe.
  * </p>
  *
  * @param <T>
@@ -71,6 +75,11 @@ public class BloomFilter<T> implements SelfSerializable {
 	 */
 	private static final int FIRST_BIT = 0b10000000_00000000_00000000_00000000;
 
+	/**
+	 * Used to atomically set bits in, and read bits from, the filter arrays.
+	 */
+	private static final VarHandle FILTER_INT = MethodHandles.arrayElementVarHandle(int[].class);
+
 	/**
 	 * The number of hashes computed for each element added to the bloom filter.
 	 */
@@ -134,6 +143,32 @@ public class BloomFilter<T> implements SelfSerializable {
 		this.hashBuffer = new long[hashCount];
 	}
 
+	/**
+	 * Copy constructor. Bits added to the original concurrently with the copy may or may not be in the copy.
+	 *
+	 * @param that
+	 * 		the bloom filter to copy
+	 */
+	private BloomFilter(final BloomFilter<T> that) {
+		this.hashCount = that.hashCount;
+		this.hashProvider = that.hashProvider;
+		this.filterSizeInBits = that.filterSizeInBits;
+		this.filter = new int[that.filter.length][];
+		for (int arrayIndex = 0; arrayIndex < filter.length; arrayIndex++) {
+			filter[arrayIndex] = that.filter[arrayIndex].clone();
+		}
+		this.hashBuffer = new long[hashCount];
+	}
+
+	/**
+	 * Create a copy of this bloom filter, that is not affected by later additions to this bloom filter.
+	 *
+	 * @return a copy of this bloom filter
+	 */
+	public BloomFilter<T> copy() {
+		return new BloomFilter<>(this);
+	}
+
 	/**
 	 * Allocate the memory for the bloom filter.
 	 *
@@ -176,6 +211,10 @@ public class BloomFilter<T> implements SelfSerializable {
 	 * Add an element using precomputed hashes. This method is useful for when an element's hashes are already known
 	 * (for example, if a contains operation was already performed).
 	 *
+	 * <p>
+	 * This method is thread safe.
+	 * </p>
+	 *
 	 * @param hashes
 	 * 		hashes corresponding ot an element
 	 * @throws NullPointerException
@@ -217,7 +256,7 @@ public class BloomFilter<T> implements SelfSerializable {
 	 * </p>
 	 *
 	 * <p>
-	 * This method is thread safe as long as not called concurrently with additions to the bloom filter.
+	 * This method is thread safe, and may be called concurrently with additions to the bloom filter.
 	 * </p>
 	 *
 	 * @param hashes
@@ -323,21 +362,19 @@ public class BloomFilter<T> implements SelfSerializable {
 	 */
 	private boolean isBitSet(final long index) {
 		final int[] array = filter[getArrayIndex(index)];
-		final int integer = array[getIntIndex(index)];
+		final int integer = (int) FILTER_INT.getAcquire(array, getIntIndex(index));
 		return ((FIRST_BIT >>> getBitIndex(index)) & integer) != 0;
 	}
 
 	/**
-	 * Set a bit in the set.
+	 * Set a bit in the set. The bit is set atomically, so bits set concurrently in the same integer are not lost.
 	 *
 	 * @param index
 	 * 		the index of the bit to set
 	 */
 	private void setBit(final long index) {
 		final int[] array = filter[getArrayIndex(index)];
-		final int intIndex = getIntIndex(index);
-		final int integer = array[intIndex];
-		array[intIndex] = (FIRST_BIT >>> getBitIndex(index)) | integer;
+		FILTER_INT.getAndBitwiseOrRelease(array, getIntIndex(index), FIRST_BIT >>> getBitIndex(index));
 	}
 
 	/**
@@ -19,7 +19,10 @@ import com.swirlds.common.merkle.MerkleNode;
 import com.swirlds.common.merkle.exceptions.MerkleRouteException;
 import com.swirlds.common.merkle.route.MerkleRoute;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
 
 import static com.swirlds.common.merkle.copy.MerkleCopy.adoptChildren;
 import static com.swirlds.common.merkle.copy.MerkleCopy.copyAnyNodeType;
@@ -326,6 +329,156 @@ public final class MerklePathReplacement {
 		return path;
 	}
 
+	/**
+	 * Get the steps of a route below a given depth.
+	 *
+	 * @param route
+	 * 		a route
+	 * @param depth
+	 * 		the number of steps at the start of the route to leave out
+	 * @return the remaining steps
+	 */
+	private static int[] getStepsBelow(final MerkleRoute route, final int depth) {
+		final int[] steps = new int[route.size() - depth];
+		final Iterator<Integer> iterator = route.iterator();
+		skipStepsInRoute(iterator, depth);
+		for (int index = 0; index < steps.length; index++) {
+			steps[index] = iterator.next();
+		}
+		return steps;
+	}
+
+	/**
+	 * Replace the rest of a path, starting at a node already in the path.
+	 *
+	 * @param path
+	 * 		the path being replaced, holding nodes up to and including the starting node
+	 * @param startIndex
+	 * 		the index of the starting node in the path. Is not replaced.
+	 * @param steps
+	 * 		the steps of the whole path, the step at index i leads to the node at index i + 1 in the path
+	 * @param skipAtEnd
+	 * 		the number of steps at the end of the path to NOT copy
+	 */
+	private static void replaceRemainingPath(
+			final MerkleNode[] path,
+			final int startIndex,
+			final int[] steps,
+			final int skipAtEnd) {
+
+		final MerkleNode firstNodeInPath = path[startIndex];
+		if (startIndex == path.length - 1) {
+			return;
+		}
+		if (firstNodeInPath.isLeaf()) {
+			throw new MerkleRouteException("Node at index " + startIndex + " is a leaf but path has length " +
+					path.length);
+		}
+
+		final boolean[] nodesRequiringInitialization = new boolean[path.length];
+
+		MerkleInternal parent = firstNodeInPath.cast();
+		MerkleInternal parentInPath = parent;
+
+		boolean previousNodeCopied = false;
+		for (int pathIndex = startIndex + 1; pathIndex < path.length; pathIndex++) {
+			final int indexToCopy = steps[pathIndex - 1];
+			final MerkleNode child = parent.getChild(indexToCopy);
+			final boolean isLastNode = pathIndex == path.length - 1;
+
+			final int artificialChildReferences =
+					handleArtificialReferences(isLastNode, firstNodeInPath, parent, child);
+
+			final MerkleNode childInPath = copyChildIfNeeded(
+					child,
+					pathIndex,
+					path.length,
+					skipAtEnd,
+					artificialChildReferences,
+					parentInPath,
+					indexToCopy,
+					previousNodeCopied);
+
+			final boolean nodeWasCopied = child != childInPath;
+			previousNodeCopied |= nodeWasCopied;
+			addNodeToPath(path, nodesRequiringInitialization, pathIndex, childInPath, nodeWasCopied);
+
+			if (!isLastNode) {
+				parent = child.cast();
+				parentInPath = childInPath.cast();
+			}
+		}
+
+		initializePath(path, nodesRequiringInitialization);
+	}
+
+	/**
+	 * <p>
+	 * Replace the paths from one node down to each of several routes in a single pass. The result is the same as
+	 * calling {@link #replacePath(MerkleNode, MerkleRoute, int)} for each route, but each path continues from the
+	 * nodes it shares with the path before it. When routes are sorted from left to right, each shared ancestor is
+	 * therefore copied or has its hash invalidated once, rather than once per route. Routes are not sorted here,
+	 * as sorting costs more than walking the few ancestors random routes have in common.
+	 * </p>
+	 *
+	 * <p>
+	 * Each path is passed to the consumer as soon as it has been replaced, while its nodes are likely still in the
+	 * CPU cache. The consumer may replace the nodes at the end of the path that were not replaced (see skipAtEnd),
+	 * but must not modify any other part of the tree.
+	 * </p>
+	 *
+	 * @param firstNodeInPath
+	 * 		the first node in every path. Is not replaced.
+	 * @param routes
+	 * 		the routes to replace, preferably sorted
+	 * @param skipAtEnd
+	 * 		the number of steps at the end of each path to NOT copy, see
+	 *        {@link #replacePath(MerkleNode, MerkleRoute, int)}
+	 * @param pathConsumer
+	 * 		receives the nodes in the path of each route together with the index of the route
+	 */
+	public static void replacePaths(
+			final MerkleNode firstNodeInPath,
+			final List<MerkleRoute> routes,
+			final int skipAtEnd,
+			final ObjIntConsumer<MerkleNode[]> pathConsumer) {
+
+		if (firstNodeInPath == null) {
+			throw new IllegalArgumentException("Can not replace path in null tree");
+		}
+
+		final int firstNodeDepth = firstNodeInPath.getRoute().size();
+
+		int[] previousSteps = null;
+		MerkleNode[] previousPath = null;
+		for (int routeIndex = 0; routeIndex < routes.size(); routeIndex++) {
+			// Read each route once, route steps are expensive to iterate.
+			final int[] routeSteps = getStepsBelow(routes.get(routeIndex), firstNodeDepth);
+			final MerkleNode[] path = new MerkleNode[routeSteps.length + 1];
+
+			// Continue from the deepest node that was already replaced for the previous route
+			// and that is also in the part of this path that gets replaced.
+			int sharedIndex = 0;
+			if (previousPath == null) {
+				path[0] = firstNodeInPath;
+			} else {
+				int sharedSteps = Arrays.mismatch(previousSteps, routeSteps);
+				if (sharedSteps == -1) {
+					sharedSteps = routeSteps.length;
+				}
+				sharedIndex = Math.max(0, Math.min(sharedSteps,
+						Math.min(previousSteps.length, routeSteps.length) - skipAtEnd));
+				System.arraycopy(previousPath, 0, path, 0, sharedIndex + 1);
+			}
+
+			replaceRemainingPath(path, sharedIndex, routeSteps, skipAtEnd);
+			pathConsumer.accept(path, routeIndex);
+
+			previousSteps = routeSteps;
+			previousPath = path;
+		}
+	}
+
 	/**
 	 * Get the child in a given path generated by {@link #replacePath(MerkleNode, MerkleRoute)}. The child
 	 * is considered to be the last node in the path.
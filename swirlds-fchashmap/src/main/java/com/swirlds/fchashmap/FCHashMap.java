@@ -15,7 +15,6 @@
 package com.swirlds.fchashmap;
 
 import com.swirlds.common.FastCopyable;
-import com.swirlds.common.ReferenceCountException;
 import com.swirlds.common.utility.ValueReference;
 import com.swirlds.fchashmap.internal.FCHashMapEntrySet;
 import com.swirlds.fchashmap.internal.GarbageCollectionEvent;
@@ -23,15 +22,11 @@ import com.swirlds.fchashmap.internal.Mutation;
 
 import java.util.AbstractMap;
 import java.util.Deque;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * <p>
@@ -75,31 +70,25 @@ public class FCHashMap<K, V> extends AbstractMap<K, V> implements FastCopyable {
 	private final Map<K, Mutation<V>> data;
 
 	/**
-	 * All copies of the map that have not yet been garbage collected. New copies are added to the end,
-	 * old copies are removed from the beginning.
+	 * Contains a record of things that need to be garbage collected.
 	 */
-	private final Deque<FCHashMap<K, V>> copies;
+	private final MutationEvents<K, V> garbageCollectionEvents;
 
 	/**
-	 * Contains a record of things that need to be garbage collected.
+	 * All copies of the map that have not yet been garbage collected.
 	 */
-	private final Deque<GarbageCollectionEvent<K>> garbageCollectionEvents;
+	private final MapCopies copies;
 
 	/**
-	 * Prevents multiple threads from attempting to do simultaneous garbage collection.
+	 * This copy in {@link #copies}.
 	 */
-	private final Lock garbageCollectionLock;
+	private final MapCopies.Copy thisCopy;
 
 	/**
 	 * The current size of the map.
 	 */
 	private final AtomicInteger size;
 
-	/**
-	 * Tracks if this particular object has been deleted.
-	 */
-	private final AtomicBoolean released = new AtomicBoolean(false);
-
 	/**
 	 * Create a new FCHashMap.
 	 */
@@ -117,16 +106,14 @@ public class FCHashMap<K, V> extends AbstractMap<K, V> implements FastCopyable {
 
 		data = new ConcurrentHashMap<>(capacity);
 
-		copies = new ConcurrentLinkedDeque<>();
-
-		garbageCollectionEvents = new ConcurrentLinkedDeque<>();
-		garbageCollectionLock = new ReentrantLock();
+		garbageCollectionEvents = new MutationEvents<>(data);
+		copies = new MapCopies(garbageCollectionEvents);
 
 		immutable = false;
 		version = 0;
 		size = new AtomicInteger(0);
 
-		copies.add(this);
+		thisCopy = copies.add(version);
 	}
 
 	/**
@@ -138,7 +125,6 @@ public class FCHashMap<K, V> extends AbstractMap<K, V> implements FastCopyable {
 	protected FCHashMap(final FCHashMap<K, V> that) {
 		data = that.data;
 		copies = that.copies;
-		garbageCollectionLock = that.garbageCollectionLock;
 		garbageCollectionEvents = that.garbageCollectionEvents;
 		size = new AtomicInteger(that.size.get());
 
@@ -146,7 +132,7 @@ public class FCHashMap<K, V> extends AbstractMap<K, V> implements FastCopyable {
 		that.immutable = true;
 		version = that.version + 1;
 
-		copies.add(this);
+		thisCopy = copies.add(version);
 	}
 
 	/**
@@ -181,17 +167,14 @@ public class FCHashMap<K, V> extends AbstractMap<K, V> implements FastCopyable {
 	/**
 	 * Use this to clean up resources held by this copy.
 	 * Failure to call delete on a copy before it is garbage collected will result in a memory leak.
+	 * The mutations this copy no longer needs are garbage collected later on a background thread.
 	 *
 	 * Not thread safe.
 	 * Must not be called at the same time another thread is attempting to read from this copy.
 	 */
 	@Override
 	public synchronized void release() {
-		final boolean previouslyReleased = released.getAndSet(true);
-		if (previouslyReleased) {
-			throw new ReferenceCountException("this object has already been released");
-		}
-		doGarbageCollection();
+		copies.release(thisCopy);
 	}
 
 	/**
@@ -199,94 +182,7 @@ public class FCHashMap<K, V> extends AbstractMap<K, V> implements FastCopyable {
 	 */
 	@Override
 	public boolean isReleased() {
-		return released.get();
-	}
-
-	/**
-	 * Perform garbage collection on this copy of the map.
-	 */
-	private void doGarbageCollection() {
-		if (!garbageCollectionLock.tryLock()) {
-			// Another thread is currently doing garbage collection. That thread will do GC
-			// for this copy, or else the next release of a copy will do GC for this copy.
-			return;
-		}
-
-		try {
-			final Iterator<FCHashMap<K, V>> iterator = copies.iterator();
-
-			while (iterator.hasNext()) {
-				final FCHashMap<K, V> copy = iterator.next();
-				if (!copy.isReleased()) {
-					// Stop when the first unreleased copy is discovered.
-					return;
-				}
-
-				GarbageCollectionEvent<K> event;
-				while ((event = garbageCollectionEvents.peekFirst()) != null) {
-					if (event.getVersion() > copy.version) {
-						// Stop when the first event from the next version is discovered.
-						break;
-					}
-
-					garbageCollectionEvents.pop();
-					cleanOldMutations(event.getKey(), copy.version);
-				}
-				iterator.remove();
-			}
-		} finally {
-			garbageCollectionLock.unlock();
-		}
-	}
-
-	/**
-	 * Given a queue and a version, remove mutations that are no longer needed by any copies.
-	 *
-	 * @param key
-	 * 		the key that requires garbage collection
-	 * @param version
-	 * 		the version of the map that has been released
-	 */
-	private void cleanOldMutations(final K key, final long version) {
-		data.compute(key, (final K k, final Mutation<V> mutationHead) -> {
-			if (mutationHead == null) {
-				return null;
-			}
-
-			Mutation<V> parent = mutationHead;
-			Mutation<V> target = parent.getPrevious();
-
-			while (target != null) {
-
-				// truncate all older mutations
-				if (target.getVersion() <= version) {
-					parent.setPrevious(null);
-					break;
-				}
-
-				parent = target;
-				target = parent.getPrevious();
-			}
-
-			if (mutationHead.getPrevious() == null && mutationHead.getValue() == null) {
-				// entry can be deleted if just a single deletion record remains
-				return null;
-			}
-
-			return mutationHead;
-		});
-	}
-
-	/**
-	 * Register an operation that causes the need for future garbage collection
-	 *
-	 * @param key
-	 * 		the key that points to a list of mutations that require garbage collection
-	 * @param version
-	 * 		that version that, when deleted, will require garbage collection to be done
-	 */
-	private void registerGarbageCollectionEvent(final K key, final long version) {
-		garbageCollectionEvents.addLast(new GarbageCollectionEvent<>(key, version));
+		return thisCopy.isReleased();
 	}
 
 	/**
@@ -380,7 +276,7 @@ public class FCHashMap<K, V> extends AbstractMap<K, V> implements FastCopyable {
 			// are released, no mutations before the current mutations will be reachable. So request
 			// a garbage collection operation on this list of mutations when the version right before
 			// the current version is released.
-			registerGarbageCollectionEvent(key, version - 1);
+			garbageCollectionEvents.add(key, version - 1);
 		}
 
 		return originalValue;
@@ -475,7 +371,7 @@ public class FCHashMap<K, V> extends AbstractMap<K, V> implements FastCopyable {
 			// are released, no mutations before the current mutations will be reachable. So request
 			// a garbage collection operation on this list of mutations when the version right before
 			// the current version is released.
-			registerGarbageCollectionEvent(key, version - 1);
+			garbageCollectionEvents.add(key, version - 1);
 		}
 
 		return new ModifiableValue<>(mutation.getValue(), original.getValue());
@@ -534,4 +430,112 @@ public class FCHashMap<K, V> extends AbstractMap<K, V> implements FastCopyable {
 	protected Map<K, Mutation<V>> getData() {
 		return data;
 	}
+
+	/**
+	 * The garbage collection events of an {@link FCHashMap}, shared by all its copies.
+	 *
+	 * @param <K>
+	 * 		the type of the key
+	 * @param <V>
+	 * 		the type of the value
+	 */
+	private static final class MutationEvents<K, V> implements MapCopies.Events {
+
+		/**
+		 * The data of the map.
+		 */
+		private final Map<K, Mutation<V>> data;
+
+		/**
+		 * The events, in the order they were registered.
+		 */
+		private final Deque<GarbageCollectionEvent<K>> events = new ConcurrentLinkedDeque<>();
+
+		private MutationEvents(final Map<K, Mutation<V>> data) {
+			this.data = data;
+		}
+
+		/**
+		 * Register an operation that causes the need for future garbage collection
+		 *
+		 * @param key
+		 * 		the key that points to a list of mutations that require garbage collection
+		 * @param version
+		 * 		that version that, when deleted, will require garbage collection to be done
+		 */
+		private void add(final K key, final long version) {
+			events.addLast(new GarbageCollectionEvent<>(key, version));
+			FCHashMapGarbageCollector.registerMutation();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isEmpty() {
+			return events.isEmpty();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long firstVersion() {
+			return events.getFirst().getVersion();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void collectFirst() {
+			final GarbageCollectionEvent<K> event = events.pop();
+			cleanOldMutations(event.getKey(), event.getVersion());
+		}
+
+		/**
+		 * Given a queue and a version, remove mutations that are no longer needed by any copies.
+		 *
+		 * <p>
+		 * The version must be the version of the garbage collection event rather than the version of the copy being
+		 * collected. An event may be registered after the copy before it was collected, and be handled after the key
+		 * was written again in a newer version. Copies between those two versions still read the mutation written right
+		 * after the event's version, so only the mutations before that one are truncated.
+		 * </p>
+		 *
+		 * @param key
+		 * 		the key that requires garbage collection
+		 * @param version
+		 * 		the version of the garbage collection event, all copies up to and including this version are released
+		 */
+		private void cleanOldMutations(final K key, final long version) {
+			data.compute(key, (final K k, final Mutation<V> mutationHead) -> {
+				if (mutationHead == null) {
+					return null;
+				}
+
+				Mutation<V> parent = mutationHead;
+				Mutation<V> target = parent.getPrevious();
+
+				while (target != null) {
+
+					// truncate all older mutations
+					if (target.getVersion() <= version) {
+						parent.setPrevious(null);
+						break;
+					}
+
+					parent = target;
+					target = parent.getPrevious();
+				}
+
+				if (mutationHead.getPrevious() == null && mutationHead.getValue() == null) {
+					// entry can be deleted if just a single deletion record remains
+					return null;
+				}
+
+				return mutationHead;
+			});
+		}
+	}
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.fchashmap;
+
+import com.swirlds.common.threading.QueueThread;
+import com.swirlds.common.threading.QueueThreadConfiguration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+
+/**
+ * Garbage collects the mutations of {@link FCHashMap} and {@link FCLongHashMap} copies on a single background thread
+ * shared by all maps, so that releasing a copy does not stall the releasing thread. A released copy is queued here,
+ * and the thread removes the mutations that no remaining copy can reach. Work is done in slices of at most
+ * {@link #SLICE_SIZE} mutations, a copy with more work left goes to the back of the queue, so one large map does not
+ * hold up the others.
+ * <p>
+ * Delaying garbage collection does not change what any copy reads, only mutations that are older than every
+ * unreleased copy are removed.
+ */
+final class FCHashMapGarbageCollector {
+
+	private static final Logger LOG = LogManager.getLogger(FCHashMapGarbageCollector.class);
+
+	/**
+	 * The maximum number of mutations garbage collected for a copy before moving on to the next copy in the queue.
+	 */
+	static final int SLICE_SIZE = 10_000;
+
+	/**
+	 * The number of mutations registered for garbage collection that have not yet been collected, across all maps.
+	 */
+	private static final LongAdder BACKLOG = new LongAdder();
+
+	/**
+	 * The garbage collection of a released copy.
+	 */
+	@FunctionalInterface
+	interface Collectable {
+		/**
+		 * Garbage collect at most the given number of mutations.
+		 *
+		 * @param maxEvents
+		 * 		the maximum number of garbage collection events to process
+		 * @return true if garbage collection is done for now, false if there is more to do
+		 */
+		boolean doGarbageCollection(int maxEvents);
+	}
+
+	/**
+	 * Released copies waiting for garbage collection.
+	 */
+	private static final QueueThread<Collectable> QUEUE = new QueueThreadConfiguration<Collectable>()
+			.setUnlimitedCapacity()
+			.setComponent("fc-hash-map")
+			.setThreadName("garbage-collector")
+			.setHandler(FCHashMapGarbageCollector::collect)
+			.addThreshold(
+					size -> size > FCHashMapSettingsFactory.get().getMaximumGCQueueSize(),
+					size -> LOG.error(EXCEPTION.getMarker(),
+							"FCHashMap garbage collection is behind, {} copies are waiting. Expected at most {}",
+							size, FCHashMapSettingsFactory.get().getMaximumGCQueueSize()),
+					FCHashMapSettingsFactory.get().getGCQueueThresholdPeriod())
+			.build(true);
+
+	private FCHashMapGarbageCollector() {
+
+	}
+
+	/**
+	 * Queue a released copy for garbage collection. Never blocks.
+	 *
+	 * @param copy
+	 * 		the garbage collection of a copy that has just been released
+	 */
+	static void schedule(final Collectable copy) {
+		QUEUE.add(copy);
+	}
+
+	/**
+	 * Record that a mutation was registered for future garbage collection.
+	 */
+	static void registerMutation() {
+		BACKLOG.increment();
+	}
+
+	/**
+	 * Record that mutations registered for garbage collection have been collected.
+	 *
+	 * @param count
+	 * 		the number of mutations collected
+	 */
+	static void mutationsCollected(final int count) {
+		BACKLOG.add(-count);
+	}
+
+	/**
+	 * Get the number of released copies waiting for garbage collection.
+	 *
+	 * @return the number of copies in the queue
+	 */
+	static int getQueueSize() {
+		return QUEUE.size();
+	}
+
+	/**
+	 * Get the number of mutations waiting for garbage collection across all maps. This includes mutations that are
+	 * waiting for older copies to be released.
+	 *
+	 * @return the number of mutations not yet garbage collected
+	 */
+	static long getBacklog() {
+		return BACKLOG.sum();
+	}
+
+	/**
+	 * Garbage collect one slice of a released copy's mutations, and queue it again if there is more to do.
+	 */
+	private static void collect(final Collectable copy) {
+		try {
+			if (!copy.doGarbageCollection(SLICE_SIZE)) {
+				QUEUE.add(copy);
+			}
+		} catch (final RuntimeException e) {
+			LOG.error(EXCEPTION.getMarker(), "Exception during FCHashMap garbage collection", e);
+		}
+	}
+}
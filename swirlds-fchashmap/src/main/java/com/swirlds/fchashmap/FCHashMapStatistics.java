@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.fchashmap;
+
+import com.swirlds.common.Platform;
+import com.swirlds.common.statistics.StatEntry;
+
+/**
+ * Singleton factory for registering {@link FCHashMap} statistics. This is the primary entry point for all
+ * {@link com.swirlds.common.SwirldMain} implementations that wish to track {@link FCHashMap} statistics.
+ */
+public final class FCHashMapStatistics {
+
+	/**
+	 * true if these statistics have been registered by the application; otherwise false
+	 */
+	private static volatile boolean registered;
+
+	private static final String FCHM_CATEGORY = "FCHashMap";
+
+	/**
+	 * Default private constructor to ensure that this may not be instantiated.
+	 */
+	private FCHashMapStatistics() {
+	}
+
+	/**
+	 * Gets a value indicating whether the {@link com.swirlds.common.SwirldMain} has called the {@link
+	 * #register(Platform)} method on this factory.
+	 *
+	 * @return true if these statistics have been registered by the application; otherwise false
+	 */
+	public static boolean isRegistered() {
+		return registered;
+	}
+
+	/**
+	 * Registers the {@link FCHashMap} statistics with the specified {@link Platform} instance.
+	 *
+	 * @param platform
+	 * 		the platform instance
+	 */
+	public static void register(final Platform platform) {
+		platform.addAppStatEntry(new StatEntry(
+				FCHM_CATEGORY,
+				"fchmGcQueueSize",
+				"number of released FCHashMap copies waiting for garbage collection",
+				"%d",
+				null,
+				null,
+				null,
+				FCHashMapGarbageCollector::getQueueSize
+		));
+
+		platform.addAppStatEntry(new StatEntry(
+				FCHM_CATEGORY,
+				"fchmGcBacklog",
+				"number of FCHashMap mutations waiting for garbage collection, across all maps",
+				"%d",
+				null,
+				null,
+				null,
+				FCHashMapGarbageCollector::getBacklog
+		));
+
+		registered = true;
+	}
+}
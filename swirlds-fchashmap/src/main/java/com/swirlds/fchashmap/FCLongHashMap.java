@@ -0,0 +1,315 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.fchashmap;
+
+import com.swirlds.common.FastCopyable;
+import com.swirlds.fchashmap.internal.LongGarbageCollectionEvents;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * A version of {@link FCHashMap} for primitive {@code long} keys, with the same {@link FastCopyable} semantics.
+ * </p>
+ *
+ * <p>
+ * Keys are stored unboxed in open addressing tables, and a key with a single mutation, which is almost every key
+ * once old copies have been released, needs no {@link com.swirlds.fchashmap.internal.Mutation Mutation} object. This
+ * makes the map a lot smaller than an {@link FCHashMap} with {@link Long} keys, and lookups follow fewer pointers.
+ * The key {@link Long#MIN_VALUE} is reserved and can not be stored.
+ * </p>
+ *
+ * <p>
+ * All operations are thread safe if performed simultaneously on different copies of the map.
+ * </p>
+ *
+ * <p>
+ * It is safe to read and write simultaneously to the mutable copy of the map with multiple threads as long as
+ * the read operations are not performed concurrently with write operations on the same key. {@link #size} may return
+ * incorrect results if executed concurrently with an operation that modifies the size.
+ * </p>
+ *
+ * <p>
+ * It is not thread safe to perform read/write operations on a copy of this this map while that copy is being released.
+ * </p>
+ *
+ * @param <V>
+ * 		the type of the value
+ */
+public class FCLongHashMap<V> implements FastCopyable {
+
+	/**
+	 * Receives the entries of a copy.
+	 *
+	 * @param <V>
+	 * 		the type of the value
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<V> {
+		/**
+		 * Accept an entry.
+		 *
+		 * @param key
+		 * 		the key
+		 * @param value
+		 * 		the value, never null
+		 */
+		void accept(long key, V value);
+	}
+
+	/**
+	 * Monotonically increasing version number that is incremented every time copy() is called on the mutable copy.
+	 */
+	private final long version;
+
+	/**
+	 * Is this object a mutable object?
+	 */
+	private boolean immutable;
+
+	/**
+	 * Contains the data of this map and all copies that have not been garbage collected.
+	 */
+	private final LongMutationTable<V> data;
+
+	/**
+	 * All copies of the map that have not yet been garbage collected.
+	 */
+	private final MapCopies copies;
+
+	/**
+	 * This copy in {@link #copies}.
+	 */
+	private final MapCopies.Copy thisCopy;
+
+	/**
+	 * The current size of the map.
+	 */
+	private final AtomicInteger size;
+
+	/**
+	 * Create a new FCLongHashMap.
+	 */
+	public FCLongHashMap() {
+		data = new LongMutationTable<>(new LongGarbageCollectionEvents());
+		copies = new MapCopies(data);
+
+		immutable = false;
+		version = 0;
+		size = new AtomicInteger(0);
+
+		thisCopy = copies.add(version);
+	}
+
+	/**
+	 * Copy constructor.
+	 *
+	 * @param that
+	 * 		the map to copy
+	 */
+	protected FCLongHashMap(final FCLongHashMap<V> that) {
+		data = that.data;
+		copies = that.copies;
+		size = new AtomicInteger(that.size.get());
+
+		immutable = false;
+		that.immutable = true;
+		version = that.version + 1;
+
+		thisCopy = copies.add(version);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public FCLongHashMap<V> copy() {
+		throwIfImmutable();
+		throwIfReleased();
+		return new FCLongHashMap<>(this);
+	}
+
+	/**
+	 * Exposed for testing. Get the total number of copies that have not been fully garbage collected (including
+	 * copies not eligible for garbage collection).
+	 *
+	 * @return the number of un-garbage-collected copies
+	 */
+	protected int copyCount() {
+		return copies.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isImmutable() {
+		return this.immutable;
+	}
+
+	/**
+	 * Use this to clean up resources held by this copy.
+	 * Failure to call delete on a copy before it is garbage collected will result in a memory leak.
+	 * The mutations this copy no longer needs are garbage collected later on a background thread.
+	 *
+	 * Not thread safe.
+	 * Must not be called at the same time another thread is attempting to read from this copy.
+	 */
+	@Override
+	public synchronized void release() {
+		copies.release(thisCopy);
+	}
+
+	/**
+	 * Check to see if this copy has been deleted.
+	 */
+	@Override
+	public boolean isReleased() {
+		return thisCopy.isReleased();
+	}
+
+	/**
+	 * Get the number of keys in this copy of the map.
+	 *
+	 * @return the number of keys
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Check if this copy of the map is empty.
+	 *
+	 * @return true if the map has no keys
+	 */
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	/**
+	 * Check if a key is in this copy of the map.
+	 *
+	 * @param key
+	 * 		the key
+	 * @return true if the key has a value in this copy
+	 */
+	public boolean containsKey(final long key) {
+		return data.get(key, version) != null;
+	}
+
+	/**
+	 * Returns the version of the copy.
+	 *
+	 * @return the version of the copy
+	 */
+	public long version() {
+		return version;
+	}
+
+	/**
+	 * Get the value of a key.
+	 *
+	 * Not thread safe on an immutable copy of the map if it is possible that another thread may have deleted the
+	 * map copy. Map deletion and reads against the map must be externally synchronized. The function isReleased()
+	 * can be used to check to see if the copy has been deleted.
+	 *
+	 * @param key
+	 * 		the key
+	 * @return the value, or null if the key is not in this copy
+	 */
+	public V get(final long key) {
+		return data.get(key, version);
+	}
+
+	/**
+	 * Get a value that is safe to directly modify. See {@link FCHashMap#getForModify(Object)}, this has the same
+	 * semantics.
+	 *
+	 * @param key
+	 * 		the key
+	 * @return a {@link FCHashMap.ModifiableValue} that contains a value is safe to directly modify, or null if the key
+	 * 		is not in the map
+	 */
+	public FCHashMap.ModifiableValue<V> getForModify(final long key) {
+		throwIfImmutable();
+		return data.getForModify(key, version);
+	}
+
+	/**
+	 * Set the value of a key.
+	 *
+	 * @param key
+	 * 		the key
+	 * @param value
+	 * 		the new value
+	 * @return the previous value, or null if the key was not in the map
+	 * @throws NullPointerException
+	 * 		if the value is null
+	 */
+	public V put(final long key, final V value) {
+		if (value == null) {
+			throw new NullPointerException("null values are not supported");
+		}
+		return mutate(key, value);
+	}
+
+	/**
+	 * Remove a key.
+	 *
+	 * @param key
+	 * 		the key
+	 * @return the value the key had, or null if the key was not in the map
+	 */
+	public V remove(final long key) {
+		return mutate(key, null);
+	}
+
+	/**
+	 * Pass every entry of this copy to a consumer, in no particular order. Must not be called concurrently with
+	 * writes to the mutable copy.
+	 *
+	 * @param consumer
+	 * 		receives each key and its value
+	 */
+	public void forEach(final EntryConsumer<V> consumer) {
+		data.forEach(version, consumer);
+	}
+
+	/**
+	 * Update the value for a key at this version.
+	 *
+	 * @param key
+	 * 		the key associated that will hold the new value
+	 * @param value
+	 * 		the new value, or null if this operation signifies a deletion.
+	 * @return the original value, or null if originally deleted
+	 */
+	private V mutate(final long key, final V value) {
+		throwIfImmutable();
+
+		final V originalValue = data.mutate(key, value, version);
+
+		// update size of the map
+		if (originalValue == null && value != null) {
+			size.getAndIncrement();
+		} else if (originalValue != null && value == null) {
+			size.getAndDecrement();
+		}
+
+		return originalValue;
+	}
+}
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.fchashmap;
+
+import com.swirlds.common.FastCopyable;
+import com.swirlds.fchashmap.internal.LongGarbageCollectionEvents;
+import com.swirlds.fchashmap.internal.Mutation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The mutations of all copies of an {@link FCLongHashMap}, stored in open addressing tables of primitive keys.
+ * <p>
+ * Each slot holds a key, a version and a value. Most keys have a single mutation, which is stored without a
+ * {@link Mutation} object: the value goes in the slot, and the version of the copy that wrote it goes in the version
+ * array. Only a key that has mutations in more than one version not yet garbage collected stores a {@link Mutation}
+ * list in place of its value, just like {@link FCHashMap}. Garbage collection turns a list that is down to a single
+ * mutation back into a bare value.
+ * <p>
+ * The table is split into segments. Lookups never lock, writes lock their segment. A slot's version is only meaningful
+ * while the slot holds a bare value, and a lookup reads the version before the value. So a bare value is only ever
+ * written over by a value with the same version, or by a {@link Mutation} list, which carries its own versions. When
+ * a list becomes a bare value the version is written first, and a key that comes back after being removed starts as
+ * a list, so a lookup can never pair a bare value with a version it was not written with. A removed key keeps its
+ * slot with a null value until the segment's table is rebuilt, so a probe sequence is never broken under a lookup.
+ * A rebuilt table is only published once it is complete, and the old table is never written to again.
+ *
+ * @param <V>
+ * 		the type of the value
+ */
+final class LongMutationTable<V> implements MapCopies.Events {
+
+	/**
+	 * Marks a slot that has never been used. This key can not be stored.
+	 */
+	static final long EMPTY = Long.MIN_VALUE;
+
+	/**
+	 * The number of segments, each locked separately by writers. Must be a power of two.
+	 */
+	private static final int SEGMENT_COUNT = 16;
+
+	/**
+	 * The number of bits needed to pick a segment.
+	 */
+	private static final int SEGMENT_BITS = Integer.numberOfTrailingZeros(SEGMENT_COUNT);
+
+	/**
+	 * The initial number of slots in the table of each segment. Must be a power of two.
+	 */
+	private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+	/**
+	 * A table is rebuilt once more than this fraction of its slots have ever been used. A lookup relies on there
+	 * always being an empty slot to stop at.
+	 */
+	private static final double MAX_LOAD_FACTOR = 0.75;
+
+	/**
+	 * The segments, picked by the high bits of the mixed key.
+	 */
+	private final Segment<V>[] segments;
+
+	/**
+	 * Keys that will need garbage collection.
+	 */
+	private final LongGarbageCollectionEvents garbageCollectionEvents;
+
+	/**
+	 * Create a new, empty table.
+	 *
+	 * @param garbageCollectionEvents
+	 * 		the queue to add garbage collection events to
+	 */
+	@SuppressWarnings("unchecked")
+	LongMutationTable(final LongGarbageCollectionEvents garbageCollectionEvents) {
+		this.garbageCollectionEvents = garbageCollectionEvents;
+		segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new Segment<>();
+		}
+	}
+
+	/**
+	 * Get the value of a key in a copy. Never locks.
+	 *
+	 * @param key
+	 * 		the key
+	 * @param version
+	 * 		the version of the copy
+	 * @return the value, or null if the key is not in the copy
+	 */
+	V get(final long key, final long version) {
+		final long hash = mix(key);
+		final Table table = segmentFor(hash).table;
+		for (int slot = (int) hash & table.mask; ; slot = (slot + 1) & table.mask) {
+			final long slotKey = table.keys.get(slot);
+			if (slotKey == key) {
+				// the version must be read before the value
+				final long slotVersion = table.versions.get(slot);
+				return resolve(table.values.get(slot), slotVersion, version);
+			}
+			if (slotKey == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Set the value of a key in the mutable copy.
+	 *
+	 * @param key
+	 * 		the key
+	 * @param value
+	 * 		the new value, or null to remove the key
+	 * @param version
+	 * 		the version of the mutable copy
+	 * @return the value the key had in the mutable copy, or null if it had none
+	 */
+	@SuppressWarnings("unchecked")
+	V mutate(final long key, final V value, final long version) {
+		final long hash = mix(key);
+		final Segment<V> segment = segmentFor(hash);
+		synchronized (segment) {
+			final Table table = segment.table;
+			final int slot = findSlot(table, key, hash);
+			final Object current = table.values.get(slot);
+
+			if (current == null) {
+				if (value == null) {
+					return null;
+				}
+				if (table.keys.get(slot) == EMPTY) {
+					table.versions.set(slot, version);
+					table.values.set(slot, value);
+					table.keys.set(slot, key);
+					segment.added(table);
+				} else {
+					// A removed key, lookups may still read the version of its old value. Start with a mutation
+					// that carries its own version, and let garbage collection turn it into a bare value.
+					table.values.set(slot, new Mutation<>(version, value, null));
+					segment.size++;
+					registerGarbageCollectionEvent(key, version - 1);
+				}
+				return null;
+			}
+
+			if (current instanceof Mutation) {
+				final Mutation<V> mutationHead = (Mutation<V>) current;
+				final V original = mutationHead.getValue();
+				if (mutationHead.getVersion() == version) {
+					// mutation for this version already exists
+					mutationHead.setValue(value);
+					if (value == null && mutationHead.getPrevious() == null) {
+						table.values.set(slot, null);
+						segment.size--;
+					}
+				} else {
+					table.values.set(slot, new Mutation<>(version, value, mutationHead));
+					registerGarbageCollectionEvent(key, version - 1);
+				}
+				return original;
+			}
+
+			final V original = (V) current;
+			final long currentVersion = table.versions.get(slot);
+			if (currentVersion == version) {
+				table.values.set(slot, value);
+				if (value == null) {
+					segment.size--;
+				}
+			} else {
+				table.values.set(slot, new Mutation<>(version, value, new Mutation<>(currentVersion, original, null)));
+				registerGarbageCollectionEvent(key, version - 1);
+			}
+			return original;
+		}
+	}
+
+	/**
+	 * Get a value of the mutable copy that is safe to modify, copying it if it was written by an older copy. See
+	 * {@link FCHashMap#getForModify(Object)}.
+	 *
+	 * @param key
+	 * 		the key
+	 * @param version
+	 * 		the version of the mutable copy
+	 * @return the value that is safe to modify and the original value, or null if the key is not in the copy
+	 */
+	@SuppressWarnings("unchecked")
+	FCHashMap.ModifiableValue<V> getForModify(final long key, final long version) {
+		final long hash = mix(key);
+		final Segment<V> segment = segmentFor(hash);
+		synchronized (segment) {
+			final Table table = segment.table;
+			final int slot = findSlot(table, key, hash);
+			final Object current = table.values.get(slot);
+
+			if (current == null) {
+				return null;
+			}
+
+			if (current instanceof Mutation) {
+				final Mutation<V> mutationHead = (Mutation<V>) current;
+				final V original = mutationHead.getValue();
+				if (original == null) {
+					return null;
+				}
+				if (mutationHead.getVersion() == version) {
+					return new FCHashMap.ModifiableValue<>(original, original);
+				}
+				final V copy = (V) ((FastCopyable) original).copy();
+				table.values.set(slot, new Mutation<>(version, copy, mutationHead));
+				registerGarbageCollectionEvent(key, version - 1);
+				return new FCHashMap.ModifiableValue<>(copy, original);
+			}
+
+			final V original = (V) current;
+			final long currentVersion = table.versions.get(slot);
+			if (currentVersion == version) {
+				return new FCHashMap.ModifiableValue<>(original, original);
+			}
+			final V copy = (V) ((FastCopyable) original).copy();
+			table.values.set(slot, new Mutation<>(version, copy, new Mutation<>(currentVersion, original, null)));
+			registerGarbageCollectionEvent(key, version - 1);
+			return new FCHashMap.ModifiableValue<>(copy, original);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return garbageCollectionEvents.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long firstVersion() {
+		return garbageCollectionEvents.firstVersion();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void collectFirst() {
+		final long version = garbageCollectionEvents.firstVersion();
+		cleanOldMutations(garbageCollectionEvents.removeFirst(), version);
+	}
+
+	/**
+	 * Remove the mutations of a key that are no longer needed by any copy. As in {@link FCHashMap}, the version is
+	 * the version of the garbage collection event, so the mutation written right after it is kept for the copies
+	 * that are still around, and only the mutations before it are truncated.
+	 *
+	 * @param key
+	 * 		the key that requires garbage collection
+	 * @param version
+	 * 		the version of the garbage collection event, all copies up to and including this version are released
+	 */
+	@SuppressWarnings("unchecked")
+	private void cleanOldMutations(final long key, final long version) {
+		final long hash = mix(key);
+		final Segment<V> segment = segmentFor(hash);
+		synchronized (segment) {
+			final Table table = segment.table;
+			final int slot = findSlot(table, key, hash);
+			if (!(table.values.get(slot) instanceof Mutation)) {
+				return;
+			}
+
+			final Mutation<V> mutationHead = (Mutation<V>) table.values.get(slot);
+			Mutation<V> parent = mutationHead;
+			Mutation<V> target = parent.getPrevious();
+
+			while (target != null) {
+				// truncate all older mutations
+				if (target.getVersion() <= version) {
+					parent.setPrevious(null);
+					break;
+				}
+
+				parent = target;
+				target = parent.getPrevious();
+			}
+
+			if (mutationHead.getPrevious() == null) {
+				if (mutationHead.getValue() == null) {
+					// the key can be removed if just a single deletion record remains
+					table.values.set(slot, null);
+					segment.size--;
+				} else {
+					// store a single mutation as a bare value, the version has to be visible first
+					table.versions.set(slot, mutationHead.getVersion());
+					table.values.set(slot, mutationHead.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pass every entry of a copy to a consumer, in no particular order. Must not be called concurrently with writes.
+	 *
+	 * @param version
+	 * 		the version of the copy
+	 * @param consumer
+	 * 		receives the entries
+	 */
+	void forEach(final long version, final FCLongHashMap.EntryConsumer<V> consumer) {
+		for (final Segment<V> segment : segments) {
+			final Table table = segment.table;
+			for (int slot = 0; slot <= table.mask; slot++) {
+				final long key = table.keys.get(slot);
+				if (key != EMPTY) {
+					// the version must be read before the value
+					final long slotVersion = table.versions.get(slot);
+					final V value = resolve(table.values.get(slot), slotVersion, version);
+					if (value != null) {
+						consumer.accept(key, value);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the value a copy sees in a slot.
+	 *
+	 * @param slotValue
+	 * 		the bare value or {@link Mutation} list in the slot
+	 * @param slotVersion
+	 * 		the version in the slot, read before the value
+	 * @param version
+	 * 		the version of the copy
+	 * @return the value of the copy, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	private static <V> V resolve(final Object slotValue, final long slotVersion, final long version) {
+		if (slotValue instanceof Mutation) {
+			Mutation<V> mutation = (Mutation<V>) slotValue;
+			while (mutation != null && mutation.getVersion() > version) {
+				mutation = mutation.getPrevious();
+			}
+			return mutation == null ? null : mutation.getValue();
+		}
+		return slotVersion <= version ? (V) slotValue : null;
+	}
+
+	private void registerGarbageCollectionEvent(final long key, final long version) {
+		garbageCollectionEvents.add(key, version);
+		FCHashMapGarbageCollector.registerMutation();
+	}
+
+	private Segment<V> segmentFor(final long hash) {
+		return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+	}
+
+	/**
+	 * Find the slot holding a key, or the empty slot where it would go. Must be called while holding the lock of
+	 * the key's segment.
+	 */
+	private static int findSlot(final Table table, final long key, final long hash) {
+		if (key == EMPTY) {
+			throw new IllegalArgumentException("Key " + EMPTY + " is reserved");
+		}
+		int slot = (int) hash & table.mask;
+		long slotKey;
+		while ((slotKey = table.keys.get(slot)) != key && slotKey != EMPTY) {
+			slot = (slot + 1) & table.mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Spread the bits of a key, so that both the segment (high bits) and the slot (low bits) depend on all of it.
+	 */
+	private static long mix(final long key) {
+		final long hash = key * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 29);
+	}
+
+	/**
+	 * A part of the table with its own open addressing table. Writers lock the segment, readers just read its table.
+	 */
+	private static final class Segment<V> {
+		/** The current table, replaced by a new one when rebuilt */
+		private volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+		/** The number of keys with a value or mutations, guarded by this */
+		private int size;
+		/** The number of slots in the table that are not empty, including removed keys, guarded by this */
+		private int usedSlots;
+
+		/**
+		 * Count a key added to an empty slot of the table, and rebuild the table if it got too full. Must be
+		 * called while holding the lock.
+		 */
+		private void added(final Table current) {
+			size++;
+			if (++usedSlots > current.maxUsedSlots) {
+				rebuild();
+			}
+		}
+
+		/**
+		 * Replace the table with a new one holding just the keys with a value or mutations, large enough that it
+		 * is at most half full. Must be called while holding the lock.
+		 */
+		private void rebuild() {
+			final Table oldTable = table;
+			final int capacity = Math.max(INITIAL_SEGMENT_CAPACITY, Integer.highestOneBit(Math.max(1, size)) << 2);
+			final Table newTable = new Table(capacity);
+			int used = 0;
+			for (int oldSlot = 0; oldSlot <= oldTable.mask; oldSlot++) {
+				final long key = oldTable.keys.get(oldSlot);
+				final Object value = key == EMPTY ? null : oldTable.values.get(oldSlot);
+				if (value != null) {
+					int slot = (int) mix(key) & newTable.mask;
+					while (newTable.keys.get(slot) != EMPTY) {
+						slot = (slot + 1) & newTable.mask;
+					}
+					newTable.versions.set(slot, oldTable.versions.get(oldSlot));
+					newTable.values.set(slot, value);
+					newTable.keys.set(slot, key);
+					used++;
+				}
+			}
+			usedSlots = used;
+			table = newTable;
+		}
+	}
+
+	/**
+	 * An open addressing table of keys, versions and values.
+	 */
+	private static final class Table {
+		/** The key in each slot, or {@link #EMPTY} */
+		private final AtomicLongArray keys;
+		/** The version of the bare value in each slot, not used for slots holding a {@link Mutation} list */
+		private final AtomicLongArray versions;
+		/** The bare value or {@link Mutation} list in each slot, null for an empty slot or a removed key */
+		private final AtomicReferenceArray<Object> values;
+		/** The number of slots minus one, the number of slots is a power of two */
+		private final int mask;
+		/** The number of used slots above which the table is rebuilt */
+		private final int maxUsedSlots;
+
+		private Table(final int capacity) {
+			this.keys = new AtomicLongArray(capacity);
+			for (int slot = 0; slot < capacity; slot++) {
+				this.keys.set(slot, EMPTY);
+			}
+			this.versions = new AtomicLongArray(capacity);
+			this.values = new AtomicReferenceArray<>(capacity);
+			this.mask = capacity - 1;
+			this.maxUsedSlots = (int) (capacity * MAX_LOAD_FACTOR);
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.fchashmap;
+
+import com.swirlds.common.ReferenceCountException;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The copies of a map that have not yet been garbage collected, shared by all copies of the map, and the garbage
+ * collection of the mutations those copies no longer need. {@link FCHashMap} and {@link FCLongHashMap} only differ
+ * in how they store their garbage collection events and mutations, which they provide as {@link Events}.
+ * <p>
+ * Events must be added in order of version, the garbage collection of a copy stops at the first event with a newer
+ * version.
+ */
+final class MapCopies {
+
+	/**
+	 * The garbage collection events of a map, in the order they were added. Events may be added by any thread,
+	 * but only the thread doing garbage collection removes them.
+	 */
+	interface Events {
+		/**
+		 * Check if there are no events.
+		 *
+		 * @return true if there are no events
+		 */
+		boolean isEmpty();
+
+		/**
+		 * Get the version of the first event. Only called when there are events.
+		 *
+		 * @return the version which triggers garbage collection of the first event when it is released
+		 */
+		long firstVersion();
+
+		/**
+		 * Remove the first event, and remove the mutations of its key that are no longer needed. All copies up to
+		 * and including the version of the event have been released. Only called when there are events.
+		 */
+		void collectFirst();
+	}
+
+	/**
+	 * A single copy of the map.
+	 */
+	static final class Copy {
+		/**
+		 * The version of the copy.
+		 */
+		private final long version;
+
+		/**
+		 * Tracks if this copy has been released.
+		 */
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		private Copy(final long version) {
+			this.version = version;
+		}
+
+		/**
+		 * Check if this copy has been released.
+		 *
+		 * @return true if the copy has been released
+		 */
+		boolean isReleased() {
+			return released.get();
+		}
+	}
+
+	/**
+	 * All copies of the map that have not yet been garbage collected. New copies are added to the end,
+	 * old copies are removed from the beginning.
+	 */
+	private final Deque<Copy> copies = new ConcurrentLinkedDeque<>();
+
+	/**
+	 * Prevents multiple threads from attempting to do simultaneous garbage collection.
+	 */
+	private final Lock garbageCollectionLock = new ReentrantLock();
+
+	/**
+	 * Contains a record of things that need to be garbage collected.
+	 */
+	private final Events garbageCollectionEvents;
+
+	/**
+	 * Create the copies of a new map.
+	 *
+	 * @param garbageCollectionEvents
+	 * 		the garbage collection events of the map
+	 */
+	MapCopies(final Events garbageCollectionEvents) {
+		this.garbageCollectionEvents = garbageCollectionEvents;
+	}
+
+	/**
+	 * Add a new copy, which must have a newer version than all the existing copies.
+	 *
+	 * @param version
+	 * 		the version of the new copy
+	 * @return the new copy
+	 */
+	Copy add(final long version) {
+		final Copy copy = new Copy(version);
+		copies.add(copy);
+		return copy;
+	}
+
+	/**
+	 * Get the total number of copies that have not been fully garbage collected (including copies not eligible for
+	 * garbage collection).
+	 *
+	 * @return the number of un-garbage-collected copies
+	 */
+	int size() {
+		return copies.size();
+	}
+
+	/**
+	 * Release a copy. The mutations it no longer needs are garbage collected later on a background thread.
+	 *
+	 * @param copy
+	 * 		the copy to release
+	 * @throws ReferenceCountException
+	 * 		if the copy has already been released
+	 */
+	void release(final Copy copy) {
+		final boolean previouslyReleased = copy.released.getAndSet(true);
+		if (previouslyReleased) {
+			throw new ReferenceCountException("this object has already been released");
+		}
+		FCHashMapGarbageCollector.schedule(this::doGarbageCollection);
+	}
+
+	/**
+	 * Perform garbage collection on the released copies of the map, collecting at most the given number of
+	 * mutations.
+	 *
+	 * @param maxEvents
+	 * 		the maximum number of garbage collection events to process
+	 * @return true if garbage collection is done for now, false if it stopped at maxEvents and there is more to do
+	 */
+	boolean doGarbageCollection(final int maxEvents) {
+		if (!garbageCollectionLock.tryLock()) {
+			// Another thread is currently doing garbage collection. That thread will do GC
+			// for this copy, or else the next release of a copy will do GC for this copy.
+			return true;
+		}
+
+		int eventCount = 0;
+		try {
+			final Iterator<Copy> iterator = copies.iterator();
+
+			while (iterator.hasNext()) {
+				final Copy copy = iterator.next();
+				if (!copy.isReleased()) {
+					// Stop when the first unreleased copy is discovered.
+					return true;
+				}
+
+				// Only this thread removes events, so the first event can not change between the calls below.
+				while (!garbageCollectionEvents.isEmpty()) {
+					if (garbageCollectionEvents.firstVersion() > copy.version) {
+						// Stop when the first event from the next version is discovered.
+						break;
+					}
+					if (eventCount == maxEvents) {
+						// The rest of this copy's events are collected in a later slice.
+						return false;
+					}
+
+					garbageCollectionEvents.collectFirst();
+					eventCount++;
+				}
+				iterator.remove();
+			}
+			return true;
+		} finally {
+			garbageCollectionLock.unlock();
+			FCHashMapGarbageCollector.mutationsCollected(eventCount);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.fchashmap.internal;
+
+/**
+ * A queue of garbage collection events for a map with {@code long} keys, the equivalent of a queue of
+ * {@link GarbageCollectionEvent}s. Each event is the key that requires garbage collection and the version which
+ * triggers garbage collection when it is deleted. Events are stored in a pair of growable ring buffers, so queueing
+ * an event does not allocate an object. All methods are synchronized, any number of threads may add events.
+ */
+public class LongGarbageCollectionEvents {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Buffers bigger than this are dropped once the queue is empty, so a single large round does not hold on to
+	 * memory for good.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	/** The key of each event */
+	private long[] keys = new long[INITIAL_CAPACITY];
+
+	/** The version of each event */
+	private long[] versions = new long[INITIAL_CAPACITY];
+
+	/** The index of the first event */
+	private int head;
+
+	/** The number of events in the queue */
+	private int size;
+
+	/**
+	 * Add an event to the end of the queue.
+	 *
+	 * @param key
+	 * 		the key that requires garbage collection
+	 * @param version
+	 * 		the version which triggers garbage collection when it is deleted
+	 */
+	public synchronized void add(final long key, final long version) {
+		if (size == keys.length) {
+			grow();
+		}
+		final int index = (head + size) & (keys.length - 1);
+		keys[index] = key;
+		versions[index] = version;
+		size++;
+	}
+
+	/**
+	 * Check if the queue is empty.
+	 *
+	 * @return true if there are no events
+	 */
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Get the version of the first event. Must not be called if the queue is empty.
+	 *
+	 * @return the version of the first event
+	 */
+	public synchronized long firstVersion() {
+		if (size == 0) {
+			throw new IllegalStateException("No events in the queue");
+		}
+		return versions[head];
+	}
+
+	/**
+	 * Remove the first event. Must not be called if the queue is empty.
+	 *
+	 * @return the key of the removed event
+	 */
+	public synchronized long removeFirst() {
+		if (size == 0) {
+			throw new IllegalStateException("No events in the queue");
+		}
+		final long key = keys[head];
+		head = (head + 1) & (keys.length - 1);
+		size--;
+		if (size == 0) {
+			head = 0;
+			if (keys.length > MAX_RETAINED_CAPACITY) {
+				keys = new long[INITIAL_CAPACITY];
+				versions = new long[INITIAL_CAPACITY];
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Double the capacity, moving the events to the start of the new buffers.
+	 */
+	private void grow() {
+		final int capacity = keys.length;
+		final long[] newKeys = new long[capacity << 1];
+		final long[] newVersions = new long[capacity << 1];
+		final int firstPart = capacity - head;
+		System.arraycopy(keys, head, newKeys, 0, firstPart);
+		System.arraycopy(keys, 0, newKeys, firstPart, head);
+		System.arraycopy(versions, head, newVersions, 0, firstPart);
+		System.arraycopy(versions, 0, newVersions, firstPart, head);
+		keys = newKeys;
+		versions = newVersions;
+		head = 0;
+	}
+}
@@ -19,30 +19,36 @@ import com.swirlds.common.crypto.Cryptography;
 import com.swirlds.common.crypto.DigestType;
 import com.swirlds.common.crypto.Hash;
 import com.swirlds.common.crypto.ImmutableHash;
+import com.swirlds.common.crypto.Message;
+import com.swirlds.common.crypto.SerializableHashable;
 import com.swirlds.common.io.SerializableDataInputStream;
 import com.swirlds.common.io.SerializableDataOutputStream;
 import com.swirlds.common.list.ListDigestException;
 import com.swirlds.common.merkle.utility.AbstractMerkleLeaf;
 import com.swirlds.fcqueue.internal.FCQHashAlgorithm;
-import com.swirlds.fcqueue.internal.FCQueueNode;
-import com.swirlds.fcqueue.internal.FCQueueNodeBackwardIterator;
-import com.swirlds.fcqueue.internal.FCQueueNodeIterator;
+import com.swirlds.fcqueue.internal.FCQueueChunk;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static com.swirlds.common.CommonUtils.hex;
 import static com.swirlds.common.io.DataStreamUtils.readValidInt;
+import static com.swirlds.logging.LogMarker.EXCEPTION;
 
 /**
  * A threadsafe fast-copyable queue, each of whose elements is fast-copyable. Elements must always be inserted at the
@@ -50,8 +56,7 @@ import static com.swirlds.common.io.DataStreamUtils.readValidInt;
  * mutable and the original queue becomes immutable. A mutable fast copy can only be created from a mutable queue,
  * which would then become immutable after creating this mutable fast copy, or by using the "new" operator.
  *
- * Element insertion/deletion and fast copy creation/deletion all take constant time. Except that if a queue has n
- * elements that are not in any other queue in its queue group, then deleting it takes O(n) time.
+ * Element insertion/deletion and fast copy creation/deletion all take constant time.
  *
  * The FCQueue objects can be thought of as being organized into "queue groups". A fast copy of a queue creates another
  * queue in the same queue group. But instantiating a queue with "new" and the constructor creates a new queue group.
@@ -60,6 +65,14 @@ import static com.swirlds.common.io.DataStreamUtils.readValidInt;
  * groups at the same time. It is ok for multiple iterators to be running in multiple threads at the same time within
  * any thread group. An iterator for a queue will throw an exception if it is used after a write to that queue,
  * but it is unaffected by writes to other queues in that queue group.
+ *
+ * The elements of a queue group are stored in a linked list of fixed size arrays ({@link FCQueueChunk}), and each queue
+ * is a window of that list. Only the mutable queue writes, and only after its tail, so the arrays are shared between
+ * fast copies without being copied.
+ *
+ * The hash of each element is computed in the background by the {@link Cryptography} engine, starting as soon as the
+ * element is added, so {@link #getHash()} usually only has to fold already computed element hashes into the running
+ * hash. An element must therefore not be modified once it has been added.
  */
 public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implements Queue<E> {
 
@@ -121,11 +134,29 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 	/** the number of elements in this queue */
 	protected int size;
 
-	/** the head of this queue */
-	protected FCQueueNode<E> head;
+	/** the maximum number of added elements whose digests are started together */
+	private static final int DIGEST_BATCH_SIZE = 256;
+
+	/** the chunk holding the first element added to this queue whose digest has not been started yet */
+	private FCQueueChunk<E> undigestedChunk;
+
+	/** the index of that element in {@link #undigestedChunk} */
+	private int undigestedIndex;
+
+	/** the digests of the serialized elements added since {@link #undigestedChunk}, not started yet */
+	private final List<Message> undigestedMessages = new ArrayList<>();
+
+	/** the chunk holding the head of this queue, or null if the queue is empty */
+	protected FCQueueChunk<E> headChunk;
 
-	/** the tail of this queue */
-	protected FCQueueNode<E> tail;
+	/** the index of the head in {@link #headChunk} */
+	protected int headIndex;
+
+	/** the chunk holding the tail of this queue, or null if the queue is empty */
+	protected FCQueueChunk<E> tailChunk;
+
+	/** the index after the tail in {@link #tailChunk} */
+	protected int tailIndex;
 
 	/** the hash of set of elements in the queue. */
 	protected final byte[] hash = new byte[digestType.digestLength()];
@@ -141,8 +172,8 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 	 */
 	public FCQueue() {
 		size = 0;
-		head = null;
-		tail = null;
+		headChunk = null;
+		tailChunk = null;
 		//the first in a queue group is mutable until copy(true) is called on it
 		setImmutable(false);
 	}
@@ -152,8 +183,10 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 		super(fcQueue);
 		this.size = fcQueue.size;
 		System.arraycopy(fcQueue.hash, 0, this.hash, 0, this.hash.length);
-		this.head = fcQueue.head;
-		this.tail = fcQueue.tail;
+		this.headChunk = fcQueue.headChunk;
+		this.headIndex = fcQueue.headIndex;
+		this.tailChunk = fcQueue.tailChunk;
+		this.tailIndex = fcQueue.tailIndex;
 		this.runningHashSize = fcQueue.runningHashSize;
 		this.setImmutable(false);
 	}
@@ -173,46 +206,61 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 
 
 		final byte[] localHash;
-		final Iterator<FCQueueNode<E>> it;
+		FCQueueChunk<E> chunk;
+		int chunkIndex;
 		final int currentSize;
 		final int currentRunningHashSize;
+		final int currentNumChanges;
 
 		synchronized (this) {
-			if (head == null) {
+			if (headChunk == null) {
 				return new ImmutableHash(getNullHash());
 			}
 
+			startDigests();
+
 			if (size == runningHashSize) {
 				return new ImmutableHash(hash);
 			}
 
 			currentSize = size;
-			it = nodeBackwardIterator();
+			chunk = headChunk;
+			chunkIndex = headIndex;
 			localHash = Arrays.copyOf(hash, hash.length);
 			currentRunningHashSize = runningHashSize;
+			currentNumChanges = numChanges;
 		}
 
+		// skip the elements already in the running hash, at the head
+		int skip = currentRunningHashSize;
+		while (skip >= chunk.capacity() - chunkIndex) {
+			skip -= chunk.capacity() - chunkIndex;
+			chunk = chunk.getNext();
+			chunkIndex = 0;
+		}
+		chunkIndex += skip;
+
+		// fold in the remaining elements, the tail gets exponent 0
 		final int limit = currentSize - currentRunningHashSize;
 		FCQHashAlgorithm.increaseRollingBase(limit, localHash);
-		int index = 0;
-		while (index < limit) {
-			final FCQueueNode<E> node = it.next();
-			final byte[] elementHash;
-
-			if (node.getElementHashOfHash() == null) {
-				elementHash = getHash(node.getElement());
-				node.setElementHashOfHash(elementHash);
-			} else {
-				elementHash = node.getElementHashOfHash();
+		for (int exponent = limit - 1; exponent >= 0; exponent--) {
+			if (chunkIndex == chunk.capacity()) {
+				chunk = chunk.getNext();
+				chunkIndex = 0;
 			}
 
-			HASH_ALGORITHM.computeHash(localHash, elementHash, index);
-			index++;
+			final byte[] elementHash = getElementHashOfHash(chunk, chunkIndex);
+			HASH_ALGORITHM.computeHash(localHash, elementHash, exponent);
+			chunkIndex++;
 		}
 
 		synchronized (this) {
-			runningHashSize = currentSize;
-			System.arraycopy(localHash, 0, hash, 0, hash.length);
+			// if the queue changed while the hash was computed, the hash is still that of the elements it was
+			// computed from, but it no longer matches the queue and so is not kept as the running hash
+			if (numChanges == currentNumChanges) {
+				runningHashSize = currentSize;
+				System.arraycopy(localHash, 0, hash, 0, hash.length);
+			}
 		}
 
 		watch.stop();
@@ -222,7 +270,7 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 			FCQueueStatistics.fcqHashExecutionMicros.recordValue(watch.getTime(TimeUnit.MICROSECONDS));
 		}
 
-		return new ImmutableHash(hash);
+		return new ImmutableHash(localHash);
 	}
 
 	/**
@@ -274,6 +322,27 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 			watch.start();
 		}
 
+		addElement(o);
+		if (undigestedMessages.size() >= DIGEST_BATCH_SIZE) {
+			startDigests();
+		}
+
+		if (watch != null) {
+			watch.stop();
+			FCQueueStatistics.fcqAddExecutionMicros.recordValue(watch.getTime(TimeUnit.MICROSECONDS));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Add an element at the tail. The digest of the element is prepared, and started by the next call to
+	 * {@link #startDigests()}.
+	 *
+	 * @param o
+	 * 		the element to add
+	 */
+	private void addElement(final E o) {
 		if (isImmutable()) {
 			throw new IllegalStateException("tried to modify an immutable FCQueue");
 		}
@@ -289,29 +358,62 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 							MAX_ELEMENTS));
 		}
 
-		final FCQueueNode<E> node;
+		// serialize before changing anything, so an element that can not be hashed is not added
+		final Message elementDigest = new Message(serialize(o), digestType);
+
+		if (tailChunk == null || tailIndex == tailChunk.capacity()) {
+			// no other queue in the group can see past our tail, so a chunk is never linked twice
+			final FCQueueChunk<E> chunk = new FCQueueChunk<>(FCQueueChunk.capacityFor(size));
+			if (tailChunk == null) { //current list is empty
+				headChunk = chunk;
+				headIndex = 0;
+			} else {
+				tailChunk.setNext(chunk);
+			}
+			tailChunk = chunk;
+			tailIndex = 0;
+		}
 
-		if (tail == null) { //current list is empty
-			node = new FCQueueNode<>(o);
-			head = node;
-		} else { //current list is nonempty, so add to the tail
-			node = this.tail.insertAtTail(o);
-			node.setTowardHead(tail);
-			node.setTowardTail(null);
-			tail.setTowardTail(node);
-			tail.decRefCount();
+		if (undigestedMessages.isEmpty()) {
+			undigestedChunk = tailChunk;
+			undigestedIndex = tailIndex;
 		}
-		tail = node;
+		undigestedMessages.add(elementDigest);
+
+		tailChunk.setElement(tailIndex, o);
+		tailIndex++;
 
 		size++;
 		numChanges++;
+	}
 
-		if (watch != null) {
-			watch.stop();
-			FCQueueStatistics.fcqAddExecutionMicros.recordValue(watch.getTime(TimeUnit.MICROSECONDS));
+	/**
+	 * Start the digests of the elements added since the last call on the {@link Cryptography} engine's threads, in a
+	 * single batch. An element only gets its digest once the digest has been queued, so nobody waits for a digest
+	 * that was never started. Must be called while holding the lock.
+	 */
+	private void startDigests() {
+		if (undigestedMessages.isEmpty()) {
+			return;
 		}
 
-		return true;
+		final List<Message> messages = new ArrayList<>(undigestedMessages);
+		CryptoFactory.getInstance().digestAsync(messages);
+
+		// if interrupted the digests may not have been queued, then the elements are hashed by getHash() instead
+		if (!Thread.currentThread().isInterrupted()) {
+			FCQueueChunk<E> chunk = undigestedChunk;
+			int chunkIndex = undigestedIndex;
+			for (final Message message : messages) {
+				if (chunkIndex == chunk.capacity()) {
+					chunk = chunk.getNext();
+					chunkIndex = 0;
+				}
+				chunk.setElementDigest(chunkIndex++, message);
+			}
+		}
+		undigestedChunk = null;
+		undigestedMessages.clear();
 	}
 
 	/**
@@ -334,35 +436,36 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 
 		final E element;
 		final byte[] elementHash;
-		final FCQueueNode<E> oldHead;
-
-		oldHead = head;
 
 		if (isImmutable()) {
 			throw new IllegalArgumentException("tried to remove from an immutable FCQueue");
 		}
 
-		if (size == 0 || head == null) {
+		if (size == 0 || headChunk == null) {
 			throw new NoSuchElementException("tried to remove from an empty FCQueue");
 		}
 
-		// Retrieve the element and change the head pointer
-		elementHash = head.getElementHashOfHash();
-
-		element = head.getElement();
-		head = head.getTowardTail();
-
-		if (head == null) { //if just removed the last one, then tail should be null, too
-			tail.decRefCount();
-			tail = null;
-		} else {
-			head.incRefCount();
-		}
-
-		oldHead.decRefCount(); //this will garbage collect the old head, if no copies point to it
+		// Retrieve the element and move the head. The slot is not cleared, other queues in the group may see it.
+		elementHash = headChunk.getElementHashOfHash(headIndex);
+		element = headChunk.getElement(headIndex);
+		headIndex++;
 		size--;
 		numChanges++;
 
+		if (size == 0) {
+			// Drop the chunks, so removed elements are not kept reachable by this queue. Elements whose digests
+			// have not been started were only ever in this queue, so their digests are not needed any more.
+			headChunk = null;
+			headIndex = 0;
+			tailChunk = null;
+			tailIndex = 0;
+			undigestedChunk = null;
+			undigestedMessages.clear();
+		} else if (headIndex == headChunk.capacity()) {
+			headChunk = headChunk.getNext();
+			headIndex = 0;
+		}
+
 		if (elementHash != null && runningHashSize > 0) {
 			runningHashSize--;
 			HASH_ALGORITHM.computeRemoveHash(hash, elementHash, runningHashSize);
@@ -406,7 +509,7 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 	 */
 	@Override
 	public synchronized E poll() {
-		if (this.head == null) {
+		if (this.headChunk == null) {
 			return null;
 		}
 
@@ -424,11 +527,11 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 	 */
 	@Override
 	public synchronized E element() {
-		if (this.head == null) {
+		if (this.headChunk == null) {
 			throw new NoSuchElementException("tried to get the head of an empty FCQueue");
 		}
 
-		return head.getElement();
+		return headChunk.getElement(headIndex);
 	}
 
 	/**
@@ -439,11 +542,11 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 	 */
 	@Override
 	public synchronized E peek() {
-		if (this.head == null) {
+		if (this.headChunk == null) {
 			return null;
 		}
 
-		return head.getElement();
+		return headChunk.getElement(headIndex);
 	}
 
 	//////////////////////////////////////////////////////////////////////////////////////////////////
@@ -457,19 +560,13 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 			throw new IllegalStateException("Tried to make a copy of an immutable FCQueue");
 		}
 
+		// the copy shares all the elements, so their digests must have been started
+		startDigests();
 		final FCQueue<E> queue = new FCQueue<>(this);
 
 		//there can be only one mutable per queue group. If the copy is, then this isn't.
 		setImmutable(true);
 
-		if (head != null) {
-			head.incRefCount();
-		}
-
-		if (tail != null) {
-			tail.incRefCount();
-		}
-
 		return queue;
 	}
 
@@ -547,7 +644,7 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 	 */
 	@Override
 	public synchronized Iterator<E> iterator() {
-		return new FCQueueIterator<>(this, head, tail);
+		return new FCQueueIterator<>(this, headChunk, headIndex, size);
 	}
 
 	/**
@@ -555,40 +652,45 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 	 *
 	 * @return an {@code Iterator} over the elements in this collection in reverse order
 	 */
-	public Iterator<E> reverseIterator() {
+	public synchronized Iterator<E> reverseIterator() {
+		// the chunks are only linked toward the tail, so remember them to walk back
+		final List<FCQueueChunk<E>> chunks = new ArrayList<>();
+		for (FCQueueChunk<E> chunk = headChunk; chunk != null && chunk != tailChunk; chunk = chunk.getNext()) {
+			chunks.add(chunk);
+		}
+		if (tailChunk != null) {
+			chunks.add(tailChunk);
+		}
+		final int expectedNumChanges = numChanges;
+
 		return new Iterator<>() {
-			private final Iterator<FCQueueNode<E>> nodeIterator = nodeBackwardIterator();
+			private int chunkNumber = chunks.size() - 1;
+			private int chunkIndex = tailIndex - 1;
+			private int remaining = size;
 
 			@Override
 			public boolean hasNext() {
-				return nodeIterator.hasNext();
+				return remaining > 0;
 			}
 
 			@Override
 			public E next() {
-				return nodeIterator.next().getElement();
+				if (remaining == 0) {
+					throw new NoSuchElementException();
+				}
+				if (expectedNumChanges != getNumChanges()) {
+					throw new ConcurrentModificationException();
+				}
+				if (chunkIndex < 0) {
+					chunkNumber--;
+					chunkIndex = chunks.get(chunkNumber).capacity() - 1;
+				}
+				remaining--;
+				return chunks.get(chunkNumber).getElement(chunkIndex--);
 			}
 		};
 	}
 
-	/**
-	 * Returns an iterator over the internal nodes in this queue, in insertion order (head first, tail last).
-	 *
-	 * @return an {@code Iterator} over the elements in this collection
-	 */
-	protected synchronized Iterator<FCQueueNode<E>> nodeIterator() {
-		return new FCQueueNodeIterator<>(this, head, tail);
-	}
-
-	/**
-	 * Returns an iterator over the internal nodes in this queue, in reverse-insertion order (tail first, head last).
-	 *
-	 * @return an {@code Iterator} over the elements in this collection
-	 */
-	protected synchronized Iterator<FCQueueNode<E>> nodeBackwardIterator() {
-		return new FCQueueNodeBackwardIterator<>(this, head, tail);
-	}
-
 	/**
 	 * Returns an array containing all of the elements in this collection.
 	 * If this collection makes any guarantees as to what order its elements
@@ -735,11 +837,19 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 		return true;
 	}
 
-	/** {@inheritDoc} */
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The digests of all the elements are started in a single batch.
+	 */
 	@Override
 	public synchronized boolean addAll(final Collection<? extends E> c) {
-		for (final E e : c) {
-			add(e);
+		try {
+			for (final E e : c) {
+				addElement(e);
+			}
+		} finally {
+			startDigests();
 		}
 
 		return false;
@@ -791,18 +901,15 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 	}
 
 	private void clearInternal() {
-		if (head != null) {
-			head.decRefCount();
-			head = null;
-		}
-
-		if (tail != null) {
-			tail.decRefCount();
-			tail = null;
-		}
+		headChunk = null;
+		headIndex = 0;
+		tailChunk = null;
+		tailIndex = 0;
 
 		size = 0;
 		runningHashSize = 0;
+		undigestedChunk = null;
+		undigestedMessages.clear();
 		resetHash();
 	}
 
@@ -884,6 +991,65 @@ public class FCQueue<E extends FCQueueElement> extends AbstractMerkleLeaf implem
 		}
 	}
 
+	/**
+	 * Get the hash of the hash of an element, and remember it in its chunk. Uses the digest started when the element
+	 * was added, waiting for it if it is not done yet.
+	 *
+	 * @param chunk
+	 * 		the chunk holding the element
+	 * @param index
+	 * 		the index of the element in the chunk
+	 * @return the 48-byte hash of the hash of the element
+	 */
+	private byte[] getElementHashOfHash(final FCQueueChunk<E> chunk, final int index) {
+		final byte[] cachedHash = chunk.getElementHashOfHash(index);
+		if (cachedHash != null) {
+			return cachedHash;
+		}
+
+		final E element = chunk.getElement(index);
+		final Message elementDigest = chunk.getElementDigest(index);
+		byte[] elementHash = null;
+		if (elementDigest != null) {
+			try {
+				elementDigest.waitForFuture().get();
+				element.setHash(elementDigest.getHash());
+				//return a hash of a hash, in order to make state proofs smaller in the future
+				elementHash = CryptoFactory.getInstance().digestSync(elementDigest.getHash()).getValue();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (final ExecutionException e) {
+				log.error(EXCEPTION.getMarker(), "FCQueue element digest failed, hashing it again", e);
+			}
+		}
+		if (elementHash == null) {
+			elementHash = getHash(element);
+		}
+
+		// this also drops the digest, so the serialized element is no longer reachable
+		chunk.setElementHashOfHash(index, elementHash);
+		return elementHash;
+	}
+
+	/**
+	 * Serialize an element the same way {@link Cryptography#digestSync(SerializableHashable)} does to hash it.
+	 *
+	 * @param element
+	 * 		the element to serialize
+	 * @return the serialized element
+	 * @throws IllegalArgumentException
+	 * 		if the element can not be serialized
+	 */
+	private static byte[] serialize(final FCQueueElement element) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final SerializableDataOutputStream out = new SerializableDataOutputStream(bytes)) {
+			out.writeSerializable(element, true);
+		} catch (final IOException e) {
+			throw new IllegalArgumentException("tried to add an FCQueue element that can not be serialized", e);
+		}
+		return bytes.toByteArray();
+	}
+
 	/**
 	 * Find the hash of a FastCopyable object.
 	 *
@@ -14,7 +14,7 @@
 
 package com.swirlds.fcqueue;
 
-import com.swirlds.fcqueue.internal.FCQueueNode;
+import com.swirlds.fcqueue.internal.FCQueueChunk;
 
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
@@ -27,11 +27,14 @@ import java.util.NoSuchElementException;
  * 		the type of elements in the FCQueue
  */
 public class FCQueueIterator<E extends FCQueueElement> implements Iterator<E> {
-	/** the node whose element should be returned the next time this.next() is called */
-	private FCQueueNode<E> current;
+	/** the chunk holding the element that should be returned the next time this.next() is called */
+	private FCQueueChunk<E> chunk;
 
-	/** the tail of this queue, and so the last node that this iterator will return */
-	private final FCQueueNode<E> tail;
+	/** the index of that element in {@link #chunk} */
+	private int index;
+
+	/** the number of elements this iterator has yet to return */
+	private int remaining;
 
 	/** the queue that this is iterating over.  This is used to fail-fast when it changes during iteration. */
 	private final FCQueue<E> queue;
@@ -47,16 +50,19 @@ public class FCQueueIterator<E extends FCQueueElement> implements Iterator<E> {
 	 *
 	 * @param queue
 	 * 		the queue to iterate over
-	 * @param head
-	 * 		the head of the queue
-	 * @param tail
-	 * 		the tail of the queue
+	 * @param headChunk
+	 * 		the chunk holding the head of the queue
+	 * @param headIndex
+	 * 		the index of the head in its chunk
+	 * @param size
+	 * 		the number of elements in the queue
 	 */
-	FCQueueIterator(final FCQueue<E> queue, final FCQueueNode<E> head, final FCQueueNode<E> tail) {
+	FCQueueIterator(final FCQueue<E> queue, final FCQueueChunk<E> headChunk, final int headIndex, final int size) {
 		this.queue = queue;
 		this.numChanges = queue.getNumChanges();
-		this.current = head;
-		this.tail = tail;
+		this.chunk = headChunk;
+		this.index = headIndex;
+		this.remaining = size;
 	}
 
 	/**
@@ -68,7 +74,7 @@ public class FCQueueIterator<E extends FCQueueElement> implements Iterator<E> {
 	 */
 	@Override
 	public boolean hasNext() {
-		return current != null;
+		return remaining > 0;
 	}
 
 	/**
@@ -84,9 +90,7 @@ public class FCQueueIterator<E extends FCQueueElement> implements Iterator<E> {
 	 */
 	@Override
 	public E next() {
-		final FCQueueNode<E> old = current;
-
-		if (current == null) {
+		if (remaining == 0) {
 			throw new NoSuchElementException();
 		}
 
@@ -94,13 +98,13 @@ public class FCQueueIterator<E extends FCQueueElement> implements Iterator<E> {
 			throw new ConcurrentModificationException();
 		}
 
-		if (current == tail) {
-			current = null;
-		} else {
-			current = current.getTowardTail();
+		if (index == chunk.capacity()) {
+			chunk = chunk.getNext();
+			index = 0;
 		}
+		remaining--;
 
-		return old.getElement();
+		return chunk.getElement(index++);
 	}
 	
 	/**
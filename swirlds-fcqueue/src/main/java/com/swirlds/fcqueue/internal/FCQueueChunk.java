@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.fcqueue.internal;
+
+import com.swirlds.common.crypto.Message;
+import com.swirlds.fcqueue.FCQueueElement;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed size array of consecutive elements of one or more FCQueue queues in the same queue group. The chunks form a
+ * singly linked list from head to tail, and each queue is a window of that list: the chunk and index of its head, and
+ * its number of elements.
+ *
+ * Only the mutable queue of a group writes, and it only writes the slots after its tail, which no other queue in the
+ * group can see. So the chunks are shared between fast copies without ever being copied. A chunk that is before the
+ * head of every queue in the group is no longer reachable and is garbage collected.
+ *
+ * Along with each element a chunk holds the hash of the element's hash, once it is known, or before that the digest
+ * of the serialized element that was started when it was added.
+ *
+ * @param <E>
+ * 		the type of elements in the queue
+ */
+public final class FCQueueChunk<E extends FCQueueElement> {
+
+	/** the capacity of the first chunk of a queue, so that the many queues that stay small use little memory */
+	public static final int MIN_CAPACITY = 4;
+
+	/** the capacity of the chunks of a large queue */
+	public static final int MAX_CAPACITY = 1024;
+
+	/** the elements, the slots after the tail of the mutable queue are null */
+	private final Object[] elements;
+
+	/** for each element the hash of its hash (a byte[]), the {@link Message} digesting it, or null */
+	private final AtomicReferenceArray<Object> hashes;
+
+	/** the next chunk toward the tail, or null if none */
+	private FCQueueChunk<E> next;
+
+	/**
+	 * Create an empty chunk.
+	 *
+	 * @param capacity
+	 * 		the number of elements the chunk can hold
+	 */
+	public FCQueueChunk(final int capacity) {
+		elements = new Object[capacity];
+		hashes = new AtomicReferenceArray<>(capacity);
+	}
+
+	/**
+	 * Get the capacity for a new chunk of a queue. The capacity grows with the queue, so a queue with few elements
+	 * does not allocate large chunks, and does not keep many removed elements reachable in its head chunk.
+	 *
+	 * @param size
+	 * 		the number of elements in the queue
+	 * @return the capacity of the next chunk
+	 */
+	public static int capacityFor(final int size) {
+		if (size >= MAX_CAPACITY) {
+			return MAX_CAPACITY;
+		}
+		return Math.max(MIN_CAPACITY, Integer.highestOneBit(size) << 1);
+	}
+
+	/**
+	 * @return the number of elements the chunk can hold
+	 */
+	public int capacity() {
+		return elements.length;
+	}
+
+	@SuppressWarnings("unchecked")
+	public E getElement(final int index) {
+		return (E) elements[index];
+	}
+
+	public void setElement(final int index, final E element) {
+		elements[index] = element;
+	}
+
+	/**
+	 * @param index
+	 * 		the index of an element in this chunk
+	 * @return the hash of the element's hash, or null if it is not known yet
+	 */
+	public byte[] getElementHashOfHash(final int index) {
+		final Object hash = hashes.get(index);
+		return hash instanceof byte[] ? (byte[]) hash : null;
+	}
+
+	/**
+	 * Set the hash of an element's hash. This replaces the element's digest, which is no longer needed.
+	 *
+	 * @param index
+	 * 		the index of an element in this chunk
+	 * @param elementHashOfHash
+	 * 		the hash of the element's hash
+	 */
+	public void setElementHashOfHash(final int index, final byte[] elementHashOfHash) {
+		hashes.set(index, elementHashOfHash);
+	}
+
+	/**
+	 * @param index
+	 * 		the index of an element in this chunk
+	 * @return the digest of the serialized element, or null if there is none or the hash is already known
+	 */
+	public Message getElementDigest(final int index) {
+		final Object hash = hashes.get(index);
+		return hash instanceof Message ? (Message) hash : null;
+	}
+
+	/**
+	 * Set the digest of an element that has been started, unless the hash of the element's hash is already known.
+	 *
+	 * @param index
+	 * 		the index of an element in this chunk
+	 * @param elementDigest
+	 * 		the digest of the serialized element
+	 */
+	public void setElementDigest(final int index, final Message elementDigest) {
+		hashes.compareAndSet(index, null, elementDigest);
+	}
+
+	public FCQueueChunk<E> getNext() {
+		return next;
+	}
+
+	public void setNext(final FCQueueChunk<E> next) {
+		this.next = next;
+	}
+}
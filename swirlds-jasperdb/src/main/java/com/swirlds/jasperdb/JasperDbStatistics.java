@@ -16,6 +16,7 @@ package com.swirlds.jasperdb;
 
 import com.swirlds.common.statistics.StatEntry;
 import com.swirlds.common.statistics.StatsBuffered;
+import com.swirlds.common.statistics.StatsRunningAverage;
 import com.swirlds.common.statistics.StatsSpeedometer;
 import com.swirlds.common.threading.AtomicDouble;
 
@@ -43,6 +44,9 @@ public class JasperDbStatistics {
 	private static final String SUFFIX = " for the last call to doMerge() or saveRecords().";
 	private static final String MERGE_SUFFIX = " for the last call to doMerge().";
 	private static final int SPEEDOMETER_HALF_LIFE_IN_SECONDS = 60;    // look at last minute
+	private static final double AVERAGE_HALF_LIFE_IN_SECONDS = 5;
+	private static final String MEMORY_MAPPED_READS_SUFFIX = " using memory mapped data files";
+	private static final String CHANNEL_READS_SUFFIX = " using file channel reads";
 
 	private static final String INT_FORMAT = "%d";
 	private static final String FLOAT_FORMAT = "%,9.6f";
@@ -54,6 +58,16 @@ public class JasperDbStatistics {
 	private StatsSpeedometer leafWritesPerSecond;
 	private StatsSpeedometer leafByKeyReadsPerSecond;
 	private StatsSpeedometer leafByPathReadsPerSecond;
+	private StatsSpeedometer leafCacheHitsPerSecond;
+	private StatsSpeedometer leafCacheMissesPerSecond;
+	private StatsSpeedometer leafCacheEvictionsPerSecond;
+	private StatsSpeedometer internalCacheHitsPerSecond;
+	private StatsSpeedometer internalCacheMissesPerSecond;
+	private StatsSpeedometer internalCacheEvictionsPerSecond;
+
+	private StatsRunningAverage leafReadMicroseconds;
+	private StatsRunningAverage internalNodeReadMicroseconds;
+	private StatsRunningAverage leafKeyBloomFilterFalsePositiveRate;
 
 	private final AtomicInteger internalHashesStoreFileCount;
 	private final AtomicDouble internalHashesStoreTotalFileSizeInMB;
@@ -73,6 +87,10 @@ public class JasperDbStatistics {
 	private final AtomicDouble leafPathToHashKeyValueStoreSmallMergeTime;
 	private final AtomicDouble leafPathToHashKeyValueStoreMediumMergeTime;
 	private final AtomicDouble leafPathToHashKeyValueStoreLargeMergeTime;
+	private final AtomicDouble snapshotTime;
+	private final AtomicDouble snapshotIndexesWrittenInMB;
+	private final AtomicDouble writeAmplification;
+	private final AtomicDouble spaceAmplification;
 
 	/**
 	 * Create a new statistics object for a JPDB instances.
@@ -81,8 +99,10 @@ public class JasperDbStatistics {
 	 * 		the label for the virtual map
 	 * @param isLongKeyMode
 	 * 		true if the long key optimization is enabled
+	 * @param isMemoryMappedReads
+	 * 		true if data files are read through memory mappings, used to label the read latency stats
 	 */
-	public JasperDbStatistics(final String label, final boolean isLongKeyMode) {
+	public JasperDbStatistics(final String label, final boolean isLongKeyMode, final boolean isMemoryMappedReads) {
 		statistics = new LinkedList<>();
 
 		internalNodeWritesPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
@@ -90,6 +110,15 @@ public class JasperDbStatistics {
 		leafWritesPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
 		leafByKeyReadsPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
 		leafByPathReadsPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
+		leafCacheHitsPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
+		leafCacheMissesPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
+		leafCacheEvictionsPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
+		internalCacheHitsPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
+		internalCacheMissesPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
+		internalCacheEvictionsPerSecond = new StatsSpeedometer(SPEEDOMETER_HALF_LIFE_IN_SECONDS);
+		leafReadMicroseconds = new StatsRunningAverage(AVERAGE_HALF_LIFE_IN_SECONDS);
+		internalNodeReadMicroseconds = new StatsRunningAverage(AVERAGE_HALF_LIFE_IN_SECONDS);
+		leafKeyBloomFilterFalsePositiveRate = new StatsRunningAverage(AVERAGE_HALF_LIFE_IN_SECONDS);
 
 		internalHashesStoreFileCount = new AtomicInteger();
 		internalHashesStoreTotalFileSizeInMB = new AtomicDouble();
@@ -106,8 +135,12 @@ public class JasperDbStatistics {
 		leafPathToHashKeyValueStoreSmallMergeTime = new AtomicDouble();
 		leafPathToHashKeyValueStoreMediumMergeTime = new AtomicDouble();
 		leafPathToHashKeyValueStoreLargeMergeTime = new AtomicDouble();
+		snapshotTime = new AtomicDouble();
+		snapshotIndexesWrittenInMB = new AtomicDouble();
+		writeAmplification = new AtomicDouble();
+		spaceAmplification = new AtomicDouble();
 
-		buildStatistics(label, isLongKeyMode);
+		buildStatistics(label, isLongKeyMode, isMemoryMappedReads);
 	}
 
 	/**
@@ -138,7 +171,7 @@ public class JasperDbStatistics {
 		statistics.add(new StatEntry(STAT_CATEGORY, name, description, format, buffered, init, null, getStat));
 	}
 
-	private void buildStatistics(final String label, final boolean isLongKeyMode) {
+	private void buildStatistics(final String label, final boolean isLongKeyMode, final boolean isMemoryMappedReads) {
 		buildStatistic("internalNodeWrites/s_" + label,
 				"number of internal node writes per second for " + label,
 				FLOAT_FORMAT,
@@ -189,6 +222,101 @@ public class JasperDbStatistics {
 				},
 				() -> leafByPathReadsPerSecond.getCyclesPerSecond());
 
+		buildStatistic("leafCacheHits/s_" + label,
+				"number of leaf record reads per second served from the read cache for " + label,
+				FLOAT_FORMAT,
+				leafCacheHitsPerSecond,
+				h -> {
+					leafCacheHitsPerSecond = new StatsSpeedometer(h);
+					return leafCacheHitsPerSecond;
+				},
+				() -> leafCacheHitsPerSecond.getCyclesPerSecond());
+
+		buildStatistic("leafCacheMisses/s_" + label,
+				"number of leaf record reads per second that missed the read cache for " + label,
+				FLOAT_FORMAT,
+				leafCacheMissesPerSecond,
+				h -> {
+					leafCacheMissesPerSecond = new StatsSpeedometer(h);
+					return leafCacheMissesPerSecond;
+				},
+				() -> leafCacheMissesPerSecond.getCyclesPerSecond());
+
+		buildStatistic("leafCacheEvictions/s_" + label,
+				"number of leaf records evicted per second from the read cache for " + label,
+				FLOAT_FORMAT,
+				leafCacheEvictionsPerSecond,
+				h -> {
+					leafCacheEvictionsPerSecond = new StatsSpeedometer(h);
+					return leafCacheEvictionsPerSecond;
+				},
+				() -> leafCacheEvictionsPerSecond.getCyclesPerSecond());
+
+		buildStatistic("internalCacheHits/s_" + label,
+				"number of internal record reads per second served from the read cache for " + label,
+				FLOAT_FORMAT,
+				internalCacheHitsPerSecond,
+				h -> {
+					internalCacheHitsPerSecond = new StatsSpeedometer(h);
+					return internalCacheHitsPerSecond;
+				},
+				() -> internalCacheHitsPerSecond.getCyclesPerSecond());
+
+		buildStatistic("internalCacheMisses/s_" + label,
+				"number of internal record reads per second that missed the read cache for " + label,
+				FLOAT_FORMAT,
+				internalCacheMissesPerSecond,
+				h -> {
+					internalCacheMissesPerSecond = new StatsSpeedometer(h);
+					return internalCacheMissesPerSecond;
+				},
+				() -> internalCacheMissesPerSecond.getCyclesPerSecond());
+
+		buildStatistic("internalCacheEvictions/s_" + label,
+				"number of internal records evicted per second from the read cache for " + label,
+				FLOAT_FORMAT,
+				internalCacheEvictionsPerSecond,
+				h -> {
+					internalCacheEvictionsPerSecond = new StatsSpeedometer(h);
+					return internalCacheEvictionsPerSecond;
+				},
+				() -> internalCacheEvictionsPerSecond.getCyclesPerSecond());
+
+		final String readModeSuffix = isMemoryMappedReads ? MEMORY_MAPPED_READS_SUFFIX : CHANNEL_READS_SUFFIX;
+
+		buildStatistic("leafReadMicroSec_" + label,
+				"average time (in microseconds) to read a leaf record from disk for " + label + readModeSuffix,
+				FLOAT_FORMAT,
+				leafReadMicroseconds,
+				h -> {
+					leafReadMicroseconds = new StatsRunningAverage(h);
+					return leafReadMicroseconds;
+				},
+				() -> leafReadMicroseconds.getWeightedMean());
+
+		buildStatistic("internalNodeReadMicroSec_" + label,
+				"average time (in microseconds) to read an internal record from disk for " + label + readModeSuffix,
+				FLOAT_FORMAT,
+				internalNodeReadMicroseconds,
+				h -> {
+					internalNodeReadMicroseconds = new StatsRunningAverage(h);
+					return internalNodeReadMicroseconds;
+				},
+				() -> internalNodeReadMicroseconds.getWeightedMean());
+
+		if (!isLongKeyMode) {
+			buildStatistic("leafKeyBloomFalsePositiveRate_" + label,
+					"fraction of lookups of keys not in the Leaf Key To Path Store for " + label +
+							" that the Bloom filter did not filter out",
+					FLOAT_FORMAT,
+					leafKeyBloomFilterFalsePositiveRate,
+					h -> {
+						leafKeyBloomFilterFalsePositiveRate = new StatsRunningAverage(h);
+						return leafKeyBloomFilterFalsePositiveRate;
+					},
+					() -> leafKeyBloomFilterFalsePositiveRate.getWeightedMean());
+		}
+
 		buildStatistic("internalHashFileCount_" + label,
 				NUMBER_OF_FILES_PREFIX + INTERNAL_HASHES_STORE_MIDDLE + label + SUFFIX,
 				INT_FORMAT,
@@ -267,6 +395,26 @@ public class JasperDbStatistics {
 				LARGE_MERGE_PREFIX + LEAF_PATH_TO_HKV_STORE_MIDDLE + label + MERGE_SUFFIX,
 				FLOAT_FORMAT,
 				leafPathToHashKeyValueStoreLargeMergeTime::get);
+
+		buildStatistic("snapshotTime_" + label,
+				"The time (in seconds) of the last call to snapshot() for " + label,
+				FLOAT_FORMAT,
+				snapshotTime::get);
+
+		buildStatistic("snapshotIndexesWrittenMb_" + label,
+				"The size (in megabytes) of in memory indexes written by the last call to snapshot() for " + label,
+				FLOAT_FORMAT,
+				snapshotIndexesWrittenInMB::get);
+
+		buildStatistic("writeAmplification_" + label,
+				"Bytes written to data files by saves and merges per byte written by saves, since start, for " + label,
+				FLOAT_FORMAT,
+				writeAmplification::get);
+
+		buildStatistic("spaceAmplification_" + label,
+				"Total size of data files divided by the estimated size of live data in them, for " + label,
+				FLOAT_FORMAT,
+				spaceAmplification::get);
 	}
 
 	/**
@@ -316,6 +464,79 @@ public class JasperDbStatistics {
 		leafByPathReadsPerSecond.cycle();
 	}
 
+	/**
+	 * Cycle the LeafCacheHitsPerSecond stat
+	 */
+	public void cycleLeafCacheHitsPerSecond() {
+		leafCacheHitsPerSecond.cycle();
+	}
+
+	/**
+	 * Cycle the LeafCacheMissesPerSecond stat
+	 */
+	public void cycleLeafCacheMissesPerSecond() {
+		leafCacheMissesPerSecond.cycle();
+	}
+
+	/**
+	 * Cycle the LeafCacheEvictionsPerSecond stat
+	 */
+	public void cycleLeafCacheEvictionsPerSecond() {
+		leafCacheEvictionsPerSecond.cycle();
+	}
+
+	/**
+	 * Cycle the InternalCacheHitsPerSecond stat
+	 */
+	public void cycleInternalCacheHitsPerSecond() {
+		internalCacheHitsPerSecond.cycle();
+	}
+
+	/**
+	 * Cycle the InternalCacheMissesPerSecond stat
+	 */
+	public void cycleInternalCacheMissesPerSecond() {
+		internalCacheMissesPerSecond.cycle();
+	}
+
+	/**
+	 * Cycle the InternalCacheEvictionsPerSecond stat
+	 */
+	public void cycleInternalCacheEvictionsPerSecond() {
+		internalCacheEvictionsPerSecond.cycle();
+	}
+
+	/**
+	 * Record the time taken by a single leaf record read from disk
+	 *
+	 * @param microseconds
+	 * 		the read time in microseconds
+	 */
+	public void recordLeafReadMicroseconds(final double microseconds) {
+		leafReadMicroseconds.recordValue(microseconds);
+	}
+
+	/**
+	 * Record the time taken by a single internal record read from disk
+	 *
+	 * @param microseconds
+	 * 		the read time in microseconds
+	 */
+	public void recordInternalNodeReadMicroseconds(final double microseconds) {
+		internalNodeReadMicroseconds.recordValue(microseconds);
+	}
+
+	/**
+	 * Record the result of a key to path lookup for a key that was not found, when a Bloom filter is in use
+	 *
+	 * @param falsePositive
+	 * 		true if the Bloom filter said the key might be present so the disk was read, false if the Bloom filter
+	 * 		filtered the lookup out
+	 */
+	public void recordLeafKeyBloomFilterMiss(final boolean falsePositive) {
+		leafKeyBloomFilterFalsePositiveRate.recordValue(falsePositive ? 1 : 0);
+	}
+
 	/**
 	 * Set the current value for the InternalHashesStoreFileCount stat
 	 *
@@ -465,4 +686,44 @@ public class JasperDbStatistics {
 	public void setLeafPathToHashKeyValueStoreLargeMergeTime(final double value) {
 		leafPathToHashKeyValueStoreLargeMergeTime.set(value);
 	}
+
+	/**
+	 * Set the current value for the SnapshotTime stat
+	 *
+	 * @param value
+	 * 		the value to set
+	 */
+	public void setSnapshotTime(final double value) {
+		snapshotTime.set(value);
+	}
+
+	/**
+	 * Set the current value for the SnapshotIndexesWrittenInMB stat
+	 *
+	 * @param value
+	 * 		the value to set
+	 */
+	public void setSnapshotIndexesWrittenInMB(final double value) {
+		snapshotIndexesWrittenInMB.set(value);
+	}
+
+	/**
+	 * Set the current value for the WriteAmplification stat
+	 *
+	 * @param value
+	 * 		the value to set
+	 */
+	public void setWriteAmplification(final double value) {
+		writeAmplification.set(value);
+	}
+
+	/**
+	 * Set the current value for the SpaceAmplification stat
+	 *
+	 * @param value
+	 * 		the value to set
+	 */
+	public void setSpaceAmplification(final double value) {
+		spaceAmplification.set(value);
+	}
 }
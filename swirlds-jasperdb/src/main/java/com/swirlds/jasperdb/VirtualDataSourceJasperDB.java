@@ -16,17 +16,22 @@ package com.swirlds.jasperdb;
 
 import com.swirlds.common.Units;
 import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.io.SerializableDataOutputStream;
 import com.swirlds.common.statistics.StatEntry;
 import com.swirlds.common.threading.ThreadConfiguration;
+import com.swirlds.jasperdb.collections.ClockCache;
 import com.swirlds.jasperdb.collections.HashList;
 import com.swirlds.jasperdb.collections.HashListBufferedWrapper;
 import com.swirlds.jasperdb.collections.HashListByteBuffer;
+import com.swirlds.jasperdb.collections.IndexDeltaSnapshots;
 import com.swirlds.jasperdb.collections.LongList;
 import com.swirlds.jasperdb.collections.LongListBufferedWrapper;
-import com.swirlds.jasperdb.collections.LongListDisk;
+import com.swirlds.jasperdb.collections.LongListDiskPaged;
 import com.swirlds.jasperdb.collections.LongListOffHeap;
+import com.swirlds.jasperdb.files.CompactionStrategy;
 import com.swirlds.jasperdb.files.DataFileCollection.LoadedDataCallback;
 import com.swirlds.jasperdb.files.DataFileReader;
+import com.swirlds.jasperdb.files.GarbageRatioCompactionStrategy;
 import com.swirlds.jasperdb.files.MemoryIndexDiskKeyValueStore;
 import com.swirlds.jasperdb.files.hashmap.Bucket;
 import com.swirlds.jasperdb.files.hashmap.HalfDiskHashMap;
@@ -41,11 +46,14 @@ import com.swirlds.virtualmap.datasource.VirtualInternalRecord;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -54,13 +62,19 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -118,7 +132,8 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 
 	/**
 	 * The number of threads to use for merging thread pool. THIS IS ALWAYS 1. As merging is not designed for multiple
-	 * merges happening concurrently.
+	 * merges of the same store happening concurrently. This thread decides what to merge and then merges the separate
+	 * stores concurrently on storeMergingExecutor.
 	 */
 	private static final int NUMBER_OF_MERGING_THREADS = 1;
 
@@ -188,6 +203,20 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 	 */
 	private final MemoryIndexDiskKeyValueStore<VirtualLeafRecord<K, V>> pathToHashKeyValue;
 
+	/**
+	 * Serializer for leaf records, used to serialize records into the leaf record cache and deserialize them from it
+	 */
+	private final VirtualLeafRecordSerializer<K, V> leafRecordSerializer;
+
+	/**
+	 * Read cache of serialized leaf records by path, null if disabled. Records are deserialized on each hit, as
+	 * callers are free to modify the records and values they are given.
+	 */
+	private final ClockCache<byte[]> leafRecordCache;
+
+	/** Read cache of internal node hashes read from disk by path, null if disabled */
+	private final ClockCache<Hash> internalHashCache;
+
 	/**
 	 * ScheduledThreadPool for executing merges
 	 */
@@ -196,6 +225,17 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 	/** Future for scheduled merging thread */
 	private ScheduledFuture<?> mergingFuture = null;
 
+	/**
+	 * Thread pool merging the individual stores, so the internal hashes, key to path and leaf stores can be merged
+	 * concurrently. Its size is bounded by settings.getMergeThreadCount().
+	 */
+	private final ExecutorService storeMergingExecutor;
+
+	/**
+	 * Strategy choosing the files for merges between full merges, or null to use time based small and medium merges
+	 */
+	private final CompactionStrategy compactionStrategy;
+
 	/**
 	 * Thread pool storing internal records
 	 */
@@ -206,6 +246,18 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 	 */
 	private final ExecutorService storeKeyToPathExecutor;
 
+	/**
+	 * Thread pool serializing leaf records in parallel while they are saved, null if
+	 * settings.getSaveRecordsSerializationThreads() is zero
+	 */
+	private final ExecutorService leafSerializationExecutor;
+
+	/**
+	 * Thread pool looking up the paths of a batch of keys in parallel for loadLeafRecords, its size is bounded by
+	 * settings.getBatchReadThreads()
+	 */
+	private final ExecutorService keyToPathReadExecutor;
+
 	/**
 	 * Thread pool creating snapshots, it is unbounded in threads, but we use at most 7
 	 */
@@ -309,6 +361,7 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			final long internalHashesRamToDiskThreshold, final boolean preferDiskBasedIndexes) throws IOException {
 
 		this.label = label;
+		this.leafRecordSerializer = virtualLeafRecordSerializer;
 		// updated count of open databases
 		COUNT_OF_OPEN_DATABASES.incrementAndGet();
 		// create thread group with label
@@ -324,6 +377,20 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 								LOG.error(EXCEPTION.getMarker(), "[{}] Uncaught exception during merging",
 										label, ex))
 						.buildFactory());
+		// create thread pool for merging individual stores
+		storeMergingExecutor = Executors.newFixedThreadPool(settings.getMergeThreadCount(), new ThreadConfiguration()
+				.setComponent(JASPER_DB_COMPONENT)
+				.setThreadGroup(threadGroup)
+				.setThreadName("Store Merging")
+				.setExceptionHandler((t, ex) ->
+						LOG.error(EXCEPTION.getMarker(), "[{}] Uncaught exception during merging stores", label, ex))
+				.buildFactory());
+		// choose files to merge by how much garbage they hold if enabled, otherwise by time
+		compactionStrategy = settings.getCompactionGarbageRatioThreshold() > 0
+				? new GarbageRatioCompactionStrategy(settings.getCompactionGarbageRatioThreshold(),
+				settings.getSmallMergeCutoffMb(), settings.getMinNumberOfFilesInMerge(),
+				settings.getMaxNumberOfFilesInMerge())
+				: null;
 		// create thread pool storing internal records
 		storeInternalExecutor = Executors.newSingleThreadExecutor(new ThreadConfiguration()
 				.setComponent(JASPER_DB_COMPONENT)
@@ -340,6 +407,28 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 				.setExceptionHandler((t, ex) ->
 						LOG.error(EXCEPTION.getMarker(), "[{}] Uncaught exception during storing keys", label, ex))
 				.buildFactory());
+		// create thread pool serializing leaf records, if enabled
+		if (settings.getSaveRecordsSerializationThreads() > 0) {
+			leafSerializationExecutor = Executors.newFixedThreadPool(settings.getSaveRecordsSerializationThreads(),
+					new ThreadConfiguration()
+							.setComponent(JASPER_DB_COMPONENT)
+							.setThreadGroup(threadGroup)
+							.setThreadName("Serialize Leaves")
+							.setExceptionHandler((t, ex) ->
+									LOG.error(EXCEPTION.getMarker(), "[{}] Uncaught exception during serializing",
+											label, ex))
+							.buildFactory());
+		} else {
+			leafSerializationExecutor = null;
+		}
+		// create thread pool looking up paths for batches of keys
+		keyToPathReadExecutor = Executors.newFixedThreadPool(settings.getBatchReadThreads(), new ThreadConfiguration()
+				.setComponent(JASPER_DB_COMPONENT)
+				.setThreadGroup(threadGroup)
+				.setThreadName("Read Key to Path")
+				.setExceptionHandler((t, ex) ->
+						LOG.error(EXCEPTION.getMarker(), "[{}] Uncaught exception during reading keys", label, ex))
+				.buildFactory());
 		// thread pool creating snapshots, it is unbounded in threads, but we use at most 7
 		snapshotExecutor = Executors.newCachedThreadPool(new ThreadConfiguration()
 				.setComponent(JASPER_DB_COMPONENT)
@@ -378,17 +467,17 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 		// create path to disk location index
 		final LongList longListInternalNodes;
 		if (preferDiskBasedIndexes) {
-			longListInternalNodes = new LongListDisk(dbPaths.pathToDiskLocationInternalNodesFile);
+			longListInternalNodes = loadDiskLongList(dbPaths.pathToDiskLocationInternalNodesFile);
 		} else if (Files.exists(dbPaths.pathToDiskLocationInternalNodesFile)) {
-			longListInternalNodes = new LongListOffHeap(dbPaths.pathToDiskLocationInternalNodesFile);
+			longListInternalNodes = loadLongList(dbPaths.pathToDiskLocationInternalNodesFile);
 		} else {
 			longListInternalNodes = new LongListOffHeap();
 		}
 		final LongList longListLeafNodes;
 		if (preferDiskBasedIndexes) {
-			longListLeafNodes = new LongListDisk(dbPaths.pathToDiskLocationLeafNodesFile);
+			longListLeafNodes = loadDiskLongList(dbPaths.pathToDiskLocationLeafNodesFile);
 		} else if (Files.exists(dbPaths.pathToDiskLocationLeafNodesFile)) {
-			longListLeafNodes = new LongListOffHeap(dbPaths.pathToDiskLocationLeafNodesFile);
+			longListLeafNodes = loadLongList(dbPaths.pathToDiskLocationLeafNodesFile);
 		} else {
 			longListLeafNodes = new LongListOffHeap();
 		}
@@ -402,6 +491,7 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			final HashList hashList;
 			if (Files.exists(dbPaths.internalHashStoreRamFile)) {
 				hashList = new HashListByteBuffer(dbPaths.internalHashStoreRamFile);
+				IndexDeltaSnapshots.applyDeltas(dbPaths.internalHashStoreRamFile, hashList);
 			} else {
 				hashList = new HashListByteBuffer();
 			}
@@ -421,7 +511,7 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			isLongKeyMode = true;
 			objectKeyToPath = null;
 			if (Files.exists(dbPaths.longKeyToPathFile)) {
-				longKeyToPath = new LongListBufferedWrapper(new LongListOffHeap(dbPaths.longKeyToPathFile));
+				longKeyToPath = new LongListBufferedWrapper(loadLongList(dbPaths.longKeyToPathFile));
 				// we do not need callback longKeyToPath was written to disk, so we can load it directly
 				loadedDataCallback = null;
 			} else {
@@ -445,7 +535,8 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 		// Create path to hash,key,value store, this will create new or load if files exist
 		pathToHashKeyValue = new MemoryIndexDiskKeyValueStore<>(
 				dbPaths.pathToHashKeyValueDirectory, label + ":pathToHashKeyValue",
-				virtualLeafRecordSerializer, loadedDataCallback, pathToDiskLocationLeafNodes);
+				virtualLeafRecordSerializer, loadedDataCallback, pathToDiskLocationLeafNodes,
+				settings.isLeafDataFileCompressionEnabled());
 		// compute initial merge periods to a randomized value of now +/- 50% of merge period. So each node will do
 		// medium and full merges at random times.
 		lastMediumMerge = Instant.now()
@@ -459,7 +550,12 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			startBackgroundCompaction();
 		}
 
-		statistics = new JasperDbStatistics(label, isLongKeyMode);
+		statistics = new JasperDbStatistics(label, isLongKeyMode, settings.isMemoryMappedReadsEnabled());
+		// create read caches, if enabled
+		leafRecordCache = settings.getLeafRecordCacheSize() > 0
+				? new ClockCache<>(settings.getLeafRecordCacheSize()) : null;
+		internalHashCache = settings.getInternalRecordCacheSize() > 0 && hasDiskStoreForInternalHashes
+				? new ClockCache<>(settings.getInternalRecordCacheSize()) : null;
 
 		LOG.info(JASPER_DB.getMarker(),
 				"Created JDB [{}] with store path '{}', maxNumKeys = {}, hash RAM/disk cutoff = {}",
@@ -603,9 +699,7 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 	@Override
 	public VirtualLeafRecord<K, V> loadLeafRecord(final K key) throws IOException {
 		Objects.requireNonNull(key);
-		final long path = isLongKeyMode
-				? longKeyToPath.get(((VirtualLongKey) key).getKeyAsLong(), INVALID_PATH)
-				: objectKeyToPath.get(key, INVALID_PATH);
+		final long path = findPath(key);
 
 		// If the key didn't map to anything, we just return null
 		if (path == INVALID_PATH) {
@@ -621,21 +715,76 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 
 		statistics.cycleLeafByKeyReadsPerSecond();
 		// Go ahead and lookup the value.
-		final VirtualLeafRecord<K, V> leafRecord = pathToHashKeyValue.get(path);
+		return checkForLeakedKey(key, readLeafRecord(path));
+	}
 
-		// FUTURE WORK: once the reconnect key leak bug is fixed, this block should be removed
-		if (!leafRecord.getKey().equals(key)) {
-			if (settings.isReconnectKeyLeakMitigationEnabled()) {
-				LOG.warn(JASPER_DB.getMarker(),
-						"leaked key {} encountered, mitigation is enabled", key);
+	/**
+	 * Load a batch of leaf records by key. All the key to path lookups are done first, then the leaf records are read
+	 * with reads sorted by file and offset, adjacent reads coalesced and different files read in parallel.
+	 *
+	 * @param keys
+	 * 		the keys for the leaves to load records for
+	 * @return list of loaded records in the iteration order of keys, with null for any key not found
+	 * @throws IOException
+	 * 		If there was a problem reading records from db
+	 */
+	@Override
+	public List<VirtualLeafRecord<K, V>> loadLeafRecords(final Collection<K> keys) throws IOException {
+		final List<K> keyList = new ArrayList<>(keys);
+		final int count = keyList.size();
+		// resolve all keys to paths, these are independent disk reads for objectKeyToPath, so do them in parallel
+		final long[] paths = new long[count];
+		final int threads = settings.getBatchReadThreads();
+		final int keysPerTask = Math.max(1, (count + threads - 1) / threads);
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (int taskStart = 0; taskStart < count; taskStart += keysPerTask) {
+			final int firstKey = taskStart;
+			final int lastKey = Math.min(count, taskStart + keysPerTask);
+			tasks.add(() -> {
+				for (int i = firstKey; i < lastKey; i++) {
+					paths[i] = findPath(Objects.requireNonNull(keyList.get(i)));
+				}
 				return null;
+			});
+		}
+		try {
+			for (final Future<Void> future : keyToPathReadExecutor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("[" + label + "] Interrupted while looking up paths", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException("[" + label + "] Failed to look up paths", e.getCause());
+		}
+		// filter out keys that don't map to anything or lie outside the first/last leaf path
+		final KeyRange leafPathRange = this.validLeafPathRange;
+		final long[] pathsToRead = new long[count];
+		int pathsToReadCount = 0;
+		for (final long path : paths) {
+			if (path != INVALID_PATH && leafPathRange.withinRange(path)) {
+				pathsToRead[pathsToReadCount++] = path;
+				statistics.cycleLeafByKeyReadsPerSecond();
+			}
+		}
+		final List<VirtualLeafRecord<K, V>> readLeafRecords =
+				readLeafRecords(Arrays.copyOf(pathsToRead, pathsToReadCount));
+		final List<VirtualLeafRecord<K, V>> leafRecords = new ArrayList<>(count);
+		int readIndex = 0;
+		for (int i = 0; i < count; i++) {
+			final long path = paths[i];
+			if (path != INVALID_PATH && leafPathRange.withinRange(path)) {
+				leafRecords.add(checkForLeakedKey(keyList.get(i), readLeafRecords.get(readIndex++)));
 			} else {
-				LOG.error(EXCEPTION.getMarker(),
-						"leaked key {} encountered, mitigation is disabled, expect problems", key);
+				leafRecords.add(null);
 			}
 		}
-
-		return leafRecord;
+		return leafRecords;
 	}
 
 	/**
@@ -654,7 +803,7 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			throw new IllegalArgumentException("path (" + path + ") is not valid; must be in range " + leafPathRange);
 		}
 		statistics.cycleLeafByPathReadsPerSecond();
-		return pathToHashKeyValue.get(path);
+		return readLeafRecord(path);
 	}
 
 	/**
@@ -680,7 +829,7 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 		statistics.cycleLeafByPathReadsPerSecond();
 		// read value
 		/* FUTURE WORK - https://github.com/swirlds/swirlds-platform/issues/3937 */
-		final VirtualLeafRecord<K, V> leafRecord = pathToHashKeyValue.get(path);
+		final VirtualLeafRecord<K, V> leafRecord = readLeafRecord(path);
 		return leafRecord == null ? null : leafRecord.getHash();
 	}
 
@@ -715,7 +864,21 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			return new VirtualInternalRecord(path, hash);
 		} else {
 			statistics.cycleInternalNodeReadsPerSecond();
-			return internalHashStoreDisk.get(path);
+			if (internalHashCache == null) {
+				return readInternalRecord(path);
+			}
+			final Hash cachedHash = internalHashCache.get(path);
+			if (cachedHash != null) {
+				statistics.cycleInternalCacheHitsPerSecond();
+				return new VirtualInternalRecord(path, cachedHash);
+			}
+			statistics.cycleInternalCacheMissesPerSecond();
+			final long readEpoch = internalHashCache.getInvalidationEpoch();
+			final VirtualInternalRecord internalRecord = readInternalRecord(path);
+			if (internalRecord != null && internalHashCache.put(path, internalRecord.getHash(), readEpoch)) {
+				statistics.cycleInternalCacheEvictionsPerSecond();
+			}
+			return internalRecord;
 		}
 	}
 
@@ -728,8 +891,9 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 		try {
 			// stop merging
 			stopBackgroundCompaction();
-			// stop all three background threads
-			shutdownThreadsAndWait(mergingExecutor, storeInternalExecutor, storeKeyToPathExecutor);
+			// stop all six background thread pools
+			shutdownThreadsAndWait(mergingExecutor, storeMergingExecutor, storeInternalExecutor,
+					storeKeyToPathExecutor, leafSerializationExecutor, keyToPathReadExecutor);
 		} finally {
 			// create new snapshot directory
 			Path storageDirParent = dbPaths.storageDir.toAbsolutePath().getParent();
@@ -771,9 +935,9 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			try {
 				// stop merging
 				stopBackgroundCompaction();
-				// shut down all four DB threads
-				shutdownThreadsAndWait(mergingExecutor, storeInternalExecutor, storeKeyToPathExecutor,
-						snapshotExecutor);
+				// shut down all seven DB thread pools
+				shutdownThreadsAndWait(mergingExecutor, storeMergingExecutor, storeInternalExecutor,
+						storeKeyToPathExecutor, leafSerializationExecutor, keyToPathReadExecutor, snapshotExecutor);
 			} finally {
 				// close all closable data stores
 				LOG.info(JASPER_DB.getMarker(), "Closing Data Source [{}]", label);
@@ -856,23 +1020,27 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 				saveSnapshotLock.unlock();
 			}
 			// main snapshotting process in multiple-threads
+			final int maxIndexSnapshotDeltas = settings.getMaxIndexSnapshotDeltas();
+			final AtomicLong indexBytesWritten = new AtomicLong();
 			try {
 				final CountDownLatch countDownLatch = new CountDownLatch(8);
 				// write all data stores
 				runWithSnapshotExecutor(true, countDownLatch,
 						"pathToDiskLocationInternalNodes", () -> {
-							pathToDiskLocationInternalNodes.writeToFile(
-									snapshotDbPaths.pathToDiskLocationInternalNodesFile);
+							indexBytesWritten.addAndGet(pathToDiskLocationInternalNodes.writeSnapshotToFile(
+									snapshotDbPaths.pathToDiskLocationInternalNodesFile, maxIndexSnapshotDeltas));
 							return true;
 						});
 				runWithSnapshotExecutor(true, countDownLatch,
 						"pathToDiskLocationLeafNodes", () -> {
-							pathToDiskLocationLeafNodes.writeToFile(snapshotDbPaths.pathToDiskLocationLeafNodesFile);
+							indexBytesWritten.addAndGet(pathToDiskLocationLeafNodes.writeSnapshotToFile(
+									snapshotDbPaths.pathToDiskLocationLeafNodesFile, maxIndexSnapshotDeltas));
 							return true;
 						});
 				runWithSnapshotExecutor(internalHashStoreRam != null, countDownLatch,
 						"internalHashStoreRam", () -> {
-							internalHashStoreRam.writeToFile(snapshotDbPaths.internalHashStoreRamFile);
+							indexBytesWritten.addAndGet(internalHashStoreRam.writeSnapshotToFile(
+									snapshotDbPaths.internalHashStoreRamFile, maxIndexSnapshotDeltas));
 							return true;
 						});
 				runWithSnapshotExecutor(internalHashStoreDisk != null, countDownLatch,
@@ -882,7 +1050,8 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 						});
 				runWithSnapshotExecutor(longKeyToPath != null, countDownLatch,
 						"longKeyToPath", () -> {
-							longKeyToPath.writeToFile(snapshotDbPaths.longKeyToPathFile);
+							indexBytesWritten.addAndGet(longKeyToPath.writeSnapshotToFile(
+									snapshotDbPaths.longKeyToPathFile, maxIndexSnapshotDeltas));
 							return true;
 						});
 				runWithSnapshotExecutor(objectKeyToPath != null, countDownLatch,
@@ -934,8 +1103,11 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			} finally {
 				saveSnapshotLock.unlock();
 			}
-			LOG.info(JASPER_DB.getMarker(), "[{}] Snapshot all finished in {} seconds",
-					label, (System.currentTimeMillis() - START) * Units.MILLISECONDS_TO_SECONDS);
+			final double snapshotTime = (System.currentTimeMillis() - START) * Units.MILLISECONDS_TO_SECONDS;
+			statistics.setSnapshotTime(snapshotTime);
+			statistics.setSnapshotIndexesWrittenInMB(indexBytesWritten.get() * Units.BYTES_TO_MEBIBYTES);
+			LOG.info(JASPER_DB.getMarker(), "[{}] Snapshot all finished in {} seconds, wrote {} MB of indexes",
+					label, snapshotTime, indexBytesWritten.get() * Units.BYTES_TO_MEBIBYTES);
 		} finally {
 			snapshotInProgress.set(false);
 			// unpause merging
@@ -1004,6 +1176,39 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 	//==================================================================================================================
 	// private methods
 
+	/**
+	 * Load an in memory LongList index from a file, applying any delta snapshots written on top of it
+	 *
+	 * @param file
+	 * 		the index file
+	 * @return new in memory LongList
+	 * @throws IOException
+	 * 		If there was a problem reading the files
+	 */
+	private static LongList loadLongList(final Path file) throws IOException {
+		final LongList longList = new LongListOffHeap(file);
+		IndexDeltaSnapshots.applyDeltas(file, longList);
+		return longList;
+	}
+
+	/**
+	 * Create a disk based LongList index on a file, with a write back page cache if one is configured. Any delta
+	 * snapshots of the index are applied to the file first.
+	 *
+	 * @param file
+	 * 		the index file, created if it does not exist
+	 * @return new disk based LongList
+	 * @throws IOException
+	 * 		If there was a problem opening the file
+	 */
+	private static LongList loadDiskLongList(final Path file) throws IOException {
+		if (IndexDeltaSnapshots.hasDeltas(file)) {
+			// disk based lists change the file in place, so it can't be shared with the snapshot deltas came from
+			IndexDeltaSnapshots.applyDeltasToLongListFile(file);
+		}
+		return LongListDiskPaged.newDiskLongList(file, settings.getLongListDiskPageCacheMb());
+	}
+
 	/**
 	 * Update all the file size and count statistics, called by save and merge as those are the only two places where
 	 * files are added or removed.
@@ -1025,6 +1230,30 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 		statistics.setLeafPathToHashKeyValueStoreFileCount((int) leafDataFileSizeStats.getCount());
 		statistics.setLeafPathToHashKeyValueStoreTotalFileSizeInMB(
 				leafDataFileSizeStats.getSum() * Units.BYTES_TO_MEBIBYTES);
+		// amplification over all the stores of this data source
+		long totalFileSize = leafDataFileSizeStats.getSum();
+		long liveDataSize = pathToHashKeyValue.getLiveDataSizeEstimate();
+		long bytesWrittenBySaves = pathToHashKeyValue.getBytesWrittenBySaves();
+		long bytesWrittenByMerges = pathToHashKeyValue.getBytesWrittenByMerges();
+		if (internalHashStoreDisk != null) {
+			totalFileSize += internalHashStoreDisk.getFilesSizeStatistics().getSum();
+			liveDataSize += internalHashStoreDisk.getLiveDataSizeEstimate();
+			bytesWrittenBySaves += internalHashStoreDisk.getBytesWrittenBySaves();
+			bytesWrittenByMerges += internalHashStoreDisk.getBytesWrittenByMerges();
+		}
+		if (!isLongKeyMode) {
+			totalFileSize += objectKeyToPath.getFilesSizeStatistics().getSum();
+			liveDataSize += objectKeyToPath.getLiveDataSizeEstimate();
+			bytesWrittenBySaves += objectKeyToPath.getBytesWrittenBySaves();
+			bytesWrittenByMerges += objectKeyToPath.getBytesWrittenByMerges();
+		}
+		if (bytesWrittenBySaves > 0) {
+			statistics.setWriteAmplification(
+					(bytesWrittenBySaves + bytesWrittenByMerges) / (double) bytesWrittenBySaves);
+		}
+		if (liveDataSize > 0) {
+			statistics.setSpaceAmplification(totalFileSize / (double) liveDataSize);
+		}
 	}
 
 	/**
@@ -1039,7 +1268,7 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 		try {
 			// shutdown threads
 			for (final ExecutorService executor : executors) {
-				if (!executor.isShutdown()) {
+				if (executor != null && !executor.isShutdown()) {
 					executor.shutdown();
 					final boolean finishedWithoutTimeout = executor.awaitTermination(5, TimeUnit.MINUTES);
 					if (!finishedWithoutTimeout) {
@@ -1085,6 +1314,157 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 		}
 	}
 
+	/**
+	 * Find the path for a key, using longKeyToPath or objectKeyToPath depending on key mode
+	 *
+	 * @return the path for the key or INVALID_PATH if not found
+	 */
+	private long findPath(final K key) throws IOException {
+		if (isLongKeyMode) {
+			return longKeyToPath.get(((VirtualLongKey) key).getKeyAsLong(), INVALID_PATH);
+		}
+		if (!objectKeyToPath.hasBloomFilter()) {
+			return objectKeyToPath.get(key, INVALID_PATH);
+		}
+		// use the Bloom filter to skip reading a bucket from disk for keys we definitely do not have
+		if (!objectKeyToPath.mightContain(key)) {
+			statistics.recordLeafKeyBloomFilterMiss(false);
+			return INVALID_PATH;
+		}
+		final long path = objectKeyToPath.get(key, INVALID_PATH);
+		if (path == INVALID_PATH) {
+			statistics.recordLeafKeyBloomFilterMiss(true);
+		}
+		return path;
+	}
+
+	/**
+	 * Check a leaf record read by key really has that key, mitigating the reconnect key leak bug if it does not
+	 *
+	 * @return the leaf record, or null if the key was a leaked key and mitigation is enabled
+	 */
+	private VirtualLeafRecord<K, V> checkForLeakedKey(final K key, final VirtualLeafRecord<K, V> leafRecord) {
+		// FUTURE WORK: once the reconnect key leak bug is fixed, this block should be removed
+		if (leafRecord != null && !leafRecord.getKey().equals(key)) {
+			if (settings.isReconnectKeyLeakMitigationEnabled()) {
+				LOG.warn(JASPER_DB.getMarker(),
+						"leaked key {} encountered, mitigation is enabled", key);
+				return null;
+			} else {
+				LOG.error(EXCEPTION.getMarker(),
+						"leaked key {} encountered, mitigation is disabled, expect problems", key);
+			}
+		}
+		return leafRecord;
+	}
+
+	/**
+	 * Read a leaf record, from the leaf record cache if possible otherwise from pathToHashKeyValue recording how long
+	 * the read took
+	 */
+	private VirtualLeafRecord<K, V> readLeafRecord(final long path) throws IOException {
+		final boolean useCache = leafRecordCache != null;
+		if (useCache) {
+			final VirtualLeafRecord<K, V> cachedRecord = readCachedLeafRecord(path);
+			if (cachedRecord != null) {
+				statistics.cycleLeafCacheHitsPerSecond();
+				return cachedRecord;
+			}
+			statistics.cycleLeafCacheMissesPerSecond();
+		}
+		final long readEpoch = useCache ? leafRecordCache.getInvalidationEpoch() : 0;
+		final long start = System.nanoTime();
+		final VirtualLeafRecord<K, V> leafRecord = pathToHashKeyValue.get(path);
+		statistics.recordLeafReadMicroseconds((System.nanoTime() - start) * Units.NANOSECONDS_TO_MICROSECONDS);
+		return useCache ? cacheLeafRecord(path, leafRecord, readEpoch) : leafRecord;
+	}
+
+	/**
+	 * Read a batch of leaf records, from the leaf record cache where possible and the rest with a single batched
+	 * read from pathToHashKeyValue.
+	 *
+	 * @param paths
+	 * 		the paths to read, all must be valid leaf paths
+	 * @return list of leaf records in the same order as paths
+	 */
+	private List<VirtualLeafRecord<K, V>> readLeafRecords(final long[] paths) throws IOException {
+		if (leafRecordCache == null) {
+			return pathToHashKeyValue.get(paths);
+		}
+		final List<VirtualLeafRecord<K, V>> leafRecords = new ArrayList<>(paths.length);
+		final long[] missedPaths = new long[paths.length];
+		int missedCount = 0;
+		for (final long path : paths) {
+			final VirtualLeafRecord<K, V> cachedRecord = readCachedLeafRecord(path);
+			if (cachedRecord != null) {
+				statistics.cycleLeafCacheHitsPerSecond();
+			} else {
+				statistics.cycleLeafCacheMissesPerSecond();
+				missedPaths[missedCount++] = path;
+			}
+			leafRecords.add(cachedRecord);
+		}
+		if (missedCount > 0) {
+			final long readEpoch = leafRecordCache.getInvalidationEpoch();
+			final List<VirtualLeafRecord<K, V>> readRecords =
+					pathToHashKeyValue.get(Arrays.copyOf(missedPaths, missedCount));
+			int readIndex = 0;
+			for (int i = 0; i < paths.length; i++) {
+				if (leafRecords.get(i) == null) {
+					leafRecords.set(i, cacheLeafRecord(paths[i], readRecords.get(readIndex++), readEpoch));
+				}
+			}
+		}
+		return leafRecords;
+	}
+
+	/**
+	 * Put a leaf record read from disk into the leaf record cache. The record is cached serialized, so the caller keeps
+	 * the record that was read and is free to modify it.
+	 *
+	 * @return the record that was read
+	 */
+	private VirtualLeafRecord<K, V> cacheLeafRecord(
+			final long path, final VirtualLeafRecord<K, V> leafRecord, final long readEpoch) throws IOException {
+		if (leafRecord == null) {
+			return null;
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(leafRecordSerializer.getTypicalSerializedSize());
+		try (final SerializableDataOutputStream out = new SerializableDataOutputStream(bytes)) {
+			leafRecordSerializer.serialize(leafRecord, out);
+		}
+		if (leafRecordCache.put(path, bytes.toByteArray(), readEpoch)) {
+			statistics.cycleLeafCacheEvictionsPerSecond();
+		}
+		return leafRecord;
+	}
+
+	/**
+	 * Read a leaf record from the leaf record cache, deserializing a new record from the cached bytes
+	 *
+	 * @param path
+	 * 		the path of the leaf record
+	 * @return new leaf record, or null if the path is not cached
+	 */
+	private VirtualLeafRecord<K, V> readCachedLeafRecord(final long path) throws IOException {
+		final byte[] cachedBytes = leafRecordCache.get(path);
+		if (cachedBytes == null) {
+			return null;
+		}
+		return leafRecordSerializer.deserialize(ByteBuffer.wrap(cachedBytes),
+				leafRecordSerializer.getCurrentDataVersion());
+	}
+
+	/**
+	 * Read an internal record from internalHashStoreDisk, recording how long the read took
+	 */
+	private VirtualInternalRecord readInternalRecord(final long path) throws IOException {
+		final long start = System.nanoTime();
+		final VirtualInternalRecord internalRecord = internalHashStoreDisk.get(path);
+		statistics.recordInternalNodeReadMicroseconds((System.nanoTime() - start) * Units.NANOSECONDS_TO_MICROSECONDS);
+		return internalRecord;
+	}
+
 	/**
 	 * Write all internal records hashes to internalHashStore
 	 */
@@ -1100,6 +1480,7 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			}
 
 			final AtomicLong lastPath = new AtomicLong(INVALID_PATH);
+			final LongArrayList changedDiskPaths = internalHashCache != null ? new LongArrayList() : null;
 			internalRecords.forEach(rec -> {
 
 				assert rec.getPath() > lastPath.getAndSet(rec.getPath()) :
@@ -1111,6 +1492,9 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 				} else {
 					try {
 						internalHashStoreDisk.put(rec.getPath(), rec);
+						if (changedDiskPaths != null) {
+							changedDiskPaths.add(rec.getPath());
+						}
 					} catch (IOException e) {
 						LOG.error(EXCEPTION.getMarker(), "[{}] IOException writing internal records", label, e);
 						throw new UncheckedIOException(e);
@@ -1121,6 +1505,12 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			if (hasDiskStoreForInternalHashes) {
 				internalHashStoreDisk.endWriting(0, firstLeafPath - 1);
 			}
+			// now the new hashes are readable, drop any old cached ones
+			if (changedDiskPaths != null) {
+				for (int i = 0; i < changedDiskPaths.size(); i++) {
+					internalHashCache.invalidate(changedDiskPaths.get(i));
+				}
+			}
 		}
 	}
 
@@ -1141,9 +1531,10 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 				objectKeyToPath.startWriting();
 			}
 
-			// iterate over leaf records
+			// iterate over leaf records, updating the key to path index as each record is taken from the iterator
 			final AtomicLong lastPath = new AtomicLong(INVALID_PATH);
-			leafRecordsToAddOrUpdate.forEach(leafRecord -> {
+			final LongArrayList changedPaths = leafRecordCache != null ? new LongArrayList() : null;
+			final Iterator<VirtualLeafRecord<K, V>> leafRecords = leafRecordsToAddOrUpdate.peek(leafRecord -> {
 
 				assert leafRecord.getPath() > lastPath.getAndSet(leafRecord.getPath()) :
 						"Path should be in ascending order!";
@@ -1156,14 +1547,21 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 					objectKeyToPath.put(leafRecord.getKey(), leafRecord.getPath());
 				}
 
-				// update pathToHashKeyValue
-				try {
+				if (changedPaths != null) {
+					changedPaths.add(leafRecord.getPath());
+				}
+			}).iterator();
+
+			// update pathToHashKeyValue, serializing the records in parallel if enabled
+			if (leafSerializationExecutor != null) {
+				pathToHashKeyValue.putAll(leafRecords, VirtualLeafRecord::getPath, leafSerializationExecutor,
+						settings.getSaveRecordsSerializationThreads());
+			} else {
+				while (leafRecords.hasNext()) {
+					final VirtualLeafRecord<K, V> leafRecord = leafRecords.next();
 					pathToHashKeyValue.put(leafRecord.getPath(), leafRecord);
-				} catch (IOException e) {
-					LOG.error(EXCEPTION.getMarker(), "[{}] IOException writing to pathToHashKeyValue", label, e);
-					throw new UncheckedIOException(e);
 				}
-			});
+			}
 
 			// iterate over leaf records to delete
 			leafRecordsToDelete.forEach(leafRecord -> {
@@ -1184,6 +1582,13 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			if (!isLongKeyMode) {
 				objectKeyToPath.endWriting();
 			}
+			// now the new records are readable, drop any old cached ones. Deleted leaves need no invalidation as their
+			// paths are either outside the new valid leaf path range or have been written with the leaf moved there.
+			if (changedPaths != null) {
+				for (int i = 0; i < changedPaths.size(); i++) {
+					leafRecordCache.invalidate(changedPaths.get(i));
+				}
+			}
 		}
 	}
 
@@ -1204,12 +1609,7 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 	@SuppressWarnings({ "rawtypes", "unchecked", "ConstantConditions" })
 	boolean doMerge() {
 		try {
-			// calls to Instant.now() are expensive, so we only call it four times (or three if isLongKeyMode)
-			// rather than having separate "start" and "end" Instants for each of the two/three sub merges.
 			final Instant now = Instant.now(clock);
-			final Instant afterInternalHashStoreDiskMerge;
-			final Instant afterObjectKeyToPathMerge;
-			final Instant afterPathToHashKeyValueMerge;
 
 			UnaryOperator<List<DataFileReader>> filesToMergeFilter;
 			boolean isLargeMerge = false;
@@ -1221,6 +1621,11 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 				filesToMergeFilter = dataFileReaders -> dataFileReaders;
 				isLargeMerge = true;
 				LOG.info(JASPER_DB.getMarker(), "[{}] Starting Large Merge", label);
+			} else if (compactionStrategy != null) {
+				// compaction merges replace small and medium merges, so their times are recorded as small merges
+				filesToMergeFilter = compactionStrategy::selectFilesToMerge;
+				isSmallMerge = true;
+				LOG.info(JASPER_DB.getMarker(), "[{}] Starting Compaction Merge", label);
 			} else if (isTimeForMediumMerge(now)) {
 				lastMediumMerge = now;
 				filesToMergeFilter = newestFilesSmallerThan(
@@ -1235,45 +1640,46 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 			}
 
 			waitIfMergingPaused(mergingPaused);
+			// The stores have independent files and indexes, so we merge them concurrently on storeMergingExecutor.
+			// Each store merge still checks mergingPaused itself, so snapshots can pause all of them.
+			final List<Future<Duration>> storeMerges = new ArrayList<>();
+			final AtomicBoolean skipStoreMerges = new AtomicBoolean(false);
+			final Future<Duration> internalHashStoreDiskMerge;
+			final Future<Duration> objectKeyToPathMerge;
+			final Future<Duration> pathToHashKeyValueMerge;
 			// we need to merge disk files for internal hashes if they exist and pathToHashKeyValue store
 			if (hasDiskStoreForInternalHashes) {
 				// horrible hack to get around generics because file filters work on any type of DataFileReader
 				final UnaryOperator<List<DataFileReader<VirtualInternalRecord>>> internalRecordFileFilter =
 						(UnaryOperator<List<DataFileReader<VirtualInternalRecord>>>) ((Object) filesToMergeFilter);
-				internalHashStoreDisk.merge(internalRecordFileFilter, mergingPaused,
-						settings.getMinNumberOfFilesInMerge());
-				afterInternalHashStoreDiskMerge = Instant.now(clock);
+				internalHashStoreDiskMerge = submitStoreMerge(storeMerges, skipStoreMerges,
+						() -> internalHashStoreDisk.merge(
+								internalRecordFileFilter, mergingPaused, settings.getMinNumberOfFilesInMerge()));
 			} else {
-				afterInternalHashStoreDiskMerge = now;    // zero elapsed time
+				internalHashStoreDiskMerge = null;
 			}
-			waitIfMergingPaused(mergingPaused);
 			// merge objectKeyToPath files
 			if (isLongKeyMode) {
-				// third "now" is replaced by copying second "now"
-				afterObjectKeyToPathMerge = afterInternalHashStoreDiskMerge;
+				objectKeyToPathMerge = null;
 			} else {
 				// horrible hack to get around generics because file filters work on any type of DataFileReader
 				final UnaryOperator<List<DataFileReader<Bucket<K>>>> bucketFileFilter =
 						(UnaryOperator<List<DataFileReader<Bucket<K>>>>) ((Object) filesToMergeFilter);
-				objectKeyToPath.merge(bucketFileFilter, mergingPaused, settings.getMinNumberOfFilesInMerge());
-				// set third "now"
-				afterObjectKeyToPathMerge = Instant.now(clock);
+				objectKeyToPathMerge = submitStoreMerge(storeMerges, skipStoreMerges, () -> objectKeyToPath.merge(
+						bucketFileFilter, mergingPaused, settings.getMinNumberOfFilesInMerge()));
 			}
-			waitIfMergingPaused(mergingPaused);
 			// now do main merge of pathToHashKeyValue store
 			// horrible hack to get around generics because file filters work on any type of DataFileReader
 			final UnaryOperator<List<DataFileReader<VirtualLeafRecord<K, V>>>> leafRecordFileFilter =
 					(UnaryOperator<List<DataFileReader<VirtualLeafRecord<K, V>>>>) ((Object) filesToMergeFilter);
-			pathToHashKeyValue.merge(leafRecordFileFilter, mergingPaused, settings.getMinNumberOfFilesInMerge());
-			// set fourth "now"
-			afterPathToHashKeyValueMerge = Instant.now(clock);
+			pathToHashKeyValueMerge = submitStoreMerge(storeMerges, skipStoreMerges, () -> pathToHashKeyValue.merge(
+					leafRecordFileFilter, mergingPaused, settings.getMinNumberOfFilesInMerge()));
 
-			// determine how long each of the sub-merges took.
-			final Duration firstMergeDuration = Duration.between(now, afterInternalHashStoreDiskMerge);
-			final Duration secondMergeDuration =
-					Duration.between(afterInternalHashStoreDiskMerge, afterObjectKeyToPathMerge);
-			final Duration thirdMergeDuration =
-					Duration.between(afterObjectKeyToPathMerge, afterPathToHashKeyValueMerge);
+			// wait for all the store merges, then determine how long each of them took
+			waitForStoreMerges(storeMerges, skipStoreMerges);
+			final Duration firstMergeDuration = getStoreMergeDuration(internalHashStoreDiskMerge);
+			final Duration secondMergeDuration = getStoreMergeDuration(objectKeyToPathMerge);
+			final Duration thirdMergeDuration = getStoreMergeDuration(pathToHashKeyValueMerge);
 
 			// update the 3 appropriate "Merge" statistics, based on isSmallMerge/isMediumMerge/isLargeMerge
 			if (isSmallMerge) {
@@ -1325,6 +1731,87 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 		}
 	}
 
+	/**
+	 * Submit a single store's merge to run on storeMergingExecutor
+	 *
+	 * @param storeMerges
+	 * 		list of all submitted store merges, the new one is added to it
+	 * @param skipStoreMerges
+	 * 		when set before the merge starts running, the merge is skipped
+	 * @param storeMerge
+	 * 		the merge to run
+	 * @return future for how long the store merge took
+	 */
+	private Future<Duration> submitStoreMerge(final List<Future<Duration>> storeMerges,
+			final AtomicBoolean skipStoreMerges, final StoreMerge storeMerge) {
+		final Future<Duration> future = storeMergingExecutor.submit(() -> {
+			if (skipStoreMerges.get()) {
+				return Duration.ZERO;
+			}
+			final Instant start = Instant.now(clock);
+			storeMerge.merge();
+			return Duration.between(start, Instant.now(clock));
+		});
+		storeMerges.add(future);
+		return future;
+	}
+
+	/**
+	 * Wait for all store merges to finish, even if some of them fail, then rethrow the first failure. Store merges are
+	 * never interrupted or cancelled, as interrupting one would close the index file channels it shares with readers
+	 * and a cancelled future no longer waits for its running merge. If we are interrupted while waiting then store
+	 * merges that have not started yet are skipped, and we still wait for the running ones before throwing
+	 * InterruptedException.
+	 *
+	 * @param storeMerges
+	 * 		all submitted store merges
+	 * @param skipStoreMerges
+	 * 		set to skip the store merges that have not started yet
+	 * @throws Exception
+	 * 		if a store merge failed or we were interrupted while waiting
+	 */
+	private static void waitForStoreMerges(final List<Future<Duration>> storeMerges,
+			final AtomicBoolean skipStoreMerges) throws Exception {
+		Exception failure = null;
+		boolean interrupted = false;
+		for (final Future<Duration> storeMerge : storeMerges) {
+			boolean done = false;
+			while (!done) {
+				try {
+					storeMerge.get();
+					done = true;
+				} catch (InterruptedException e) {
+					interrupted = true;
+					skipStoreMerges.set(true);
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+					}
+					done = true;
+				}
+			}
+		}
+		if (interrupted) {
+			throw new InterruptedException("Interrupted while waiting for store merges");
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Get how long a finished store merge took.
+	 *
+	 * @param storeMerge
+	 * 		the store merge, already waited for by waitForStoreMerges(), can be null if that store has nothing to merge
+	 * @return how long the store merge took, zero if storeMerge was null
+	 * @throws Exception
+	 * 		if the store merge failed
+	 */
+	private static Duration getStoreMergeDuration(final Future<Duration> storeMerge) throws Exception {
+		return storeMerge == null ? Duration.ZERO : storeMerge.get();
+	}
+
 	private boolean isTimeForFullMerge(final Instant startMerge) {
 		return startMerge.minus(settings.getFullMergePeriod(), settings.getMergePeriodUnit()).isAfter(lastFullMerge);
 	}
@@ -1333,6 +1820,22 @@ public class VirtualDataSourceJasperDB<K extends VirtualKey<? super K>, V extend
 		return startMerge.minus(settings.getMediumMergePeriod(), settings.getMergePeriodUnit()).isAfter(lastMediumMerge);
 	}
 
+	/**
+	 * A merge of a single store
+	 */
+	@FunctionalInterface
+	private interface StoreMerge {
+		/**
+		 * Merge the store
+		 *
+		 * @throws IOException
+		 * 		if there was a problem merging
+		 * @throws InterruptedException
+		 * 		if the merge was interrupted
+		 */
+		void merge() throws IOException, InterruptedException;
+	}
+
 	/**
 	 * A clock that is accurate to the nanosecond, as compared to the standard Java "Instant" clock, which is only
 	 * accurate to the nearest millisecond.
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+package com.swirlds.jasperdb.collections;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe set of chunk indexes, recording which fixed size chunks of an index data structure have been changed.
+ * It is a bit set with one bit per chunk, so marking a chunk changed is lock free and cheap enough to be done on every
+ * put. This is used for delta snapshots, which only write the chunks that changed since the previous snapshot.
+ */
+public final class ChangedChunkSet {
+	/** The number of items, longs or hashes, in each chunk */
+	private final int itemsPerChunk;
+	/** One bit per chunk, set if the chunk has changed */
+	private final AtomicLongArray bits;
+
+	/**
+	 * Create a new empty ChangedChunkSet
+	 *
+	 * @param itemsPerChunk
+	 * 		the number of items in each chunk, must be greater than zero
+	 * @param maxItems
+	 * 		the maximum number of items that can be stored, so the maximum index marked changed is maxItems - 1
+	 */
+	public ChangedChunkSet(final int itemsPerChunk, final long maxItems) {
+		if (itemsPerChunk < 1) {
+			throw new IllegalArgumentException("Cannot construct ChangedChunkSet with itemsPerChunk " + itemsPerChunk);
+		}
+		this.itemsPerChunk = itemsPerChunk;
+		final long numOfChunks = (maxItems + itemsPerChunk - 1) / itemsPerChunk;
+		this.bits = new AtomicLongArray(Math.toIntExact((numOfChunks + Long.SIZE - 1) / Long.SIZE));
+	}
+
+	/**
+	 * Get the number of items in each chunk
+	 *
+	 * @return items per chunk
+	 */
+	public int getItemsPerChunk() {
+		return itemsPerChunk;
+	}
+
+	/**
+	 * Mark the chunk containing an item index as changed
+	 *
+	 * @param index
+	 * 		the index of the item that changed
+	 */
+	public void markChanged(final long index) {
+		final long chunkIndex = index / itemsPerChunk;
+		final int word = (int) (chunkIndex / Long.SIZE);
+		final long mask = 1L << (chunkIndex % Long.SIZE);
+		// most puts are to chunks that are already marked, so read first to avoid contended writes
+		long current = bits.get(word);
+		while ((current & mask) == 0) {
+			final long witness = bits.compareAndExchange(word, current, current | mask);
+			if (witness == current) {
+				return;
+			}
+			current = witness;
+		}
+	}
+
+	/**
+	 * Get the indexes of all changed chunks and reset them to unchanged. Chunks marked concurrently with this call
+	 * are either returned now or by the next call.
+	 *
+	 * @return sorted array of changed chunk indexes
+	 */
+	public long[] takeChangedChunks() {
+		long[] chunks = new long[Long.SIZE];
+		int count = 0;
+		for (int i = 0; i < bits.length(); i++) {
+			long word = bits.get(i) == 0 ? 0 : bits.getAndSet(i, 0);
+			while (word != 0) {
+				if (count == chunks.length) {
+					chunks = Arrays.copyOf(chunks, chunks.length * 2);
+				}
+				chunks[count++] = (long) i * Long.SIZE + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return Arrays.copyOf(chunks, count);
+	}
+}
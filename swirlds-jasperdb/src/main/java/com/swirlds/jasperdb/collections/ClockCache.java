@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+package com.swirlds.jasperdb.collections;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size bounded cache from {@code long} keys to values, using the CLOCK (second chance) eviction policy. Reads are
+ * lock free and only set a referenced flag on the entry. Writes are serialized on the cache, and when the cache is full
+ * the clock hand sweeps the ring of entries, clearing referenced flags until it finds an entry that has not been read
+ * since the last sweep, which is evicted. So frequently read entries stay cached and entries read once get evicted.
+ * <p>
+ * Values that are read from a backing store can race with updates to that store. To avoid caching stale values,
+ * readers call {@link #getInvalidationEpoch()} before reading the store and pass the result to
+ * {@link #put(long, Object, long)}, and writers call {@link #invalidate(long)} for every changed key after the store
+ * has been updated. A put that raced with an invalidation is undone.
+ *
+ * @param <V>
+ * 		the type of cached values
+ */
+public final class ClockCache<V> {
+	/** The maximum number of entries in the cache */
+	private final int capacity;
+	/** Map from key to entry, for lock free reads */
+	private final ConcurrentHashMap<Long, Entry<V>> entries;
+	/** Ring of entries swept by the clock hand, guarded by this */
+	private final Entry<V>[] ring;
+	/** The next ring slot the clock hand looks at, guarded by this */
+	private int clockHand = 0;
+	/** The number of ring slots that have ever been used, guarded by this */
+	private int usedSlots = 0;
+	/** Incremented on every invalidation, so puts can detect they raced with one */
+	private final AtomicLong invalidationEpoch = new AtomicLong();
+
+	/**
+	 * Create a new ClockCache
+	 *
+	 * @param capacity
+	 * 		the maximum number of entries to cache, must be greater than zero
+	 */
+	@SuppressWarnings("unchecked")
+	public ClockCache(final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Cannot construct ClockCache with capacity " + capacity);
+		}
+		this.capacity = capacity;
+		this.entries = new ConcurrentHashMap<>(capacity);
+		this.ring = new Entry[capacity];
+	}
+
+	/**
+	 * Get the maximum number of entries in this cache
+	 *
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the current number of entries in this cache
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the cached value for a key, marking it as recently used.
+	 *
+	 * @param key
+	 * 		the key to get value for
+	 * @return the cached value or null if the key is not cached
+	 */
+	public V get(final long key) {
+		final Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		entry.referenced = true;
+		return entry.value;
+	}
+
+	/**
+	 * Get the current invalidation epoch. Call this before reading a value from the backing store that will be put in
+	 * this cache.
+	 *
+	 * @return the current invalidation epoch
+	 */
+	public long getInvalidationEpoch() {
+		return invalidationEpoch.get();
+	}
+
+	/**
+	 * Put a value read from the backing store into the cache, evicting another entry if the cache is full. If any key
+	 * was invalidated since {@code readEpoch} then the value may be stale, so it is not left in the cache.
+	 *
+	 * @param key
+	 * 		the key to cache value for
+	 * @param value
+	 * 		the value to cache, not null
+	 * @param readEpoch
+	 * 		the invalidation epoch from before the value was read from the backing store
+	 * @return true if another entry was evicted to make room
+	 */
+	public boolean put(final long key, final V value, final long readEpoch) {
+		if (invalidationEpoch.get() != readEpoch) {
+			return false;
+		}
+		Entry<V> entry;
+		boolean evicted = false;
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry != null) {
+				// reuse the existing entry and its ring slot
+				entry.value = value;
+				entry.referenced = true;
+			} else {
+				entry = new Entry<>(key, value);
+				final int slot;
+				if (usedSlots < capacity) {
+					slot = usedSlots++;
+				} else {
+					slot = findVictimSlot();
+					final Entry<V> victim = ring[slot];
+					evicted = entries.remove(victim.key, victim);
+				}
+				ring[slot] = entry;
+				entries.put(key, entry);
+			}
+		}
+		// we raced with an invalidation, which may not have seen our entry, so undo the put
+		if (invalidationEpoch.get() != readEpoch) {
+			entries.remove(key, entry);
+		}
+		return evicted;
+	}
+
+	/**
+	 * Remove a key from the cache, because its value in the backing store has changed. This must be called after the
+	 * backing store has been updated.
+	 *
+	 * @param key
+	 * 		the key to invalidate
+	 */
+	public void invalidate(final long key) {
+		invalidationEpoch.incrementAndGet();
+		entries.remove(key);
+	}
+
+	/**
+	 * Remove all entries from the cache.
+	 */
+	public void clear() {
+		invalidationEpoch.incrementAndGet();
+		entries.clear();
+	}
+
+	/**
+	 * Advance the clock hand until it finds a slot whose entry has not been referenced since the hand last passed it.
+	 * Slots whose entry has been invalidated are reused straight away. Must be called while holding the lock on this.
+	 *
+	 * @return the slot index to evict
+	 */
+	private int findVictimSlot() {
+		while (true) {
+			final int slot = clockHand;
+			clockHand = (clockHand + 1) % capacity;
+			final Entry<V> candidate = ring[slot];
+			if (entries.get(candidate.key) != candidate || !candidate.referenced) {
+				return slot;
+			}
+			// give it a second chance
+			candidate.referenced = false;
+		}
+	}
+
+	/**
+	 * A single cache entry
+	 */
+	private static final class Entry<V> {
+		private final long key;
+		private volatile V value;
+		private volatile boolean referenced;
+
+		private Entry(final long key, final V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+}
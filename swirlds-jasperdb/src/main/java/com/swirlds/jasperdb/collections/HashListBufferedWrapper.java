@@ -22,6 +22,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.swirlds.jasperdb.utilities.HashTools.HASH_SIZE_BYTES;
+import static com.swirlds.jasperdb.utilities.HashTools.hashToByteBuffer;
+
 /**
  * A wrapper for a HashList that has two modes, direct pass though or an overlaid cache buffer.
  * <p>
@@ -31,6 +34,8 @@ import java.util.concurrent.atomic.AtomicReference;
 public class HashListBufferedWrapper implements HashList {
 
 	private static final int PARALLELISM_THRESHOLD = 100_000;
+	/** The number of hashes in each chunk that is tracked for changes, for delta snapshots. 768Kb of hashes. */
+	private static final int DELTA_SNAPSHOT_CHUNK_SIZE = 16 * 1024;
 
 	/** The HashList we are wrapping and providing an overlay cache to */
 	private final HashList wrappedHashList;
@@ -43,6 +48,12 @@ public class HashListBufferedWrapper implements HashList {
 	 * {@link #wrappedHashList} yet.
 	 */
 	private final AtomicBoolean skipCacheOnWrite = new AtomicBoolean(false);
+	/** The chunks changed by puts since overlay mode was last started */
+	private final ChangedChunkSet changedChunks;
+	/** The chunks changed between the previous snapshot and the current one, taken when overlay mode starts */
+	private long[] snapshotChangedChunks;
+	/** The file written by the previous snapshot, or null if there was none or it failed */
+	private Path previousSnapshotFile;
 
 	/**
 	 * Create a new HashListBufferedWrapper wrapping wrappedHashList
@@ -52,6 +63,7 @@ public class HashListBufferedWrapper implements HashList {
 	 */
 	public HashListBufferedWrapper(HashList wrappedHashList) {
 		this.wrappedHashList = wrappedHashList;
+		this.changedChunks = new ChangedChunkSet(DELTA_SNAPSHOT_CHUNK_SIZE, wrappedHashList.maxHashes());
 	}
 
 	/**
@@ -88,6 +100,7 @@ public class HashListBufferedWrapper implements HashList {
 			cachedChanges.set(null);
 		} else { // start using cache
 			skipCacheOnWrite.set(false);
+			snapshotChangedChunks = changedChunks.takeChangedChunks();
 			cachedChanges.set(new ConcurrentHashMap<>());
 		}
 	}
@@ -147,6 +160,7 @@ public class HashListBufferedWrapper implements HashList {
 		} else {
 			wrappedHashList.put(index, hash);
 		}
+		changedChunks.markChanged(index);
 	}
 
 	/**
@@ -208,4 +222,37 @@ public class HashListBufferedWrapper implements HashList {
 	public void writeToFile(Path file) throws IOException {
 		wrappedHashList.writeToFile(file);
 	}
+
+	/**
+	 * Write a snapshot of the wrapped HashList into a file, as a delta on top of the previous snapshot's file if possible.
+	 * This must only be called in overlay mode, so the wrapped list doesn't change while it is written. See
+	 * {@link IndexDeltaSnapshots} for details of the files written.
+	 *
+	 * @param file
+	 * 		The file to write into, it should not exist but its parent directory should exist and be writable.
+	 * @param maxDeltas
+	 * 		The maximum number of deltas on top of a full snapshot, if 0 a full snapshot is always written
+	 * @return the number of bytes written, not including files hard linked from the previous snapshot
+	 * @throws IOException
+	 * 		If there was a problem creating or writing to the files.
+	 */
+	public synchronized long writeSnapshotToFile(final Path file, final int maxDeltas) throws IOException {
+		if (cachedChanges.get() == null) {
+			throw new IllegalStateException("Snapshots can only be written in overlay mode");
+		}
+		final Path previousFile = previousSnapshotFile;
+		previousSnapshotFile = null;
+		final long bytesWritten = IndexDeltaSnapshots.writeSnapshot(file, previousFile, snapshotChangedChunks,
+				DELTA_SNAPSHOT_CHUNK_SIZE, HASH_SIZE_BYTES, wrappedHashList.size(), maxDeltas,
+				wrappedHashList::writeToFile,
+				(index, buffer) -> {
+					final Hash hash = wrappedHashList.get(index);
+					// a null hash is left as zero bytes, the same as in a full snapshot
+					if (hash != null) {
+						hashToByteBuffer(hash, buffer);
+					}
+				});
+		previousSnapshotFile = file;
+		return bytesWritten;
+	}
 }
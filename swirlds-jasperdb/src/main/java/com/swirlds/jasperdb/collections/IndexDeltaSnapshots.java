@@ -0,0 +1,406 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+package com.swirlds.jasperdb.collections;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.jasperdb.utilities.HashTools;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+
+/**
+ * Delta snapshots for in-memory indexes. A full snapshot of a large index like a {@link LongList} or {@link HashList}
+ * writes every item, even if only a few items changed since the previous snapshot. A delta snapshot instead hard links
+ * the files of the previous snapshot into the new snapshot directory and writes one extra delta file, containing only
+ * the chunks of items that changed. A manifest file next to the index file lists the delta files to apply, in order,
+ * on top of the base index file when loading.
+ * <p>
+ * The files for an index file "index.ll" are:
+ * <ul>
+ *     <li>"index.ll" - the base, a full snapshot written by the index's own writeToFile()</li>
+ *     <li>"index.ll.1.delta", "index.ll.2.delta" ... - changed chunks since the base and each following delta</li>
+ *     <li>"index.ll.manifest" - the list of delta files, only present if there are deltas</li>
+ * </ul>
+ * Delta chains are limited in length, when the limit is reached or the changes are a large fraction of the index a
+ * full snapshot is written, starting a new chain.
+ */
+public final class IndexDeltaSnapshots {
+	private static final Logger LOG = LogManager.getLogger(IndexDeltaSnapshots.class);
+
+	/** File format version for delta and manifest files */
+	private static final int FILE_FORMAT_VERSION = 1;
+	/** Delta file header: version, items per chunk, item size, number of chunks */
+	private static final int DELTA_HEADER_SIZE = Integer.BYTES * 4;
+	/** Chunk header: chunk index, number of items */
+	private static final int CHUNK_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+	/** Suffix added to index file name for manifest file */
+	private static final String MANIFEST_SUFFIX = ".manifest";
+	/** Suffix added to index file name and delta number for delta files */
+	private static final String DELTA_SUFFIX = ".delta";
+	/** Deltas are only written while they are smaller than this fraction of a full snapshot */
+	private static final double MAX_DELTA_FRACTION_OF_FULL = 0.5;
+
+	private IndexDeltaSnapshots() {
+		throw new IllegalStateException("Utility class; should not be instantiated.");
+	}
+
+	/**
+	 * Writes a full snapshot of an index to a file
+	 */
+	@FunctionalInterface
+	public interface FullSnapshotWriter {
+		/**
+		 * Write all items of the index to file
+		 *
+		 * @param file
+		 * 		the file to write, it should not exist but its parent directory should exist
+		 * @throws IOException
+		 * 		If there was a problem writing the file
+		 */
+		void writeToFile(Path file) throws IOException;
+	}
+
+	/**
+	 * Writes or reads a single index item to or from a buffer
+	 */
+	@FunctionalInterface
+	public interface ItemHandler {
+		/**
+		 * Write the item at index into buffer, or read it from the buffer and store it at index. When writing, the
+		 * item's bytes are all zero when this is called, so an empty item can be left unwritten.
+		 *
+		 * @param index
+		 * 		the index of the item
+		 * @param buffer
+		 * 		buffer positioned at the start of the item's bytes
+		 * @throws IOException
+		 * 		If there was a problem reading or writing the item
+		 */
+		void handle(long index, ByteBuffer buffer) throws IOException;
+	}
+
+	/**
+	 * Check if an index file has delta files that need applying when it is loaded
+	 *
+	 * @param file
+	 * 		the base index file
+	 * @return true if there is a manifest for the file
+	 */
+	public static boolean hasDeltas(final Path file) {
+		return Files.exists(manifestFile(file));
+	}
+
+	/**
+	 * Write a snapshot of an index to a file, as a delta on top of the previous snapshot if possible or as a full
+	 * snapshot otherwise. The index must not change while this is called.
+	 *
+	 * @param file
+	 * 		the index file to write, it should not exist but its parent directory should exist
+	 * @param previousFile
+	 * 		the index file written by the previous snapshot of the same index, may be null if there was none
+	 * @param changedChunks
+	 * 		indexes of chunks changed since the previous snapshot, may be null if they are unknown
+	 * @param itemsPerChunk
+	 * 		the number of items in each chunk
+	 * @param itemSize
+	 * 		the number of bytes for each item in delta files
+	 * @param size
+	 * 		the number of items in the index
+	 * @param maxDeltas
+	 * 		the maximum length of the delta chain, if 0 only full snapshots are written
+	 * @param fullWriter
+	 * 		writer for a full snapshot
+	 * @param itemWriter
+	 * 		writer for each item in a changed chunk
+	 * @return the number of bytes written, not counting hard linked files
+	 * @throws IOException
+	 * 		If there was a problem writing the snapshot
+	 */
+	public static long writeSnapshot(final Path file, final Path previousFile, final long[] changedChunks,
+			final int itemsPerChunk, final int itemSize, final long size, final int maxDeltas,
+			final FullSnapshotWriter fullWriter, final ItemHandler itemWriter) throws IOException {
+		if (maxDeltas > 0 && previousFile != null && changedChunks != null && Files.exists(previousFile)
+				&& !previousFile.equals(file)) {
+			final List<String> previousDeltas = readManifest(previousFile);
+			final double deltaBytes = (double) changedChunks.length * itemsPerChunk * itemSize;
+			final double fullBytes = (double) size * itemSize;
+			if (previousDeltas.size() < maxDeltas && deltaBytes < fullBytes * MAX_DELTA_FRACTION_OF_FULL) {
+				try {
+					return writeDelta(file, previousFile, previousDeltas, changedChunks, itemsPerChunk, itemSize,
+							size, itemWriter);
+				} catch (IOException e) {
+					// the previous snapshot may have been deleted while we were linking it, write a full one instead
+					LOG.warn(EXCEPTION.getMarker(), "Failed to write delta snapshot [{}], writing full snapshot",
+							file, e);
+					Files.deleteIfExists(manifestFile(file));
+					for (int i = 1; i <= previousDeltas.size() + 1; i++) {
+						Files.deleteIfExists(file.resolveSibling(deltaFileName(file, i)));
+					}
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+		fullWriter.writeToFile(file);
+		return Files.size(file);
+	}
+
+	/**
+	 * Apply all deltas for an index file, that was saved by {@link #writeSnapshot}, to an index loaded from the file.
+	 *
+	 * @param file
+	 * 		the base index file
+	 * @param itemReader
+	 * 		reader that reads each item in the deltas and stores it in the index
+	 * @return the number of delta files applied
+	 * @throws IOException
+	 * 		If there was a problem reading the deltas
+	 */
+	public static int applyDeltas(final Path file, final ItemHandler itemReader) throws IOException {
+		final List<String> deltas = readManifest(file);
+		for (final String delta : deltas) {
+			applyDelta(file.resolveSibling(delta), itemReader);
+		}
+		return deltas.size();
+	}
+
+	/**
+	 * Apply all deltas for a {@link LongList} index file to a list loaded from that file
+	 *
+	 * @param file
+	 * 		the base index file
+	 * @param longList
+	 * 		the list loaded from the file
+	 * @return the number of delta files applied
+	 * @throws IOException
+	 * 		If there was a problem reading the deltas
+	 */
+	public static int applyDeltas(final Path file, final LongList longList) throws IOException {
+		return applyDeltas(file, (index, buffer) -> {
+			final long value = buffer.getLong();
+			// a LongList never goes back to empty, so empty items in a changed chunk were never set
+			if (value != LongList.IMPERMISSIBLE_VALUE) {
+				longList.put(index, value);
+			}
+		});
+	}
+
+	/**
+	 * Apply all deltas for a {@link HashList} index file to a list loaded from that file
+	 *
+	 * @param file
+	 * 		the base index file
+	 * @param hashList
+	 * 		the list loaded from the file
+	 * @return the number of delta files applied
+	 * @throws IOException
+	 * 		If there was a problem reading the deltas
+	 */
+	public static int applyDeltas(final Path file, final HashList hashList) throws IOException {
+		return applyDeltas(file, (index, buffer) -> {
+			final Hash hash = HashTools.byteBufferToHash(buffer, HashTools.getSerializationVersion());
+			hashList.put(index, hash);
+		});
+	}
+
+	/**
+	 * Apply all deltas for a {@link LongList} index file to the file itself, so that it can be opened by a disk based
+	 * list. The base file is replaced with a new file, rather than changed in place, as it may be hard linked from
+	 * another snapshot. The manifest and delta files are deleted afterwards.
+	 *
+	 * @param file
+	 * 		the base index file
+	 * @throws IOException
+	 * 		If there was a problem reading the deltas or writing the file
+	 */
+	public static void applyDeltasToLongListFile(final Path file) throws IOException {
+		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.copy(file, tempFile, StandardCopyOption.REPLACE_EXISTING);
+		try (LongListDisk longList = new LongListDisk(tempFile)) {
+			applyDeltas(file, longList);
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		deleteDeltaFiles(file);
+	}
+
+	/**
+	 * Delete the manifest and all delta files for an index file
+	 *
+	 * @param file
+	 * 		the base index file
+	 * @throws IOException
+	 * 		If there was a problem deleting the files
+	 */
+	public static void deleteDeltaFiles(final Path file) throws IOException {
+		final Path manifest = manifestFile(file);
+		if (Files.exists(manifest)) {
+			for (final String delta : readManifest(file)) {
+				Files.deleteIfExists(file.resolveSibling(delta));
+			}
+			Files.delete(manifest);
+		}
+	}
+
+	/**
+	 * Link the previous snapshot's base and deltas into the new snapshot and write a new delta and manifest
+	 */
+	private static long writeDelta(final Path file, final Path previousFile, final List<String> previousDeltas,
+			final long[] changedChunks, final int itemsPerChunk, final int itemSize, final long size,
+			final ItemHandler itemWriter) throws IOException {
+		Files.createLink(file, previousFile);
+		for (final String delta : previousDeltas) {
+			Files.createLink(file.resolveSibling(delta), previousFile.resolveSibling(delta));
+		}
+		final List<String> deltas = new ArrayList<>(previousDeltas);
+		deltas.add(deltaFileName(file, previousDeltas.size() + 1));
+		final Path deltaFile = file.resolveSibling(deltas.get(deltas.size() - 1));
+		long bytesWritten = 0;
+		try (FileChannel fc = FileChannel.open(deltaFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			final ByteBuffer header = ByteBuffer.allocate(DELTA_HEADER_SIZE);
+			header.putInt(FILE_FORMAT_VERSION);
+			header.putInt(itemsPerChunk);
+			header.putInt(itemSize);
+			header.putInt(changedChunks.length);
+			bytesWritten += writeFully(fc, header.flip());
+			final ByteBuffer chunkBuffer = ByteBuffer.allocate(CHUNK_HEADER_SIZE + itemsPerChunk * itemSize);
+			for (final long chunkIndex : changedChunks) {
+				final long firstIndex = chunkIndex * itemsPerChunk;
+				final int itemCount = (int) Math.max(0, Math.min(itemsPerChunk, size - firstIndex));
+				chunkBuffer.clear();
+				chunkBuffer.putLong(chunkIndex);
+				chunkBuffer.putInt(itemCount);
+				// the buffer is reused for every chunk, so clear items left from the previous chunk
+				Arrays.fill(chunkBuffer.array(), CHUNK_HEADER_SIZE, CHUNK_HEADER_SIZE + itemCount * itemSize, (byte) 0);
+				for (int i = 0; i < itemCount; i++) {
+					final int itemStart = chunkBuffer.position();
+					itemWriter.handle(firstIndex + i, chunkBuffer);
+					chunkBuffer.position(itemStart + itemSize);
+				}
+				bytesWritten += writeFully(fc, chunkBuffer.flip());
+			}
+		}
+		bytesWritten += writeManifest(file, deltas);
+		return bytesWritten;
+	}
+
+	/**
+	 * Read and apply a single delta file
+	 */
+	private static void applyDelta(final Path deltaFile, final ItemHandler itemReader) throws IOException {
+		try (FileChannel fc = FileChannel.open(deltaFile, StandardOpenOption.READ)) {
+			final ByteBuffer header = readFully(fc, ByteBuffer.allocate(DELTA_HEADER_SIZE));
+			final int formatVersion = header.getInt();
+			if (formatVersion != FILE_FORMAT_VERSION) {
+				throw new IOException("Tried to read a delta file with incompatible file format version [" +
+						formatVersion + "], expected [" + FILE_FORMAT_VERSION + "].");
+			}
+			final int itemsPerChunk = header.getInt();
+			final int itemSize = header.getInt();
+			final int numOfChunks = header.getInt();
+			final ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+			final ByteBuffer items = ByteBuffer.allocate(itemsPerChunk * itemSize);
+			for (int c = 0; c < numOfChunks; c++) {
+				readFully(fc, chunkHeader.clear());
+				final long firstIndex = chunkHeader.getLong() * itemsPerChunk;
+				final int itemCount = chunkHeader.getInt();
+				readFully(fc, items.clear().limit(itemCount * itemSize));
+				for (int i = 0; i < itemCount; i++) {
+					items.position(i * itemSize);
+					itemReader.handle(firstIndex + i, items);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the list of delta file names from an index file's manifest
+	 *
+	 * @return list of delta file names in the order they need applying, empty if there is no manifest
+	 */
+	private static List<String> readManifest(final Path file) throws IOException {
+		final Path manifest = manifestFile(file);
+		final List<String> deltas = new ArrayList<>();
+		if (Files.exists(manifest)) {
+			try (DataInputStream in = new DataInputStream(Files.newInputStream(manifest))) {
+				final int formatVersion = in.readInt();
+				if (formatVersion != FILE_FORMAT_VERSION) {
+					throw new IOException("Tried to read a manifest file with incompatible file format version [" +
+							formatVersion + "], expected [" + FILE_FORMAT_VERSION + "].");
+				}
+				final int numOfDeltas = in.readInt();
+				for (int i = 0; i < numOfDeltas; i++) {
+					deltas.add(in.readUTF());
+				}
+			}
+		}
+		return deltas;
+	}
+
+	/**
+	 * Write the manifest for an index file listing its delta files
+	 *
+	 * @return the size of the manifest file in bytes
+	 */
+	private static long writeManifest(final Path file, final List<String> deltas) throws IOException {
+		final Path manifest = manifestFile(file);
+		try (DataOutputStream out = new DataOutputStream(
+				Files.newOutputStream(manifest, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+			out.writeInt(FILE_FORMAT_VERSION);
+			out.writeInt(deltas.size());
+			for (final String delta : deltas) {
+				out.writeUTF(delta);
+			}
+		}
+		return Files.size(manifest);
+	}
+
+	private static Path manifestFile(final Path file) {
+		return file.resolveSibling(file.getFileName() + MANIFEST_SUFFIX);
+	}
+
+	private static String deltaFileName(final Path file, final int deltaNumber) {
+		return file.getFileName() + "." + deltaNumber + DELTA_SUFFIX;
+	}
+
+	private static int writeFully(final FileChannel fc, final ByteBuffer buffer) throws IOException {
+		final int bytes = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			fc.write(buffer);
+		}
+		return bytes;
+	}
+
+	private static ByteBuffer readFully(final FileChannel fc, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (fc.read(buffer) < 0) {
+				throw new IOException("Unexpected end of delta file");
+			}
+		}
+		return buffer.flip();
+	}
+}
@@ -32,6 +32,8 @@ import java.util.concurrent.atomic.AtomicReference;
 public class LongListBufferedWrapper extends LongList implements Closeable {
 
 	private static final int PARALLELISM_THRESHOLD = 100_000;
+	/** The number of longs in each chunk that is tracked for changes, for delta snapshots. 512Kb of longs. */
+	private static final int DELTA_SNAPSHOT_CHUNK_SIZE = 64 * 1024;
 
 	/** The LongList we are wrapping and providing an overlay cache to */
 	private final LongList wrappedLongList;
@@ -44,6 +46,12 @@ public class LongListBufferedWrapper extends LongList implements Closeable {
 	 * wrappedLongList yet.
 	 */
 	private final AtomicBoolean skipCacheOnWrite = new AtomicBoolean(false);
+	/** The chunks changed by puts since overlay mode was last started */
+	private final ChangedChunkSet changedChunks;
+	/** The chunks changed between the previous snapshot and the current one, taken when overlay mode starts */
+	private long[] snapshotChangedChunks;
+	/** The file written by the previous snapshot, or null if there was none or it failed */
+	private Path previousSnapshotFile;
 
 	/**
 	 * Construct a new BufferedLongListWrapper wrapping the given LongList
@@ -55,6 +63,7 @@ public class LongListBufferedWrapper extends LongList implements Closeable {
 		super(wrappedLongList.numLongsPerChunk, wrappedLongList.maxLongs);
 		this.wrappedLongList = wrappedLongList;
 		this.size.set(wrappedLongList.size());
+		this.changedChunks = new ChangedChunkSet(DELTA_SNAPSHOT_CHUNK_SIZE, wrappedLongList.maxLongs);
 	}
 
 	/**
@@ -93,6 +102,7 @@ public class LongListBufferedWrapper extends LongList implements Closeable {
 			cachedChanges.set(null);
 		} else { // start using cache
 			skipCacheOnWrite.set(false);
+			snapshotChangedChunks = changedChunks.takeChangedChunks();
 			cachedChanges.set(new ConcurrentHashMap<>());
 		}
 	}
@@ -148,6 +158,7 @@ public class LongListBufferedWrapper extends LongList implements Closeable {
 		} else {
 			wrappedLongList.put(index, value);
 		}
+		changedChunks.markChanged(index);
 		size.getAndUpdate(oldSize -> index >= oldSize ? (index + 1) : oldSize);
 	}
 
@@ -209,6 +220,7 @@ public class LongListBufferedWrapper extends LongList implements Closeable {
 		}
 
 		if (valueWasSet.get()) {
+			changedChunks.markChanged(index);
 			size.getAndUpdate(oldSize -> index >= oldSize ? (index + 1) : oldSize);
 			return true;
 		} else {
@@ -247,6 +259,33 @@ public class LongListBufferedWrapper extends LongList implements Closeable {
 		wrappedLongList.writeToFile(file);
 	}
 
+	/**
+	 * Write a snapshot of the wrapped LongList into a file, as a delta on top of the previous snapshot's file if possible.
+	 * This must only be called in overlay mode, so the wrapped list doesn't change while it is written. See
+	 * {@link IndexDeltaSnapshots} for details of the files written.
+	 *
+	 * @param file
+	 * 		The file to write into, it should not exist but its parent directory should exist and be writable.
+	 * @param maxDeltas
+	 * 		The maximum number of deltas on top of a full snapshot, if 0 a full snapshot is always written
+	 * @return the number of bytes written, not including files hard linked from the previous snapshot
+	 * @throws IOException
+	 * 		If there was a problem creating or writing to the files.
+	 */
+	public synchronized long writeSnapshotToFile(final Path file, final int maxDeltas) throws IOException {
+		if (cachedChanges.get() == null) {
+			throw new IllegalStateException("Snapshots can only be written in overlay mode");
+		}
+		final Path previousFile = previousSnapshotFile;
+		previousSnapshotFile = null;
+		final long bytesWritten = IndexDeltaSnapshots.writeSnapshot(file, previousFile, snapshotChangedChunks,
+				DELTA_SNAPSHOT_CHUNK_SIZE, Long.BYTES, wrappedLongList.size(), maxDeltas,
+				wrappedLongList::writeToFile,
+				(index, buffer) -> buffer.putLong(wrappedLongList.get(index, IMPERMISSIBLE_VALUE)));
+		previousSnapshotFile = file;
+		return bytesWritten;
+	}
+
 	/**
 	 * Not needed for LongListBufferedWrapper
 	 */
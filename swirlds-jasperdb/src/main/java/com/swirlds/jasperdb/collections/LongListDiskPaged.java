@@ -0,0 +1,415 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.jasperdb.collections;
+
+import com.swirlds.jasperdb.files.DataFileCommon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.swirlds.common.Units.MEBIBYTES_TO_BYTES;
+
+/**
+ * An on disk implementation of LongList with a write back cache of pages. It has the same file format as
+ * {@link LongListDisk} and the two can be used on the same files.
+ * <p>
+ * Rather than writing to the file on every put, written pages are kept in memory and marked dirty. Once there are
+ * enough dirty pages they are written back to the file in ascending page order, with runs of adjacent pages combined
+ * into large sequential writes. Writes are serialized on one of a number of lock stripes by page, rather than on the
+ * whole list, so concurrent writers to different pages do not block each other. Reads never lock, they read from the
+ * cached page if there is one and otherwise from the file.
+ * <p>
+ * putIfEqual() is an atomic compare and set, the same as {@link LongListOffHeap}.
+ */
+public final class LongListDiskPaged extends LongList implements Closeable {
+	/** The number of longs in each page, pages are the same size as OS pages */
+	private static final int PAGE_LONGS = DataFileCommon.PAGE_SIZE / Long.BYTES;
+	/** The number of bytes in each page */
+	private static final int PAGE_BYTES = PAGE_LONGS * Long.BYTES;
+	/** The number of lock stripes, must be a power of two */
+	private static final int NUM_OF_STRIPES = 64;
+	/** The largest number of bytes written back with a single write */
+	private static final int MAX_WRITE_BACK_BYTES = MEBIBYTES_TO_BYTES;
+	/** A temp byte buffer for reading and writing longs */
+	private static final ThreadLocal<ByteBuffer> TEMP_LONG_BUFFER_THREAD_LOCAL = ThreadLocal.withInitial(() ->
+			ByteBuffer.allocateDirect(Long.BYTES).order(ByteOrder.nativeOrder()));
+
+	/** The disk file this LongList is based on */
+	private final Path file;
+	/** Cached pages by page index */
+	private final ConcurrentHashMap<Long, Page> pages = new ConcurrentHashMap<>();
+	/** Lock stripes, a page's stripe must be held to load, change or evict it */
+	private final Object[] stripeLocks = new Object[NUM_OF_STRIPES];
+	/** The number of cached pages that are dirty */
+	private final AtomicInteger dirtyPageCount = new AtomicInteger();
+	/** The number of dirty pages that triggers a write back */
+	private final int maxDirtyPages;
+	/** The number of cached pages that triggers eviction of clean pages */
+	private final int maxCachedPages;
+	/** Held while writing back, so only one thread writes back at a time */
+	private final ReentrantLock writeBackLock = new ReentrantLock();
+	/** Buffer for combining pages into a single write, guarded by writeBackLock */
+	private final ByteBuffer writeBackBuffer =
+			ByteBuffer.allocateDirect(MAX_WRITE_BACK_BYTES).order(ByteOrder.nativeOrder());
+
+	/**
+	 * Create a {@link LongListDiskPaged} on a file, if the file doesn't exist it will be created.
+	 *
+	 * @param file
+	 * 		The file to read and write to
+	 * @param cacheSizeBytes
+	 * 		The maximum number of bytes of pages to cache in memory, half of which can be dirty
+	 * @throws IOException
+	 * 		If there was a problem reading the file
+	 */
+	public LongListDiskPaged(final Path file, final long cacheSizeBytes) throws IOException {
+		super(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+		this.file = file;
+		this.maxCachedPages = (int) Math.max(NUM_OF_STRIPES, Math.min(Integer.MAX_VALUE, cacheSizeBytes / PAGE_BYTES));
+		this.maxDirtyPages = maxCachedPages / 2;
+		for (int i = 0; i < NUM_OF_STRIPES; i++) {
+			stripeLocks[i] = new Object();
+		}
+	}
+
+	/**
+	 * Create a disk based LongList on a file, with a write back page cache if pageCacheMb is greater than zero.
+	 *
+	 * @param file
+	 * 		The file to read and write to, if the file doesn't exist it will be created
+	 * @param pageCacheMb
+	 * 		The size in MB of the page cache, zero for a {@link LongListDisk} that writes every change to the file
+	 * @return new disk based LongList
+	 * @throws IOException
+	 * 		If there was a problem reading the file
+	 */
+	public static LongList newDiskLongList(final Path file, final int pageCacheMb) throws IOException {
+		return pageCacheMb > 0
+				? new LongListDiskPaged(file, (long) pageCacheMb * MEBIBYTES_TO_BYTES)
+				: new LongListDisk(file);
+	}
+
+	/**
+	 * Stores a long at the given index.
+	 *
+	 * @param index
+	 * 		the index to use
+	 * @param value
+	 * 		the long to store
+	 * @throws IndexOutOfBoundsException
+	 * 		if the index is negative or beyond the max capacity of the list
+	 * @throws IllegalArgumentException
+	 * 		if the value is zero
+	 */
+	@Override
+	public void put(final long index, final long value) {
+		checkValueAndIndex(value, index);
+		final long pageIndex = index / PAGE_LONGS;
+		synchronized (stripeLock(pageIndex)) {
+			final Page page = getOrLoadPage(pageIndex);
+			// update size first, so a write back never sees a value beyond size
+			size.getAndUpdate(oldSize -> index >= oldSize ? (index + 1) : oldSize);
+			page.longs.set((int) (index % PAGE_LONGS), value);
+			markDirty(page);
+		}
+		writeBackIfNeeded();
+	}
+
+	/**
+	 * Stores a long at the given index, on the condition that the current long therein has a given value.
+	 *
+	 * @param index
+	 * 		the index to use
+	 * @param oldValue
+	 * 		the value that must currently obtain at the index
+	 * @param newValue
+	 * 		the new value to store
+	 * @return whether the newValue was set
+	 * @throws IndexOutOfBoundsException
+	 * 		if the index is negative or beyond the max capacity of the list
+	 * @throws IllegalArgumentException
+	 * 		if old value is zero (which could never be true)
+	 */
+	@Override
+	public boolean putIfEqual(final long index, final long oldValue, final long newValue) {
+		checkValueAndIndex(newValue, index);
+		final long pageIndex = index / PAGE_LONGS;
+		final int subIndex = (int) (index % PAGE_LONGS);
+		synchronized (stripeLock(pageIndex)) {
+			final Page page = getOrLoadPage(pageIndex);
+			if (page.longs.get(subIndex) != oldValue) {
+				return false;
+			}
+			size.getAndUpdate(oldSize -> index >= oldSize ? (index + 1) : oldSize);
+			page.longs.set(subIndex, newValue);
+			markDirty(page);
+		}
+		writeBackIfNeeded();
+		return true;
+	}
+
+	/**
+	 * Write back all dirty pages to the file.
+	 *
+	 * @throws IOException
+	 * 		If there was a problem writing to the file
+	 */
+	public void flush() throws IOException {
+		writeBackLock.lock();
+		try {
+			writeBack();
+		} finally {
+			writeBackLock.unlock();
+		}
+	}
+
+	/**
+	 * Write all longs in this LongList into a file
+	 * <p><b>
+	 * It is not guaranteed what version of data will be written if the LongList is changed via put methods while
+	 * this LongList is being written to a file. If you need consistency while calling put concurrently then use a
+	 * BufferedLongListWrapper.
+	 * </b></p>
+	 *
+	 * @param newFile
+	 * 		The file to write into, it should not exist but its parent directory should exist and be writable.
+	 * @throws IOException
+	 * 		If there was a problem creating or writing to the file.
+	 */
+	@Override
+	public void writeToFile(final Path newFile) throws IOException {
+		// finish writing to current file
+		flush();
+		fileChannel.force(true);
+		// if new file is provided then copy to it
+		if (!file.equals(newFile)) {
+			try (final FileChannel fc = FileChannel.open(newFile, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE)) {
+				fileChannel.position(0);
+				fc.transferFrom(fileChannel, 0, fileChannel.size());
+			}
+		}
+	}
+
+	/**
+	 * No-op as we override writeToFile directly
+	 */
+	@Override
+	protected void writeLongsData(final FileChannel fc) {
+	}
+
+	/**
+	 * Lookup a long in data
+	 *
+	 * @param chunkIndex
+	 * 		the index of the chunk the long is contained in
+	 * @param subIndex
+	 * 		The sub index of the long in that chunk
+	 * @return The stored long value at given index
+	 */
+	@Override
+	protected long lookupInChunk(final long chunkIndex, final long subIndex) {
+		final long index = (chunkIndex * numLongsPerChunk) + subIndex;
+		final Page page = pages.get(index / PAGE_LONGS);
+		if (page != null) {
+			return page.longs.get((int) (index % PAGE_LONGS));
+		}
+		// pages are only evicted once written back, so the file is up-to-date for any page not cached
+		try {
+			final ByteBuffer buf = TEMP_LONG_BUFFER_THREAD_LOCAL.get();
+			buf.clear();
+			fileChannel.read(buf, FILE_HEADER_SIZE + (index * Long.BYTES));
+			return buf.getLong(0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes back all dirty pages then closes the open file
+	 *
+	 * @throws IOException
+	 * 		if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		// flush
+		flush();
+		fileChannel.force(false);
+		// now close
+		fileChannel.close();
+		pages.clear();
+	}
+
+	// =================================================================================================================
+	// Private methods
+
+	/**
+	 * Get the lock stripe for a page
+	 */
+	private Object stripeLock(final long pageIndex) {
+		return stripeLocks[(int) (pageIndex & (NUM_OF_STRIPES - 1))];
+	}
+
+	/**
+	 * Get a cached page, loading it from the file if it is not cached. Must be called holding the page's stripe lock.
+	 *
+	 * @param pageIndex
+	 * 		the index of the page
+	 * @return the cached page
+	 */
+	private Page getOrLoadPage(final long pageIndex) {
+		Page page = pages.get(pageIndex);
+		if (page == null) {
+			page = new Page();
+			try {
+				final ByteBuffer pageBuffer = ByteBuffer.allocate(PAGE_BYTES).order(ByteOrder.nativeOrder());
+				final long pageOffset = FILE_HEADER_SIZE + (pageIndex * PAGE_BYTES);
+				while (pageBuffer.hasRemaining()) {
+					// anything past the end of file is left as zero
+					if (fileChannel.read(pageBuffer, pageOffset + pageBuffer.position()) < 0) {
+						break;
+					}
+				}
+				for (int i = 0; i < PAGE_LONGS; i++) {
+					page.longs.lazySet(i, pageBuffer.getLong(i * Long.BYTES));
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			pages.put(pageIndex, page);
+		}
+		return page;
+	}
+
+	/**
+	 * Mark a page as dirty. Must be called holding the page's stripe lock.
+	 */
+	private void markDirty(final Page page) {
+		if (!page.dirty) {
+			page.dirty = true;
+			dirtyPageCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Write back dirty pages if there are too many of them or too many cached pages. Only one thread writes back at a
+	 * time, any other writers carry on.
+	 */
+	private void writeBackIfNeeded() {
+		if ((dirtyPageCount.get() >= maxDirtyPages || pages.size() > maxCachedPages) && writeBackLock.tryLock()) {
+			try {
+				writeBack();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				writeBackLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Write all dirty pages to the file, in page order combining adjacent pages into single writes, then evict clean
+	 * pages if there are too many cached. Must be called holding writeBackLock.
+	 *
+	 * @throws IOException
+	 * 		If there was a problem writing to the file
+	 */
+	private void writeBack() throws IOException {
+		final long[] dirtyPageIndexes = pages.entrySet().stream()
+				.filter(entry -> entry.getValue().dirty)
+				.mapToLong(Map.Entry::getKey)
+				.sorted()
+				.toArray();
+		writeBackBuffer.clear();
+		long batchFirstPageIndex = -1;
+		long batchNextPageIndex = -1;
+		for (final long pageIndex : dirtyPageIndexes) {
+			if (pageIndex != batchNextPageIndex || !writeBackBuffer.hasRemaining()) {
+				writeBatch(batchFirstPageIndex);
+				batchFirstPageIndex = pageIndex;
+			}
+			// pages are only removed while holding writeBackLock, so the page is still cached
+			final Page page = pages.get(pageIndex);
+			synchronized (stripeLock(pageIndex)) {
+				// clear dirty first, any change after copying marks it dirty again
+				page.dirty = false;
+				dirtyPageCount.decrementAndGet();
+				for (int i = 0; i < PAGE_LONGS; i++) {
+					writeBackBuffer.putLong(page.longs.get(i));
+				}
+			}
+			batchNextPageIndex = pageIndex + 1;
+		}
+		writeBatch(batchFirstPageIndex);
+		// evict clean pages, down to half the cache so we do not evict on every write back
+		final Iterator<Map.Entry<Long, Page>> iterator = pages.entrySet().iterator();
+		while (pages.size() > maxCachedPages / 2 && iterator.hasNext()) {
+			final Map.Entry<Long, Page> entry = iterator.next();
+			synchronized (stripeLock(entry.getKey())) {
+				if (!entry.getValue().dirty) {
+					pages.remove(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write the pages in writeBackBuffer to the file, then clear it. Values past the current size are not written, so
+	 * the file size still matches the list size. Must be called holding writeBackLock.
+	 *
+	 * @param firstPageIndex
+	 * 		the index of the first page in writeBackBuffer
+	 * @throws IOException
+	 * 		If there was a problem writing to the file
+	 */
+	private void writeBatch(final long firstPageIndex) throws IOException {
+		if (writeBackBuffer.position() == 0) {
+			return;
+		}
+		final long firstIndex = firstPageIndex * PAGE_LONGS;
+		final long longsToWrite = Math.min(writeBackBuffer.position() / Long.BYTES, size.get() - firstIndex);
+		writeBackBuffer.flip();
+		writeBackBuffer.limit((int) (Math.max(0, longsToWrite) * Long.BYTES));
+		final long batchOffset = FILE_HEADER_SIZE + (firstIndex * Long.BYTES);
+		while (writeBackBuffer.hasRemaining()) {
+			fileChannel.write(writeBackBuffer, batchOffset + writeBackBuffer.position());
+		}
+		writeBackBuffer.clear();
+	}
+
+	/**
+	 * A cached page of longs
+	 */
+	private static final class Page {
+		/** The longs in the page */
+		private final AtomicLongArray longs = new AtomicLongArray(PAGE_LONGS);
+		/** True if the page has changes not yet written back, guarded by the page's stripe lock */
+		private volatile boolean dirty;
+	}
+}
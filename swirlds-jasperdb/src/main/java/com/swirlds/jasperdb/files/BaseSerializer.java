@@ -105,7 +105,8 @@ public interface BaseSerializer<T> {
 			final SerializableDataOutputStream writingStream
 	) throws IOException {
 		if (serializedVersion == getCurrentDataVersion()) {
-			writingStream.write(dataItemData.array(), 0, dataItemSize);
+			writingStream.write(dataItemData.array(), dataItemData.arrayOffset() + dataItemData.position(),
+					dataItemSize);
 		} else {
 			// deserialize and reserialize to convert versions
 			return serialize(deserialize(dataItemData, serializedVersion), writingStream);
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.jasperdb.files;
+
+import java.util.List;
+
+/**
+ * A policy for choosing which data files of a store to merge next. It is given all the files that are available for
+ * merging and returns the subset that should be passed to {@link DataFileCollection#mergeFiles}.
+ * <p><b>
+ * IMPORTANT: The files chosen must always be contiguous in order of the creation time of the data they contain. A
+ * merge keeps the newest copy of each key from the files being merged only, so skipping a file in the middle could
+ * bring back data that file has superseded.
+ * </b></p>
+ */
+@FunctionalInterface
+@SuppressWarnings("rawtypes")
+public interface CompactionStrategy {
+
+	/**
+	 * Choose the files to merge next.
+	 *
+	 * @param filesAvailableForMerge
+	 * 		all files that are fully written and available for merging, in no particular order
+	 * @return the files to merge, contiguous in creation time, or an empty list if no merge is needed
+	 */
+	List<DataFileReader> selectFilesToMerge(List<DataFileReader> filesAvailableForMerge);
+}
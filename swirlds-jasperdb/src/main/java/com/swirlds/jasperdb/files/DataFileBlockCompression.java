@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.jasperdb.files;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of the blocks in a block compressed data file. Each block is a number of whole data items compressed
+ * together with Deflate. On disk a block is an int header followed by the block data. A positive header is the
+ * uncompressed size of deflated data, a negative header is minus the size of data stored uncompressed because
+ * compressing it did not make it smaller.
+ */
+final class DataFileBlockCompression {
+	/** Size of the header at the start of each block */
+	static final int BLOCK_HEADER_SIZE = Integer.BYTES;
+	/** Inflater for each thread, as they are expensive to create */
+	private static final ThreadLocal<Inflater> INFLATER_CACHE = ThreadLocal.withInitial(Inflater::new);
+
+	private DataFileBlockCompression() {
+		throw new IllegalStateException("Utility class; should not be instantiated.");
+	}
+
+	/**
+	 * Compress a block and write it to the output.
+	 *
+	 * @param deflater
+	 * 		the deflater to compress with, it is reset before use
+	 * @param rawBlock
+	 * 		heap buffer containing the uncompressed block between position and limit
+	 * @param compressedBuffer
+	 * 		heap buffer to compress into, must have capacity of at least the uncompressed block size
+	 * @param out
+	 * 		the output to write the block to
+	 * @return the number of bytes written to out, including the header
+	 * @throws IOException
+	 * 		if there was a problem writing to out
+	 */
+	static int writeBlock(final Deflater deflater, final ByteBuffer rawBlock, final ByteBuffer compressedBuffer,
+			final DataOutput out) throws IOException {
+		final int rawStart = rawBlock.position();
+		final int rawSize = rawBlock.remaining();
+		deflater.reset();
+		deflater.setInput(rawBlock);
+		deflater.finish();
+		compressedBuffer.clear();
+		compressedBuffer.limit(rawSize);
+		while (!deflater.finished() && compressedBuffer.hasRemaining()) {
+			deflater.deflate(compressedBuffer);
+		}
+		if (deflater.finished() && compressedBuffer.position() < rawSize) {
+			out.writeInt(rawSize);
+			out.write(compressedBuffer.array(), 0, compressedBuffer.position());
+			return BLOCK_HEADER_SIZE + compressedBuffer.position();
+		} else {
+			// compression did not help, so store the block as is
+			out.writeInt(-rawSize);
+			out.write(rawBlock.array(), rawStart, rawSize);
+			return BLOCK_HEADER_SIZE + rawSize;
+		}
+	}
+
+	/**
+	 * Decompress a block read from a data file.
+	 *
+	 * @param block
+	 * 		buffer containing the whole block, including header, between position and limit
+	 * @param reuseBuffer
+	 * 		buffer to decompress into if it is big enough, can be null
+	 * @return buffer containing the uncompressed block between zero and limit, either reuseBuffer or a new buffer
+	 * @throws IOException
+	 * 		if the block data is corrupt
+	 */
+	static ByteBuffer readBlock(final ByteBuffer block, final ByteBuffer reuseBuffer) throws IOException {
+		final int header = block.getInt();
+		final int rawSize = Math.abs(header);
+		final ByteBuffer rawBlock = (reuseBuffer == null || reuseBuffer.capacity() < rawSize)
+				? ByteBuffer.allocate(rawSize)
+				: reuseBuffer;
+		rawBlock.clear();
+		rawBlock.limit(rawSize);
+		if (header < 0) {
+			rawBlock.put(block);
+		} else {
+			final Inflater inflater = INFLATER_CACHE.get();
+			inflater.reset();
+			inflater.setInput(block);
+			try {
+				while (rawBlock.hasRemaining() && !inflater.finished()) {
+					if (inflater.inflate(rawBlock) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+				}
+			} catch (final DataFormatException e) {
+				throw new IOException("Corrupt compressed data file block", e);
+			}
+		}
+		if (rawBlock.hasRemaining()) {
+			throw new IOException("Compressed data file block was truncated, expected [" + rawSize +
+					"] bytes but got [" + rawBlock.position() + "]");
+		}
+		rawBlock.flip();
+		return rawBlock;
+	}
+}
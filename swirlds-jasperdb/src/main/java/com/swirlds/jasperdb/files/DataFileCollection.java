@@ -14,6 +14,8 @@
 
 package com.swirlds.jasperdb.files;
 
+import com.swirlds.common.Units;
+import com.swirlds.common.threading.ThreadConfiguration;
 import com.swirlds.jasperdb.KeyRange;
 import com.swirlds.jasperdb.Snapshotable;
 import com.swirlds.jasperdb.collections.ImmutableIndexedObjectList;
@@ -42,10 +44,19 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.LongSummaryStatistics;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -110,6 +121,32 @@ public class DataFileCollection<D> implements Snapshotable {
 					Integer.MAX_VALUE);
 	/** The number of times to retry index based reads */
 	private static final int NUM_OF_READ_RETRIES = 5;
+	/**
+	 * The maximum number of data items in a single file read task of a batch read, files with more items in the batch
+	 * are split into multiple tasks so they can be read in parallel.
+	 */
+	private static final int MAX_ITEMS_PER_BATCH_READ_TASK = 64;
+	/**
+	 * The number of locks used to make index updates atomic when rebuilding an index, must be a power of two.
+	 */
+	private static final int REBUILD_INDEX_LOCK_STRIPES = 1024;
+	/** The number of keys each parallel task checks when counting garbage data items from an index */
+	private static final int COUNT_GARBAGE_KEYS_PER_TASK = 1 << 20;
+	/** Component name for threads created by data file collections */
+	private static final String JASPER_DB_COMPONENT = "jasper-db";
+	/** How long an idle thread of the read thread pool is kept before it is stopped */
+	private static final long READ_THREAD_KEEP_ALIVE_SECONDS = 60;
+	/**
+	 * The number of bytes a merge writes between calls to the merge bandwidth limiter, so we do not pay for a sleep per
+	 * data item.
+	 */
+	private static final int MERGE_BANDWIDTH_CHUNK_BYTES = MEBIBYTES_TO_BYTES;
+	/**
+	 * Bandwidth budget shared by all merges in this process, as merges of different stores and data sources can run
+	 * concurrently and all compete for the same disks.
+	 */
+	private static final IoBandwidthLimiter MERGE_BANDWIDTH_LIMITER = new IoBandwidthLimiter(
+			(long) settings.getMergeBandwidthLimitMbPerSecond() * MEBIBYTES_TO_BYTES);
 
 	/** The directory to store data files */
 	private final Path storeDir;
@@ -117,6 +154,8 @@ public class DataFileCollection<D> implements Snapshotable {
 	private final String storeName;
 	/** Serializer responsible for serializing/deserializing data items into and out of files */
 	private final DataItemSerializer<D> dataItemSerializer;
+	/** True if new data files are written block compressed */
+	private final boolean blockCompressed;
 	/** True if this DataFileCollection was loaded from an existing set of files */
 	private final boolean loadedFromExistingFiles;
 	/** The index to use for the next file we create */
@@ -133,8 +172,19 @@ public class DataFileCollection<D> implements Snapshotable {
 	 */
 	private final Function<List<DataFileReader<D>>, ImmutableIndexedObjectList<DataFileReader<D>>>
 			indexedObjectListConstructor;
+	/** The number of garbage data items in the file currently being written, counted before it has a reader */
+	private final AtomicLong currentDataFileGarbageCount = new AtomicLong();
+	/** Total bytes of data files written by writing sessions since this collection was opened */
+	private final AtomicLong bytesWrittenBySaves = new AtomicLong();
+	/** Total bytes of data files written by merges since this collection was opened */
+	private final AtomicLong bytesWrittenByMerges = new AtomicLong();
 	/** Set of files being used by current snapshot */
 	private List<DataFileReader<D>> snapshotIndexedFiles = null;
+	/**
+	 * Thread pool for reading batches of data items in parallel, its threads are stopped when they have been idle for
+	 * {@link #READ_THREAD_KEEP_ALIVE_SECONDS} so an idle collection does not hold on to them
+	 */
+	private final ThreadPoolExecutor readExecutor;
 	/** Set if all indexes of new files currently being written. This is only maintained if logging is trace level */
 	private final ConcurrentSkipListSet<Integer> setOfNewFileIndexes = LOG.isTraceEnabled() ?
 			new ConcurrentSkipListSet<>() : null;
@@ -159,8 +209,35 @@ public class DataFileCollection<D> implements Snapshotable {
 			final String storeName,
 			final DataItemSerializer<D> dataItemSerializer,
 			final LoadedDataCallback loadedDataCallback) throws IOException {
+		this(storeDir, storeName, dataItemSerializer, loadedDataCallback, false);
+	}
+
+	/**
+	 * Construct a new DataFileCollection that may write block compressed data files
+	 *
+	 * @param storeDir
+	 * 		The directory to store data files
+	 * @param storeName
+	 * 		Base name for the data files, allowing more than one DataFileCollection to share a directory
+	 * @param dataItemSerializer
+	 * 		Serializer responsible for serializing/deserializing data items into and out of files.
+	 * @param loadedDataCallback
+	 * 		Callback for rebuilding indexes from existing files, can be null if not needed. Using
+	 * 		this is expensive as it requires all files to be read and parsed.
+	 * @param blockCompressed
+	 * 		True if new data files, including merged files, should be written block compressed. Existing files
+	 * 		are read whether they are compressed or not.
+	 * @throws IOException
+	 * 		If there was a problem creating new data set or opening existing one
+	 */
+	public DataFileCollection(
+			final Path storeDir,
+			final String storeName,
+			final DataItemSerializer<D> dataItemSerializer,
+			final LoadedDataCallback loadedDataCallback,
+			final boolean blockCompressed) throws IOException {
 		this(storeDir, storeName, dataItemSerializer, loadedDataCallback,
-				ImmutableIndexedObjectListUsingArray::new);
+				ImmutableIndexedObjectListUsingArray::new, blockCompressed);
 	}
 
 	/**
@@ -177,6 +254,8 @@ public class DataFileCollection<D> implements Snapshotable {
 	 * 		this is expensive as it requires all files to be read and parsed.
 	 * @param indexedObjectListConstructor
 	 * 		Constructor for creating ImmutableIndexedObjectList instances.
+	 * @param blockCompressed
+	 * 		True if new data files, including merged files, should be written block compressed
 	 * @throws IOException
 	 * 		If there was a problem creating new data set or opening existing one
 	 */
@@ -186,11 +265,23 @@ public class DataFileCollection<D> implements Snapshotable {
 			final DataItemSerializer<D> dataItemSerializer,
 			final LoadedDataCallback loadedDataCallback,
 			final Function<List<DataFileReader<D>>, ImmutableIndexedObjectList<DataFileReader<D>>>
-					indexedObjectListConstructor) throws IOException {
+					indexedObjectListConstructor,
+			final boolean blockCompressed) throws IOException {
 		this.storeDir = storeDir;
+		this.blockCompressed = blockCompressed;
 		this.storeName = storeName;
 		this.dataItemSerializer = dataItemSerializer;
 		this.indexedObjectListConstructor = indexedObjectListConstructor;
+		this.readExecutor = new ThreadPoolExecutor(
+				settings.getBatchReadThreads(),
+				settings.getBatchReadThreads(),
+				READ_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(),
+				new ThreadConfiguration()
+						.setComponent(JASPER_DB_COMPONENT)
+						.setThreadName("Read " + storeName)
+						.buildFactory());
+		this.readExecutor.allowCoreThreadTimeOut(true);
 
 		// check if exists, if so open existing files
 		if (Files.exists(storeDir)) {
@@ -285,6 +376,37 @@ public class DataFileCollection<D> implements Snapshotable {
 				.summaryStatistics();
 	}
 
+	/**
+	 * Get an estimate of how many bytes of all fully written files hold data items that an index still points to. The
+	 * estimate assumes garbage data items are the average size of data items in their file.
+	 *
+	 * @return estimated size of live data in bytes
+	 */
+	public long getLiveDataSizeEstimate() {
+		final ImmutableIndexedObjectList<DataFileReader<D>> activeIndexedFiles = indexedFileList.get();
+		return activeIndexedFiles == null ? 0 : activeIndexedFiles.stream()
+				.mapToLong(file -> Math.round(file.getSize() * (1 - file.getGarbageRatio())))
+				.sum();
+	}
+
+	/**
+	 * Get the total bytes of data files written by writing sessions since this collection was opened
+	 *
+	 * @return bytes written by saves
+	 */
+	public long getBytesWrittenBySaves() {
+		return bytesWrittenBySaves.get();
+	}
+
+	/**
+	 * Get the total bytes of data files written by merges since this collection was opened
+	 *
+	 * @return bytes written by merges
+	 */
+	public long getBytesWrittenByMerges() {
+		return bytesWrittenByMerges.get();
+	}
+
 	/**
 	 * Merges all files in filesToMerge
 	 *
@@ -339,10 +461,11 @@ public class DataFileCollection<D> implements Snapshotable {
 		assert indexedFileList.get().size() > 0 : "The merge files should still be on disk and still be part " +
 				"of indexedFileList, so we should always have something here.";
 		final KeyRange keyRange = this.validKeyRange;
-		// open iterators, first iterator will be on oldest file
+		// open iterators, first iterator will be on oldest file. If enabled, the files are read bypassing the page
+		// cache, like the new merge files are written, so merging does not evict hot data from the page cache.
 		List<DataFileIterator> blockIterators = new ArrayList<>(filesToMerge.size());
 		for (final DataFileReader<D> fileReader : filesToMerge) {
-			blockIterators.add(fileReader.createIterator());
+			blockIterators.add(fileReader.createIterator(settings.isMergeDirectIoEnabled()));
 		}
 		// check if we need to pause
 		waitIfMergingPaused(mergingPaused);
@@ -362,6 +485,7 @@ public class DataFileCollection<D> implements Snapshotable {
 		}
 		// while we still have data left to read
 		long lastLowestKey = -1;
+		long bytesWrittenSinceLimiterCheck = 0;
 		long[] thisRoundsKeys = new long[blockIterators.size()];
 		long[] lastRoundsKeys = new long[blockIterators.size()];
 		while (!blockIterators.isEmpty()) {
@@ -419,11 +543,18 @@ public class DataFileCollection<D> implements Snapshotable {
 				assert newestIteratorWithLowestKey.getDataItemsKey() >
 						lastLowestKeyWritten.getAndSet(newestIteratorWithLowestKey.getDataItemsKey()) :
 						"Fail, we should always be writing data with keys in ascending order.";
+				final ByteBuffer dataItemData = newestIteratorWithLowestKey.getDataItemData();
+				bytesWrittenSinceLimiterCheck += dataItemData.remaining();
 				final long newDataLocation = newFileWriter.writeCopiedDataItem(
 						newestIteratorWithLowestKey.getMetadata().getSerializationVersion(),
-						newestIteratorWithLowestKey.getDataItemData());
+						dataItemData);
+				// keep within the shared merge bandwidth budget
+				if (bytesWrittenSinceLimiterCheck >= MERGE_BANDWIDTH_CHUNK_BYTES) {
+					MERGE_BANDWIDTH_LIMITER.acquire(bytesWrittenSinceLimiterCheck);
+					bytesWrittenSinceLimiterCheck = 0;
+				}
 				// check if newFile is full
-				if (movesMap.size() > MAX_DATA_FILE_NUM_ITEMS ||
+				if (movesMap.size() > MAX_DATA_FILE_NUM_ITEMS || newFileWriter.isFull() ||
 						newFileWriter.getFileSizeEstimate() >= settings.getMaxDataFileBytes()) {
 					// finish writing current file, add it for reading then open new file for writing
 					closeCurrentMergeFile(
@@ -491,6 +622,8 @@ public class DataFileCollection<D> implements Snapshotable {
 				file.close();
 			}
 		}
+		// stop read threads
+		readExecutor.shutdownNow();
 	}
 
 	/**
@@ -504,6 +637,7 @@ public class DataFileCollection<D> implements Snapshotable {
 		if (activeDataFileWriter != null) {
 			throw new IOException("Tried to start writing when we were already writing.");
 		}
+		currentDataFileGarbageCount.set(0);
 		currentDataFileWriter.set(newDataFile(Instant.now(), false));
 	}
 
@@ -526,6 +660,29 @@ public class DataFileCollection<D> implements Snapshotable {
 		return currentDataFileForWriting.storeDataItem(dataItem);
 	}
 
+	/**
+	 * Store many data items that have already been serialized with the current serialization version, into the current
+	 * file opened with startWriting(). This allows data items to be serialized on other threads and only be written
+	 * here.
+	 *
+	 * @param serializedDataItems
+	 * 		Buffer containing the serialized data items one after another, starting at its position
+	 * @param dataItemSizes
+	 * 		The size in bytes of each of the serialized data items
+	 * @param dataLocations
+	 * 		Array to fill with the location each data item was stored at, the same length as dataItemSizes
+	 * @throws IOException
+	 * 		If there was a problem writing the data items to the file.
+	 */
+	public void storeSerializedDataItems(final ByteBuffer serializedDataItems, final int[] dataItemSizes,
+			final long[] dataLocations) throws IOException {
+		final DataFileWriter<D> currentDataFileForWriting = this.currentDataFileWriter.get();
+		if (currentDataFileForWriting == null) {
+			throw new IOException("Tried to put serialized data when we never started writing.");
+		}
+		currentDataFileForWriting.writeSerializedDataItems(serializedDataItems, dataItemSizes, dataLocations);
+	}
+
 	/**
 	 * End writing current data file
 	 *
@@ -545,7 +702,10 @@ public class DataFileCollection<D> implements Snapshotable {
 		// finish writing the file and write its footer
 		final DataFileMetadata metadata = activeDataFileWriter.finishWriting();
 		// open reader on newly written file and add it to indexedFileList ready to be read.
-		return addNewDataFileReader(activeDataFileWriter.getPath(), metadata);
+		final DataFileReader<D> dataFileReader = addNewDataFileReader(activeDataFileWriter.getPath(), metadata);
+		dataFileReader.setGarbageDataItemCount(currentDataFileGarbageCount.getAndSet(0));
+		bytesWrittenBySaves.addAndGet(dataFileReader.getSize());
+		return dataFileReader;
 	}
 
 	/**
@@ -659,6 +819,256 @@ public class DataFileCollection<D> implements Snapshotable {
 		throw new IOException("Read failed after 5 retries");
 	}
 
+	/**
+	 * Read a batch of data items from files that have finished being written, using a LongList that maps
+	 * key-&gt;dataLocation. The data locations are sorted by file and offset, then each file's share of the batch is
+	 * read in parallel on this collection's read thread pool, with adjacent items coalesced into single reads. Any item
+	 * whose file was closed by a concurrent merge is re-read through {@link #readDataItemUsingIndex(LongList, long)}
+	 * which retries with the updated location.
+	 * <p>
+	 * This can only be used with serializers that create a new data item for each call to deserialize.
+	 *
+	 * @param index
+	 * 		key-&gt;dataLocation index
+	 * @param keysIntoIndex
+	 * 		The keys to lookup in index
+	 * @return list of data items in the same order as keysIntoIndex, with null for any key not found in index
+	 * @throws IOException
+	 * 		If there was a problem reading the data items.
+	 */
+	public List<D> readDataItemsUsingIndex(final LongList index, final long[] keysIntoIndex) throws IOException {
+		final int count = keysIntoIndex.length;
+		// pair each data location with its position in keysIntoIndex, then sort so reads are in file then offset order
+		final long[][] locationsAndPositions = new long[count][];
+		int found = 0;
+		for (int i = 0; i < count; i++) {
+			final long dataLocation = index.get(keysIntoIndex[i], LongList.IMPERMISSIBLE_VALUE);
+			if (dataLocation != LongList.IMPERMISSIBLE_VALUE) {
+				locationsAndPositions[found++] = new long[] { dataLocation, i };
+			}
+		}
+		Arrays.sort(locationsAndPositions, 0, found, (a, b) -> Long.compare(a[0], b[0]));
+		final long[] sortedLocations = new long[found];
+		for (int i = 0; i < found; i++) {
+			sortedLocations[i] = locationsAndPositions[i][0];
+		}
+		// split into read tasks, each covering part of a single file
+		final List<int[]> tasks = new ArrayList<>();
+		int taskStart = 0;
+		while (taskStart < found) {
+			final int fileIndex = fileIndexFromDataLocation(sortedLocations[taskStart]);
+			int taskEnd = taskStart + 1;
+			while (taskEnd < found && taskEnd - taskStart < MAX_ITEMS_PER_BATCH_READ_TASK &&
+					fileIndexFromDataLocation(sortedLocations[taskEnd]) == fileIndex) {
+				taskEnd++;
+			}
+			tasks.add(new int[] { taskStart, taskEnd });
+			taskStart = taskEnd;
+		}
+		// read all tasks in parallel
+		final Object[] results = new Object[count];
+		final List<Callable<Void>> readTasks = new ArrayList<>(tasks.size());
+		for (final int[] task : tasks) {
+			readTasks.add(() -> {
+				final List<D> dataItems = readDataItems(sortedLocations, task[0], task[1]);
+				for (int i = task[0]; i < task[1]; i++) {
+					final int position = (int) locationsAndPositions[i][1];
+					final D dataItem = dataItems == null ? null : dataItems.get(i - task[0]);
+					results[position] = dataItem != null
+							? dataItem
+							: readDataItemUsingIndex(index, keysIntoIndex[position]);
+				}
+				return null;
+			});
+		}
+		runReadTasks("reading data items", readTasks);
+		final List<D> dataItems = new ArrayList<>(count);
+		for (final Object result : results) {
+			dataItems.add((D) result);
+		}
+		return dataItems;
+	}
+
+	/**
+	 * Rebuild an index of key to data location by reading every data item in every file. Files are read in parallel,
+	 * each by a single thread. When a key is in more than one file the data location in the newest file, the one with
+	 * the highest file index, wins. So the index ends up the same as if the files were read one by one in order.
+	 * <p>
+	 * This is used on startup when there is no saved index to load, so nothing else can be using the index.
+	 *
+	 * @param index
+	 * 		key-&gt;dataLocation index to rebuild, it should be empty
+	 * @throws IOException
+	 * 		If there was a problem reading the files
+	 */
+	public void rebuildIndex(final LongList index) throws IOException {
+		final Object[] stripeLocks = new Object[REBUILD_INDEX_LOCK_STRIPES];
+		for (int i = 0; i < stripeLocks.length; i++) {
+			stripeLocks[i] = new Object();
+		}
+		forEachDataItemInParallel("Rebuilding index", (key, dataLocation, dataValue) -> {
+			final int fileIndex = fileIndexFromDataLocation(dataLocation);
+			// keys are only shared between files being read by different threads, so lock contention is rare
+			synchronized (stripeLocks[(int) (key & (REBUILD_INDEX_LOCK_STRIPES - 1))]) {
+				final long currentLocation = index.get(key, LongList.IMPERMISSIBLE_VALUE);
+				// later items in the same file are read later by the same thread, so they win too
+				if (currentLocation == LongList.IMPERMISSIBLE_VALUE
+						|| fileIndexFromDataLocation(currentLocation) <= fileIndex) {
+					index.put(key, dataLocation);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Call a callback for every data item that an index points to, reading files in parallel. So the callback is only
+	 * called for the current data item for each key, not older copies of it in other files. This is used on startup
+	 * to rebuild other indexes from the data, so the callback is called from many threads at once and must be thread
+	 * safe.
+	 *
+	 * @param index
+	 * 		complete key-&gt;dataLocation index for the data items in this collection
+	 * @param loadedDataCallback
+	 * 		callback to call for each current data item
+	 * @throws IOException
+	 * 		If there was a problem reading the files
+	 */
+	public void forEachIndexedDataItem(final LongList index, final LoadedDataCallback loadedDataCallback)
+			throws IOException {
+		forEachDataItemInParallel("Reading indexed data items", (key, dataLocation, dataValue) -> {
+			if (index.get(key, LongList.IMPERMISSIBLE_VALUE) == dataLocation) {
+				loadedDataCallback.newIndexEntry(key, dataLocation, dataValue);
+			}
+		});
+	}
+
+	/**
+	 * Put a new data location for a key into an index, counting the data item the key used to point to as garbage in
+	 * the file that holds it. Keys outside the valid key range are not counted, as they were counted when they left it.
+	 *
+	 * @param index
+	 * 		key-&gt;dataLocation index for the data items in this collection
+	 * @param key
+	 * 		the key to update
+	 * @param dataLocation
+	 * 		the new data location for the key
+	 */
+	public void updateIndex(final LongList index, final long key, final long dataLocation) {
+		final long oldDataLocation = index.get(key, LongList.IMPERMISSIBLE_VALUE);
+		index.put(key, dataLocation);
+		if (oldDataLocation != LongList.IMPERMISSIBLE_VALUE && validKeyRange.withinRange(key)) {
+			addGarbageDataItem(oldDataLocation);
+		}
+	}
+
+	/**
+	 * Count the data item at a data location as garbage, because no index points to it any more. Nothing is counted if
+	 * the file has already been deleted.
+	 *
+	 * @param dataLocation
+	 * 		the data location of the data item that is now garbage
+	 */
+	public void addGarbageDataItem(final long dataLocation) {
+		final int fileIndex = fileIndexFromDataLocation(dataLocation);
+		final ImmutableIndexedObjectList<DataFileReader<D>> currentIndexedFileList = this.indexedFileList.get();
+		final DataFileReader<D> file = currentIndexedFileList == null ? null : currentIndexedFileList.get(fileIndex);
+		if (file != null) {
+			file.addGarbageDataItems(1);
+		} else {
+			// a key written twice in one writing session supersedes a data item in the file still being written
+			final DataFileWriter<D> activeDataFileWriter = currentDataFileWriter.get();
+			if (activeDataFileWriter != null && activeDataFileWriter.getIndex() == fileIndex) {
+				currentDataFileGarbageCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Count the data items of keys that are about to leave the valid key range as garbage. This has to be called
+	 * before the writing session that changes the valid key range is ended.
+	 *
+	 * @param index
+	 * 		key-&gt;dataLocation index for the data items in this collection
+	 * @param newMinimumValidKey
+	 * 		the minimum valid key the writing session will end with
+	 * @param newMaximumValidKey
+	 * 		the maximum valid key the writing session will end with
+	 */
+	public void addGarbageForKeysLeavingRange(final LongList index, final long newMinimumValidKey,
+			final long newMaximumValidKey) {
+		final KeyRange oldKeyRange = this.validKeyRange;
+		if (oldKeyRange.equals(INVALID_KEY_RANGE)) {
+			return;
+		}
+		final long oldMinimumValidKey = oldKeyRange.getMinValidKey();
+		final long oldMaximumValidKey = oldKeyRange.getMaxValidKey();
+		final long lowEnd = Math.min(oldMaximumValidKey, newMinimumValidKey - 1);
+		for (long key = oldMinimumValidKey; key <= lowEnd; key++) {
+			addGarbageDataItemForKey(index, key);
+		}
+		for (long key = Math.max(oldMinimumValidKey, newMaximumValidKey + 1); key <= oldMaximumValidKey; key++) {
+			addGarbageDataItemForKey(index, key);
+		}
+	}
+
+	/**
+	 * Count the garbage data items in every file from scratch, as every data item that the index does not point to
+	 * for a key in the valid key range. This is used on startup, once the index is loaded or rebuilt, as garbage
+	 * counts are not saved with the files. Keys are checked in parallel on this collection's read thread pool.
+	 *
+	 * @param index
+	 * 		complete key-&gt;dataLocation index for the data items in this collection
+	 * @throws IOException
+	 * 		If there was a problem reading the index
+	 */
+	public void countGarbageDataItems(final LongList index) throws IOException {
+		final ImmutableIndexedObjectList<DataFileReader<D>> currentIndexedFileList = this.indexedFileList.get();
+		final KeyRange keyRange = this.validKeyRange;
+		if (currentIndexedFileList == null || keyRange.equals(INVALID_KEY_RANGE)) {
+			return;
+		}
+		final List<DataFileReader<D>> files = currentIndexedFileList.stream().toList();
+		final int maxFileIndex = files.stream().mapToInt(DataFileReader::getIndex).max().orElse(-1);
+		final long minKey = keyRange.getMinValidKey();
+		final long maxKey = keyRange.getMaxValidKey();
+		final AtomicLongArray liveDataItemCounts = new AtomicLongArray(maxFileIndex + 1);
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (long firstKey = minKey; firstKey <= maxKey; firstKey += COUNT_GARBAGE_KEYS_PER_TASK) {
+			final long taskFirstKey = firstKey;
+			final long taskLastKey = Math.min(maxKey, firstKey + COUNT_GARBAGE_KEYS_PER_TASK - 1);
+			tasks.add(() -> {
+				// count a run of keys in the same file locally, as most neighbouring keys are in the same file
+				int runFileIndex = -1;
+				long runCount = 0;
+				for (long key = taskFirstKey; key <= taskLastKey; key++) {
+					final long dataLocation = index.get(key, LongList.IMPERMISSIBLE_VALUE);
+					if (dataLocation != LongList.IMPERMISSIBLE_VALUE) {
+						final int fileIndex = fileIndexFromDataLocation(dataLocation);
+						if (fileIndex != runFileIndex) {
+							if (runCount > 0) {
+								liveDataItemCounts.addAndGet(runFileIndex, runCount);
+							}
+							runFileIndex = fileIndex <= maxFileIndex ? fileIndex : -1;
+							runCount = 0;
+						}
+						if (runFileIndex != -1) {
+							runCount++;
+						}
+					}
+				}
+				if (runCount > 0) {
+					liveDataItemCounts.addAndGet(runFileIndex, runCount);
+				}
+				return null;
+			});
+		}
+		runReadTasks("counting garbage data items", tasks);
+		for (final DataFileReader<D> file : files) {
+			file.setGarbageDataItemCount(
+					Math.max(0, file.getMetadata().getDataItemCount() - liveDataItemCounts.get(file.getIndex())));
+		}
+	}
+
 	/**
 	 * Start snapshot, this is called while saving is blocked. It is expected to complete as fast as possible and only
 	 * do the minimum needed to capture/write state that could be changed by saving.
@@ -735,6 +1145,113 @@ public class DataFileCollection<D> implements Snapshotable {
 	// =================================================================================================================
 	// Private API
 
+	/**
+	 * Read every data item in every fully written file and call the callback for it. Files are read in parallel with
+	 * up to {@link JasperDbSettings#getIndexRebuildThreads()} threads, each file is read from start to end by one thread.
+	 * Progress is logged as each tenth of the files is finished.
+	 *
+	 * @param taskName
+	 * 		name of the task for logging
+	 * @param callback
+	 * 		thread safe callback to call for each data item
+	 * @throws IOException
+	 * 		If there was a problem reading the files
+	 */
+	private void forEachDataItemInParallel(final String taskName, final LoadedDataCallback callback)
+			throws IOException {
+		final List<DataFileReader<D>> files = getAllFullyWrittenFiles();
+		if (files.isEmpty()) {
+			return;
+		}
+		final long START = System.currentTimeMillis();
+		final int threads = Math.min(settings.getIndexRebuildThreads(), files.size());
+		final AtomicInteger filesDone = new AtomicInteger();
+		final AtomicLong dataItemsRead = new AtomicLong();
+		LOG.info(JASPER_DB.getMarker(), "[{}] {} from [{}] data files with {} threads",
+				storeName, taskName, files.size(), threads);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadConfiguration()
+				.setComponent(JASPER_DB_COMPONENT)
+				.setThreadName("Load " + storeName)
+				.buildFactory());
+		try {
+			final List<Future<Void>> futures = new ArrayList<>(files.size());
+			for (final DataFileReader<D> file : files) {
+				futures.add(executor.submit(() -> {
+					long count = 0;
+					try (final DataFileIterator iterator =
+								 new DataFileIterator(file.getPath(), file.getMetadata(), dataItemSerializer)) {
+						while (iterator.next()) {
+							callback.newIndexEntry(
+									iterator.getDataItemsKey(),
+									iterator.getDataItemsDataLocation(),
+									iterator.getDataItemData());
+							count++;
+						}
+					}
+					final long totalRead = dataItemsRead.addAndGet(count);
+					final int done = filesDone.incrementAndGet();
+					if (done * 10 / files.size() != (done - 1) * 10 / files.size()) {
+						LOG.info(JASPER_DB.getMarker(), "[{}] {} {}% done, read [{}] of [{}] files, {} data items",
+								storeName, taskName, done * 100 / files.size(), done, files.size(), totalRead);
+					}
+					return null;
+				}));
+			}
+			for (final Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("[" + storeName + "] Interrupted while reading data files", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("[" + storeName + "] Failed to read data files", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		LOG.info(JASPER_DB.getMarker(), "[{}] {} finished in {} seconds, read {} data items",
+				storeName, taskName, (System.currentTimeMillis() - START) * Units.MILLISECONDS_TO_SECONDS,
+				dataItemsRead.get());
+	}
+
+	/**
+	 * Run tasks on the read thread pool and wait for all of them to finish
+	 *
+	 * @param taskName
+	 * 		name of the tasks for error messages
+	 * @param tasks
+	 * 		the tasks to run
+	 * @throws IOException
+	 * 		If a task failed or the calling thread was interrupted while waiting
+	 */
+	private void runReadTasks(final String taskName, final List<Callable<Void>> tasks) throws IOException {
+		try {
+			for (final Future<Void> future : readExecutor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("[" + storeName + "] Interrupted while " + taskName, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("[" + storeName + "] Failed " + taskName, e.getCause());
+		}
+	}
+
+	/**
+	 * Count the data item the index points to for a key as garbage, if there is one
+	 */
+	private void addGarbageDataItemForKey(final LongList index, final long key) {
+		final long dataLocation = index.get(key, LongList.IMPERMISSIBLE_VALUE);
+		if (dataLocation != LongList.IMPERMISSIBLE_VALUE) {
+			addGarbageDataItem(dataLocation);
+		}
+	}
+
 	/** Finish a merge file and close it. */
 	private void closeCurrentMergeFile(
 			final DataFileWriter<D> newFileWriter,
@@ -745,12 +1262,33 @@ public class DataFileCollection<D> implements Snapshotable {
 		final DataFileMetadata metadata = newFileWriter.finishWriting();
 		// add it for reading
 		final DataFileReader<D> dataFileReader = addNewDataFileReader(newFileWriter.getPath(), metadata);
+		bytesWrittenByMerges.addAndGet(dataFileReader.getSize());
 		// call locationChangeHandler
 		locationChangeHandler.accept(movesMap);
 		// we have updated all indexes now so can now include this file in future merges
 		dataFileReader.setFileAvailableForMerging(true);
 	}
 
+	/**
+	 * Read a sorted range of data locations that are all in the same file. If the file has been closed or removed by a
+	 * merge then null is returned, so the caller can retry each item using the index.
+	 */
+	private List<D> readDataItems(final long[] sortedLocations, final int fromIndex, final int toIndex)
+			throws IOException {
+		final ImmutableIndexedObjectList<DataFileReader<D>> currentIndexedFileList = this.indexedFileList.get();
+		final DataFileReader<D> file = currentIndexedFileList == null ? null :
+				currentIndexedFileList.get(fileIndexFromDataLocation(sortedLocations[fromIndex]));
+		if (file == null || !file.isOpen()) {
+			return null;
+		}
+		try {
+			return file.readDataItems(sortedLocations, fromIndex, toIndex);
+		} catch (ClosedChannelException e) {
+			// merging closed the file while we were reading, caller will retry using the updated index
+			return null;
+		}
+	}
+
 	/**
 	 * Used by tests to get data files for checking
 	 *
@@ -828,7 +1366,7 @@ public class DataFileCollection<D> implements Snapshotable {
 			setOfNewFileIndexes.add(newFileIndex);
 		}
 		return new DataFileWriter<>(
-				storeName, storeDir, newFileIndex, dataItemSerializer, creationTime, isMergeFile);
+				storeName, storeDir, newFileIndex, dataItemSerializer, creationTime, isMergeFile, blockCompressed);
 	}
 
 	/**
@@ -90,10 +90,30 @@ public final class DataFileCommon {
 	 */
 	private static final long ITEM_OFFSET_MASK = MAX_ADDRESSABLE_DATA_FILE_SIZE_BYTES - 1;
 
+	/**
+	 * In a block compressed data file the data item byte offset is instead packed with the block index in the upper
+	 * bits and the offset of the item in the uncompressed block in the lower 20 bits. Items always start in the first
+	 * 1Mb of a block, so allowing for 1 million blocks per file.
+	 */
+	private static final int OFFSET_IN_BLOCK_BITS = 20;
+	/**
+	 * The maximum uncompressed offset of the start of a data item in a compressed block
+	 */
+	public static final int MAX_OFFSET_IN_BLOCK = (1 << OFFSET_IN_BLOCK_BITS) - 1;
+	/**
+	 * The maximum number of blocks in a block compressed data file
+	 */
+	public static final int MAX_BLOCKS_PER_FILE = 1 << (DATA_ITEM_OFFSET_BITS - OFFSET_IN_BLOCK_BITS);
+
 	/**
 	 * The current file format version, ready for if the file format needs to change
 	 */
 	public static final int FILE_FORMAT_VERSION = 1;
+	/**
+	 * The file format version for block compressed data files. Uncompressed files are still written with
+	 * FILE_FORMAT_VERSION, so they can be read by older versions.
+	 */
+	public static final int BLOCK_COMPRESSED_FILE_FORMAT_VERSION = 2;
 	/**
 	 * Date formatter for dates used in data file names
 	 */
@@ -238,6 +258,42 @@ public final class DataFileCommon {
 		return dataLocation & ITEM_OFFSET_MASK;
 	}
 
+	/**
+	 * Get the byte offset to use in a data location for a data item in a block compressed data file.
+	 *
+	 * @param blockIndex
+	 * 		the index of the block in the file
+	 * @param offsetInBlock
+	 * 		the offset of the start of the data item in the uncompressed block
+	 * @return byte offset for data location
+	 */
+	static long compressedByteOffset(final int blockIndex, final int offsetInBlock) {
+		return ((long) blockIndex << OFFSET_IN_BLOCK_BITS) | offsetInBlock;
+	}
+
+	/**
+	 * Extract the block index from the byte offset of a data item in a block compressed data file.
+	 *
+	 * @param byteOffset
+	 * 		byte offset from data location
+	 * @return index of the block in the file
+	 */
+	static int blockIndexFromCompressedByteOffset(final long byteOffset) {
+		return (int) (byteOffset >>> OFFSET_IN_BLOCK_BITS);
+	}
+
+	/**
+	 * Extract the offset in the uncompressed block from the byte offset of a data item in a block compressed data
+	 * file.
+	 *
+	 * @param byteOffset
+	 * 		byte offset from data location
+	 * @return offset of the data item in the uncompressed block
+	 */
+	static int offsetInBlockFromCompressedByteOffset(final long byteOffset) {
+		return (int) (byteOffset & MAX_OFFSET_IN_BLOCK);
+	}
+
 	/**
 	 * Check if a file at path, is a data file based on name. Also checks if there is an existing write lock file.
 	 *
@@ -20,6 +20,7 @@ import com.swirlds.jasperdb.settings.JasperDbSettingsFactory;
 import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -34,6 +35,8 @@ import java.util.Objects;
  *
  * It is designed to be used from a single thread.
  *
+ * Block compressed files are read a block at a time, with the data items then read from the decompressed block.
+ *
  * @see DataFileWriter for definition of file structure
  */
 @SuppressWarnings("rawtypes")
@@ -46,7 +49,7 @@ public final class DataFileIterator implements AutoCloseable {
 	private static final JasperDbSettings settings = JasperDbSettingsFactory.get();
 
 	/** Input stream this iterator is reading from */
-	private final BufferedInputStream inputStream;
+	private final InputStream inputStream;
 	/** The file metadata read from the end of file */
 	private final DataFileMetadata metadata;
 	/** The path to the file we are iterating over */
@@ -70,6 +73,14 @@ public final class DataFileIterator implements AutoCloseable {
 	private int dataItemSize = 0;
 	/** True if this iterator has been closed */
 	private boolean closed = false;
+	/** The current decompressed block, only used for block compressed files */
+	private ByteBuffer currentBlock;
+	/** The index of the current block, -1 being before the first block */
+	private int currentBlockIndex = -1;
+	/** The offset of the current data item in the current decompressed block */
+	private int currentOffsetInBlock = 0;
+	/** Buffer that is reused for reading each compressed block */
+	private ByteBuffer compressedBlockBuffer;
 
 	/**
 	 * Create a new DataFileIterator on an existing file.
@@ -85,15 +96,42 @@ public final class DataFileIterator implements AutoCloseable {
 			final Path path,
 			final DataFileMetadata metadata,
 			final DataItemSerializer dataItemSerializer
+	) throws IOException {
+		this(path, metadata, dataItemSerializer, false);
+	}
+
+	/**
+	 * Create a new DataFileIterator on an existing file, optionally reading it with direct IO that bypasses the page
+	 * cache.
+	 *
+	 * @param path
+	 * 		The path to the file to read.
+	 * @param metadata
+	 * 		The metadata read from the file.
+	 * @param bypassPageCache
+	 * 		True to read the file with direct IO if supported, so reading it does not evict other data from the page
+	 * 		cache. Useful when reading whole files for merging.
+	 * @throws IOException
+	 * 		if there was a problem creating a new InputStream on the file at path
+	 */
+	public DataFileIterator(
+			final Path path,
+			final DataFileMetadata metadata,
+			final DataItemSerializer dataItemSerializer,
+			final boolean bypassPageCache
 	) throws IOException {
 		this.path = path;
 		this.metadata = metadata;
 		this.dataItemSerializer = dataItemSerializer;
 		this.headerSize = dataItemSerializer.getHeaderSize();
-		/* FUTURE WORK - https://github.com/swirlds/swirlds-platform/issues/3929 */
-		this.inputStream = new BufferedInputStream(
-						Files.newInputStream(path, StandardOpenOption.READ),
-						settings.getIteratorInputBufferBytes());
+		if (bypassPageCache) {
+			this.inputStream = DirectIo.newInputStream(path, settings.getIteratorInputBufferBytes());
+		} else {
+			/* FUTURE WORK - https://github.com/swirlds/swirlds-platform/issues/3929 */
+			this.inputStream = new BufferedInputStream(
+							Files.newInputStream(path, StandardOpenOption.READ),
+							settings.getIteratorInputBufferBytes());
+		}
 	}
 
 	/**
@@ -116,6 +154,8 @@ public final class DataFileIterator implements AutoCloseable {
 		if (!closed) {
 			closed = true;
 			dataItemBuffer = null;
+			currentBlock = null;
+			compressedBlockBuffer = null;
 			inputStream.close();
 		}
 	}
@@ -135,9 +175,25 @@ public final class DataFileIterator implements AutoCloseable {
 		// Have we reached the end?
 		if (currentDataItem >= metadata.getDataItemCount() - 1) {
 			dataItemBuffer = null;
+			currentBlock = null;
 			return false;
 		}
 
+		if (metadata.isBlockCompressed()) {
+			// move past the last item, on to the next block if this one is finished
+			currentOffsetInBlock += dataItemSize;
+			while (currentBlock == null || currentOffsetInBlock >= currentBlock.limit()) {
+				readNextBlock();
+				currentOffsetInBlock = 0;
+			}
+			currentDataItemFilePosition = DataFileCommon.compressedByteOffset(currentBlockIndex, currentOffsetInBlock);
+			currentDataItemHeader = dataItemSerializer.deserializeHeader(
+					currentBlock.slice(currentOffsetInBlock, headerSize));
+			dataItemSize = currentDataItemHeader.getSizeBytes();
+			currentDataItem++;
+			return true;
+		}
+
 		// Move the current byte position forward past the last item.
 		// Note: initially dataItemSize is zero, so calling next() for the first time
 		// does not advance the pointer, but on subsequent calls to next(), it will.
@@ -160,6 +216,9 @@ public final class DataFileIterator implements AutoCloseable {
 	 * 		been closed, or if the iterator is in the before-first or after-last states.
 	 */
 	public ByteBuffer getDataItemData() throws IOException {
+		if (metadata.isBlockCompressed()) {
+			return currentBlock == null ? null : currentBlock.slice(currentOffsetInBlock, dataItemSize);
+		}
 		return fillBuffer(dataItemSize);
 	}
 
@@ -267,6 +326,39 @@ public final class DataFileIterator implements AutoCloseable {
 		return dataItemBuffer;
 	}
 
+	/**
+	 * Read and decompress the next block of a block compressed file into currentBlock.
+	 *
+	 * @throws IOException
+	 * 		if the file does not have another block or there was a problem reading it
+	 */
+	private void readNextBlock() throws IOException {
+		currentBlockIndex++;
+		if (currentBlockIndex >= metadata.getBlockCount()) {
+			throw new EOFException("Was trying to read a data item [" +
+					currentDataItem + "] but ran out of blocks in the file [" + path + "].");
+		}
+		// blocks are normally contiguous, but skip to the block offset in case there is a gap
+		final long blockOffset = metadata.getBlockOffset(currentBlockIndex);
+		if (currentFilePosition < blockOffset) {
+			inputStream.skipNBytes(blockOffset - currentFilePosition);
+			currentFilePosition = blockOffset;
+		}
+		final int blockLength = metadata.getBlockLength(currentBlockIndex);
+		if (compressedBlockBuffer == null || compressedBlockBuffer.capacity() < blockLength) {
+			compressedBlockBuffer = ByteBuffer.allocate(blockLength);
+		}
+		final int bytesRead = inputStream.readNBytes(compressedBlockBuffer.array(), 0, blockLength);
+		if (bytesRead != blockLength) {
+			throw new EOFException("Was trying to read block [" + currentBlockIndex +
+					"] but ran out of data in the file [" + path + "].");
+		}
+		currentFilePosition += bytesRead;
+		compressedBlockBuffer.position(0);
+		compressedBlockBuffer.limit(blockLength);
+		currentBlock = DataFileBlockCompression.readBlock(compressedBlockBuffer, currentBlock);
+	}
+
 	/**
 	 * Resizes the dataItemBuffer, or creates it if necessary, such that it is large enough
 	 * to read the bytes provided.
@@ -21,6 +21,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Objects;
 
 import static com.swirlds.jasperdb.files.DataFileCommon.FOOTER_SIZE;
@@ -53,6 +54,15 @@ public final class DataFileMetadata {
 	private final boolean isMergeFile;
 	/** Serialization version for data stored in the file */
 	private final long serializationVersion;
+	/** True if the data items in this file are stored in compressed blocks */
+	private final boolean blockCompressed;
+	/**
+	 * The block index for a block compressed file, the byte offset of the start of each block in the file. Empty for
+	 * uncompressed files.
+	 */
+	private final long[] blockOffsets;
+	/** The byte offset in the file of the block index, which is also the end of the last block */
+	private final long blockIndexOffset;
 
 	/**
 	 * Create a new DataFileMetadata with complete set of data
@@ -86,6 +96,43 @@ public final class DataFileMetadata {
 			final Instant creationDate,
 			final boolean isMergeFile,
 			final long serializationVersion
+	) {
+		this(fileFormatVersion, dataItemValueSize, dataItemCount, index, creationDate, isMergeFile,
+				serializationVersion, null, 0);
+	}
+
+	/**
+	 * Create a new DataFileMetadata with complete set of data, for a file that may be block compressed
+	 *
+	 * @param fileFormatVersion
+	 * 		The file format version
+	 * @param dataItemValueSize
+	 * 		The data item value's size or VARIABLE_DATA_SIZE
+	 * @param dataItemCount
+	 * 		The number of data items the file contains
+	 * @param index
+	 * 		The file index, in a data file collection
+	 * @param creationDate
+	 * 		The creation data of this file
+	 * @param isMergeFile
+	 * 		True if this file was created as part of a merge, false if it was fresh data
+	 * @param serializationVersion
+	 * 		Serialization version for data stored in the file
+	 * @param blockOffsets
+	 * 		The byte offset of the start of each block in the file, or null if the file is not block compressed
+	 * @param blockIndexOffset
+	 * 		The byte offset of the block index in the file, ignored if the file is not block compressed
+	 */
+	public DataFileMetadata(
+			final int fileFormatVersion,
+			final int dataItemValueSize,
+			final long dataItemCount,
+			final int index,
+			final Instant creationDate,
+			final boolean isMergeFile,
+			final long serializationVersion,
+			final long[] blockOffsets,
+			final long blockIndexOffset
 	) {
 		this.fileFormatVersion = fileFormatVersion;
 		this.dataItemValueSize = dataItemValueSize;
@@ -94,6 +141,9 @@ public final class DataFileMetadata {
 		this.creationDate = creationDate;
 		this.isMergeFile = isMergeFile;
 		this.serializationVersion = serializationVersion;
+		this.blockCompressed = blockOffsets != null;
+		this.blockOffsets = blockOffsets != null ? blockOffsets : new long[0];
+		this.blockIndexOffset = blockOffsets != null ? blockIndexOffset : 0;
 	}
 
 	/**
@@ -119,6 +169,23 @@ public final class DataFileMetadata {
 			this.creationDate = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
 			this.isMergeFile = buf.get() == 1;
 			this.serializationVersion = buf.getLong();
+			// files written before block compression have zeros here
+			this.blockCompressed = buf.get() == 1;
+			final int blockCount = buf.getInt();
+			this.blockIndexOffset = buf.getLong();
+			this.blockOffsets = new long[blockCompressed ? blockCount : 0];
+			if (blockCompressed) {
+				// read the block index
+				final ByteBuffer blockIndexBuf = ByteBuffer.allocate(blockCount * Long.BYTES);
+				channel.position(blockIndexOffset);
+				while (blockIndexBuf.hasRemaining()) {
+					if (channel.read(blockIndexBuf) < 0) {
+						throw new IOException("Data file [" + file + "] block index is truncated");
+					}
+				}
+				blockIndexBuf.flip();
+				blockIndexBuf.asLongBuffer().get(blockOffsets);
+			}
 		}
 	}
 
@@ -137,10 +204,25 @@ public final class DataFileMetadata {
 		buf.putInt(this.creationDate.getNano());
 		buf.put((byte) (this.isMergeFile ? 1 : 0));
 		buf.putLong(this.serializationVersion);
+		buf.put((byte) (this.blockCompressed ? 1 : 0));
+		buf.putInt(this.blockOffsets.length);
+		buf.putLong(this.blockIndexOffset);
 		buf.rewind();
 		return buf;
 	}
 
+	/**
+	 * Get the block index in the form of a bytebuffer ready to write to the file at getBlockIndexOffset(). The block
+	 * index is not part of the footer as it can be bigger than a page.
+	 *
+	 * @return ByteBuffer containing the block index, empty if the file is not block compressed
+	 */
+	public ByteBuffer getBlockIndexForWriting() {
+		final ByteBuffer buf = ByteBuffer.allocate(blockOffsets.length * Long.BYTES);
+		buf.asLongBuffer().put(blockOffsets);
+		return buf;
+	}
+
 	/**
 	 * Get the file format version, this is ready in case we need to change file format and support multiple versions.
 	 */
@@ -199,6 +281,50 @@ public final class DataFileMetadata {
 		return serializationVersion;
 	}
 
+	/**
+	 * Get if the data items in this file are stored in compressed blocks
+	 */
+	public boolean isBlockCompressed() {
+		return blockCompressed;
+	}
+
+	/**
+	 * Get the number of compressed blocks in this file, zero if the file is not block compressed
+	 */
+	public int getBlockCount() {
+		return blockOffsets.length;
+	}
+
+	/**
+	 * Get the byte offset in the file of the start of a compressed block
+	 *
+	 * @param blockIndex
+	 * 		the index of the block
+	 * @return offset from start of file in bytes
+	 */
+	public long getBlockOffset(final int blockIndex) {
+		return blockOffsets[blockIndex];
+	}
+
+	/**
+	 * Get the size in bytes of a compressed block on disk, including its header
+	 *
+	 * @param blockIndex
+	 * 		the index of the block
+	 * @return block size in bytes
+	 */
+	public int getBlockLength(final int blockIndex) {
+		final long blockEnd = blockIndex + 1 < blockOffsets.length ? blockOffsets[blockIndex + 1] : blockIndexOffset;
+		return (int) (blockEnd - blockOffsets[blockIndex]);
+	}
+
+	/**
+	 * Get the byte offset in the file of the block index, which is also the end of the last block
+	 */
+	public long getBlockIndexOffset() {
+		return blockIndexOffset;
+	}
+
 	/** toString for debugging */
 	@Override
 	public String toString() {
@@ -210,6 +336,8 @@ public final class DataFileMetadata {
 				", creationDate=" + creationDate +
 				", isMergeFile=" + isMergeFile +
 				", serializationVersion=" + serializationVersion +
+				", blockCompressed=" + blockCompressed +
+				", blockCount=" + blockOffsets.length +
 				'}';
 	}
 
@@ -231,7 +359,10 @@ public final class DataFileMetadata {
 				&& index == that.index
 				&& isMergeFile == that.isMergeFile
 				&& serializationVersion == that.serializationVersion
-				&& Objects.equals(this.creationDate, that.creationDate);
+				&& blockCompressed == that.blockCompressed
+				&& blockIndexOffset == that.blockIndexOffset
+				&& Objects.equals(this.creationDate, that.creationDate)
+				&& Arrays.equals(this.blockOffsets, that.blockOffsets);
 	}
 
 	/**
@@ -240,6 +371,6 @@ public final class DataFileMetadata {
 	@Override
 	public int hashCode() {
 		return Objects.hash(fileFormatVersion, dataItemValueSize, dataItemCount, index,
-				creationDate, isMergeFile, serializationVersion);
+				creationDate, isMergeFile, serializationVersion, blockCompressed, blockIndexOffset);
 	}
 }
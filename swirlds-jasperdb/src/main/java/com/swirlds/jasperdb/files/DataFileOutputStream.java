@@ -70,6 +70,16 @@ public class DataFileOutputStream extends SerializableDataOutputStream {
 		byteArrayOutputStream.writeTo(byteBuffer);
 	}
 
+	/**
+	 * Get a ByteBuffer view over the bytes written so far, without copying. The view is only valid until more bytes
+	 * are written or this stream is reset.
+	 *
+	 * @return ByteBuffer wrapping the written bytes, positioned at zero with limit at the number of bytes written
+	 */
+	public ByteBuffer asByteBuffer() {
+		return byteArrayOutputStream.asByteBuffer();
+	}
+
 	/**
 	 * Resets the {@code count} field of this {@code ByteArrayOutputStream}
 	 * to zero, so that all currently accumulated output in the
@@ -123,5 +133,14 @@ public class DataFileOutputStream extends SerializableDataOutputStream {
 		public synchronized void writeTo(final ByteBuffer byteBuffer) {
 			byteBuffer.put(Objects.requireNonNull(buf), 0, count);
 		}
+
+		/**
+		 * Wrap the contents of this {@code ByteArrayOutputStream} in a ByteBuffer without copying.
+		 *
+		 * @return ByteBuffer wrapping the valid bytes in the buffer
+		 */
+		public synchronized ByteBuffer asByteBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
 	}
 }
@@ -15,28 +15,86 @@
 package com.swirlds.jasperdb.files;
 
 import com.swirlds.jasperdb.collections.IndexedObject;
+import com.swirlds.jasperdb.settings.JasperDbSettings;
+import com.swirlds.jasperdb.settings.JasperDbSettingsFactory;
+import sun.misc.Unsafe;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The aim for a DataFileReader is to facilitate fast highly concurrent random reading of items from a data file. It is
  * designed to be used concurrently from many threads.
+ * <p>
+ * When {@link JasperDbSettings#isMemoryMappedReadsEnabled()} is true and the file fits in a single mapping, the whole
+ * (immutable, fully written) file is memory mapped read only and data items are copied straight from the mapped region,
+ * without a system call. Otherwise, items are read with positional reads on the file channel. The mapping is released
+ * when the reader is closed, so reads copy items out of it rather than handing out slices that could outlive it.
+ * <p>
+ * Block compressed files are read transparently, a read decompresses the whole block containing the data item. The
+ * last decompressed block is kept for each thread, so reading many items from the same block only decompresses it once.
  *
  * @param <D>
  * 		Data item type
  */
 @SuppressWarnings({ "DuplicatedCode", "NullableProblems" })
 public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFileReader<D>>, IndexedObject {
+	/**
+	 * Since {@code com.swirlds.platform.Browser} populates settings, and it is loaded before
+	 * any application classes that might instantiate a data source, the {@link JasperDbSettingsFactory}
+	 * holder will have been configured by the time this static initializer runs.
+	 */
+	private static final JasperDbSettings settings = JasperDbSettingsFactory.get();
+	/** The largest file that can be covered by a single memory mapping, bigger files use the file channel */
+	private static final long MAX_MAPPED_FILE_SIZE_BYTES = Integer.MAX_VALUE;
+	/**
+	 * The largest gap in bytes between two data items that still gets them read in a single coalesced read, a gap
+	 * smaller than a page costs nothing extra as the OS reads whole pages anyway.
+	 */
+	private static final int MAX_COALESCED_GAP_BYTES = DataFileCommon.PAGE_SIZE;
+	/** The largest number of bytes read in a single coalesced read of many data items */
+	private static final int MAX_COALESCED_READ_BYTES = 1024 * 1024;
+	/** Flag set in mappedReads when the reader is closed, so no new reads of the mapping can start */
+	private static final int MAPPING_CLOSED = Integer.MIN_VALUE;
+	/**
+	 * Access to sun.misc.Unsafe required to unmap the memory mapping when the reader is closed
+	 */
+	private static final Unsafe UNSAFE;
+
+	static {
+		try {
+			Field f = Unsafe.class.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			UNSAFE = (Unsafe) f.get(null);
+		} catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
+			throw new InternalError(e);
+		}
+	}
+
 	/** FileChannel's for each thread */
 	private static final ThreadLocal<ByteBuffer> BUFFER_CACHE = new ThreadLocal<>();
+	/** Buffers for coalesced reads of many data items, separate from BUFFER_CACHE as both can be in use at once */
+	private static final ThreadLocal<ByteBuffer> COALESCED_BUFFER_CACHE = new ThreadLocal<>();
+	/** The last decompressed block for each thread, shared by all readers */
+	private static final ThreadLocal<DecompressedBlock> DECOMPRESSED_BLOCK_CACHE =
+			ThreadLocal.withInitial(DecompressedBlock::new);
+	/** Source of unique reader ids, used to identify the reader a block in DECOMPRESSED_BLOCK_CACHE came from */
+	private static final AtomicLong NEXT_READER_ID = new AtomicLong();
+	/** Unique id for this reader */
+	private final long readerId = NEXT_READER_ID.incrementAndGet();
 	/** FileChannel's for each thread */
 	private final FileChannel fileChannel;
 	/** The path to the file on disk */
@@ -50,8 +108,25 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
 	 * and merging after updating any indexes. But the file can still be read from during that time.
 	 */
 	private final AtomicBoolean fileAvailableForMerging = new AtomicBoolean(false);
+	/**
+	 * The number of data items in this file that no index points to any more, because they have been superseded by a
+	 * newer copy or their key has left the valid key range. This is maintained by the owning DataFileCollection and is
+	 * an estimate, as concurrent saves and merges can occasionally miss counting an item.
+	 */
+	private final AtomicLong garbageDataItemCount = new AtomicLong();
 	/** The size of this file in bytes, cached as need it often, and it's constant as file is immutable. */
 	private final long fileSizeBytes;
+	/**
+	 * Read only mapping of the whole file, or null if this file is read using the file channel. Only absolute slices
+	 * are taken from it, so it is never mutated and can be shared by all reading threads. It must only be accessed
+	 * between acquireMapping() and releaseMapping(), as it is unmapped when the reader is closed.
+	 */
+	private final MappedByteBuffer mappedBuffer;
+	/**
+	 * The number of reads currently accessing mappedBuffer, with the MAPPING_CLOSED flag set once the reader is closed.
+	 * Whoever brings it to exactly MAPPING_CLOSED, the last read or close() if there are no reads, unmaps the file.
+	 */
+	private final AtomicInteger mappedReads = new AtomicInteger();
 
 	/**
 	 * Open an existing data file, reading the metadata from the file
@@ -86,6 +161,9 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
 		this.dataItemSerializer = dataItemSerializer;
 		this.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
 		this.fileSizeBytes = this.fileChannel.size();
+		this.mappedBuffer = (settings.isMemoryMappedReadsEnabled() && fileSizeBytes <= MAX_MAPPED_FILE_SIZE_BYTES)
+				? fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSizeBytes)
+				: null;
 	}
 
 	/**
@@ -107,6 +185,46 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
 		fileAvailableForMerging.set(newValue);
 	}
 
+	/**
+	 * Get the estimated number of data items in this file that are garbage, no longer pointed to by an index
+	 *
+	 * @return estimated number of garbage data items
+	 */
+	public long getGarbageDataItemCount() {
+		return garbageDataItemCount.get();
+	}
+
+	/**
+	 * Set the estimated number of data items in this file that are garbage, used when it is counted from an index
+	 *
+	 * @param count
+	 * 		estimated number of garbage data items
+	 */
+	public void setGarbageDataItemCount(final long count) {
+		garbageDataItemCount.set(count);
+	}
+
+	/**
+	 * Add to the estimated number of data items in this file that are garbage
+	 *
+	 * @param count
+	 * 		number of data items that have become garbage
+	 */
+	public void addGarbageDataItems(final long count) {
+		garbageDataItemCount.addAndGet(count);
+	}
+
+	/**
+	 * Get the estimated fraction of data items in this file that are garbage
+	 *
+	 * @return garbage ratio between 0 and 1
+	 */
+	public double getGarbageRatio() {
+		final long dataItemCount = metadata.getDataItemCount();
+		return dataItemCount <= 0 ? 0 :
+				Math.min(1, Math.max(0, garbageDataItemCount.get() / (double) dataItemCount));
+	}
+
 	/**
 	 * Get file index, the index is an ordered integer identifying the file in a set of files
 	 *
@@ -143,6 +261,22 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
 		return new DataFileIterator(path, metadata, dataItemSerializer);
 	}
 
+	/**
+	 * Create an iterator to iterate over the data items in this data file, optionally reading the file with direct IO
+	 * that bypasses the page cache. It opens its own file handle so can be used in a separate thread. It must therefore
+	 * be closed when you are finished with it.
+	 *
+	 * @param bypassPageCache
+	 * 		True to read the file with direct IO if supported, so reading it does not evict other data from the page
+	 * 		cache
+	 * @return new data item iterator
+	 * @throws IOException
+	 * 		if there was a problem creating a new DataFileIterator
+	 */
+	public DataFileIterator createIterator(final boolean bypassPageCache) throws IOException {
+		return new DataFileIterator(path, metadata, dataItemSerializer, bypassPageCache);
+	}
+
 	/**
 	 * Read a data item from file at dataLocation.
 	 *
@@ -155,12 +289,17 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
 	 */
 	public D readDataItem(final long dataLocation) throws IOException {
 		final long byteOffset = DataFileCommon.byteOffsetFromDataLocation(dataLocation);
+		if (metadata.isBlockCompressed()) {
+			return readCompressedDataItem(byteOffset);
+		}
+		if (mappedBuffer != null) {
+			return readMappedDataItem((int) byteOffset);
+		}
 		final int bytesToRead;
 		if (dataItemSerializer.isVariableSize()) {
 			// read header to get size
 			final ByteBuffer serializedHeader = read(byteOffset, dataItemSerializer.getHeaderSize());
-			final DataItemHeader header = dataItemSerializer.deserializeHeader(serializedHeader);
-			bytesToRead = header.getSizeBytes();
+			bytesToRead = dataItemSerializer.deserializeSizeBytes(serializedHeader);
 		} else {
 			bytesToRead = dataItemSerializer.getSerializedSize();
 		}
@@ -169,6 +308,74 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
 				metadata.getSerializationVersion());
 	}
 
+	/**
+	 * Read a batch of data items from this file. Data items that are close to each other in the file are read together
+	 * with a single larger read, so a sorted batch costs far fewer seeks and system calls than reading each item on
+	 * its own.
+	 * <p>
+	 * This can only be used with serializers that create a new data item for each call to deserialize, not ones that
+	 * reuse a thread local data item.
+	 *
+	 * @param dataLocations
+	 * 		array of data locations in this file, the range to read must be sorted in ascending order
+	 * @param fromIndex
+	 * 		the index of the first data location to read, inclusive
+	 * @param toIndex
+	 * 		the index of the last data location to read, exclusive
+	 * @return list of read data items in the same order as dataLocations
+	 * @throws IOException
+	 * 		If there was a problem reading from data file
+	 * @throws ClosedChannelException
+	 * 		if the data file was closed
+	 */
+	public List<D> readDataItems(final long[] dataLocations, final int fromIndex, final int toIndex)
+			throws IOException {
+		final List<D> dataItems = new ArrayList<>(toIndex - fromIndex);
+		if (mappedBuffer != null || metadata.isBlockCompressed()) {
+			// reads from mapping have no per read cost to save, and reads of a compressed block are cached
+			for (int i = fromIndex; i < toIndex; i++) {
+				dataItems.add(readDataItem(dataLocations[i]));
+			}
+			return dataItems;
+		}
+		final int maxItemReadSize = dataItemSerializer.isVariableSize()
+				? DataFileCommon.PAGE_SIZE
+				: dataItemSerializer.getSerializedSize();
+		int runStart = fromIndex;
+		while (runStart < toIndex) {
+			// find the end of the run of data items that are close enough to read together
+			final long runStartOffset = DataFileCommon.byteOffsetFromDataLocation(dataLocations[runStart]);
+			long lastOffset = runStartOffset;
+			int runEnd = runStart + 1;
+			while (runEnd < toIndex) {
+				final long offset = DataFileCommon.byteOffsetFromDataLocation(dataLocations[runEnd]);
+				if (offset - lastOffset > MAX_COALESCED_GAP_BYTES ||
+						offset + maxItemReadSize - runStartOffset > MAX_COALESCED_READ_BYTES) {
+					break;
+				}
+				lastOffset = offset;
+				runEnd++;
+			}
+			if (runEnd - runStart == 1) {
+				dataItems.add(readDataItem(dataLocations[runStart]));
+			} else {
+				readCoalescedRun(dataLocations, runStart, runEnd, runStartOffset,
+						(int) (Math.min(lastOffset + maxItemReadSize, fileSizeBytes) - runStartOffset), dataItems);
+			}
+			runStart = runEnd;
+		}
+		return dataItems;
+	}
+
+	/**
+	 * Get if this file is being read through a memory mapping rather than the file channel
+	 *
+	 * @return true if data items are deserialized straight from a memory mapping of the file
+	 */
+	public boolean isMemoryMapped() {
+		return mappedBuffer != null;
+	}
+
 	/**
 	 * Get the size of this file in bytes
 	 *
@@ -226,15 +433,187 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
 	}
 
 	/**
-	 * Close this data file, it can not be used once closed.
+	 * Close this data file, it can not be used once closed. If the file is memory mapped then the mapping is released
+	 * as soon as reads that are already copying from it are done, reads started after this throw
+	 * ClosedChannelException.
 	 */
 	public void close() throws IOException {
 		fileChannel.close();
+		if (mappedBuffer != null) {
+			int reads;
+			do {
+				reads = mappedReads.get();
+				if (reads < 0) {
+					// already closed
+					return;
+				}
+			} while (!mappedReads.compareAndSet(reads, reads | MAPPING_CLOSED));
+			if (reads == 0) {
+				UNSAFE.invokeCleaner(mappedBuffer);
+			}
+		}
 	}
 
 	// =================================================================================================================
 	// Private methods
 
+	/**
+	 * Start a read of the memory mapping, preventing it from being unmapped until releaseMapping() is called.
+	 *
+	 * @throws ClosedChannelException
+	 * 		if the data file was closed
+	 */
+	private void acquireMapping() throws ClosedChannelException {
+		int reads;
+		do {
+			reads = mappedReads.get();
+			if (reads < 0) {
+				throw new ClosedChannelException();
+			}
+		} while (!mappedReads.compareAndSet(reads, reads + 1));
+	}
+
+	/**
+	 * Finish a read of the memory mapping started with acquireMapping(), unmapping it if this was the last read after
+	 * the reader was closed.
+	 */
+	private void releaseMapping() {
+		if (mappedReads.decrementAndGet() == MAPPING_CLOSED) {
+			UNSAFE.invokeCleaner(mappedBuffer);
+		}
+	}
+
+	/**
+	 * Read a data item from the memory mapped file. The item's bytes are copied out of the mapping before it is
+	 * deserialized, as deserialized data items can keep the buffer they were read from. Absolute slices and copies do
+	 * not touch the shared buffer's position, so this is safe to call concurrently.
+	 *
+	 * @param byteOffset
+	 * 		Offset of the start of the data item in the file
+	 * @return deserialized data item
+	 * @throws IOException
+	 * 		If there was a problem deserializing the data item
+	 * @throws ClosedChannelException
+	 * 		if the data file was closed
+	 */
+	private D readMappedDataItem(final int byteOffset) throws IOException {
+		final ByteBuffer buffer;
+		acquireMapping();
+		try {
+			final int bytesToRead;
+			if (dataItemSerializer.isVariableSize()) {
+				// read header to get size
+				bytesToRead = dataItemSerializer.deserializeSizeBytes(
+						mappedBuffer.slice(byteOffset, dataItemSerializer.getHeaderSize()));
+			} else {
+				bytesToRead = dataItemSerializer.getSerializedSize();
+			}
+			buffer = getReadBuffer(bytesToRead);
+			buffer.put(0, mappedBuffer, byteOffset, bytesToRead);
+		} finally {
+			releaseMapping();
+		}
+		return dataItemSerializer.deserialize(buffer, metadata.getSerializationVersion());
+	}
+
+	/**
+	 * Read a data item from a block compressed file.
+	 *
+	 * @param byteOffset
+	 * 		Byte offset from the data location, containing block index and offset in the block
+	 * @return deserialized data item
+	 * @throws IOException
+	 * 		If there was a problem reading or decompressing the block
+	 */
+	private D readCompressedDataItem(final long byteOffset) throws IOException {
+		final ByteBuffer block = readBlock(DataFileCommon.blockIndexFromCompressedByteOffset(byteOffset));
+		final int offsetInBlock = DataFileCommon.offsetInBlockFromCompressedByteOffset(byteOffset);
+		final int bytesToRead;
+		if (dataItemSerializer.isVariableSize()) {
+			// read header to get size
+			bytesToRead = dataItemSerializer.deserializeSizeBytes(
+					block.slice(offsetInBlock, dataItemSerializer.getHeaderSize()));
+		} else {
+			bytesToRead = dataItemSerializer.getSerializedSize();
+		}
+		return dataItemSerializer.deserialize(
+				block.slice(offsetInBlock, bytesToRead),
+				metadata.getSerializationVersion());
+	}
+
+	/**
+	 * Get a decompressed block of this file, from this thread's block cache if it is the last block read.
+	 *
+	 * @param blockIndex
+	 * 		the index of the block in this file
+	 * @return buffer containing the decompressed block, shared per thread so only valid until the next read
+	 * @throws IOException
+	 * 		If there was a problem reading or decompressing the block
+	 */
+	private ByteBuffer readBlock(final int blockIndex) throws IOException {
+		final DecompressedBlock cachedBlock = DECOMPRESSED_BLOCK_CACHE.get();
+		if (cachedBlock.readerId == readerId && cachedBlock.blockIndex == blockIndex) {
+			return cachedBlock.data;
+		}
+		final long blockOffset = metadata.getBlockOffset(blockIndex);
+		final int blockLength = metadata.getBlockLength(blockIndex);
+		// clear the cached block's id first, so it is not used if decompressing fails part way
+		cachedBlock.readerId = 0;
+		if (mappedBuffer != null) {
+			acquireMapping();
+			try {
+				cachedBlock.data = DataFileBlockCompression.readBlock(
+						mappedBuffer.slice((int) blockOffset, blockLength), cachedBlock.data);
+			} finally {
+				releaseMapping();
+			}
+		} else {
+			cachedBlock.data = DataFileBlockCompression.readBlock(read(blockOffset, blockLength), cachedBlock.data);
+		}
+		cachedBlock.readerId = readerId;
+		cachedBlock.blockIndex = blockIndex;
+		return cachedBlock.data;
+	}
+
+	/**
+	 * Read a run of data items that are close together in the file with a single read, deserializing each from a slice
+	 * of the read buffer. Any variable sized item that extends past the end of the read is read on its own.
+	 */
+	private void readCoalescedRun(final long[] dataLocations, final int runStart, final int runEnd,
+			final long runStartOffset, final int bytesToRead, final List<D> dataItems) throws IOException {
+		ByteBuffer buffer = COALESCED_BUFFER_CACHE.get();
+		if (buffer == null || bytesToRead > buffer.capacity()) {
+			buffer = ByteBuffer.allocate(bytesToRead);
+			COALESCED_BUFFER_CACHE.set(buffer);
+		}
+		buffer.clear();
+		buffer.limit(bytesToRead);
+		while (buffer.hasRemaining()) {
+			if (fileChannel.read(buffer, runStartOffset + buffer.position()) < 0) {
+				break;
+			}
+		}
+		final int bytesRead = buffer.position();
+		for (int i = runStart; i < runEnd; i++) {
+			final int position = (int) (DataFileCommon.byteOffsetFromDataLocation(dataLocations[i]) - runStartOffset);
+			final int itemSize;
+			if (!dataItemSerializer.isVariableSize()) {
+				itemSize = dataItemSerializer.getSerializedSize();
+			} else if (position + dataItemSerializer.getHeaderSize() <= bytesRead) {
+				itemSize = dataItemSerializer.deserializeSizeBytes(
+						buffer.slice(position, dataItemSerializer.getHeaderSize()));
+			} else {
+				itemSize = Integer.MAX_VALUE;
+			}
+			if (position + (long) itemSize <= bytesRead) {
+				dataItems.add(dataItemSerializer.deserialize(
+						buffer.slice(position, itemSize), metadata.getSerializationVersion()));
+			} else {
+				dataItems.add(readDataItem(dataLocations[i]));
+			}
+		}
+	}
+
 	/**
 	 * Read bytesToRead bytes of data from the file starting at byteOffsetInFile unless we reach the end of file. If we
 	 * reach the end of file then returned buffer's limit will be set to the number of bytes read and be less than
@@ -252,6 +631,25 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
 	 * 		if the file was closed
 	 */
 	private ByteBuffer read(final long byteOffsetInFile, final int bytesToRead) throws IOException {
+		final ByteBuffer buffer = getReadBuffer(bytesToRead);
+		// read data, a single read can return less than asked for
+		while (buffer.hasRemaining()) {
+			if (fileChannel.read(buffer, byteOffsetInFile + buffer.position()) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Get this thread's reused read buffer, with position 0 and limit bytesToRead
+	 *
+	 * @param bytesToRead
+	 * 		Number of bytes that will be read into the buffer
+	 * @return per thread buffer, so you can use it till your thread calls read again
+	 */
+	private static ByteBuffer getReadBuffer(final int bytesToRead) {
 		// get or create cached buffer
 		ByteBuffer buffer = BUFFER_CACHE.get();
 		if (buffer == null || bytesToRead > buffer.capacity()) {
@@ -260,9 +658,18 @@ public final class DataFileReader<D> implements AutoCloseable, Comparable<DataFi
 		}
 		buffer.position(0);
 		buffer.limit(bytesToRead);
-		// read data
-		fileChannel.read(buffer, byteOffsetInFile);
-		buffer.flip();
 		return buffer;
 	}
+
+	/**
+	 * A decompressed block of a block compressed file, cached per thread
+	 */
+	private static final class DecompressedBlock {
+		/** The id of the reader the block was read from, zero if the block is not valid */
+		private long readerId;
+		/** The index of the block in the file */
+		private int blockIndex;
+		/** The decompressed block data */
+		private ByteBuffer data;
+	}
 }
@@ -17,6 +17,7 @@ package com.swirlds.jasperdb.files;
 import com.swirlds.common.io.SerializableDataOutputStream;
 import com.swirlds.jasperdb.settings.JasperDbSettings;
 import com.swirlds.jasperdb.settings.JasperDbSettingsFactory;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
@@ -25,8 +26,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.util.zip.Deflater;
 
+import static com.swirlds.jasperdb.files.DataFileCommon.BLOCK_COMPRESSED_FILE_FORMAT_VERSION;
 import static com.swirlds.jasperdb.files.DataFileCommon.FOOTER_SIZE;
+import static com.swirlds.jasperdb.files.DataFileCommon.MAX_BLOCKS_PER_FILE;
 import static com.swirlds.jasperdb.files.DataFileCommon.createDataFilePath;
 import static com.swirlds.jasperdb.files.DataFileCommon.getLockFilePath;
 
@@ -37,6 +41,12 @@ import static com.swirlds.jasperdb.files.DataFileCommon.getLockFilePath;
  * <b>This is designed to be used from a single thread.</b>
  * <p>
  * At the end of the file it is padded till a 4096 byte page boundary then a footer page is written by DataFileMetadata.
+ * <p>
+ * A block compressed file instead groups whole data items into blocks of about
+ * {@link JasperDbSettings#getCompressedDataFileBlockBytes()} that are each compressed, see
+ * {@link DataFileBlockCompression}. The blocks are followed by the block index, then the padding and footer. The data
+ * locations for items in a block compressed file contain the block index and offset of the item in the uncompressed
+ * block rather than a file offset.
  *
  * @param <D>
  * 		Data item type
@@ -74,6 +84,18 @@ public final class DataFileWriter<D> {
 	private long writePosition = 0;
 	/** Count of the number of data items we have written so far. Ready to be stored in footer metadata */
 	private long dataItemCount = 0;
+	/** True if data items are written in compressed blocks */
+	private final boolean blockCompressed;
+	/** Stream data items are written to until the current block is full, null if not block compressed */
+	private final DataFileOutputStream blockStream;
+	/** The file offset of each block written so far, null if not block compressed */
+	private final LongArrayList blockOffsets;
+	/** Deflater for compressing blocks, null if not block compressed */
+	private final Deflater deflater;
+	/** Reused buffer for the uncompressed block being compressed */
+	private ByteBuffer rawBlockBuffer;
+	/** Reused buffer for the compressed block */
+	private ByteBuffer compressedBlockBuffer;
 
 	/**
 	 * Create a new data file in the given directory, in append mode. Puts the object into "writing" mode
@@ -99,6 +121,37 @@ public final class DataFileWriter<D> {
 			final DataItemSerializer<D> dataItemSerializer,
 			final Instant creationTime,
 			final boolean isMergeFile
+	) throws IOException {
+		this(filePrefix, dataFileDir, index, dataItemSerializer, creationTime, isMergeFile, false);
+	}
+
+	/**
+	 * Create a new data file in the given directory, in append mode, that may be block compressed. Puts the object into
+	 * "writing" mode (i.e. creates a lock file. So you'd better start writing data and be sure to finish it off).
+	 *
+	 * @param filePrefix
+	 * 		string prefix for all files, must not contain "_" chars
+	 * @param dataFileDir
+	 * 		the path to directory to create the data file in
+	 * @param index
+	 * 		the index number for this file
+	 * @param dataItemSerializer
+	 * 		Serializer for converting raw data to/from data items
+	 * @param creationTime
+	 * 		the time stamp for the creation time for this file
+	 * @param isMergeFile
+	 * 		true if this is a merge file, false if it is a new data file that has not been merged
+	 * @param blockCompressed
+	 * 		true if data items should be written in compressed blocks
+	 */
+	public DataFileWriter(
+			final String filePrefix,
+			final Path dataFileDir,
+			final int index,
+			final DataItemSerializer<D> dataItemSerializer,
+			final Instant creationTime,
+			final boolean isMergeFile,
+			final boolean blockCompressed
 	) throws IOException {
 		this.index = index;
 		this.dataItemSerializer = dataItemSerializer;
@@ -109,11 +162,27 @@ public final class DataFileWriter<D> {
 		if (Files.exists(lockFilePath)) {
 			throw new IOException("Tried to start writing to data file [" + path + "] when lock file already existed");
 		}
-		writingStream = new SerializableDataOutputStream(
-				new BufferedOutputStream(
-						Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
-						settings.getWriterOutputBufferBytes()));
+		// merge files are written bypassing the page cache if enabled, so merging does not evict hot data from it
+		if (isMergeFile && settings.isMergeDirectIoEnabled()) {
+			writingStream = new SerializableDataOutputStream(
+					DirectIo.newOutputStream(path, settings.getWriterOutputBufferBytes()));
+		} else {
+			writingStream = new SerializableDataOutputStream(
+					new BufferedOutputStream(
+							Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+							settings.getWriterOutputBufferBytes()));
+		}
 		Files.createFile(lockFilePath);
+		this.blockCompressed = blockCompressed;
+		if (blockCompressed) {
+			blockStream = new DataFileOutputStream(settings.getCompressedDataFileBlockBytes());
+			blockOffsets = new LongArrayList();
+			deflater = new Deflater(Deflater.BEST_SPEED);
+		} else {
+			blockStream = null;
+			blockOffsets = null;
+			deflater = null;
+		}
 	}
 
 	/**
@@ -121,9 +190,34 @@ public final class DataFileWriter<D> {
 	 * be at this moment in time if you were to close it now.
 	 */
 	public long getFileSizeEstimate() {
+		if (blockCompressed) {
+			// assume the current block will not compress, and allow for its entry in the block index
+			return writePosition + blockStream.bytesWritten() + (blockOffsets.size() + 1L) * Long.BYTES +
+					computePaddingLength() + FOOTER_SIZE;
+		}
 		return writePosition + computePaddingLength() + FOOTER_SIZE;
 	}
 
+	/**
+	 * Get if this file can not take many more data items, because it is block compressed and the current block is the
+	 * last one that can be addressed by a data location. When this is true the caller should finish this file and
+	 * start a new one, once the current block is full writing more data items will fail.
+	 *
+	 * @return true if the file should not be written to any more
+	 */
+	public boolean isFull() {
+		return blockCompressed && blockOffsets.size() >= MAX_BLOCKS_PER_FILE - 1;
+	}
+
+	/**
+	 * Get the index of the file being written
+	 *
+	 * @return this file's index
+	 */
+	public int getIndex() {
+		return index;
+	}
+
 	/**
 	 * Get the path for the file being written. Useful when needing to get a reader to the file.
 	 */
@@ -148,6 +242,11 @@ public final class DataFileWriter<D> {
 			final long serializedVersion,
 			final ByteBuffer dataItemData
 	) throws IOException {
+		if (blockCompressed) {
+			final long byteOffset = startBlockDataItem();
+			dataItemSerializer.copyItem(serializedVersion, dataItemData.remaining(), dataItemData, blockStream);
+			return endBlockDataItem(byteOffset);
+		}
 		// capture the current write position for beginning of data item
 		final long byteOffset = writePosition;
 		// copy the item into the file
@@ -171,6 +270,11 @@ public final class DataFileWriter<D> {
 	 * 		if there was a problem appending data to file
 	 */
 	public synchronized long storeDataItem(final D dataItem) throws IOException {
+		if (blockCompressed) {
+			final long byteOffset = startBlockDataItem();
+			dataItemSerializer.serialize(dataItem, blockStream);
+			return endBlockDataItem(byteOffset);
+		}
 		// find offset for the start of this new data item, we assume we always write data in a whole number of blocks
 		final long byteOffset = writePosition;
 		// write serialized data
@@ -183,6 +287,47 @@ public final class DataFileWriter<D> {
 		return DataFileCommon.dataLocation(index, byteOffset);
 	}
 
+	/**
+	 * Write many data items that have already been serialized with the current serialization version, like when they
+	 * have been serialized on other threads. Unless the file is block compressed, they are written with a single
+	 * sequential write.
+	 *
+	 * @param serializedDataItems
+	 * 		Buffer containing the serialized data items one after another, starting at its position
+	 * @param dataItemSizes
+	 * 		The size in bytes of each of the serialized data items
+	 * @param dataLocations
+	 * 		Array to fill with the data location each data item was written to, the same length as dataItemSizes
+	 * @throws IOException
+	 * 		If there was a problem writing the data items
+	 */
+	public synchronized void writeSerializedDataItems(
+			final ByteBuffer serializedDataItems,
+			final int[] dataItemSizes,
+			final long[] dataLocations
+	) throws IOException {
+		final byte[] data = serializedDataItems.array();
+		final int dataStart = serializedDataItems.arrayOffset() + serializedDataItems.position();
+		if (blockCompressed) {
+			int offset = dataStart;
+			for (int i = 0; i < dataItemSizes.length; i++) {
+				final long byteOffset = startBlockDataItem();
+				blockStream.write(data, offset, dataItemSizes[i]);
+				dataLocations[i] = endBlockDataItem(byteOffset);
+				offset += dataItemSizes[i];
+			}
+			return;
+		}
+		int totalSize = 0;
+		for (int i = 0; i < dataItemSizes.length; i++) {
+			dataLocations[i] = DataFileCommon.dataLocation(index, writePosition + totalSize);
+			totalSize += dataItemSizes[i];
+		}
+		writingStream.write(data, dataStart, totalSize);
+		writePosition += totalSize;
+		dataItemCount += dataItemSizes.length;
+	}
+
 	/**
 	 * When you finished append to a new file, call this to seal the file and make it read only for reading.
 	 *
@@ -191,6 +336,19 @@ public final class DataFileWriter<D> {
 	 */
 	public synchronized DataFileMetadata finishWriting(
 	) throws IOException {
+		long[] finalBlockOffsets = null;
+		long blockIndexOffset = 0;
+		if (blockCompressed) {
+			// write the last partial block, the block index is written after it
+			writeBlock();
+			finalBlockOffsets = blockOffsets.toArray();
+			blockIndexOffset = writePosition;
+			deflater.end();
+			for (final long blockOffset : finalBlockOffsets) {
+				writingStream.writeLong(blockOffset);
+			}
+			writePosition += (long) finalBlockOffsets.length * Long.BYTES;
+		}
 		// pad the end of file till we are a whole number of pages
 		int paddingBytesNeeded = computePaddingLength();
 		for (int i = 0; i < paddingBytesNeeded; i++) {
@@ -199,13 +357,15 @@ public final class DataFileWriter<D> {
 		writePosition += paddingBytesNeeded;
 		// write any metadata to end of file.
 		final DataFileMetadata metadataFooter = new DataFileMetadata(
-				DataFileCommon.FILE_FORMAT_VERSION,
+				blockCompressed ? BLOCK_COMPRESSED_FILE_FORMAT_VERSION : DataFileCommon.FILE_FORMAT_VERSION,
 				dataItemSerializer.getSerializedSize(),
 				dataItemCount,
 				index,
 				creationInstant,
 				isMergeFile,
-				dataItemSerializer.getCurrentDataVersion());
+				dataItemSerializer.getCurrentDataVersion(),
+				finalBlockOffsets,
+				blockIndexOffset);
 		final ByteBuffer footerData = metadataFooter.getFooterForWriting();
 		// write footer to file
 		writingStream.write(footerData.array(), footerData.position(), footerData.limit() - footerData.position());
@@ -218,6 +378,64 @@ public final class DataFileWriter<D> {
 		return metadataFooter;
 	}
 
+	/**
+	 * Get the byte offset for the next data item in a block compressed file, checking the file can still address it.
+	 *
+	 * @return byte offset for the data location of the next data item
+	 * @throws IOException
+	 * 		if the file already has the maximum number of blocks
+	 */
+	private long startBlockDataItem() throws IOException {
+		if (blockOffsets.size() >= MAX_BLOCKS_PER_FILE) {
+			throw new IOException("Data file [" + path + "] already has the maximum of " + MAX_BLOCKS_PER_FILE +
+					" blocks");
+		}
+		return DataFileCommon.compressedByteOffset(blockOffsets.size(), blockStream.bytesWritten());
+	}
+
+	/**
+	 * Finish writing a data item to the current block, writing the block to the file if it is full.
+	 *
+	 * @param byteOffset
+	 * 		the byte offset returned by startBlockDataItem() for the data item
+	 * @return the data location of the written data item
+	 * @throws IOException
+	 * 		if there was a problem writing the block to file
+	 */
+	private long endBlockDataItem(final long byteOffset) throws IOException {
+		dataItemCount++;
+		// items have to start in the first MAX_OFFSET_IN_BLOCK bytes of a block, which the block size setting ensures
+		if (blockStream.bytesWritten() >= settings.getCompressedDataFileBlockBytes()) {
+			writeBlock();
+		}
+		return DataFileCommon.dataLocation(index, byteOffset);
+	}
+
+	/**
+	 * Compress the current block and write it to the file, recording its offset in the block index. Does nothing if the
+	 * current block is empty.
+	 *
+	 * @throws IOException
+	 * 		if there was a problem writing the block to file
+	 */
+	private void writeBlock() throws IOException {
+		final int rawSize = blockStream.bytesWritten();
+		if (rawSize == 0) {
+			return;
+		}
+		if (rawBlockBuffer == null || rawBlockBuffer.capacity() < rawSize) {
+			rawBlockBuffer = ByteBuffer.allocate(rawSize);
+			compressedBlockBuffer = ByteBuffer.allocate(rawSize);
+		}
+		rawBlockBuffer.clear();
+		blockStream.writeTo(rawBlockBuffer);
+		rawBlockBuffer.flip();
+		blockOffsets.add(writePosition);
+		writePosition += DataFileBlockCompression.writeBlock(deflater, rawBlockBuffer, compressedBlockBuffer,
+				writingStream);
+		blockStream.reset();
+	}
+
 	/**
 	 * Compute the amount of padding needed to append at the end of file to push the metadata footer so that it sits on
 	 * a page boundary for fast random access reading later.
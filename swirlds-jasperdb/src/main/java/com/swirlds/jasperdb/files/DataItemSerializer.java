@@ -39,4 +39,16 @@ public interface DataItemSerializer<T> extends BaseSerializer<T> {
 	 * @return The read header
 	 */
 	DataItemHeader deserializeHeader(ByteBuffer buffer);
+
+	/**
+	 * Deserialize just the size of a data item from its header in the given byte buffer. Serializers can override this
+	 * to avoid creating a DataItemHeader for every data item read.
+	 *
+	 * @param buffer
+	 * 		Buffer to read from
+	 * @return The size of the data item in bytes, including the header
+	 */
+	default int deserializeSizeBytes(ByteBuffer buffer) {
+		return deserializeHeader(buffer).getSizeBytes();
+	}
 }
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+package com.swirlds.jasperdb.files;
+
+import com.sun.nio.file.ExtendedOpenOption;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.swirlds.logging.LogMarker.JASPER_DB;
+
+/**
+ * Streams for sequentially reading and writing whole data files with direct IO, bypassing the operating system's page
+ * cache. This is used for merges, which stream through far more data than fits in the page cache, so going through it
+ * would evict the pages of hot data items that readers depend on.
+ * <p>
+ * Direct IO needs buffers, file positions and lengths that are aligned to the file system block size. The streams
+ * here read and write whole blocks through an aligned direct buffer, and the output stream pads the last block then
+ * truncates the file back to its real length. Where the file system or JDK does not support direct IO, for example
+ * tmpfs or non Linux platforms, the normal buffered streams are returned instead.
+ */
+final class DirectIo {
+	private static final Logger LOG = LogManager.getLogger(DirectIo.class);
+
+	/** True once we have logged that direct IO is not supported, so it is only logged once */
+	private static final AtomicBoolean LOGGED_UNSUPPORTED = new AtomicBoolean(false);
+
+	private DirectIo() {
+		throw new IllegalStateException("Utility class; should not be instantiated.");
+	}
+
+	/**
+	 * Open a stream for reading a file from start to end, bypassing the page cache if possible.
+	 *
+	 * @param path
+	 * 		the file to read
+	 * @param bufferSize
+	 * 		the size of buffer to read into, rounded up to a whole number of file system blocks for direct IO
+	 * @return stream reading the file with direct IO, or a normal buffered stream if direct IO is not supported
+	 * @throws IOException
+	 * 		if there was a problem opening the file
+	 */
+	static InputStream newInputStream(final Path path, final int bufferSize) throws IOException {
+		final int blockSize = directIoBlockSize(path);
+		if (blockSize > 0) {
+			try {
+				return new DirectInputStream(
+						FileChannel.open(path, StandardOpenOption.READ, ExtendedOpenOption.DIRECT),
+						blockSize, bufferSize);
+			} catch (UnsupportedOperationException | IOException e) {
+				logUnsupported(path, e);
+			}
+		}
+		return new BufferedInputStream(Files.newInputStream(path, StandardOpenOption.READ), bufferSize);
+	}
+
+	/**
+	 * Open a stream for writing a new file from start to end, bypassing the page cache if possible. The file must not
+	 * exist or be empty. Only whole blocks are written until the stream is closed, so the file is only complete after
+	 * close.
+	 *
+	 * @param path
+	 * 		the file to write
+	 * @param bufferSize
+	 * 		the size of buffer to write from, rounded up to a whole number of file system blocks for direct IO
+	 * @return stream writing the file with direct IO, or a normal buffered stream if direct IO is not supported
+	 * @throws IOException
+	 * 		if there was a problem opening the file
+	 */
+	static OutputStream newOutputStream(final Path path, final int bufferSize) throws IOException {
+		final int blockSize = directIoBlockSize(path.getParent());
+		if (blockSize > 0) {
+			FileChannel channel = null;
+			try {
+				channel = FileChannel.open(path,
+						StandardOpenOption.CREATE, StandardOpenOption.WRITE, ExtendedOpenOption.DIRECT);
+				if (channel.size() == 0) {
+					return new DirectOutputStream(channel, blockSize, bufferSize);
+				}
+				// appending to an existing file would need an aligned end of file, so use normal IO
+				channel.close();
+			} catch (UnsupportedOperationException | IOException e) {
+				if (channel != null) {
+					channel.close();
+				}
+				logUnsupported(path, e);
+			}
+		}
+		return new BufferedOutputStream(
+				Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), bufferSize);
+	}
+
+	/**
+	 * Get the block size direct IO has to be aligned to for files in the file store containing path.
+	 *
+	 * @param path
+	 * 		an existing file or directory
+	 * @return the block size in bytes, or 0 if it could not be found
+	 */
+	private static int directIoBlockSize(final Path path) {
+		try {
+			final long blockSize = Files.getFileStore(path).getBlockSize();
+			// the block size has to be a power of two that we can allocate a buffer for
+			return blockSize > 0 && blockSize <= DataFileCommon.PAGE_SIZE * 16 && Long.bitCount(blockSize) == 1
+					? (int) blockSize : 0;
+		} catch (UnsupportedOperationException | IOException e) {
+			logUnsupported(path, e);
+			return 0;
+		}
+	}
+
+	private static void logUnsupported(final Path path, final Exception e) {
+		if (!LOGGED_UNSUPPORTED.getAndSet(true)) {
+			LOG.info(JASPER_DB.getMarker(), "Direct IO is not supported for [{}], using normal IO instead. {}",
+					path, e.toString());
+		}
+	}
+
+	/**
+	 * Allocate a direct buffer whose memory address is aligned to blockSize and whose capacity is a whole number of
+	 * blocks, at least bufferSize.
+	 */
+	private static ByteBuffer allocateAligned(final int blockSize, final int bufferSize) {
+		final int blocks = Math.max(1, (bufferSize + blockSize - 1) / blockSize);
+		return ByteBuffer.allocateDirect(blocks * blockSize + blockSize).alignedSlice(blockSize)
+				.limit(blocks * blockSize).slice();
+	}
+
+	/**
+	 * InputStream reading a file with direct IO, one buffer of whole blocks at a time.
+	 */
+	private static final class DirectInputStream extends InputStream {
+		private final FileChannel channel;
+		private final int blockSize;
+		/** Aligned buffer holding the blocks most recently read, its remaining bytes are yet to be returned */
+		private final ByteBuffer buffer;
+		/** The file position of the next block to read, always a whole number of blocks */
+		private long filePosition = 0;
+		/** True once the end of file has been read into the buffer */
+		private boolean endOfFile = false;
+
+		private DirectInputStream(final FileChannel channel, final int blockSize, final int bufferSize) {
+			this.channel = channel;
+			this.blockSize = blockSize;
+			this.buffer = allocateAligned(blockSize, bufferSize);
+			this.buffer.limit(0);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!buffer.hasRemaining() && !fillBuffer()) {
+				return -1;
+			}
+			return buffer.get() & 0xFF;
+		}
+
+		/**
+		 * Read up to length bytes. Like {@link BufferedInputStream}, this keeps reading until length bytes have been
+		 * read or the end of file is reached, which callers like DataFileIterator depend on.
+		 */
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			int bytesRead = 0;
+			while (bytesRead < length) {
+				if (!buffer.hasRemaining() && !fillBuffer()) {
+					return bytesRead == 0 ? -1 : bytesRead;
+				}
+				final int bytesToRead = Math.min(length - bytesRead, buffer.remaining());
+				buffer.get(bytes, offset + bytesRead, bytesToRead);
+				bytesRead += bytesToRead;
+			}
+			return bytesRead;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+		/**
+		 * Read the next blocks of the file into the buffer.
+		 *
+		 * @return true if any bytes were read, false at end of file
+		 */
+		private boolean fillBuffer() throws IOException {
+			if (endOfFile) {
+				return false;
+			}
+			buffer.clear();
+			final int bytesRead = channel.read(buffer, filePosition);
+			buffer.flip();
+			if (bytesRead <= 0) {
+				endOfFile = true;
+				return false;
+			}
+			filePosition += bytesRead;
+			// only the last read of a file can return a partial block
+			if (bytesRead % blockSize != 0) {
+				endOfFile = true;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * OutputStream writing a new file with direct IO, one buffer of whole blocks at a time.
+	 */
+	private static final class DirectOutputStream extends OutputStream {
+		private final FileChannel channel;
+		private final int blockSize;
+		/** Aligned buffer collecting bytes until it is full */
+		private final ByteBuffer buffer;
+		/** The file position the buffer will be written at, always a whole number of blocks */
+		private long filePosition = 0;
+		/** True once this stream is closed */
+		private boolean closed = false;
+
+		private DirectOutputStream(final FileChannel channel, final int blockSize, final int bufferSize) {
+			this.channel = channel;
+			this.blockSize = blockSize;
+			this.buffer = allocateAligned(blockSize, bufferSize);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			buffer.put((byte) b);
+			if (!buffer.hasRemaining()) {
+				writeBuffer();
+			}
+		}
+
+		@Override
+		public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+			int written = 0;
+			while (written < length) {
+				final int bytesToPut = Math.min(length - written, buffer.remaining());
+				buffer.put(bytes, offset + written, bytesToPut);
+				written += bytesToPut;
+				if (!buffer.hasRemaining()) {
+					writeBuffer();
+				}
+			}
+		}
+
+		/**
+		 * Does nothing, as direct IO can only write whole blocks. All bytes are written when the stream is closed.
+		 */
+		@Override
+		public void flush() {
+			// nothing to do, partial blocks are written on close
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				// pad the last partial block with zeros, write it then truncate the file back to the real length
+				final int length = buffer.position();
+				if (length > 0) {
+					final int paddedLength = (length + blockSize - 1) / blockSize * blockSize;
+					while (buffer.position() < paddedLength) {
+						buffer.put((byte) 0);
+					}
+					writeBuffer();
+					final long fileLength = filePosition - paddedLength + length;
+					if (fileLength != filePosition) {
+						channel.truncate(fileLength);
+					}
+				}
+			} finally {
+				channel.close();
+			}
+		}
+
+		/**
+		 * Write the buffer contents, a whole number of blocks, to the file and clear it.
+		 */
+		private void writeBuffer() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				filePosition += channel.write(buffer, filePosition);
+			}
+			buffer.clear();
+		}
+	}
+}
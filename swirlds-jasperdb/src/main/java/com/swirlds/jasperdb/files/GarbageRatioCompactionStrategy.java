@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.jasperdb.files;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.swirlds.jasperdb.files.DataFileCommon.newestFilesSmallerThan;
+
+/**
+ * A {@link CompactionStrategy} that merges the files holding the most garbage, data items no index points to any more.
+ * <p>
+ * Files are ordered by creation time and every contiguous run of between minNumberOfFilesInMerge and
+ * maxNumberOfFilesInMerge files is considered. Of the runs where at least garbageRatioThreshold of the bytes are
+ * estimated to be garbage, the one that frees the most bytes is merged. Requiring a minimum garbage ratio bounds the
+ * write amplification of a merge, as at most 1 / garbageRatioThreshold bytes are rewritten for each byte freed.
+ * <p>
+ * When no run has enough garbage, the newest files smaller than smallFileCutoffMb are merged instead, like a time based
+ * small merge. This keeps the number of small files written by frequent saves down, so the files form size tiers
+ * even when there is little garbage.
+ */
+@SuppressWarnings("rawtypes")
+public final class GarbageRatioCompactionStrategy implements CompactionStrategy {
+	/** Comparator for ordering DataFileReaders by file creation time, then by index for files created at once */
+	private static final Comparator<DataFileReader> CREATION_ORDER_COMPARATOR =
+			Comparator.comparing((DataFileReader file) -> file.getMetadata().getCreationDate())
+					.thenComparingInt(DataFileReader::getIndex);
+
+	/** The minimum estimated fraction of bytes in a run of files that must be garbage for it to be merged */
+	private final double garbageRatioThreshold;
+	/** The minimum number of files to merge at once, at least two */
+	private final int minNumberOfFilesInMerge;
+	/** The maximum number of files to merge at once */
+	private final int maxNumberOfFilesInMerge;
+	/** The filter for choosing small files to merge when no run of files has enough garbage */
+	private final CompactionStrategy smallFilesStrategy;
+
+	/**
+	 * Create a new GarbageRatioCompactionStrategy
+	 *
+	 * @param garbageRatioThreshold
+	 * 		the minimum estimated fraction of bytes in a run of files that must be garbage for it to be merged
+	 * @param smallFileCutoffMb
+	 * 		files smaller than this are merged when no run of files has enough garbage
+	 * @param minNumberOfFilesInMerge
+	 * 		the minimum number of files to merge at once
+	 * @param maxNumberOfFilesInMerge
+	 * 		the maximum number of files to merge at once
+	 */
+	public GarbageRatioCompactionStrategy(final double garbageRatioThreshold, final int smallFileCutoffMb,
+			final int minNumberOfFilesInMerge, final int maxNumberOfFilesInMerge) {
+		if (garbageRatioThreshold <= 0 || garbageRatioThreshold > 1) {
+			throw new IllegalArgumentException("garbageRatioThreshold must be in (0, 1], was " + garbageRatioThreshold);
+		}
+		this.garbageRatioThreshold = garbageRatioThreshold;
+		this.minNumberOfFilesInMerge = Math.max(2, minNumberOfFilesInMerge);
+		this.maxNumberOfFilesInMerge = Math.max(this.minNumberOfFilesInMerge, maxNumberOfFilesInMerge);
+		this.smallFilesStrategy = newestFilesSmallerThan(smallFileCutoffMb, this.maxNumberOfFilesInMerge)::apply;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<DataFileReader> selectFilesToMerge(final List<DataFileReader> filesAvailableForMerge) {
+		final List<DataFileReader> files = filesAvailableForMerge.stream().sorted(CREATION_ORDER_COMPARATOR).toList();
+		final int numOfFiles = files.size();
+		final long[] sizes = new long[numOfFiles];
+		final long[] garbageSizes = new long[numOfFiles];
+		for (int i = 0; i < numOfFiles; i++) {
+			final DataFileReader file = files.get(i);
+			sizes[i] = file.getSize();
+			garbageSizes[i] = Math.round(sizes[i] * file.getGarbageRatio());
+		}
+		// find the contiguous run of files with enough garbage that frees the most bytes
+		int bestStart = -1;
+		int bestEnd = -1;
+		long bestGarbageSize = 0;
+		for (int start = 0; start < numOfFiles; start++) {
+			long runSize = 0;
+			long runGarbageSize = 0;
+			final int lastEnd = Math.min(numOfFiles, start + maxNumberOfFilesInMerge);
+			for (int end = start; end < lastEnd; end++) {
+				runSize += sizes[end];
+				runGarbageSize += garbageSizes[end];
+				if (end - start + 1 >= minNumberOfFilesInMerge && runGarbageSize > bestGarbageSize
+						&& runGarbageSize >= runSize * garbageRatioThreshold) {
+					bestStart = start;
+					bestEnd = end;
+					bestGarbageSize = runGarbageSize;
+				}
+			}
+		}
+		if (bestStart >= 0) {
+			return files.subList(bestStart, bestEnd + 1);
+		}
+		// not enough garbage anywhere, so just merge small new files
+		final List<DataFileReader> smallFiles = smallFilesStrategy.selectFilesToMerge(filesAvailableForMerge);
+		return smallFiles.size() >= minNumberOfFilesInMerge ? smallFiles : Collections.emptyList();
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+package com.swirlds.jasperdb.files;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simple thread safe limiter for a shared IO bandwidth budget. Each caller reserves the time slot its bytes need at the
+ * configured rate and sleeps until that slot starts, so concurrent users share the budget fairly in arrival order.
+ * <p>
+ * Callers should acquire bytes in chunks of a reasonable size rather than per data item, so the cost of sleeping is
+ * small compared to the IO being limited.
+ */
+public final class IoBandwidthLimiter {
+	/** Nanoseconds in one second */
+	private static final long NANOSECONDS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+	/**
+	 * The most time a limiter can bank while idle. This allows a short burst after a quiet period without letting a
+	 * long idle period turn into an unlimited burst.
+	 */
+	private static final long MAX_BANKED_NANOSECONDS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/** The maximum bytes per second, zero or less means unlimited */
+	private final long bytesPerSecond;
+	/** The System.nanoTime() at which the next reservation can start, guarded by this */
+	private long nextFreeNanos = System.nanoTime();
+
+	/**
+	 * Create a new IoBandwidthLimiter
+	 *
+	 * @param bytesPerSecond
+	 * 		the maximum bytes per second, zero or less means unlimited
+	 */
+	public IoBandwidthLimiter(final long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * Get if this limiter actually limits anything
+	 *
+	 * @return true if there is a bandwidth limit
+	 */
+	public boolean isLimited() {
+		return bytesPerSecond > 0;
+	}
+
+	/**
+	 * Account for the given number of bytes, sleeping if needed to keep within the bandwidth budget.
+	 *
+	 * @param bytes
+	 * 		the number of bytes read or written
+	 * @throws InterruptedException
+	 * 		if the thread was interrupted while waiting
+	 */
+	public void acquire(final long bytes) throws InterruptedException {
+		if (bytesPerSecond <= 0 || bytes <= 0) {
+			return;
+		}
+		final long waitNanos;
+		synchronized (this) {
+			final long now = System.nanoTime();
+			final long start = Math.max(nextFreeNanos, now - MAX_BANKED_NANOSECONDS);
+			nextFreeNanos = start + (long) ((double) bytes * NANOSECONDS_PER_SECOND / bytesPerSecond);
+			waitNanos = nextFreeNanos - now;
+		}
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+}
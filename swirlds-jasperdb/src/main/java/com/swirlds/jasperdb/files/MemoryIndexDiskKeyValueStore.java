@@ -27,12 +27,21 @@ import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 import static com.swirlds.jasperdb.files.DataFileCommon.dataLocationToString;
 import static com.swirlds.jasperdb.files.DataFileCommon.fileIndexFromDataLocation;
@@ -64,6 +73,10 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
 	 * This is useful for debugging and validating but is too expensive to enable in production.
 	 */
 	protected static boolean enableDeepValidation = LOG.isTraceEnabled();
+	/** The number of data items serialized together as a single task by putAll() */
+	private static final int SERIALIZATION_BATCH_SIZE = 1024;
+	/** The initial capacity of the buffer a batch of data items is serialized into, it grows as needed */
+	private static final int SERIALIZATION_BATCH_INITIAL_BYTES = 64 * 1024;
 	/**
 	 * Index mapping, it uses our key as the index within the list and the value is the dataLocation in fileCollection
 	 * where the key/value pair is stored.
@@ -76,6 +89,8 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
 	 * identifying what files are used by what part of the code.
 	 */
 	private final String storeName;
+	/** Serializer for data items, used to serialize data items on other threads in putAll() */
+	private final DataItemSerializer<D> dataItemSerializer;
 
 	/**
 	 * Construct a new MemoryIndexDiskKeyValueStore
@@ -87,7 +102,9 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
 	 * @param dataItemSerializer
 	 * 		Serializer for converting raw data to/from data items
 	 * @param loadedDataCallback
-	 * 		call back for handing loaded data from existing files on startup. Can be null if not needed.
+	 * 		call back for handing loaded data from existing files on startup. Can be null if not needed. It is only
+	 * 		called for the current data item for each key and is called from many threads at once, so must be thread
+	 * 		safe.
 	 * @param keyToDiskLocationIndex
 	 * 		The index to use for keys to disk locations. Having this passed in allows multiple
 	 * 		MemoryIndexDiskKeyValueStore stores to share the same index if there key ranges do not overlap. For example
@@ -102,27 +119,58 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
 			final DataItemSerializer<D> dataItemSerializer,
 			final LoadedDataCallback loadedDataCallback,
 			final LongList keyToDiskLocationIndex) throws IOException {
+		this(storeDir, storeName, dataItemSerializer, loadedDataCallback, keyToDiskLocationIndex, false);
+	}
+
+	/**
+	 * Construct a new MemoryIndexDiskKeyValueStore
+	 *
+	 * @param storeDir
+	 * 		The directory to store data files in
+	 * @param storeName
+	 * 		The name for the data store, this allows more than one data store in a single directory.
+	 * @param dataItemSerializer
+	 * 		Serializer for converting raw data to/from data items
+	 * @param loadedDataCallback
+	 * 		call back for handing loaded data from existing files on startup. Can be null if not needed. It is only
+	 * 		called for the current data item for each key and is called from many threads at once, so must be thread
+	 * 		safe.
+	 * @param keyToDiskLocationIndex
+	 * 		The index to use for keys to disk locations. Having this passed in allows multiple
+	 * 		MemoryIndexDiskKeyValueStore stores to share the same index if there key ranges do not overlap. For example
+	 * 		with internal node and leaf paths in a virtual map tree. It also lets the caller decide the LongList
+	 * 		implementation to use. This does mean the caller is responsible for snapshot of the index.
+	 * @param blockCompressed
+	 * 		True if new data files should be written block compressed
+	 * @throws IOException
+	 * 		If there was a problem opening data files
+	 */
+	public MemoryIndexDiskKeyValueStore(
+			final Path storeDir,
+			final String storeName,
+			final DataItemSerializer<D> dataItemSerializer,
+			final LoadedDataCallback loadedDataCallback,
+			final LongList keyToDiskLocationIndex,
+			final boolean blockCompressed) throws IOException {
 		this.storeName = storeName;
 		this.index = keyToDiskLocationIndex;
+		this.dataItemSerializer = dataItemSerializer;
 		final boolean indexIsEmpty = keyToDiskLocationIndex.size() == 0;
 		// create store dir
 		Files.createDirectories(storeDir);
-		// rebuild index as well as calling user's loadedDataCallback if needed
-		final LoadedDataCallback combinedLoadedDataCallback;
-		if (!indexIsEmpty && loadedDataCallback == null) {
-			combinedLoadedDataCallback = null;
-		} else {
-			combinedLoadedDataCallback = (key, dataLocation, dataValue) -> {
-				if (indexIsEmpty) {
-					index.put(key, dataLocation);
-				}
-				if (loadedDataCallback != null) {
-					loadedDataCallback.newIndexEntry(key, dataLocation, dataValue);
-				}
-			};
-		}
 		// create file collection
-		fileCollection = new DataFileCollection<>(storeDir, storeName, dataItemSerializer, combinedLoadedDataCallback);
+		fileCollection = new DataFileCollection<>(storeDir, storeName, dataItemSerializer, null, blockCompressed);
+		// rebuild index as well as calling user's loadedDataCallback if needed, reading all files in parallel
+		if (fileCollection.isLoadedFromExistingFiles()) {
+			if (indexIsEmpty) {
+				fileCollection.rebuildIndex(index);
+			}
+			if (loadedDataCallback != null) {
+				fileCollection.forEachIndexedDataItem(index, loadedDataCallback);
+			}
+			// garbage counts are not saved, so count them from the index
+			fileCollection.countGarbageDataItems(index);
+		}
 	}
 
 	/**
@@ -161,6 +209,10 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
 				// update index with all moved data
 				moves -> moves.forEach((key, oldValue, newValue) -> {
 					boolean casSuccessful = index.putIfEqual(key, oldValue, newValue);
+					if (!casSuccessful) {
+						// the key was written again during the merge, so the merged copy is already garbage
+						fileCollection.addGarbageDataItem(newValue);
+					}
 					if (enableDeepValidation) {
 						checkItem(casSuccessful, key, oldValue, newValue);
 					}
@@ -199,7 +251,61 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
 	public void put(final long key, final D dataItem) throws IOException {
 		long dataLocation = fileCollection.storeDataItem(dataItem);
 		// store data location in index
-		index.put(key, dataLocation);
+		fileCollection.updateIndex(index, key, dataLocation);
+	}
+
+	/**
+	 * Put many values into this store, you must be in a writing session started with startWriting(). Data items are
+	 * serialized in batches on serializationExecutor, while the calling thread writes the serialized batches to the
+	 * current file in order. The index is only updated once all data items have been written, in a single pass at the
+	 * end of this call.
+	 *
+	 * @param dataItems
+	 * 		The data items to store, this is only iterated on the calling thread
+	 * @param keyFunction
+	 * 		Function to get the key to store a data item for
+	 * @param serializationExecutor
+	 * 		Executor to serialize batches of data items on
+	 * @param serializationThreads
+	 * 		The number of threads in serializationExecutor, this bounds how many batches are serialized ahead of writing
+	 * @throws IOException
+	 * 		If there was a problem serializing or writing the data items
+	 */
+	public void putAll(final Iterator<D> dataItems, final ToLongFunction<D> keyFunction,
+			final ExecutorService serializationExecutor, final int serializationThreads) throws IOException {
+		// allow each thread to have one batch queued behind the one it is serializing
+		final int maxBatchesInFlight = Math.max(2, serializationThreads * 2);
+		final Deque<Future<SerializedBatch>> batchesInFlight = new ArrayDeque<>(maxBatchesInFlight);
+		final List<SerializedBatch> writtenBatches = new ArrayList<>();
+		try {
+			while (dataItems.hasNext()) {
+				final long[] keys = new long[SERIALIZATION_BATCH_SIZE];
+				final List<D> batchDataItems = new ArrayList<>(SERIALIZATION_BATCH_SIZE);
+				while (batchDataItems.size() < SERIALIZATION_BATCH_SIZE && dataItems.hasNext()) {
+					final D dataItem = dataItems.next();
+					keys[batchDataItems.size()] = keyFunction.applyAsLong(dataItem);
+					batchDataItems.add(dataItem);
+				}
+				batchesInFlight.add(serializationExecutor.submit(() -> serializeBatch(keys, batchDataItems)));
+				if (batchesInFlight.size() >= maxBatchesInFlight) {
+					writtenBatches.add(writeBatch(batchesInFlight.poll()));
+				}
+			}
+			while (!batchesInFlight.isEmpty()) {
+				writtenBatches.add(writeBatch(batchesInFlight.poll()));
+			}
+		} finally {
+			// batches are only left over if writing failed, so stop serializing them
+			for (final Future<SerializedBatch> batch : batchesInFlight) {
+				batch.cancel(false);
+			}
+		}
+		// all the data items are written, so publish their locations in the index
+		for (final SerializedBatch batch : writtenBatches) {
+			for (int i = 0; i < batch.dataItemCount; i++) {
+				fileCollection.updateIndex(index, batch.keys[i], batch.dataLocations[i]);
+			}
+		}
 	}
 
 	/**
@@ -213,6 +319,7 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
 	 * 		If there was a problem closing the writing session
 	 */
 	public void endWriting(final long minimumValidKey, final long maximumValidKey) throws IOException {
+		fileCollection.addGarbageForKeysLeavingRange(index, minimumValidKey, maximumValidKey);
 		final DataFileReader<D> dataFileReader = fileCollection.endWriting(minimumValidKey, maximumValidKey);
 		// we have updated all indexes so the data file can now be included in merges
 		dataFileReader.setFileAvailableForMerging(true);
@@ -244,6 +351,39 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
 		return fileCollection.readDataItemUsingIndex(index, key);
 	}
 
+	/**
+	 * Get a batch of values by reading them from disk. Reads are sorted by file and offset, adjacent reads are
+	 * coalesced and files are read in parallel, so this is much cheaper than calling {@link #get(long)} for each key.
+	 *
+	 * @param keys
+	 * 		The keys to find and read values for
+	 * @return list of values in the same order as keys, with null for any key that was not found
+	 * @throws IOException
+	 * 		If there was a problem reading the values from file
+	 */
+	public List<D> get(final long[] keys) throws IOException {
+		final KeyRange keyRange = fileCollection.getValidKeyRange();
+		final long[] keysInRange = new long[keys.length];
+		int keysInRangeCount = 0;
+		for (final long key : keys) {
+			if (keyRange.withinRange(key)) {
+				keysInRange[keysInRangeCount++] = key;
+			}
+		}
+		if (keysInRangeCount == keys.length) {
+			return fileCollection.readDataItemsUsingIndex(index, keys);
+		}
+		// fill in nulls for keys that are outside valid key range
+		final List<D> dataItemsInRange = fileCollection.readDataItemsUsingIndex(index,
+				Arrays.copyOf(keysInRange, keysInRangeCount));
+		final List<D> dataItems = new ArrayList<>(keys.length);
+		int inRangeIndex = 0;
+		for (final long key : keys) {
+			dataItems.add(keyRange.withinRange(key) ? dataItemsInRange.get(inRangeIndex++) : null);
+		}
+		return dataItems;
+	}
+
 	/**
 	 * Close all files being used
 	 *
@@ -306,6 +446,112 @@ public class MemoryIndexDiskKeyValueStore<D> implements AutoCloseable, Snapshota
 		return fileCollection.getAllFullyWrittenFilesSizeStatistics();
 	}
 
+	/**
+	 * Get an estimate of how many bytes of all files hold data items the index still points to
+	 *
+	 * @return estimated size of live data in bytes
+	 */
+	public long getLiveDataSizeEstimate() {
+		return fileCollection.getLiveDataSizeEstimate();
+	}
+
+	/**
+	 * Get the total bytes of data files written by writing sessions since this store was opened
+	 *
+	 * @return bytes written by saves
+	 */
+	public long getBytesWrittenBySaves() {
+		return fileCollection.getBytesWrittenBySaves();
+	}
+
+	/**
+	 * Get the total bytes of data files written by merges since this store was opened
+	 *
+	 * @return bytes written by merges
+	 */
+	public long getBytesWrittenByMerges() {
+		return fileCollection.getBytesWrittenByMerges();
+	}
+
+	// =================================================================================================================
+	// Pipelined writing, used by putAll()
+
+	/**
+	 * Serialize a batch of data items into a single buffer. This is called on the serialization executor, serializers
+	 * are thread safe.
+	 *
+	 * @param keys
+	 * 		the keys for the data items, its length can be more than the number of data items
+	 * @param dataItems
+	 * 		the data items to serialize
+	 * @return the serialized batch, ready to be written
+	 * @throws IOException
+	 * 		if there was a problem serializing a data item
+	 */
+	private SerializedBatch serializeBatch(final long[] keys, final List<D> dataItems) throws IOException {
+		final DataFileOutputStream serializedData = new DataFileOutputStream(SERIALIZATION_BATCH_INITIAL_BYTES);
+		final int[] dataItemSizes = new int[dataItems.size()];
+		for (int i = 0; i < dataItemSizes.length; i++) {
+			dataItemSizes[i] = dataItemSerializer.serialize(dataItems.get(i), serializedData);
+		}
+		return new SerializedBatch(keys, dataItemSizes, serializedData);
+	}
+
+	/**
+	 * Wait for a batch to be serialized then write all its data items to the current file, recording their data
+	 * locations in the batch.
+	 *
+	 * @param serializingBatch
+	 * 		future for the batch being serialized
+	 * @return the written batch, with its data locations set
+	 * @throws IOException
+	 * 		if serializing the batch failed or there was a problem writing it
+	 */
+	private SerializedBatch writeBatch(final Future<SerializedBatch> serializingBatch) throws IOException {
+		final SerializedBatch batch;
+		try {
+			batch = serializingBatch.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("[" + storeName + "] Interrupted while waiting for data items to be serialized", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("[" + storeName + "] Failed to serialize data items", e.getCause());
+		}
+		fileCollection.storeSerializedDataItems(batch.serializedData.asByteBuffer(), batch.dataItemSizes,
+				batch.dataLocations);
+		// the serialized data is not needed any more, only the keys and data locations
+		batch.serializedData = null;
+		return batch;
+	}
+
+	/**
+	 * A batch of data items serialized into a single buffer, and once written, the data locations they were written to.
+	 */
+	private static final class SerializedBatch {
+		/** The keys of the data items, only the first dataItemCount are used */
+		private final long[] keys;
+		/** The number of data items in this batch */
+		private final int dataItemCount;
+		/** The serialized size in bytes of each data item */
+		private final int[] dataItemSizes;
+		/** The data locations the data items were written to, set once the batch is written */
+		private final long[] dataLocations;
+		/** All the data items serialized one after another, null once the batch is written */
+		private DataFileOutputStream serializedData;
+
+		private SerializedBatch(final long[] keys, final int[] dataItemSizes,
+				final DataFileOutputStream serializedData) {
+			this.keys = keys;
+			this.dataItemCount = dataItemSizes.length;
+			this.dataItemSizes = dataItemSizes;
+			this.dataLocations = new long[dataItemCount];
+			this.serializedData = serializedData;
+		}
+	}
+
 	// =================================================================================================================
 	// Debugging Tools, these can be enabled with the ENABLE_DEEP_VALIDATION flag above
 
@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 
 import static com.swirlds.jasperdb.files.hashmap.HalfDiskHashMap.KEY_HASHCODE_SIZE;
 import static com.swirlds.jasperdb.files.hashmap.HalfDiskHashMap.SPECIAL_DELETE_ME_VALUE;
@@ -36,6 +38,11 @@ import static com.swirlds.logging.LogMarker.JASPER_DB;
 /**
  * Class for accessing the data in a bucket. This is designed to be used from a single thread.
  * <p>
+ * A bucket is a flyweight over its serialized bytes, entries are never deserialized into objects. Lookups compare key
+ * hash codes first and then the serialized key bytes through the KeySerializer, so no keys are created. A bucket read
+ * from a data file wraps the read buffer rather than copying it, and is only copied into the bucket's own buffer when
+ * it is first changed. After that entries are appended, updated and removed in place.
+ * <p>
  * Each bucket has a header containing:
  * <ul>
  *     <li><b>int</b> - Bucket index in map hash index</li>
@@ -74,7 +81,10 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 	private static final AtomicInteger LARGEST_SIZE_OF_BUCKET_CREATED = new AtomicInteger(0);
 
 	private int keySerializationVersion;
+	/** The buffer containing this bucket's data, either ownedBuffer or a wrapped buffer of read data */
 	private ByteBuffer bucketBuffer;
+	/** Buffer owned by this bucket that changes are made in, it is reused for the life of this bucket */
+	private ByteBuffer ownedBuffer;
 	private KeySerializer<K> keySerializer;
 	private final DataFileOutputStream reusableDataFileOutputStream;
 
@@ -86,7 +96,8 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 	 */
 	Bucket(KeySerializer<K> keySerializer) {
 		setKeySerializer(keySerializer);
-		bucketBuffer = ByteBuffer.allocate(DEFAULT_BUCKET_BUFFER_SIZE);
+		ownedBuffer = ByteBuffer.allocate(DEFAULT_BUCKET_BUFFER_SIZE);
+		bucketBuffer = ownedBuffer;
 		setSize(BUCKET_HEADER_SIZE);
 		setBucketIndex(-1);
 		reusableDataFileOutputStream = new DataFileOutputStream(keySerializer.getTypicalSerializedSize());
@@ -98,6 +109,8 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 	 * @return this bucket for each chaining
 	 */
 	public Bucket<K> clear() {
+		// stop using any wrapped data
+		bucketBuffer = ownedBuffer;
 		// clear index
 		setBucketIndex(-1);
 		// set 0 for entry count
@@ -142,6 +155,7 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 	 * Set the index for this bucket
 	 */
 	public void setBucketIndex(int bucketIndex) {
+		ensureOwnedBuffer();
 		this.bucketBuffer.putInt(0, bucketIndex);
 	}
 
@@ -156,6 +170,7 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 	 * Set the number of entries stored in this bucket
 	 */
 	public void setBucketEntryCount(int count) {
+		ensureOwnedBuffer();
 		this.bucketBuffer.putInt(BUCKET_ENTRY_COUNT_OFFSET, count);
 	}
 
@@ -214,13 +229,9 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 			final K key,
 			final long notFoundValue
 	) throws IOException {
-		final FindResult found = findEntryOffset(keyHashCode, key);
-		if (found.found) {
-			// yay! we found it
-			return getValue(found.entryOffset);
-		} else {
-			return notFoundValue;
-		}
+		final int entryOffset = findEntryOffset(keyHashCode, key);
+		// yay! we found it if the offset is not negative
+		return entryOffset >= 0 ? getValue(entryOffset) : notFoundValue;
 	}
 
 	/**
@@ -236,24 +247,25 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 			// scan over all existing key/value entries and see if there is already one for this key. If there is
 			// then update it, otherwise we have at least worked out the entryOffset for the end of existing entries
 			// and can use that for appending a new entry if there is room
-			final FindResult result = findEntryOffset(keyHashCode, key);
+			final int foundEntryOffset = findEntryOffset(keyHashCode, key);
+			final boolean found = foundEntryOffset >= 0;
+			final int entryOffset = found ? foundEntryOffset : -foundEntryOffset - 1;
 			// handle DELETE
 			if (value == SPECIAL_DELETE_ME_VALUE) {
-				if (result.found) {
-					final int entryCount = getBucketEntryCount();
+				if (found) {
+					ensureOwnedBuffer();
 					final int currentSize = getSize();
 					// read the key size so we can calculate entry size
-					final int entrySize = KEY_HASHCODE_SIZE + VALUE_SIZE + getKeySize(result.entryOffset);
+					final int entrySize = KEY_HASHCODE_SIZE + VALUE_SIZE + getKeySize(entryOffset);
 					// check if not last entry
-					if (result.entryIndex < (entryCount - 1)) {
+					final int offsetOfNextEntry = entryOffset + entrySize;
+					if (offsetOfNextEntry < currentSize) {
 						// move all entries after this one up
-						final int offsetOfNextEntry = result.entryOffset + entrySize;
 						final int sizeOfEntriesToMove = currentSize - offsetOfNextEntry;
 						//  FUTURE WORK For Java 17 do this https://github.com/swirlds/swirlds-platform/issues/4090
-						// bucketBuffer.put(result.entryOffset,bucketBuffer,offsetOfNextEntry,sizeOfEntriesToMove);
+						// bucketBuffer.put(entryOffset,bucketBuffer,offsetOfNextEntry,sizeOfEntriesToMove);
 						final byte[] bucketBytes = bucketBuffer.array();
-						System.arraycopy(bucketBytes, offsetOfNextEntry,
-								bucketBytes, result.entryOffset, sizeOfEntriesToMove);
+						System.arraycopy(bucketBytes, offsetOfNextEntry, bucketBytes, entryOffset, sizeOfEntriesToMove);
 					}
 					// decrement count
 					decrementBucketEntryCount();
@@ -267,9 +279,10 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 				}
 			}
 			// handle UPDATE
-			if (result.found) {
+			ensureOwnedBuffer();
+			if (found) {
 				// yay! we found it, so update value
-				setValue(result.entryOffset, value);
+				setValue(entryOffset, value);
 				return;
 			}
 			/* We have to serialize a variable-size key to a temp byte buffer to check
@@ -279,23 +292,23 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 				key.serialize(reusableDataFileOutputStream);
 				reusableDataFileOutputStream.flush();
 				final int keySizeBytes = reusableDataFileOutputStream.bytesWritten();
-				final int newSize = result.entryOffset + KEY_HASHCODE_SIZE + VALUE_SIZE + keySizeBytes;
+				final int newSize = entryOffset + KEY_HASHCODE_SIZE + VALUE_SIZE + keySizeBytes;
 				ensureCapacity(newSize);
 				setSize(newSize);
 				// add a new entry
-				bucketBuffer.position(result.entryOffset);
+				bucketBuffer.position(entryOffset);
 				bucketBuffer.putInt(keyHashCode);
 				bucketBuffer.putLong(value);
 				reusableDataFileOutputStream.writeTo(bucketBuffer);
 				// increment count and update size
 				incrementBucketEntryCount();
 			} else {
-				final int newSize = result.entryOffset + KEY_HASHCODE_SIZE + VALUE_SIZE +
+				final int newSize = entryOffset + KEY_HASHCODE_SIZE + VALUE_SIZE +
 						keySerializer.getSerializedSize();
 				ensureCapacity(newSize);
 				setSize(newSize);
 				// add a new entry
-				bucketBuffer.position(result.entryOffset);
+				bucketBuffer.position(entryOffset);
 				bucketBuffer.putInt(keyHashCode);
 				bucketBuffer.putLong(value);
 				key.serialize(bucketBuffer);
@@ -315,11 +328,24 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 	 * 		Buffer containing new data for this bucket
 	 */
 	public void putAllData(ByteBuffer dataBuffer) {
+		bucketBuffer = ownedBuffer;
 		ensureCapacity(dataBuffer.limit());
-		/* FUTURE WORK - https://github.com/swirlds/swirlds-platform/issues/3939 Maybe we should wrap not copy buffer */
 		bucketBuffer.rewind().put(dataBuffer);
 	}
 
+	/**
+	 * Use the data contained in the given ByteBuffer for this bucket without copying it. The buffer is only read from,
+	 * it is copied into this bucket's own buffer the first time this bucket is changed. So the buffer contents must not
+	 * change while this bucket is in use, read buffers that are reused per thread are fine as long as this bucket is
+	 * not used after the thread's next read.
+	 *
+	 * @param dataBuffer
+	 * 		Buffer containing the data for this bucket, from its position to its limit
+	 */
+	public void wrapData(ByteBuffer dataBuffer) {
+		bucketBuffer = dataBuffer.position() == 0 ? dataBuffer : dataBuffer.slice();
+	}
+
 	/**
 	 * Write the complete data bytes for this bucket to a output stream.
 	 *
@@ -330,16 +356,103 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 	 * 		If there was a problem writing
 	 */
 	public int writeToOutputStream(final SerializableDataOutputStream outputStream) throws IOException {
+		ensureOwnedBuffer();
 		final int bucketSize = getSize();
 		outputStream.write(bucketBuffer.array(), 0, bucketSize);
 		return bucketSize;
 	}
 
+	/**
+	 * Call the given consumer with the key hash code of every entry in this bucket
+	 *
+	 * @param keyHashCodeConsumer
+	 * 		consumer for key hash codes
+	 */
+	public void forEachKeyHashCode(final IntConsumer keyHashCodeConsumer) {
+		final int entryCount = getBucketEntryCount();
+		int entryOffset = BUCKET_HEADER_SIZE;
+		for (int i = 0; i < entryCount; i++) {
+			keyHashCodeConsumer.accept(bucketBuffer.getInt(entryOffset));
+			entryOffset += KEY_HASHCODE_SIZE + VALUE_SIZE + getKeySize(entryOffset);
+		}
+	}
+
+	/**
+	 * Move all entries whose key hash code matches the given filter out of this bucket and append them to the target
+	 * bucket. Entries are copied as raw bytes so keys are never deserialized. Entries that stay in this bucket are
+	 * compacted so that they keep their relative order. This is used when splitting a bucket while growing a
+	 * HalfDiskHashMap.
+	 *
+	 * @param target
+	 * 		the bucket to append moved entries to, its bucket index should already be set
+	 * @param moveFilter
+	 * 		returns true for key hash codes whose entries should be moved to target
+	 * @return the number of entries that were moved
+	 */
+	public int moveEntriesTo(final Bucket<K> target, final IntPredicate moveFilter) {
+		ensureOwnedBuffer();
+		final int entryCount = getBucketEntryCount();
+		final byte[] bucketBytes = bucketBuffer.array();
+		int readOffset = BUCKET_HEADER_SIZE;
+		int writeOffset = BUCKET_HEADER_SIZE;
+		int movedCount = 0;
+		for (int i = 0; i < entryCount; i++) {
+			final int entrySize = KEY_HASHCODE_SIZE + VALUE_SIZE + getKeySize(readOffset);
+			if (moveFilter.test(bucketBuffer.getInt(readOffset))) {
+				target.appendRawEntry(bucketBytes, readOffset, entrySize);
+				movedCount++;
+			} else {
+				if (writeOffset != readOffset) {
+					System.arraycopy(bucketBytes, readOffset, bucketBytes, writeOffset, entrySize);
+				}
+				writeOffset += entrySize;
+			}
+			readOffset += entrySize;
+		}
+		setBucketEntryCount(entryCount - movedCount);
+		setSize(writeOffset);
+		return movedCount;
+	}
+
 	// =================================================================================================================
 	// Private API
 
 	/**
-	 * Expand the capacity of this bucket to make sure it is at least big enough to contain neededSize
+	 * Append a complete serialized entry to the end of this bucket
+	 *
+	 * @param entryBytes
+	 * 		array containing the entry
+	 * @param entryOffset
+	 * 		the offset of the entry in entryBytes
+	 * @param entrySize
+	 * 		the size of the entry in bytes, including key hash code and value
+	 */
+	private void appendRawEntry(final byte[] entryBytes, final int entryOffset, final int entrySize) {
+		ensureOwnedBuffer();
+		final int currentSize = getSize();
+		final int newSize = currentSize + entrySize;
+		ensureCapacity(newSize);
+		System.arraycopy(entryBytes, entryOffset, bucketBuffer.array(), currentSize, entrySize);
+		setSize(newSize);
+		incrementBucketEntryCount();
+	}
+
+	/**
+	 * Make sure this bucket's data is in its own buffer so it can be changed, copying wrapped data if needed
+	 */
+	private void ensureOwnedBuffer() {
+		if (bucketBuffer != ownedBuffer) {
+			final ByteBuffer wrappedBuffer = bucketBuffer;
+			final int size = wrappedBuffer.getInt(BUCKET_SIZE_OFFSET);
+			bucketBuffer = ownedBuffer;
+			ensureCapacity(size);
+			bucketBuffer.put(0, wrappedBuffer, 0, size);
+		}
+	}
+
+	/**
+	 * Expand the capacity of this bucket's own buffer to make sure it is at least big enough to contain neededSize.
+	 * This must only be called when this bucket is using its own buffer.
 	 */
 	private void ensureCapacity(int neededSize) {
 		int capacity = bucketBuffer.capacity();
@@ -351,22 +464,24 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 			bucketBuffer.clear();
 			newBucketBuffer.put(bucketBuffer);
 			bucketBuffer = newBucketBuffer;
+			ownedBuffer = newBucketBuffer;
 		}
 	}
 
 	/**
 	 * Find the offset in bucket for an entry matching the given key, if not found then just return the offset for
-	 * the end of all entries.
+	 * the end of all entries. Both are returned in a single int, so finding an entry does not create any objects.
 	 *
 	 * @param keyHashCode
 	 * 		hash code for the key to search for
 	 * @param key
 	 * 		the key to search for
-	 * @return either true and offset for found key entry or false and offset for end of all entries in this bucket
+	 * @return the offset of the found key entry, or if not found (-(offset for end of all entries) - 1), which is
+	 * 		always negative
 	 * @throws IOException
 	 * 		If there was a problem reading bucket
 	 */
-	private FindResult findEntryOffset(final int keyHashCode, final K key) throws IOException {
+	private int findEntryOffset(final int keyHashCode, final K key) throws IOException {
 		final int entryCount = getBucketEntryCount();
 		int entryOffset = BUCKET_HEADER_SIZE;
 		for (int i = 0; i < entryCount; i++) {
@@ -376,7 +491,7 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 				bucketBuffer.position(entryOffset + KEY_HASHCODE_SIZE + VALUE_SIZE);
 				if (keySerializer.equals(bucketBuffer, keySerializationVersion, key)) {
 					// yay! we found it
-					return new FindResult(entryOffset, i, true);
+					return entryOffset;
 				}
 			}
 			// now read the key size so we can jump
@@ -385,7 +500,7 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 			// move to next entry
 			entryOffset += KEY_HASHCODE_SIZE + VALUE_SIZE + keySize;
 		}
-		return new FindResult(entryOffset, -1, false);
+		return -entryOffset - 1;
 	}
 
 	/**
@@ -471,34 +586,13 @@ public final class Bucket<K extends VirtualKey<? super K>> {
 		} catch (IOException e) {
 			LOG.error(EXCEPTION.getMarker(), "Failed enumerating bucket entries", e);
 		}
-		bucketBuffer.clear();
 		sb.append("} RAW DATA = ");
-		final byte[] bucketArray = bucketBuffer.array();
 		for (int i = 0; i < size; i++) {
-			sb.append(String.format("%02X ", bucketArray[i]).toUpperCase());
+			sb.append(String.format("%02X ", bucketBuffer.get(i)).toUpperCase());
 		}
 		return sb.toString();
 	}
 
-
-	// =================================================================================================================
-	// FindResult class
-
-	/**
-	 * Simple struct style data class for allowing return of two things
-	 */
-	private static class FindResult {
-		public final int entryOffset;
-		public final int entryIndex;
-		public final boolean found;
-
-		public FindResult(final int entryOffset, final int entryIndex, final boolean found) {
-			this.entryOffset = entryOffset;
-			this.entryIndex = entryIndex;
-			this.found = found;
-		}
-	}
-
 	/**
 	 * Get bucket buffer for tests
 	 */
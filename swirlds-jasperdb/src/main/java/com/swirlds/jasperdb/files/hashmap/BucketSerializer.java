@@ -102,6 +102,18 @@ public class BucketSerializer<K extends VirtualKey<? super K>> implements DataIt
 		return new DataItemHeader(size, bucketIndex);
 	}
 
+	/**
+	 * Read the size of a data item from its header, without creating a DataItemHeader
+	 *
+	 * @param buffer
+	 * 		Buffer to read from, positioned at the start of the header
+	 * @return the size of the data item in bytes
+	 */
+	@Override
+	public int deserializeSizeBytes(final ByteBuffer buffer) {
+		return buffer.getInt(buffer.position() + Integer.BYTES);
+	}
+
 	/**
 	 * Get if the number of bytes a data item takes when serialized is variable or fixed
 	 *
@@ -132,7 +144,9 @@ public class BucketSerializer<K extends VirtualKey<? super K>> implements DataIt
 	}
 
 	/**
-	 * Deserialize a data item from a byte buffer, that was written with given data version
+	 * Deserialize a data item from a byte buffer, that was written with given data version. The returned bucket is
+	 * reused per thread and wraps the buffer, so it is only valid until the next call on this thread and the buffer
+	 * must not change while it is in use.
 	 *
 	 * @param buffer
 	 * 		The buffer to read from
@@ -143,7 +157,8 @@ public class BucketSerializer<K extends VirtualKey<? super K>> implements DataIt
 	@Override
 	public Bucket<K> deserialize(final ByteBuffer buffer, final long dataVersion) throws IOException {
 		Bucket<K> bucket = getReusableEmptyBucket();
-		bucket.putAllData(buffer);
+		// wrap rather than copy, the bucket is only copied if it is changed
+		bucket.wrapData(buffer);
 		// split bucketSerializationVersion
 		bucket.setKeySerializationVersion((int) (dataVersion >> LOW_ORDER_BYTES_FOR_NON_KEY_SERIALIZATION_VERSION));
 		return bucket;
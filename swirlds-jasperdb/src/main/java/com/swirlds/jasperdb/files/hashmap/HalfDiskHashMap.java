@@ -15,30 +15,43 @@
 package com.swirlds.jasperdb.files.hashmap;
 
 import com.swirlds.common.Units;
+import com.swirlds.common.bloom.BloomFilter;
+import com.swirlds.common.bloom.hasher.IntBloomHasher;
+import com.swirlds.common.io.SerializableDataInputStream;
+import com.swirlds.common.io.SerializableDataOutputStream;
 import com.swirlds.jasperdb.Snapshotable;
+import com.swirlds.jasperdb.collections.LongList;
 import com.swirlds.jasperdb.collections.LongListBufferedWrapper;
-import com.swirlds.jasperdb.collections.LongListDisk;
 import com.swirlds.jasperdb.collections.LongListOffHeap;
 import com.swirlds.jasperdb.files.DataFileCollection;
-import com.swirlds.jasperdb.files.DataFileCollection.LoadedDataCallback;
+import com.swirlds.jasperdb.files.DataFileIterator;
+import com.swirlds.jasperdb.files.DataFileOutputStream;
 import com.swirlds.jasperdb.files.DataFileReader;
+import com.swirlds.jasperdb.settings.JasperDbSettings;
+import com.swirlds.jasperdb.settings.JasperDbSettingsFactory;
 import com.swirlds.virtualmap.VirtualKey;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.collections.api.tuple.primitive.IntObjectPair;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
 import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
+import static com.swirlds.jasperdb.collections.LongListDiskPaged.newDiskLongList;
 import static com.swirlds.jasperdb.files.DataFileCommon.formatSizeBytes;
 import static com.swirlds.jasperdb.files.DataFileCommon.getSizeOfFiles;
 import static com.swirlds.jasperdb.files.DataFileCommon.getSizeOfFilesByPath;
@@ -55,16 +68,50 @@ import static com.swirlds.logging.LogMarker.JASPER_DB;
  * This implementation depends on good hashCode() implementation on the keys, if there are too many hash collisions the
  * performance can get bad.
  * <p>
+ * The number of buckets can grow online using linear hashing. At the end of a writing session, if the average number
+ * of entries per bucket is too high, buckets are split one at a time in index order. Splitting bucket {@code s} when
+ * there are {@code N + s} buckets, where N is the largest power of two less than or equal to the bucket count, moves
+ * all entries with hash bit {@code N} set into the new bucket {@code N + s}. See {@link #computeBucketIndex(int, int)}
+ * for how a key hash is mapped to a bucket for any bucket count.
+ * <p>
  * <b>IMPORTANT: This implementation assumes a single writing thread. There can be multiple readers while writing is
  * happening.</b>
  */
 public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoCloseable, Snapshotable {
 	private static final Logger LOG = LogManager.getLogger(HalfDiskHashMap.class);
 
+	/**
+	 * Since {@code com.swirlds.platform.Browser} populates settings, and it is loaded before
+	 * any application classes that might instantiate a data source, the {@link JasperDbSettingsFactory}
+	 * holder will have been configured by the time this static initializer runs.
+	 */
+	private static final JasperDbSettings settings = JasperDbSettingsFactory.get();
+
 	/**
 	 * The version number for format of current data files
 	 */
-	private static final int METADATA_FILE_FORMAT_VERSION = 1;
+	private static final int METADATA_FILE_FORMAT_VERSION = 2;
+	/**
+	 * The version number for the older metadata format, written before bucket growth was supported. It has no entry
+	 * count and always has a power of two number of buckets, we can still load it.
+	 */
+	private static final int FIXED_BUCKETS_METADATA_FILE_FORMAT_VERSION = 1;
+	/**
+	 * The number of buckets a new map starts with when growth is enabled, unless mapSize needs fewer.
+	 */
+	private static final int INITIAL_NUM_OF_BUCKETS_WHEN_GROWING = 4096;
+	/**
+	 * The upper limit on the number of buckets a map will grow to.
+	 */
+	private static final int MAX_NUM_OF_BUCKETS = 1 << 30;
+	/**
+	 * The maximum size of the key hash Bloom filter in bits, larger map sizes just get a higher false positive rate.
+	 */
+	private static final long MAX_BLOOM_FILTER_SIZE_IN_BITS = 1L << 36;
+	/**
+	 * The initial capacity of the buffer the new upper buckets of a split are serialized into, it grows as needed.
+	 */
+	private static final int SPLIT_UPPER_BUCKETS_INITIAL_BYTES = 64 * 1024;
 	/**
 	 * Each index change includes both a bucket index and bucket location.
 	 */
@@ -85,6 +132,11 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 	private static final long GOOD_AVERAGE_BUCKET_ENTRY_COUNT = 20;
 	/** how full should all available bins be if we are at the specified map size */
 	public static final double LOADING_FACTOR = 0.6;
+	/**
+	 * When growth is enabled, buckets are split while the average number of entries per bucket is above this. It is
+	 * the average fill we would have at mapSize with a fixed bucket count.
+	 */
+	private static final double SPLIT_AVERAGE_BUCKET_ENTRY_COUNT = GOOD_AVERAGE_BUCKET_ENTRY_COUNT * LOADING_FACTOR;
 	/** Long list used for mapping bucketIndex(index into list) to disk location for latest copy of bucket */
 	private final LongListBufferedWrapper bucketIndexToBucketLocation;
 	/** DataFileCollection manages the files storing the buckets on disk */
@@ -92,10 +144,23 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 	/** This is the number of buckets needed to store mapSize entries if we ere only LOADING_FACTOR percent full */
 	private final int minimumBuckets;
 	/**
-	 * This is the next power of 2 bigger than minimumBuckets. It needs to be a power of two, so that we can optimize
-	 * and avoid the cost of doing a % to find the bucket index from hash code.
+	 * The current number of buckets. With a fixed bucket count this is the next power of 2 bigger than minimumBuckets.
+	 * When growing it can be any number, bucket indexes are computed with power of two masks in
+	 * {@link #computeBucketIndex(int, int)} so that we avoid the cost of doing a % to find the bucket index from hash
+	 * code. It is only changed by the writing thread, after the buckets it makes reachable have been written.
+	 */
+	private volatile int numOfBuckets;
+	/**
+	 * The number of entries stored in the map. It is only tracked by the writing thread and is used to decide when to
+	 * split buckets. Maps loaded from the older metadata format, which has no entry count, count it from the buckets.
 	 */
-	private final int numOfBuckets;
+	private long numOfEntries;
+	/** The numOfBuckets captured in startSnapshot() to be written in middleSnapshot() */
+	private int snapshotNumOfBuckets;
+	/** The numOfEntries captured in startSnapshot() to be written in middleSnapshot() */
+	private long snapshotNumOfEntries;
+	/** Copy of the Bloom filter taken in startSnapshot() to be written in middleSnapshot(), null if disabled */
+	private BloomFilter<Integer> snapshotKeyHashBloomFilter;
 	/**
 	 * The requested max size for the map, this is the maximum number of key/values expected to be stored in this map.
 	 */
@@ -103,6 +168,17 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 	/** The name to use for the files prefix on disk */
 	private final String storeName;
 	private final BucketSerializer<K> bucketSerializer;
+	/** Bucket used as the target when splitting, only used by the writing thread */
+	private final Bucket<K> splitBucket;
+	/**
+	 * Bloom filter of the hash codes of all keys put in this map, or null if disabled. Bits are set atomically by the
+	 * writing thread while other threads read them, and are set when a key is put so before the bucket containing it
+	 * is readable. Deleted keys are never removed, so the filter only gets rebuilt to drop them when it is recreated
+	 * from the bucket files on load.
+	 */
+	private final BloomFilter<Integer> keyHashBloomFilter;
+	/** Per thread buffer for Bloom filter hashes, as the BloomFilter's own buffer is not thread safe */
+	private final ThreadLocal<long[]> bloomFilterHashes;
 	/** Store for session data during a writing transaction */
 	private IntObjectHashMap<BucketMutation<K>> oneTransactionsData = null;
 	/** The thread that called startWriting. We use it to check that other writing calls are done on same thread */
@@ -139,20 +215,29 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 		Path indexFile = storeDir.resolve(storeName + "_bucket_index.ll");
 		// create bucket serializer
 		this.bucketSerializer = new BucketSerializer<>(keySerializer);
+		this.splitBucket = new Bucket<>(keySerializer);
 		// load or create new
-		LoadedDataCallback loadedDataCallback;
+		final boolean rebuildIndex;
+		boolean countEntries = false;
 		if (Files.exists(storeDir)) {
 			// load metadata
 			Path metaDataFile = storeDir.resolve(storeName + "_metadata.hdhm");
 			if (Files.exists(metaDataFile)) {
 				try (DataInputStream metaIn = new DataInputStream(Files.newInputStream(metaDataFile))) {
 					final int fileVersion = metaIn.readInt();
-					if (fileVersion != METADATA_FILE_FORMAT_VERSION) {
+					if (fileVersion != METADATA_FILE_FORMAT_VERSION &&
+							fileVersion != FIXED_BUCKETS_METADATA_FILE_FORMAT_VERSION) {
 						throw new IOException("Tried to read a file with incompatible file format version [" +
 								fileVersion + "], expected [" + METADATA_FILE_FORMAT_VERSION + "].");
 					}
 					minimumBuckets = metaIn.readInt();
 					numOfBuckets = metaIn.readInt();
+					// the older format did not store an entry count, so it is counted once the data files are loaded
+					if (fileVersion == METADATA_FILE_FORMAT_VERSION) {
+						numOfEntries = metaIn.readLong();
+					} else {
+						countEntries = true;
+					}
 				}
 			} else {
 				LOG.error(EXCEPTION.getMarker(),
@@ -164,32 +249,69 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 			// load or rebuild index
 			if (Files.exists(indexFile)) {
 				bucketIndexToBucketLocation = new LongListBufferedWrapper(
-						preferDiskBasedIndexes ? new LongListDisk(indexFile) : new LongListOffHeap(indexFile));
-				loadedDataCallback = null;
+						preferDiskBasedIndexes
+								? newDiskLongList(indexFile, settings.getLongListDiskPageCacheMb())
+								: new LongListOffHeap(indexFile));
+				rebuildIndex = false;
 			} else {
-				// create new index and setup call back to rebuild
+				// create new index and rebuild it once the data files are loaded
 				bucketIndexToBucketLocation = new LongListBufferedWrapper(
-						preferDiskBasedIndexes ? new LongListDisk(indexFile) : new LongListOffHeap());
-				loadedDataCallback = (key, dataLocation, dataValue) -> bucketIndexToBucketLocation.put(key,
-						dataLocation);
+						preferDiskBasedIndexes
+								? newDiskLongList(indexFile, settings.getLongListDiskPageCacheMb())
+								: new LongListOffHeap());
+				rebuildIndex = true;
 			}
 		} else {
 			// create store dir
 			Files.createDirectories(storeDir);
 			// create new index
 			bucketIndexToBucketLocation = new LongListBufferedWrapper(
-					preferDiskBasedIndexes ? new LongListDisk(indexFile) : new LongListOffHeap());
+					preferDiskBasedIndexes
+							? newDiskLongList(indexFile, settings.getLongListDiskPageCacheMb())
+							: new LongListOffHeap());
 			// calculate number of entries we can store in a disk page
 			minimumBuckets = (int) Math.ceil((mapSize / LOADING_FACTOR) / GOOD_AVERAGE_BUCKET_ENTRY_COUNT);
 			// numOfBuckets is the nearest power of two greater than minimumBuckets with a min of 4096
 			numOfBuckets = Integer.highestOneBit(minimumBuckets) * 2;
-			// we are new so no need for a loadedDataCallback
-			loadedDataCallback = null;
+			// when growing start small and split buckets as entries are added
+			if (settings.isHalfDiskHashMapGrowthEnabled()) {
+				numOfBuckets = Math.min(numOfBuckets, INITIAL_NUM_OF_BUCKETS_WHEN_GROWING);
+			}
+			// we are new so no need to rebuild the index
+			rebuildIndex = false;
 			LOG.info(JASPER_DB.getMarker(), "HalfDiskHashMap [{}] created with minimumBuckets={} and numOfBuckets={}",
 					storeName, minimumBuckets, numOfBuckets);
 		}
 		// create file collection
-		fileCollection = new DataFileCollection<>(storeDir, storeName, bucketSerializer, loadedDataCallback);
+		fileCollection = new DataFileCollection<>(storeDir, storeName, bucketSerializer, null);
+		if (rebuildIndex) {
+			fileCollection.rebuildIndex(bucketIndexToBucketLocation);
+		}
+		// garbage counts are not saved, so count them from the index
+		fileCollection.countGarbageDataItems(bucketIndexToBucketLocation);
+		if (countEntries) {
+			numOfEntries = countEntries();
+		}
+		// load or create Bloom filter for key hashes
+		if (settings.isKeyToPathBloomFilterEnabled()) {
+			final Path bloomFilterFile = storeDir.resolve(storeName + "_bloom.bf");
+			if (Files.exists(bloomFilterFile)) {
+				try (SerializableDataInputStream in = new SerializableDataInputStream(
+						new BufferedInputStream(Files.newInputStream(bloomFilterFile)))) {
+					keyHashBloomFilter = in.readSerializable(false, BloomFilter::new);
+				}
+			} else {
+				keyHashBloomFilter = createKeyHashBloomFilter(mapSize);
+				if (fileCollection.isLoadedFromExistingFiles()) {
+					rebuildKeyHashBloomFilter();
+				}
+			}
+			final int hashCount = keyHashBloomFilter.hash(0).length;
+			bloomFilterHashes = ThreadLocal.withInitial(() -> new long[hashCount]);
+		} else {
+			keyHashBloomFilter = null;
+			bloomFilterHashes = null;
+		}
 	}
 
 	/**
@@ -227,7 +349,12 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 				storeName, size, formatSizeBytes(filesToMergeSize));
 		final List<Path> newFilesCreated = fileCollection.mergeFiles(
 				// update index with all moved data
-				moves -> moves.forEach(bucketIndexToBucketLocation::putIfEqual),
+				moves -> moves.forEach((bucketIndex, oldLocation, newLocation) -> {
+					if (!bucketIndexToBucketLocation.putIfEqual(bucketIndex, oldLocation, newLocation)) {
+						// the bucket was written again during the merge, so the merged copy is already garbage
+						fileCollection.addGarbageDataItem(newLocation);
+					}
+				}),
 				filesToMerge, mergingPaused);
 		logMergeStats(
 				storeName, (System.currentTimeMillis() - START) * Units.MILLISECONDS_TO_SECONDS,
@@ -246,6 +373,10 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 	 */
 	@Override
 	public void startSnapshot(Path snapshotDirectory) throws IOException {
+		snapshotNumOfBuckets = numOfBuckets;
+		snapshotNumOfEntries = numOfEntries;
+		// copy while saving is blocked, as keys are added to the filter while middleSnapshot() writes it
+		snapshotKeyHashBloomFilter = keyHashBloomFilter == null ? null : keyHashBloomFilter.copy();
 		bucketIndexToBucketLocation.setUseOverlay(true);
 		fileCollection.startSnapshot(snapshotDirectory);
 	}
@@ -273,9 +404,20 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 				Files.newOutputStream(snapshotDirectory.resolve(storeName + "_metadata.hdhm")))) {
 			metaOut.writeInt(METADATA_FILE_FORMAT_VERSION);
 			metaOut.writeInt(minimumBuckets);
-			metaOut.writeInt(numOfBuckets);
+			metaOut.writeInt(snapshotNumOfBuckets);
+			metaOut.writeLong(snapshotNumOfEntries);
 			metaOut.flush();
 		}
+		// write the copy of the Bloom filter taken in startSnapshot(), then drop it as it can be large
+		if (snapshotKeyHashBloomFilter != null) {
+			final Path bloomFilterFile = snapshotDirectory.resolve(storeName + "_bloom.bf");
+			try (SerializableDataOutputStream out = new SerializableDataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(bloomFilterFile)))) {
+				out.writeSerializable(snapshotKeyHashBloomFilter, false);
+			} finally {
+				snapshotKeyHashBloomFilter = null;
+			}
+		}
 	}
 
 	/**
@@ -302,6 +444,33 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 		return fileCollection.getAllFullyWrittenFilesSizeStatistics();
 	}
 
+	/**
+	 * Get an estimate of how many bytes of all files hold buckets the index still points to
+	 *
+	 * @return estimated size of live data in bytes
+	 */
+	public long getLiveDataSizeEstimate() {
+		return fileCollection.getLiveDataSizeEstimate();
+	}
+
+	/**
+	 * Get the total bytes of data files written by writing sessions since this map was opened
+	 *
+	 * @return bytes written by saves
+	 */
+	public long getBytesWrittenBySaves() {
+		return fileCollection.getBytesWrittenBySaves();
+	}
+
+	/**
+	 * Get the total bytes of data files written by merges since this map was opened
+	 *
+	 * @return bytes written by merges
+	 */
+	public long getBytesWrittenByMerges() {
+		return fileCollection.getBytesWrittenByMerges();
+	}
+
 	/**
 	 * Close this HalfDiskHashMap's data files. Once closed this HalfDiskHashMap can not be reused. You should make
 	 * sure you call close before system exit otherwise any files being written might not be in a good state.
@@ -347,8 +516,14 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 		if (Thread.currentThread() != writingThread) {
 			throw new IllegalStateException("Tried to write with different thread to startWriting()");
 		}
+		// add key to Bloom filter before it can be found on disk
+		if (keyHashBloomFilter != null && value != SPECIAL_DELETE_ME_VALUE) {
+			final long[] hashes = bloomFilterHashes.get();
+			keyHashBloomFilter.hash(key.hashCode(), hashes);
+			keyHashBloomFilter.add(hashes);
+		}
 		// store key and value in transaction cache
-		final int bucketIndex = computeBucketIndex(key.hashCode());
+		final int bucketIndex = computeBucketIndex(key.hashCode(), numOfBuckets);
 		final BucketMutation<K> bucketMap = oneTransactionsData.getIfAbsentPut(
 				bucketIndex, () -> new BucketMutation<>(key, value));
 		bucketMap.put(key, value);
@@ -404,8 +579,10 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 						bucket.setBucketIndex(bucketIndex);
 					}
 					final Bucket<K> finalBucket = bucket;
+					final int entryCountBefore = bucket.getBucketEntryCount();
 					// for each changed key in bucket, update bucket
 					bucketMap.forEachKeyValue((k, v) -> finalBucket.putValue(k.hashCode(), k, v));
+					numOfEntries += bucket.getBucketEntryCount() - entryCountBefore;
 					// save bucket
 					final long bucketLocation = fileCollection.storeDataItem(bucket);
 
@@ -426,18 +603,49 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 				final long bucketIndex = indexChanges.get(i);
 				final long bucketLocation = indexChanges.get(i + 1);
 				// update bucketIndexToBucketLocation
-				bucketIndexToBucketLocation.put(bucketIndex, bucketLocation);
+				fileCollection.updateIndex(bucketIndexToBucketLocation, bucketIndex, bucketLocation);
 			}
 			// we have updated all indexes so the data file can now be included in merges
 			dataFileReader.setFileAvailableForMerging(true);
 		}
 		// clear put cache
 		oneTransactionsData = null;
+		// grow if we have got too full
+		if (settings.isHalfDiskHashMapGrowthEnabled()) {
+			splitBuckets();
+		}
 	}
 
 	// =================================================================================================================
 	// Reading API - Multi thead safe
 
+	/**
+	 * Check if a key might be stored in this map. This is cheap and does not touch the disk, so callers can use it to
+	 * avoid a get() for keys that are not in the map.
+	 *
+	 * @param key
+	 * 		The key to check
+	 * @return false if the key is definitely not in the map, true if it might be. Always true if the Bloom filter is
+	 * 		disabled.
+	 */
+	public boolean mightContain(final K key) {
+		if (keyHashBloomFilter == null) {
+			return true;
+		}
+		final long[] hashes = bloomFilterHashes.get();
+		keyHashBloomFilter.hash(key.hashCode(), hashes);
+		return keyHashBloomFilter.contains(hashes);
+	}
+
+	/**
+	 * Get if this map has a Bloom filter, so mightContain() can return false
+	 *
+	 * @return true if there is a Bloom filter
+	 */
+	public boolean hasBloomFilter() {
+		return keyHashBloomFilter != null;
+	}
+
 	/**
 	 * Get a value from this map
 	 *
@@ -454,12 +662,17 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 			throw new IllegalArgumentException("Can not get a null key");
 		}
 		final int keyHash = key.hashCode();
-		final int bucketIndex = computeBucketIndex(keyHash);
-		final Bucket<K> bucket = fileCollection.readDataItemUsingIndex(bucketIndexToBucketLocation, bucketIndex);
-		if (bucket != null) {
-			return bucket.findValue(keyHash, key, notFoundValue);
-		}
-		return notFoundValue;
+		int bucketCount;
+		long value;
+		// If the bucket we looked in was split while we were reading it then the key may have moved to the new bucket,
+		// so if we do not find it and the number of buckets changed we look again.
+		do {
+			bucketCount = numOfBuckets;
+			final int bucketIndex = computeBucketIndex(keyHash, bucketCount);
+			final Bucket<K> bucket = fileCollection.readDataItemUsingIndex(bucketIndexToBucketLocation, bucketIndex);
+			value = bucket != null ? bucket.findValue(keyHash, key, notFoundValue) : notFoundValue;
+		} while (value == notFoundValue && bucketCount != numOfBuckets);
+		return value;
 	}
 
 	// =================================================================================================================
@@ -471,9 +684,10 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 						"    mapSize = {}\n" +
 						"    minimumBuckets = {}\n" +
 						"    numOfBuckets = {}\n" +
+						"    numOfEntries = {}\n" +
 						"    GOOD_AVERAGE_BUCKET_ENTRY_COUNT = {}\n" +
 						"}"
-				, mapSize, minimumBuckets, numOfBuckets, GOOD_AVERAGE_BUCKET_ENTRY_COUNT);
+				, mapSize, minimumBuckets, numOfBuckets, numOfEntries, GOOD_AVERAGE_BUCKET_ENTRY_COUNT);
 	}
 
 	/** Useful debug method to print the current state of the transaction cache */
@@ -508,7 +722,7 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 				bucketMap.forEachKeyValue((k, l) ->
 						LOG.info(JASPER_DB.getMarker(),
 								"        keyHash [{}] bucket [{}]  key [{}] value [{}]",
-								k.hashCode(), computeBucketIndex(k.hashCode()), k, l));
+								k.hashCode(), computeBucketIndex(k.hashCode(), numOfBuckets), k, l));
 			}
 		}
 		LOG.info(JASPER_DB.getMarker(), "========================================================");
@@ -518,14 +732,169 @@ public class HalfDiskHashMap<K extends VirtualKey<? super K>> implements AutoClo
 	// Private API
 
 	/**
-	 * Computes which bucket a key with the given hash falls. Depends on the fact the numOfBuckets is a power of two.
-	 * Based on same calculation that is used in java HashMap.
+	 * Create a new empty Bloom filter for key hash codes, sized for mapSize keys at the configured false positive
+	 * probability.
+	 *
+	 * @param mapSize
+	 * 		The maximum number of keys expected in the map
+	 * @return new empty Bloom filter
+	 */
+	private static BloomFilter<Integer> createKeyHashBloomFilter(final long mapSize) {
+		final double ln2 = Math.log(2);
+		final long numOfKeys = Math.max(1, mapSize);
+		final long sizeInBits = Math.min(MAX_BLOOM_FILTER_SIZE_IN_BITS, (long) Math.ceil(
+				-numOfKeys * Math.log(settings.getKeyToPathBloomFilterFalsePositiveProbability()) / (ln2 * ln2)));
+		final int hashCount = (int) Math.max(1, Math.round((double) sizeInBits / numOfKeys * ln2));
+		return new BloomFilter<>(hashCount, new IntBloomHasher(), sizeInBits);
+	}
+
+	/**
+	 * Add the key hash codes of every bucket in every data file to the Bloom filter. This reads the files sequentially
+	 * and includes old copies of buckets, which can only add false positives, never false negatives.
+	 *
+	 * @throws IOException
+	 * 		If there was a problem reading the data files
+	 */
+	private void rebuildKeyHashBloomFilter() throws IOException {
+		final long START = System.currentTimeMillis();
+		final long[] hashes = new long[keyHashBloomFilter.hash(0).length];
+		for (final DataFileReader<Bucket<K>> file : fileCollection.getAllFullyWrittenFiles()) {
+			final long serializationVersion = file.getMetadata().getSerializationVersion();
+			try (DataFileIterator iterator = file.createIterator()) {
+				while (iterator.next()) {
+					final Bucket<K> bucket = bucketSerializer.deserialize(
+							iterator.getDataItemData(), serializationVersion);
+					bucket.forEachKeyHashCode(keyHash -> {
+						keyHashBloomFilter.hash(keyHash, hashes);
+						keyHashBloomFilter.add(hashes);
+					});
+				}
+			}
+		}
+		LOG.info(JASPER_DB.getMarker(), "HalfDiskHashMap [{}] rebuilt key Bloom filter in {} seconds",
+				storeName, (System.currentTimeMillis() - START) * Units.MILLISECONDS_TO_SECONDS);
+	}
+
+	/**
+	 * Count the entries in all current buckets, by reading the bucket headers of every indexed bucket in every data
+	 * file. This is only needed when loading metadata from before the entry count was stored.
+	 *
+	 * @return the number of entries in the map
+	 * @throws IOException
+	 * 		If there was a problem reading the data files
+	 */
+	private long countEntries() throws IOException {
+		final long START = System.currentTimeMillis();
+		final long serializationVersion = bucketSerializer.getCurrentDataVersion();
+		final LongAdder entryCount = new LongAdder();
+		fileCollection.forEachIndexedDataItem(bucketIndexToBucketLocation, (bucketIndex, dataLocation, bucketData) -> {
+			try {
+				entryCount.add(bucketSerializer.deserialize(bucketData, serializationVersion).getBucketEntryCount());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		LOG.info(JASPER_DB.getMarker(), "HalfDiskHashMap [{}] counted {} entries in {} seconds",
+				storeName, entryCount.sum(), (System.currentTimeMillis() - START) * Units.MILLISECONDS_TO_SECONDS);
+		return entryCount.sum();
+	}
+
+	/**
+	 * Split buckets, linear hashing style, until the average number of entries per bucket is back under
+	 * SPLIT_AVERAGE_BUCKET_ENTRY_COUNT. Splits are limited to settings.getMaxBucketSplitsPerFlush() per call and never
+	 * go past the next power of two, so no bucket is split twice in one call. All split buckets are written to a single
+	 * new data file.
+	 * <p>
+	 * Readers stay correct during a split because the new upper buckets are indexed before numOfBuckets makes them
+	 * reachable, and the trimmed lower buckets are only indexed after. A reader that computed its bucket index from the
+	 * old bucket count and then read a trimmed lower bucket will see numOfBuckets changed and retry, see get().
+	 *
+	 * @throws IOException
+	 * 		If there was a problem reading or writing buckets
+	 */
+	private void splitBuckets() throws IOException {
+		final int oldNumOfBuckets = numOfBuckets;
+		final int maxNumOfBuckets = (int) Math.min(MAX_NUM_OF_BUCKETS,
+				Math.min((long) Integer.highestOneBit(oldNumOfBuckets) * 2,
+						(long) oldNumOfBuckets + settings.getMaxBucketSplitsPerFlush()));
+		int newNumOfBuckets = oldNumOfBuckets;
+		while (newNumOfBuckets < maxNumOfBuckets && numOfEntries > newNumOfBuckets * SPLIT_AVERAGE_BUCKET_ENTRY_COUNT) {
+			newNumOfBuckets++;
+		}
+		if (newNumOfBuckets == oldNumOfBuckets) {
+			return;
+		}
+		// Data files must have keys in ascending order, and every lower bucket index is below every upper bucket
+		// index. So each trimmed lower bucket is written as soon as it is split, and the new upper buckets are
+		// serialized aside and written after all of them.
+		final LongArrayList lowerIndexChanges = new LongArrayList();
+		final IntArrayList upperBucketIndexes = new IntArrayList();
+		final IntArrayList upperBucketSizes = new IntArrayList();
+		final DataFileOutputStream upperBuckets = new DataFileOutputStream(SPLIT_UPPER_BUCKETS_INITIAL_BYTES);
+		for (int upperBucketIndex = oldNumOfBuckets; upperBucketIndex < newNumOfBuckets; upperBucketIndex++) {
+			final int splitBit = Integer.highestOneBit(upperBucketIndex);
+			final int lowerBucketIndex = upperBucketIndex - splitBit;
+			final Bucket<K> lowerBucket = fileCollection.readDataItemUsingIndex(
+					bucketIndexToBucketLocation, lowerBucketIndex);
+			if (lowerBucket == null) {
+				// nothing stored, so both halves are empty
+				continue;
+			}
+			splitBucket.clear();
+			splitBucket.setBucketIndex(upperBucketIndex);
+			if (lowerBucket.moveEntriesTo(splitBucket, keyHash -> (keyHash & splitBit) != 0) == 0) {
+				// nothing moved, so the lower bucket is unchanged and the upper bucket is empty
+				continue;
+			}
+			if (upperBucketIndexes.isEmpty()) {
+				fileCollection.startWriting();
+			}
+			lowerIndexChanges.add(lowerBucketIndex);
+			lowerIndexChanges.add(fileCollection.storeDataItem(lowerBucket));
+			upperBucketIndexes.add(upperBucketIndex);
+			upperBucketSizes.add(bucketSerializer.serialize(splitBucket, upperBuckets));
+		}
+		final long[] upperBucketLocations = new long[upperBucketIndexes.size()];
+		final DataFileReader<Bucket<K>> dataFileReader;
+		if (upperBucketIndexes.isEmpty()) {
+			dataFileReader = null;
+		} else {
+			fileCollection.storeSerializedDataItems(
+					upperBuckets.asByteBuffer(), upperBucketSizes.toArray(), upperBucketLocations);
+			dataFileReader = fileCollection.endWriting(0, newNumOfBuckets);
+		}
+		// index new upper buckets first, they are not reachable until numOfBuckets is updated
+		for (int i = 0; i < upperBucketLocations.length; i++) {
+			fileCollection.updateIndex(bucketIndexToBucketLocation, upperBucketIndexes.get(i), upperBucketLocations[i]);
+		}
+		numOfBuckets = newNumOfBuckets;
+		// now the moved entries are reachable in the upper buckets, we can index the trimmed lower buckets
+		for (int i = 0; i < lowerIndexChanges.size(); i += INDEX_CHANGE_COMPONENTS) {
+			fileCollection.updateIndex(
+					bucketIndexToBucketLocation, lowerIndexChanges.get(i), lowerIndexChanges.get(i + 1));
+		}
+		if (dataFileReader != null) {
+			dataFileReader.setFileAvailableForMerging(true);
+		}
+		LOG.info(JASPER_DB.getMarker(), "HalfDiskHashMap [{}] grew from {} to {} buckets, {} buckets rewritten",
+				storeName, oldNumOfBuckets, newNumOfBuckets, upperBucketLocations.length);
+	}
+
+	/**
+	 * Computes which bucket a key with the given hash falls in, for a given number of buckets. This is the linear
+	 * hashing address calculation, for a power of two number of buckets it is the same as the calculation used in java
+	 * HashMap. The hash is masked with the next power of two mask, if that gives a bucket that does not exist yet then
+	 * the key is in the unsplit bucket given by the smaller mask.
 	 *
 	 * @param keyHash
 	 * 		the int hash for key
+	 * @param bucketCount
+	 * 		the number of buckets in the map
 	 * @return the index of the bucket that key falls in
 	 */
-	private int computeBucketIndex(final int keyHash) {
-		return (numOfBuckets - 1) & keyHash;
+	private static int computeBucketIndex(final int keyHash, final int bucketCount) {
+		final int level = Integer.highestOneBit(bucketCount);
+		final int bucketIndex = ((level << 1) - 1) & keyHash;
+		return bucketIndex < bucketCount ? bucketIndex : (level - 1) & keyHash;
 	}
 }
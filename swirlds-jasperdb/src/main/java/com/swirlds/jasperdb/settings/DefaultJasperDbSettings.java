@@ -45,6 +45,24 @@ public class DefaultJasperDbSettings implements JasperDbSettings {
 	public static final long DEFAULT_FULL_MERGE_PERIOD = 1440L; // 24h in min
 	public static final long DEFAULT_MAX_FILE_SIZE_BYTES = 64L * 1024 * 1024 * 1024;
 	public static final boolean DEFAULT_RECONNECT_KEY_LEAK_MITIGATION_ENABLED = true;
+	public static final boolean DEFAULT_MEMORY_MAPPED_READS_ENABLED = false;
+	public static final boolean DEFAULT_HALF_DISK_HASH_MAP_GROWTH_ENABLED = false;
+	public static final int DEFAULT_MAX_BUCKET_SPLITS_PER_FLUSH = 8_192;
+	public static final int DEFAULT_MERGE_THREAD_COUNT = 3;
+	public static final int DEFAULT_MERGE_BANDWIDTH_LIMIT_MB_PER_SECOND = 0;
+	public static final boolean DEFAULT_KEY_TO_PATH_BLOOM_FILTER_ENABLED = false;
+	public static final double DEFAULT_KEY_TO_PATH_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+	public static final int DEFAULT_LEAF_RECORD_CACHE_SIZE = 0;
+	public static final int DEFAULT_INTERNAL_RECORD_CACHE_SIZE = 0;
+	public static final boolean DEFAULT_LEAF_DATA_FILE_COMPRESSION_ENABLED = false;
+	public static final int DEFAULT_COMPRESSED_DATA_FILE_BLOCK_BYTES = 64 * 1024;
+	public static final int DEFAULT_LONG_LIST_DISK_PAGE_CACHE_MB = 0;
+	public static final int DEFAULT_SAVE_RECORDS_SERIALIZATION_THREADS = 0;
+	public static final boolean DEFAULT_MERGE_DIRECT_IO_ENABLED = false;
+	public static final int DEFAULT_MAX_INDEX_SNAPSHOT_DELTAS = 0;
+	public static final int DEFAULT_INDEX_REBUILD_THREADS = Runtime.getRuntime().availableProcessors();
+	public static final double DEFAULT_COMPACTION_GARBAGE_RATIO_THRESHOLD = 0.0;
+	public static final int DEFAULT_BATCH_READ_THREADS = Runtime.getRuntime().availableProcessors();
 
 	/**
 	 * {@inheritDoc}
@@ -181,4 +199,148 @@ public class DefaultJasperDbSettings implements JasperDbSettings {
 	public boolean isReconnectKeyLeakMitigationEnabled() {
 		return DEFAULT_RECONNECT_KEY_LEAK_MITIGATION_ENABLED;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isMemoryMappedReadsEnabled() {
+		return DEFAULT_MEMORY_MAPPED_READS_ENABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isHalfDiskHashMapGrowthEnabled() {
+		return DEFAULT_HALF_DISK_HASH_MAP_GROWTH_ENABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMaxBucketSplitsPerFlush() {
+		return DEFAULT_MAX_BUCKET_SPLITS_PER_FLUSH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMergeThreadCount() {
+		return DEFAULT_MERGE_THREAD_COUNT;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMergeBandwidthLimitMbPerSecond() {
+		return DEFAULT_MERGE_BANDWIDTH_LIMIT_MB_PER_SECOND;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isKeyToPathBloomFilterEnabled() {
+		return DEFAULT_KEY_TO_PATH_BLOOM_FILTER_ENABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getKeyToPathBloomFilterFalsePositiveProbability() {
+		return DEFAULT_KEY_TO_PATH_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLeafRecordCacheSize() {
+		return DEFAULT_LEAF_RECORD_CACHE_SIZE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getInternalRecordCacheSize() {
+		return DEFAULT_INTERNAL_RECORD_CACHE_SIZE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isLeafDataFileCompressionEnabled() {
+		return DEFAULT_LEAF_DATA_FILE_COMPRESSION_ENABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getCompressedDataFileBlockBytes() {
+		return DEFAULT_COMPRESSED_DATA_FILE_BLOCK_BYTES;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLongListDiskPageCacheMb() {
+		return DEFAULT_LONG_LIST_DISK_PAGE_CACHE_MB;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSaveRecordsSerializationThreads() {
+		return DEFAULT_SAVE_RECORDS_SERIALIZATION_THREADS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isMergeDirectIoEnabled() {
+		return DEFAULT_MERGE_DIRECT_IO_ENABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMaxIndexSnapshotDeltas() {
+		return DEFAULT_MAX_INDEX_SNAPSHOT_DELTAS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getIndexRebuildThreads() {
+		return DEFAULT_INDEX_REBUILD_THREADS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getCompactionGarbageRatioThreshold() {
+		return DEFAULT_COMPACTION_GARBAGE_RATIO_THRESHOLD;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBatchReadThreads() {
+		return DEFAULT_BATCH_READ_THREADS;
+	}
 }
@@ -146,4 +146,128 @@ public interface JasperDbSettings {
 	 * in production environments.
 	 */
 	boolean isReconnectKeyLeakMitigationEnabled();
+
+	/**
+	 * When true, fully written data files that fit in a single memory mapping (up to 2GB) are memory mapped for
+	 * reading and data items are deserialized straight from the mapping. Larger files are always read through the file
+	 * channel. Default is false.
+	 */
+	boolean isMemoryMappedReadsEnabled();
+
+	/**
+	 * When true, a newly created HalfDiskHashMap starts with a small number of buckets and splits buckets one at a
+	 * time (linear hashing) at the end of each writing session as the average bucket fill grows. Existing maps also keep
+	 * growing if they become over full. When false the bucket count is fixed from the maximum number of keys. Default
+	 * is false.
+	 */
+	boolean isHalfDiskHashMapGrowthEnabled();
+
+	/**
+	 * The maximum number of HalfDiskHashMap buckets that are split at the end of a single writing session, this bounds
+	 * the extra IO a growing map adds to each flush.
+	 */
+	int getMaxBucketSplitsPerFlush();
+
+	/**
+	 * The number of threads used to merge the stores of a data source concurrently. The internal hashes store, the key
+	 * to path store and the leaf store are each merged by a single task, so there is no benefit from more than three.
+	 * Setting this to 1 merges the stores one after another.
+	 */
+	int getMergeThreadCount();
+
+	/**
+	 * The maximum rate in MB per second that all merges in this process together write merged data at. This is a
+	 * budget shared by all concurrent merges, so merging does not starve saving and reading of disk bandwidth. Zero means
+	 * unlimited.
+	 */
+	int getMergeBandwidthLimitMbPerSecond();
+
+	/**
+	 * When true, each HalfDiskHashMap keeps an in-memory Bloom filter of the hash codes of its keys. Lookups of keys that
+	 * are not in the map can then usually skip reading a bucket from disk. The filter is sized for the maximum number of
+	 * keys, so it costs about 1.2 bytes of RAM per key at a 1% false positive probability. Default is false.
+	 */
+	boolean isKeyToPathBloomFilterEnabled();
+
+	/**
+	 * The target false positive probability used to size the key to path Bloom filter, when the map holds its maximum
+	 * number of keys. Only used when creating a new filter.
+	 */
+	double getKeyToPathBloomFilterFalsePositiveProbability();
+
+	/**
+	 * The maximum number of leaf records each data source keeps in its read cache, so frequently read leaves are not
+	 * read from disk on every read. Zero disables the cache. Records are cached serialized and deserialized on each
+	 * hit, so every reader gets its own record and value.
+	 */
+	int getLeafRecordCacheSize();
+
+	/**
+	 * The maximum number of internal node hashes read from disk that each data source keeps in its read cache. Zero
+	 * disables the cache. Hashes stored in RAM, below internalHashesRamToDiskThreshold, are never cached.
+	 */
+	int getInternalRecordCacheSize();
+
+	/**
+	 * Whether new leaf data files (pathToHashKeyValue) are written block compressed. Data items are grouped into blocks
+	 * of about compressedDataFileBlockBytes that are compressed with Deflate. Existing uncompressed files stay readable,
+	 * and are rewritten compressed as they get merged.
+	 */
+	boolean isLeafDataFileCompressionEnabled();
+
+	/**
+	 * The target uncompressed size in bytes of each block in a block compressed data file. Bigger blocks compress
+	 * better but every random read has to read and decompress a whole block. Must be between 1 and 1 MiB.
+	 */
+	int getCompressedDataFileBlockBytes();
+
+	/**
+	 * The size in MB of the write back page cache used by each disk based index, when indexes are stored on disk. Changes
+	 * are kept in memory and written back to the index file in large sequential writes. Zero writes every change straight
+	 * to the index file.
+	 */
+	int getLongListDiskPageCacheMb();
+
+	/**
+	 * The number of threads used to serialize records in parallel while saving a round to disk. Serialized records are
+	 * written to the data files in order on a single thread and the in memory index is updated in one step once they
+	 * are all written. Zero disables the pipeline so records are serialized on the writing thread. Default is zero.
+	 */
+	int getSaveRecordsSerializationThreads();
+
+	/**
+	 * When true, merges read and write data files with direct IO, bypassing the operating system's page cache, so large
+	 * merges do not evict the hot data that reads depend on from the page cache. Falls back to normal IO where the file
+	 * system does not support direct IO. Default is false.
+	 */
+	boolean isMergeDirectIoEnabled();
+
+	/**
+	 * The maximum number of delta snapshots of the in memory indexes on top of each full snapshot. A delta snapshot only
+	 * writes the chunks of an index changed since the previous snapshot and hard links the previous snapshot's files, so
+	 * loading the index has to apply the whole chain of deltas. Zero always writes full snapshots. Default is zero.
+	 */
+	int getMaxIndexSnapshotDeltas();
+
+	/**
+	 * The number of threads used to read data files in parallel when indexes have to be rebuilt from the data files on
+	 * startup, for example when there is no saved longKeyToPath index. Each file is read by one thread. Default is the
+	 * number of available processors.
+	 */
+	int getIndexRebuildThreads();
+
+	/**
+	 * When greater than zero, merges other than the periodic full merge pick files by how much garbage they hold rather
+	 * than by time. Each merge round merges the contiguous run of files, in creation order, that frees the most space
+	 * while at least this fraction of its data items are garbage. If no run qualifies, the newest files smaller than
+	 * smallMergeCutoffMb are merged instead. Zero keeps the time based small and medium merges. Default is zero.
+	 */
+	double getCompactionGarbageRatioThreshold();
+
+	/**
+	 * The number of threads used to read a batch of records in parallel, for example by loadLeafRecords. Each data file
+	 * collection has its own pool of this size, whose threads are only kept while there are reads to do. The data
+	 * source has one more for the key to path lookups of a batch. Default is the number of available processors.
+	 */
+	int getBatchReadThreads();
 }
@@ -30,10 +30,14 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -814,12 +818,123 @@ public class MerkleMap<K, V extends MerkleNode & Keyed<K>>
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * <p>
+	 * Copies all of the mappings from the specified map to this map. Has the same result as calling
+	 * {@link #put(Object, Object)} for each mapping, but all changes are made while holding the lock once.
+	 * </p>
+	 *
+	 * <p>
+	 * Replaced values are swapped in first, with the paths down to all of them replaced in a single pass.
+	 * New values are then inserted, replacing the paths down to the leaves they push down in as few passes
+	 * as the shape of the tree allows. The hashes of the map and the root of its tree are invalidated once.
+	 * </p>
+	 *
+	 * <p>
+	 * All keys and values are checked before the map is modified, so if any of them is not allowed then the map
+	 * is left unchanged.
+	 * </p>
+	 *
+	 * @param m
+	 * 		mappings to be stored in this map
+	 * @throws NullPointerException
+	 * 		if a key or value is null
+	 * @throws IllegalArgumentException
+	 * 		if a value is already in a tree
 	 */
 	@Override
-	public void putAll(Map<? extends K, ? extends V> m) {
-		for (final Entry<? extends K, ? extends V> entry : m.entrySet()) {
-			put(entry.getKey(), entry.getValue());
+	public void putAll(final Map<? extends K, ? extends V> m) {
+		throwIfImmutable();
+
+		final long stamp = writeLock();
+		try {
+			final Set<V> values = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (final Entry<? extends K, ? extends V> entry : m.entrySet()) {
+				if (entry.getKey() == null) {
+					throw new NullPointerException("null keys are not supported");
+				}
+				final V value = entry.getValue();
+				if (value == null) {
+					throw new NullPointerException("null values are not supported");
+				}
+				// A value may only be in a tree if it is already in this exact position.
+				if ((value.getReferenceCount() != 0 && index.get(entry.getKey()) != value) || !values.add(value)) {
+					throw new IllegalArgumentException("Value is already in a tree, can not insert into map");
+				}
+			}
+
+			final List<V> oldEntries = new ArrayList<>();
+			final List<V> replacements = new ArrayList<>();
+			final List<V> insertions = new ArrayList<>();
+			for (final Entry<? extends K, ? extends V> entry : m.entrySet()) {
+				final K key = entry.getKey();
+				final V value = entry.getValue();
+				final V oldEntry = index.get(key);
+				if (oldEntry == value) {
+					// Value is already in this exact position, no work needed.
+					continue;
+				}
+
+				value.setKey(key);
+				// New values are indexed before they are inserted, as an insertion may push down (and copy)
+				// a value inserted before it.
+				index.put(key, value);
+				if (oldEntry == null) {
+					insertions.add(value);
+				} else {
+					oldEntries.add(oldEntry);
+					replacements.add(value);
+				}
+			}
+
+			getTree().updateAll(oldEntries, replacements);
+			getTree().insertAll(insertions, this::updateCache);
+
+			invalidateHash();
+			getTree().invalidateHash();
+			getTree().getRoot().invalidateHash();
+		} finally {
+			releaseWriteLock(stamp);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Removes the mappings for all of the specified keys from this map if present. Has the same result as calling
+	 * {@link #remove(Object)} for each key, but all changes are made while holding the lock once, and the hashes
+	 * of the map and the root of its tree are invalidated once.
+	 * </p>
+	 *
+	 * <p>
+	 * Unlike {@link #putAll(Map)}, paths are still replaced once per removal. Each removal moves the right most leaf
+	 * of the tree into the removed position, so the path touched by a removal depends on the removals before it.
+	 * </p>
+	 *
+	 * @param keys
+	 * 		keys whose mappings are to be removed from the map
+	 * @return the number of mappings that were removed
+	 */
+	public int removeAll(final Collection<?> keys) {
+		throwIfImmutable();
+		final long stamp = writeLock();
+		try {
+			int removed = 0;
+			for (final Object key : keys) {
+				// Look up each entry right before it is removed, earlier removals may have moved (and copied) it.
+				final V entry = index.remove(key);
+				if (entry != null) {
+					getTree().delete(entry, this::updateCache);
+					removed++;
+				}
+			}
+
+			if (removed > 0) {
+				invalidateHash();
+				getTree().invalidateHash();
+				getTree().getRoot().invalidateHash();
+			}
+			return removed;
+		} finally {
+			releaseWriteLock(stamp);
 		}
 	}
 
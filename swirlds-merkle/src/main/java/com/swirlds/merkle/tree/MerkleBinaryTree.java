@@ -19,11 +19,14 @@ import com.swirlds.common.merkle.MerkleInternal;
 import com.swirlds.common.merkle.MerkleNode;
 import com.swirlds.common.merkle.exceptions.IllegalChildIndexException;
 import com.swirlds.common.merkle.iterators.MerkleIterator;
+import com.swirlds.common.merkle.route.MerkleRoute;
 import com.swirlds.common.merkle.utility.AbstractBinaryMerkleInternal;
 import com.swirlds.common.merkle.utility.MerkleLong;
 import com.swirlds.merkle.tree.internal.BitUtil;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -32,6 +35,7 @@ import static com.swirlds.common.merkle.copy.MerkleCopy.copyTreeToLocation;
 import static com.swirlds.common.merkle.copy.MerklePathReplacement.getGrandparentInPath;
 import static com.swirlds.common.merkle.copy.MerklePathReplacement.getParentInPath;
 import static com.swirlds.common.merkle.copy.MerklePathReplacement.replacePath;
+import static com.swirlds.common.merkle.copy.MerklePathReplacement.replacePaths;
 import static com.swirlds.common.merkle.utility.MerkleUtils.findChildPositionInParent;
 
 /**
@@ -363,6 +367,51 @@ public class MerkleBinaryTree<T extends MerkleNode> extends AbstractBinaryMerkle
 		}
 	}
 
+	/**
+	 * Replaces several old leaves with new leaves. Has the same result as calling {@link #update(MerkleNode,
+	 * MerkleNode)} for each pair of leaves, but the paths down to all old leaves are replaced in a single pass, with
+	 * each path continuing from the ancestors it shares with the path before it.
+	 *
+	 * @param oldLeaves
+	 * 		distinct leaves to replace
+	 * @param newLeaves
+	 * 		the leaves replacing them, where the leaf at each index replaces the old leaf at the same index
+	 */
+	public void updateAll(final List<T> oldLeaves, final List<T> newLeaves) {
+		throwIfImmutable();
+
+		if (oldLeaves.size() != newLeaves.size()) {
+			throw new IllegalArgumentException("Update requires as many new leaves as old leaves");
+		} else if (oldLeaves.isEmpty()) {
+			return;
+		} else if (getSize().getValue() < 1) {
+			throw new IllegalStateException("The tree is empty. No leaf to replace");
+		}
+
+		final List<MerkleRoute> routes = new ArrayList<>(oldLeaves.size());
+		for (int i = 0; i < oldLeaves.size(); i++) {
+			if (oldLeaves.get(i) == null || newLeaves.get(i) == null) {
+				throw new IllegalArgumentException("Update does not support null leaves");
+			}
+			routes.add(oldLeaves.get(i).getRoute());
+		}
+
+		// Replace the paths down to the parents of the old leaves. Don't bother replacing the old leaves themselves.
+		replacePaths(getRoot(), routes, 1, (final MerkleNode[] path, final int leafIndex) -> {
+			final T oldLeaf = oldLeaves.get(leafIndex);
+			final T newLeaf = newLeaves.get(leafIndex);
+
+			final MerkleTreeInternalNode parent = getParentInPath(path);
+			final int indexOfChildInParent = findChildPositionInParent(parent, oldLeaf);
+
+			parent.setChild(indexOfChildInParent, newLeaf, oldLeaf.getRoute(), false);
+
+			if (rightMostLeaf == oldLeaf) {
+				rightMostLeaf = newLeaf;
+			}
+		});
+	}
+
 	/**
 	 * Insert a leaf into a tree that currently has no leaves.
 	 *
@@ -434,6 +483,71 @@ public class MerkleBinaryTree<T extends MerkleNode> extends AbstractBinaryMerkle
 		getSize().increment();
 	}
 
+	/**
+	 * Inserts several leaves into the tree. Has the same result as calling {@link #insert(MerkleNode, Consumer)} for
+	 * each leaf in order.
+	 *
+	 * <p>Until the bottom layer of the tree is full, each insertion pushes down the next leaf of the layer above it,
+	 * and the parents of those leaves are not changed by the insertions. The paths down to all leaves that will be
+	 * pushed down are therefore replaced up front in a single pass, instead of once per insertion.</p>
+	 *
+	 * @param entries
+	 * 		new entries to be inserted into the tree
+	 * @param updateCache
+	 * 		a function that is used to register changes that may need to be tracked by a cache in the outer scope
+	 */
+	public void insertAll(final List<T> entries, final Consumer<T> updateCache) {
+		throwIfImmutable();
+
+		int entryIndex = 0;
+		while (entryIndex < entries.size()) {
+			final long size = getSize().getValue();
+			if (size < SIMPLE_TREE_SIZE) {
+				insert(entries.get(entryIndex), updateCache);
+				entryIndex++;
+				continue;
+			}
+
+			// Leaves that can be pushed down before the bottom layer is full
+			final long leftMostOneBit = BitUtil.findLeftMostBit(size);
+			final int count = (int) Math.min(entries.size() - entryIndex, 2 * leftMostOneBit - size);
+
+			final List<T> nodesToPush = new ArrayList<>(count);
+			final List<MerkleRoute> routes = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				final T nodeToPush = findFirstLeafAtCompleteSubtree(leftMostOneBit, size + i, getRoot());
+
+				// Take an artificial reference to the node to push down to prevent it from being released too soon.
+				nodeToPush.incrementReferenceCount();
+				nodesToPush.add(nodeToPush);
+				routes.add(nodeToPush.getRoute());
+			}
+
+			// Replace paths down to the parents of the nodes to push down.
+			final int firstEntryIndex = entryIndex;
+			replacePaths(getRoot(), routes, 1, (final MerkleNode[] path, final int i) -> {
+				final T nodeToPush = nodesToPush.get(i);
+				final MerkleTreeInternalNode parentOfNodeToPush = getParentInPath(path);
+				final int childIndexOfNodeToPush = findChildPositionInParent(parentOfNodeToPush, nodeToPush);
+
+				final MerkleTreeInternalNode newParent = new MerkleTreeInternalNode();
+				parentOfNodeToPush.setChild(childIndexOfNodeToPush, newParent);
+
+				final T copy = copyTreeToLocation(newParent, 0, nodeToPush);
+				updateCache.accept(copy);
+
+				nodeToPush.decrementReferenceCount();
+
+				final T entry = entries.get(firstEntryIndex + i);
+				newParent.setRight(entry);
+				rightMostLeaf = entry;
+				getSize().increment();
+			});
+
+			entryIndex += count;
+		}
+	}
+
 	/**
 	 * Walks node by node from the specified node to the first leaf in the last
 	 * complete layer
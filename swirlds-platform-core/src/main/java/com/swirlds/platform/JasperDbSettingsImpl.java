@@ -35,6 +35,24 @@ import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_RECO
 import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_SMALL_MERGE_CUTOFF_MB;
 import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_STORAGE_DIRECTORY;
 import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_WRITER_OUTPUT_BUFFER_BYTES;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_MEMORY_MAPPED_READS_ENABLED;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_HALF_DISK_HASH_MAP_GROWTH_ENABLED;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_MAX_BUCKET_SPLITS_PER_FLUSH;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_MERGE_THREAD_COUNT;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_MERGE_BANDWIDTH_LIMIT_MB_PER_SECOND;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_KEY_TO_PATH_BLOOM_FILTER_ENABLED;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_KEY_TO_PATH_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_LEAF_RECORD_CACHE_SIZE;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_INTERNAL_RECORD_CACHE_SIZE;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_LEAF_DATA_FILE_COMPRESSION_ENABLED;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_COMPRESSED_DATA_FILE_BLOCK_BYTES;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_LONG_LIST_DISK_PAGE_CACHE_MB;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_SAVE_RECORDS_SERIALIZATION_THREADS;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_MERGE_DIRECT_IO_ENABLED;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_MAX_INDEX_SNAPSHOT_DELTAS;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_INDEX_REBUILD_THREADS;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_COMPACTION_GARBAGE_RATIO_THRESHOLD;
+import static com.swirlds.jasperdb.settings.DefaultJasperDbSettings.DEFAULT_BATCH_READ_THREADS;
 
 @SuppressWarnings("unused")
 public class JasperDbSettingsImpl extends SubSetting implements JasperDbSettings {
@@ -57,6 +75,25 @@ public class JasperDbSettingsImpl extends SubSetting implements JasperDbSettings
 	public int minNumberOfFilesInMerge = DEFAULT_MIN_NUMBER_OF_FILES_IN_MERGE;
 	public boolean reconnectKeyLeakMitigationEnabled = DEFAULT_RECONNECT_KEY_LEAK_MITIGATION_ENABLED;
 	public String mergePeriodUnit = "MINUTES";
+	public boolean memoryMappedReadsEnabled = DEFAULT_MEMORY_MAPPED_READS_ENABLED;
+	public boolean halfDiskHashMapGrowthEnabled = DEFAULT_HALF_DISK_HASH_MAP_GROWTH_ENABLED;
+	public int maxBucketSplitsPerFlush = DEFAULT_MAX_BUCKET_SPLITS_PER_FLUSH;
+	public int mergeThreadCount = DEFAULT_MERGE_THREAD_COUNT;
+	public int mergeBandwidthLimitMbPerSecond = DEFAULT_MERGE_BANDWIDTH_LIMIT_MB_PER_SECOND;
+	public boolean keyToPathBloomFilterEnabled = DEFAULT_KEY_TO_PATH_BLOOM_FILTER_ENABLED;
+	public int leafRecordCacheSize = DEFAULT_LEAF_RECORD_CACHE_SIZE;
+	public int internalRecordCacheSize = DEFAULT_INTERNAL_RECORD_CACHE_SIZE;
+	public boolean leafDataFileCompressionEnabled = DEFAULT_LEAF_DATA_FILE_COMPRESSION_ENABLED;
+	public int compressedDataFileBlockBytes = DEFAULT_COMPRESSED_DATA_FILE_BLOCK_BYTES;
+	public int longListDiskPageCacheMb = DEFAULT_LONG_LIST_DISK_PAGE_CACHE_MB;
+	public int saveRecordsSerializationThreads = DEFAULT_SAVE_RECORDS_SERIALIZATION_THREADS;
+	public boolean mergeDirectIoEnabled = DEFAULT_MERGE_DIRECT_IO_ENABLED;
+	public int maxIndexSnapshotDeltas = DEFAULT_MAX_INDEX_SNAPSHOT_DELTAS;
+	public int indexRebuildThreads = DEFAULT_INDEX_REBUILD_THREADS;
+	public double compactionGarbageRatioThreshold = DEFAULT_COMPACTION_GARBAGE_RATIO_THRESHOLD;
+	public int batchReadThreads = DEFAULT_BATCH_READ_THREADS;
+	public double keyToPathBloomFilterFalsePositiveProbability =
+			DEFAULT_KEY_TO_PATH_BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY;
 
 	/**
 	 * {@inheritDoc}
@@ -301,5 +338,266 @@ public class JasperDbSettingsImpl extends SubSetting implements JasperDbSettings
 		}
 		this.writerOutputBufferBytes = writerOutputBufferBytes;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isMemoryMappedReadsEnabled() {
+		return memoryMappedReadsEnabled;
+	}
+
+	public void setMemoryMappedReadsEnabled(final boolean memoryMappedReadsEnabled) {
+		this.memoryMappedReadsEnabled = memoryMappedReadsEnabled;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isHalfDiskHashMapGrowthEnabled() {
+		return halfDiskHashMapGrowthEnabled;
+	}
+
+	public void setHalfDiskHashMapGrowthEnabled(final boolean halfDiskHashMapGrowthEnabled) {
+		this.halfDiskHashMapGrowthEnabled = halfDiskHashMapGrowthEnabled;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMaxBucketSplitsPerFlush() {
+		return maxBucketSplitsPerFlush;
+	}
+
+	public void setMaxBucketSplitsPerFlush(final int maxBucketSplitsPerFlush) {
+		if (maxBucketSplitsPerFlush < 1) {
+			throw new IllegalArgumentException("Cannot configure maxBucketSplitsPerFlush=" + maxBucketSplitsPerFlush);
+		}
+		this.maxBucketSplitsPerFlush = maxBucketSplitsPerFlush;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMergeThreadCount() {
+		return mergeThreadCount;
+	}
+
+	public void setMergeThreadCount(final int mergeThreadCount) {
+		if (mergeThreadCount < 1) {
+			throw new IllegalArgumentException("Cannot configure mergeThreadCount=" + mergeThreadCount);
+		}
+		this.mergeThreadCount = mergeThreadCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMergeBandwidthLimitMbPerSecond() {
+		return mergeBandwidthLimitMbPerSecond;
+	}
+
+	public void setMergeBandwidthLimitMbPerSecond(final int mergeBandwidthLimitMbPerSecond) {
+		if (mergeBandwidthLimitMbPerSecond < 0) {
+			throw new IllegalArgumentException("Cannot configure mergeBandwidthLimitMbPerSecond="
+					+ mergeBandwidthLimitMbPerSecond);
+		}
+		this.mergeBandwidthLimitMbPerSecond = mergeBandwidthLimitMbPerSecond;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isKeyToPathBloomFilterEnabled() {
+		return keyToPathBloomFilterEnabled;
+	}
+
+	public void setKeyToPathBloomFilterEnabled(final boolean keyToPathBloomFilterEnabled) {
+		this.keyToPathBloomFilterEnabled = keyToPathBloomFilterEnabled;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getKeyToPathBloomFilterFalsePositiveProbability() {
+		return keyToPathBloomFilterFalsePositiveProbability;
+	}
+
+	public void setKeyToPathBloomFilterFalsePositiveProbability(
+			final double keyToPathBloomFilterFalsePositiveProbability) {
+		if (keyToPathBloomFilterFalsePositiveProbability <= 0 || keyToPathBloomFilterFalsePositiveProbability >= 1) {
+			throw new IllegalArgumentException("Cannot configure keyToPathBloomFilterFalsePositiveProbability="
+					+ keyToPathBloomFilterFalsePositiveProbability);
+		}
+		this.keyToPathBloomFilterFalsePositiveProbability = keyToPathBloomFilterFalsePositiveProbability;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLeafRecordCacheSize() {
+		return leafRecordCacheSize;
+	}
+
+	public void setLeafRecordCacheSize(final int leafRecordCacheSize) {
+		if (leafRecordCacheSize < 0) {
+			throw new IllegalArgumentException("Cannot configure leafRecordCacheSize=" + leafRecordCacheSize);
+		}
+		this.leafRecordCacheSize = leafRecordCacheSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getInternalRecordCacheSize() {
+		return internalRecordCacheSize;
+	}
+
+	public void setInternalRecordCacheSize(final int internalRecordCacheSize) {
+		if (internalRecordCacheSize < 0) {
+			throw new IllegalArgumentException("Cannot configure internalRecordCacheSize=" + internalRecordCacheSize);
+		}
+		this.internalRecordCacheSize = internalRecordCacheSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isLeafDataFileCompressionEnabled() {
+		return leafDataFileCompressionEnabled;
+	}
+
+	public void setLeafDataFileCompressionEnabled(final boolean leafDataFileCompressionEnabled) {
+		this.leafDataFileCompressionEnabled = leafDataFileCompressionEnabled;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getCompressedDataFileBlockBytes() {
+		return compressedDataFileBlockBytes;
+	}
+
+	public void setCompressedDataFileBlockBytes(final int compressedDataFileBlockBytes) {
+		if (compressedDataFileBlockBytes < 1 || compressedDataFileBlockBytes > 1024 * 1024) {
+			throw new IllegalArgumentException("Cannot configure compressedDataFileBlockBytes="
+					+ compressedDataFileBlockBytes);
+		}
+		this.compressedDataFileBlockBytes = compressedDataFileBlockBytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLongListDiskPageCacheMb() {
+		return longListDiskPageCacheMb;
+	}
+
+	public void setLongListDiskPageCacheMb(final int longListDiskPageCacheMb) {
+		if (longListDiskPageCacheMb < 0) {
+			throw new IllegalArgumentException("Cannot configure longListDiskPageCacheMb=" + longListDiskPageCacheMb);
+		}
+		this.longListDiskPageCacheMb = longListDiskPageCacheMb;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSaveRecordsSerializationThreads() {
+		return saveRecordsSerializationThreads;
+	}
+
+	public void setSaveRecordsSerializationThreads(final int saveRecordsSerializationThreads) {
+		if (saveRecordsSerializationThreads < 0) {
+			throw new IllegalArgumentException("Cannot configure saveRecordsSerializationThreads="
+					+ saveRecordsSerializationThreads);
+		}
+		this.saveRecordsSerializationThreads = saveRecordsSerializationThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isMergeDirectIoEnabled() {
+		return mergeDirectIoEnabled;
+	}
+
+	public void setMergeDirectIoEnabled(final boolean mergeDirectIoEnabled) {
+		this.mergeDirectIoEnabled = mergeDirectIoEnabled;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMaxIndexSnapshotDeltas() {
+		return maxIndexSnapshotDeltas;
+	}
+
+	public void setMaxIndexSnapshotDeltas(final int maxIndexSnapshotDeltas) {
+		if (maxIndexSnapshotDeltas < 0) {
+			throw new IllegalArgumentException("Cannot configure maxIndexSnapshotDeltas=" + maxIndexSnapshotDeltas);
+		}
+		this.maxIndexSnapshotDeltas = maxIndexSnapshotDeltas;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getIndexRebuildThreads() {
+		return indexRebuildThreads;
+	}
+
+	public void setIndexRebuildThreads(final int indexRebuildThreads) {
+		if (indexRebuildThreads < 1) {
+			throw new IllegalArgumentException("Cannot configure indexRebuildThreads=" + indexRebuildThreads);
+		}
+		this.indexRebuildThreads = indexRebuildThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getCompactionGarbageRatioThreshold() {
+		return compactionGarbageRatioThreshold;
+	}
+
+	public void setCompactionGarbageRatioThreshold(final double compactionGarbageRatioThreshold) {
+		if (compactionGarbageRatioThreshold < 0 || compactionGarbageRatioThreshold > 1) {
+			throw new IllegalArgumentException("Cannot configure compactionGarbageRatioThreshold="
+					+ compactionGarbageRatioThreshold);
+		}
+		this.compactionGarbageRatioThreshold = compactionGarbageRatioThreshold;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBatchReadThreads() {
+		return batchReadThreads;
+	}
+
+	public void setBatchReadThreads(final int batchReadThreads) {
+		if (batchReadThreads < 1) {
+			throw new IllegalArgumentException("Cannot configure batchReadThreads=" + batchReadThreads);
+		}
+		this.batchReadThreads = batchReadThreads;
+	}
 }
 
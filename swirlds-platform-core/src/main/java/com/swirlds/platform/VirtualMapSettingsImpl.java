@@ -20,14 +20,19 @@ import com.swirlds.virtualmap.VirtualMapSettings;
 import java.time.Duration;
 
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_FLUSH_INTERVAL;
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_FLUSH_MEMORY_BUDGET_BYTES;
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_FLUSH_THRESHOLD_BYTES;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_FLUSH_THROTTLE_STEP_SIZE;
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_LEAF_ITERATION_BATCH_SIZE;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_MAXIMUM_FLUSH_THROTTLE_PERIOD;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_MAXIMUM_VIRTUAL_MAP_SIZE;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_NUM_CLEANER_THREADS;
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_NUM_HASH_PREFETCH_THREADS;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_NUM_HASH_THREADS;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_PERCENT_CLEANER_THREADS;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_PERCENT_HASH_THREADS;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_PREFERRED_FLUSH_QUEUE_SIZE;
+import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_RECONNECT_FLUSH_BATCH_SIZE;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_VIRTUAL_MAP_WARNING_INTERVAL;
 import static com.swirlds.virtualmap.DefaultVirtualMapSettings.DEFAULT_VIRTUAL_MAP_WARNING_THRESHOLD;
 
@@ -48,6 +53,11 @@ public class VirtualMapSettingsImpl extends SubSetting implements VirtualMapSett
 	public int preferredFlushQueueSize = DEFAULT_PREFERRED_FLUSH_QUEUE_SIZE;
 	public Duration flushThrottleStepSize = DEFAULT_FLUSH_THROTTLE_STEP_SIZE;
 	public Duration maximumFlushThrottlePeriod = DEFAULT_MAXIMUM_FLUSH_THROTTLE_PERIOD;
+	public long flushThresholdBytes = DEFAULT_FLUSH_THRESHOLD_BYTES;
+	public long flushMemoryBudgetBytes = DEFAULT_FLUSH_MEMORY_BUDGET_BYTES;
+	public int leafIterationBatchSize = DEFAULT_LEAF_ITERATION_BATCH_SIZE;
+	public int numHashPrefetchThreads = DEFAULT_NUM_HASH_PREFETCH_THREADS;
+	public int reconnectFlushBatchSize = DEFAULT_RECONNECT_FLUSH_BATCH_SIZE;
 
 	/**
 	 * {@inheritDoc}
@@ -219,4 +229,95 @@ public class VirtualMapSettingsImpl extends SubSetting implements VirtualMapSett
 	public void setMaximumFlushThrottlePeriod(final Duration maximumFlushThrottlePeriod) {
 		this.maximumFlushThrottlePeriod = maximumFlushThrottlePeriod;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getFlushThresholdBytes() {
+		return flushThresholdBytes;
+	}
+
+	/**
+	 * Set the estimated bytes of changes since the last flushed copy that cause a copy to be flushed, zero to flush
+	 * every {@link #getFlushInterval()} copies.
+	 */
+	public void setFlushThresholdBytes(final long flushThresholdBytes) {
+		if (flushThresholdBytes < 0) {
+			throw new IllegalArgumentException("Cannot configure flushThresholdBytes=" + flushThresholdBytes);
+		}
+		this.flushThresholdBytes = flushThresholdBytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getFlushMemoryBudgetBytes() {
+		return flushMemoryBudgetBytes;
+	}
+
+	/**
+	 * Set the budget for the estimated bytes of changes in all copies of a map that have not been flushed yet.
+	 */
+	public void setFlushMemoryBudgetBytes(final long flushMemoryBudgetBytes) {
+		if (flushMemoryBudgetBytes < 0) {
+			throw new IllegalArgumentException("Cannot configure flushMemoryBudgetBytes=" + flushMemoryBudgetBytes);
+		}
+		this.flushMemoryBudgetBytes = flushMemoryBudgetBytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLeafIterationBatchSize() {
+		return leafIterationBatchSize;
+	}
+
+	/**
+	 * Set the number of leaves loaded per read ahead batch when streaming the leaves of a map copy.
+	 */
+	public void setLeafIterationBatchSize(final int leafIterationBatchSize) {
+		if (leafIterationBatchSize < 1) {
+			throw new IllegalArgumentException("Cannot configure leafIterationBatchSize=" + leafIterationBatchSize);
+		}
+		this.leafIterationBatchSize = leafIterationBatchSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNumHashPrefetchThreads() {
+		return numHashPrefetchThreads;
+	}
+
+	/**
+	 * Set the number of threads that load clean sibling hashes ahead of hashing, zero disables prefetching.
+	 */
+	public void setNumHashPrefetchThreads(final int numHashPrefetchThreads) {
+		if (numHashPrefetchThreads < 0) {
+			throw new IllegalArgumentException("Cannot configure numHashPrefetchThreads=" + numHashPrefetchThreads);
+		}
+		this.numHashPrefetchThreads = numHashPrefetchThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getReconnectFlushBatchSize() {
+		return reconnectFlushBatchSize;
+	}
+
+	/**
+	 * Set the minimum number of records in each data source write during reconnect, zero writes every hashing batch.
+	 */
+	public void setReconnectFlushBatchSize(final int reconnectFlushBatchSize) {
+		if (reconnectFlushBatchSize < 0) {
+			throw new IllegalArgumentException("Cannot configure reconnectFlushBatchSize=" + reconnectFlushBatchSize);
+		}
+		this.reconnectFlushBatchSize = reconnectFlushBatchSize;
+	}
 }
@@ -32,6 +32,11 @@ public final class DefaultVirtualMapSettings implements VirtualMapSettings {
 	public static final int DEFAULT_PREFERRED_FLUSH_QUEUE_SIZE = 2;
 	public static final Duration DEFAULT_FLUSH_THROTTLE_STEP_SIZE = Duration.ofMillis(200);
 	public static final Duration DEFAULT_MAXIMUM_FLUSH_THROTTLE_PERIOD = Duration.ofSeconds(5);
+	public static final long DEFAULT_FLUSH_THRESHOLD_BYTES = 0;
+	public static final long DEFAULT_FLUSH_MEMORY_BUDGET_BYTES = 0;
+	public static final int DEFAULT_LEAF_ITERATION_BATCH_SIZE = 1024;
+	public static final int DEFAULT_NUM_HASH_PREFETCH_THREADS = 0;
+	public static final int DEFAULT_RECONNECT_FLUSH_BATCH_SIZE = 500_000;
 
 	/**
 	 * {@inheritDoc}
@@ -122,4 +127,43 @@ public final class DefaultVirtualMapSettings implements VirtualMapSettings {
 		return DEFAULT_MAXIMUM_FLUSH_THROTTLE_PERIOD;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getFlushThresholdBytes() {
+		return DEFAULT_FLUSH_THRESHOLD_BYTES;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getFlushMemoryBudgetBytes() {
+		return DEFAULT_FLUSH_MEMORY_BUDGET_BYTES;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getLeafIterationBatchSize() {
+		return DEFAULT_LEAF_ITERATION_BATCH_SIZE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNumHashPrefetchThreads() {
+		return DEFAULT_NUM_HASH_PREFETCH_THREADS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getReconnectFlushBatchSize() {
+		return DEFAULT_RECONNECT_FLUSH_BATCH_SIZE;
+	}
 }
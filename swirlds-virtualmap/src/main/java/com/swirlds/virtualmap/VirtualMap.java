@@ -25,6 +25,7 @@ import com.swirlds.common.merkle.utility.AbstractBinaryMerkleInternal;
 import com.swirlds.common.statistics.StatEntry;
 import com.swirlds.virtualmap.datasource.VirtualDataSource;
 import com.swirlds.virtualmap.datasource.VirtualDataSourceBuilder;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
 import com.swirlds.virtualmap.internal.merkle.StateAccessorImpl;
 import com.swirlds.virtualmap.internal.merkle.VirtualMapState;
 import com.swirlds.virtualmap.internal.merkle.VirtualRootNode;
@@ -39,6 +40,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static com.swirlds.common.CommonUtils.getNormalisedStringBytes;
 import static com.swirlds.common.merkle.io.SerializationStrategy.EXTERNAL_SELF_SERIALIZATION;
@@ -444,4 +446,20 @@ public final class VirtualMap<K extends VirtualKey<? super K>, V extends Virtual
 	public V remove(final K key) {
 		return root.remove(key);
 	}
+
+	/**
+	 * Gets a stream of all the leaves of this map in path order, which is not key order. Leaves are read from disk in
+	 * batches with the next batch read ahead, and the stream can be made parallel with {@link Stream#parallel()}, in
+	 * which case it is split by ranges of paths. This is much faster for exporting or auditing a whole map than
+	 * iterating over the merkle tree.
+	 * <p>
+	 * This map must not be modified or released while the stream is in use, so this should normally be called on an
+	 * immutable copy that is reserved until the stream is done. The leaf records and their values must not be
+	 * modified.
+	 *
+	 * @return a lazily loaded stream of the leaves of this map
+	 */
+	public Stream<VirtualLeafRecord<K, V>> leafStream() {
+		return root.leafStream();
+	}
 }
@@ -123,4 +123,51 @@ public interface VirtualMapSettings {
 	 * @return the maximum flush throttle for any individual fast copy operation
 	 */
 	Duration getMaximumFlushThrottlePeriod();
+
+	/**
+	 * When greater than zero, copies are chosen for flushing by the estimated size of their changes instead of every
+	 * {@link #getFlushInterval()} copies. A copy is flushed once the estimated bytes of cache entries changed since
+	 * the last flushed copy reach this threshold, so quiet rounds are merged together and busy rounds are flushed
+	 * sooner. Zero uses the flush interval. Default is zero.
+	 *
+	 * @return the estimated bytes of changes that cause a copy to be flushed, or zero
+	 */
+	long getFlushThresholdBytes();
+
+	/**
+	 * The budget for the estimated bytes of changes held in the caches of all copies of a map that have not been
+	 * flushed yet, only used when {@link #getFlushThresholdBytes()} is greater than zero. Once the estimate goes over
+	 * the budget every copy is flushed, and fast copies are throttled, until it drops back below three quarters of the
+	 * budget. Zero throttles fast copies by the number of copies waiting to be flushed instead. Default is zero.
+	 *
+	 * @return the budget in bytes for unflushed changes, or zero
+	 */
+	long getFlushMemoryBudgetBytes();
+
+	/**
+	 * The number of leaves loaded from disk per batch when streaming the leaves of a map copy. While one batch is
+	 * consumed the next one is read ahead on a background thread. Must be positive.
+	 *
+	 * @return the number of leaves in each read ahead batch
+	 */
+	int getLeafIterationBatchSize();
+
+	/**
+	 * The number of threads, shared by all maps, that load the hashes of clean siblings needed for hashing ahead of
+	 * the hashing threads, so reading from disk overlaps hashing. Zero disables prefetching, so hashing threads read
+	 * clean siblings themselves. Default is 0.
+	 *
+	 * @return the number of threads prefetching hashes, or zero
+	 */
+	int getNumHashPrefetchThreads();
+
+	/**
+	 * The minimum number of hashed nodes the learner collects during reconnect before writing them to the data source.
+	 * Small hashing batches are combined into one write of at least this many records, and each write runs in the
+	 * background while hashing carries on, so at most about twice this many records are held in memory. Zero writes
+	 * every hashing batch on its own. Default is 500,000.
+	 *
+	 * @return the minimum number of records in each reconnect write
+	 */
+	int getReconnectFlushBatchSize();
 }
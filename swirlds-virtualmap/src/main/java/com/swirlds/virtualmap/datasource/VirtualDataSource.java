@@ -21,6 +21,9 @@ import com.swirlds.virtualmap.VirtualValue;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -96,6 +99,24 @@ public interface VirtualDataSource<K extends VirtualKey<? super K>, V extends Vi
 	 */
 	VirtualLeafRecord<K, V> loadLeafRecord(final K key) throws IOException;
 
+	/**
+	 * Load the records for a batch of leaf nodes by key. Implementations should override this when they can resolve
+	 * many keys more cheaply than one at a time, for example by ordering and coalescing disk reads.
+	 *
+	 * @param keys
+	 * 		the keys for the leaves
+	 * @return list of leaf records in the iteration order of keys, with null for any key that is not stored
+	 * @throws IOException
+	 * 		If there was a problem reading the leaf records
+	 */
+	default List<VirtualLeafRecord<K, V>> loadLeafRecords(final Collection<K> keys) throws IOException {
+		final List<VirtualLeafRecord<K, V>> leafRecords = new ArrayList<>(keys.size());
+		for (final K key : keys) {
+			leafRecords.add(loadLeafRecord(key));
+		}
+		return leafRecords;
+	}
+
 	/**
 	 * Load the record for a leaf node by path
 	 *
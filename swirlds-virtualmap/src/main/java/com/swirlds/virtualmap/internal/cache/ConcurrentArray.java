@@ -51,6 +51,10 @@ import java.util.stream.Stream;
  * a sorted stream of all array elements. Since this operation is incompatible with concurrent calls to
  * {@link #add(Object)}, the instance must first be sealed {@link #seal()} before calling {@code sortedStream}.
  * This is a safety precaution to guard against accidental sorting of a mutable {@link ConcurrentArray}.
+ * <p>
+ * Sorting leaves a single sub-array that remembers the comparator it was sorted by, so sorting it again with
+ * the same comparator is free. When sorted arrays are merged, their sub-arrays become sorted runs of the merged
+ * array, and the sort used for it (which is run adaptive) merges those runs instead of sorting from scratch.
  *
  * @param <T>
  * 		the element type
@@ -308,6 +312,12 @@ final class ConcurrentArray<T> {
 		// avoid the array copies, but we could not find a more efficient solution. Lock so that we can safely combine
 		// the arrays and sort the result.
 		synchronized (this) {
+			// If we were already sorted with this comparator, there is nothing to do
+			final SubArray<T> firstArray = arrays.getFirst();
+			if (comparator != null && firstArray.sortedBy == comparator && arrays.size() == 1) {
+				return Arrays.stream(firstArray.array, 0, numberOfElements);
+			}
+
 			// Copy all the arrays to one new array
 			final SubArray<T> newArray = new SubArray<>(numberOfElements);
 			int nextIndex = 0;
@@ -317,11 +327,13 @@ final class ConcurrentArray<T> {
 				nextIndex += arraySize;
 			}
 			newArray.size.set(numberOfElements);
-			arrays.clear();
-			arrays.add(newArray);
 
-			// Now sort
+			// Now sort. Sub-arrays that were sorted before being merged into this array are sorted runs, which
+			// the merge sort used by parallelSort detects and merges rather than sorting again.
 			Arrays.parallelSort(newArray.array, 0, numberOfElements, comparator);
+			newArray.sortedBy = comparator;
+			arrays.clear();
+			arrays.add(newArray);
 		}
 
 		// Create and return the stream
@@ -350,6 +362,12 @@ final class ConcurrentArray<T> {
 		private final T[] array;
 		private final AtomicInteger size = new AtomicInteger(0);
 
+		/**
+		 * The comparator the whole array was sorted by, or null if it is not known to be sorted. Only set on
+		 * arrays created by sorting, before they are published.
+		 */
+		private Comparator<T> sortedBy;
+
 		@SuppressWarnings("unchecked")
 		public SubArray(int capacity) {
 			this.array = (T[]) new Object[capacity];
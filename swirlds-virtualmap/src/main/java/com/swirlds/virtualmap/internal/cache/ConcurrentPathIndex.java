@@ -0,0 +1,308 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.virtualmap.internal.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent map from paths to values, optimized for the path indexes of the {@link VirtualNodeCache}.
+ * <p>
+ * A {@link java.util.concurrent.ConcurrentHashMap} keyed by {@link Long} allocates a boxed key and a node for
+ * every entry, and the path indexes of the cache gain and lose hundreds of thousands of entries every round, which
+ * made them one of the biggest sources of young generation garbage. This class stores paths in a {@code long}
+ * array and values in a parallel reference array using open addressing with linear probing, so adding an entry
+ * allocates nothing unless the table has to grow.
+ * <p>
+ * The map is split into a fixed number of segments, each with its own table. Lookups never lock. They read the
+ * current table of a segment and probe it, and because a value is always published before its path, a lookup that
+ * finds a path also sees its value. Writes, through {@link #put(long, Object)} and {@link #compute(long, Remapping)},
+ * lock their segment. A removed entry keeps its path in the table with a null value, so a probe sequence is never
+ * broken under a concurrent lookup. Such entries are dropped when the segment's table is rebuilt, which happens when
+ * the table gets too full. A rebuilt table is only published once it is complete, and the old table is never
+ * written to again, so lookups already probing the old table still see a consistent view.
+ *
+ * @param <V>
+ * 		the value type
+ */
+final class ConcurrentPathIndex<V> {
+	/**
+	 * The number of segments, each locked separately by writers. Must be a power of two.
+	 */
+	private static final int SEGMENT_COUNT = 64;
+
+	/**
+	 * The number of bits needed to pick a segment.
+	 */
+	private static final int SEGMENT_BITS = Integer.numberOfTrailingZeros(SEGMENT_COUNT);
+
+	/**
+	 * The initial number of slots in the table of each segment. Must be a power of two.
+	 */
+	private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+	/**
+	 * A table is rebuilt once more than this fraction of its slots have ever been used. Linear probing gets slow
+	 * as tables fill up, and a lookup relies on there always being an empty slot to stop at.
+	 */
+	private static final double MAX_LOAD_FACTOR = 0.6;
+
+	/**
+	 * Marks a slot that has never been used. Paths are never negative.
+	 */
+	private static final long EMPTY = -1;
+
+	/**
+	 * A function used to compute a new value for a path.
+	 *
+	 * @param <V>
+	 * 		the value type
+	 */
+	@FunctionalInterface
+	interface Remapping<V> {
+		/**
+		 * Compute the new value for a path.
+		 *
+		 * @param path
+		 * 		the path
+		 * @param value
+		 * 		the current value, or null if there is none
+		 * @return the new value, or null to remove the entry
+		 */
+		V apply(long path, V value);
+	}
+
+	/**
+	 * Receives the entries of the index.
+	 *
+	 * @param <V>
+	 * 		the value type
+	 */
+	@FunctionalInterface
+	interface EntryConsumer<V> {
+		/**
+		 * Accept an entry.
+		 *
+		 * @param path
+		 * 		the path
+		 * @param value
+		 * 		the value, never null
+		 */
+		void accept(long path, V value);
+	}
+
+	/**
+	 * The segments, picked by the high bits of the mixed path.
+	 */
+	private final Segment<V>[] segments;
+
+	/**
+	 * Create a new, empty index.
+	 */
+	@SuppressWarnings("unchecked")
+	ConcurrentPathIndex() {
+		segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new Segment<>();
+		}
+	}
+
+	/**
+	 * Get the value for a path. This never locks, and is safe to call concurrently with writes.
+	 *
+	 * @param path
+	 * 		the path
+	 * @return the value, or null if there is none
+	 */
+	V get(final long path) {
+		final long hash = mix(path);
+		final Table<V> table = segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))].table;
+		for (int slot = (int) hash & table.mask; ; slot = (slot + 1) & table.mask) {
+			final long slotPath = table.paths.get(slot);
+			if (slotPath == path) {
+				return table.values.get(slot);
+			}
+			if (slotPath == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Set the value for a path.
+	 *
+	 * @param path
+	 * 		the path, must not be negative
+	 * @param value
+	 * 		the value, must not be null
+	 */
+	void put(final long path, final V value) {
+		assert value != null : "Values cannot be null";
+		compute(path, (p, v) -> value);
+	}
+
+	/**
+	 * Atomically compute a new value for a path. Like {@link java.util.Map#compute}, the function is called while
+	 * the segment holding the path is locked, so it must be short and must not use this index.
+	 *
+	 * @param path
+	 * 		the path, must not be negative
+	 * @param remapping
+	 * 		computes the new value from the current value
+	 * @return the new value, or null if the entry was removed
+	 */
+	V compute(final long path, final Remapping<V> remapping) {
+		if (path < 0) {
+			throw new IllegalArgumentException("Paths cannot be negative, path=" + path);
+		}
+		final long hash = mix(path);
+		final Segment<V> segment = segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+		synchronized (segment) {
+			final Table<V> table = segment.table;
+			int slot = (int) hash & table.mask;
+			long slotPath;
+			while ((slotPath = table.paths.get(slot)) != path && slotPath != EMPTY) {
+				slot = (slot + 1) & table.mask;
+			}
+
+			final V oldValue = slotPath == EMPTY ? null : table.values.get(slot);
+			final V newValue = remapping.apply(path, oldValue);
+			if (newValue == oldValue) {
+				return newValue;
+			}
+
+			// the value has to be visible before the path, lookups rely on it
+			table.values.set(slot, newValue);
+			if (oldValue == null) {
+				segment.size++;
+			} else if (newValue == null) {
+				segment.size--;
+			}
+			if (slotPath == EMPTY) {
+				table.paths.set(slot, path);
+				if (++segment.usedSlots > table.maxUsedSlots) {
+					segment.rebuild();
+				}
+			}
+			return newValue;
+		}
+	}
+
+	/**
+	 * Get the number of paths in the index. This is only exact if there are no concurrent writes.
+	 *
+	 * @return the number of paths with a value
+	 */
+	int size() {
+		int size = 0;
+		for (final Segment<V> segment : segments) {
+			size += segment.size;
+		}
+		return size;
+	}
+
+	/**
+	 * Pass every entry of the index to a consumer, in no particular order. Entries written concurrently may or may
+	 * not be seen.
+	 *
+	 * @param consumer
+	 * 		receives the entries
+	 */
+	void forEach(final EntryConsumer<V> consumer) {
+		for (final Segment<V> segment : segments) {
+			final Table<V> table = segment.table;
+			for (int slot = 0; slot <= table.mask; slot++) {
+				final long path = table.paths.get(slot);
+				if (path != EMPTY) {
+					final V value = table.values.get(slot);
+					if (value != null) {
+						consumer.accept(path, value);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Spread the bits of a path, so that both the segment (high bits) and the slot (low bits) depend on all of it.
+	 */
+	private static long mix(final long path) {
+		final long hash = path * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 29);
+	}
+
+	/**
+	 * A part of the index with its own table. Writers lock the segment, readers just read its table.
+	 */
+	private static final class Segment<V> {
+		/** The current table, replaced by a new one when rebuilt */
+		private volatile Table<V> table = new Table<>(INITIAL_SEGMENT_CAPACITY);
+		/** The number of paths with a value, only written while locked */
+		private volatile int size;
+		/** The number of slots in the table that are not empty, including removed entries, guarded by this */
+		private int usedSlots;
+
+		/**
+		 * Replace the table with a new one holding just the entries with a value, large enough that it is at most
+		 * half full. Must be called while holding the lock.
+		 */
+		private void rebuild() {
+			final Table<V> oldTable = table;
+			final int capacity = Math.max(INITIAL_SEGMENT_CAPACITY, Integer.highestOneBit(Math.max(1, size)) << 2);
+			final Table<V> newTable = new Table<>(capacity);
+			int used = 0;
+			for (int oldSlot = 0; oldSlot <= oldTable.mask; oldSlot++) {
+				final long path = oldTable.paths.get(oldSlot);
+				final V value = path == EMPTY ? null : oldTable.values.get(oldSlot);
+				if (value != null) {
+					int slot = (int) mix(path) & newTable.mask;
+					while (newTable.paths.get(slot) != EMPTY) {
+						slot = (slot + 1) & newTable.mask;
+					}
+					newTable.values.set(slot, value);
+					newTable.paths.set(slot, path);
+					used++;
+				}
+			}
+			usedSlots = used;
+			table = newTable;
+		}
+	}
+
+	/**
+	 * An open addressing table of paths and values.
+	 */
+	private static final class Table<V> {
+		/** The path in each slot, or {@link #EMPTY} */
+		private final AtomicLongArray paths;
+		/** The value in each slot, null for an empty slot or a removed entry */
+		private final AtomicReferenceArray<V> values;
+		/** The number of slots minus one, the number of slots is a power of two */
+		private final int mask;
+		/** The number of used slots above which the table is rebuilt */
+		private final int maxUsedSlots;
+
+		private Table(final int capacity) {
+			this.paths = new AtomicLongArray(capacity);
+			for (int slot = 0; slot < capacity; slot++) {
+				this.paths.set(slot, EMPTY);
+			}
+			this.values = new AtomicReferenceArray<>(capacity);
+			this.mask = capacity - 1;
+			this.maxUsedSlots = (int) (capacity * MAX_LOAD_FACTOR);
+		}
+	}
+}
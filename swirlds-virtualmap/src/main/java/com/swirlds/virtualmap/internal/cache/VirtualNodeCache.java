@@ -32,9 +32,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -154,6 +157,23 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	private static final Comparator<Mutation<VirtualInternalRecord>> DIRTY_INTERNAL_COMPARATOR
 			= new MutationComparator<>();
 
+	/**
+	 * A rough estimate of the heap used by each dirty leaf mutation: the mutation, its index entry, the leaf
+	 * record with its key, value and hash, and the internal records that hashing the leaf typically dirties.
+	 */
+	private static final long ESTIMATED_DIRTY_LEAF_BYTES = 512;
+
+	/**
+	 * A rough estimate of the heap used by each leaf path mutation, the mutation and its index entry.
+	 */
+	private static final long ESTIMATED_DIRTY_LEAF_PATH_BYTES = 64;
+
+	/**
+	 * A rough estimate of the heap used by each dirty internal mutation, the mutation, its index entry and
+	 * the internal record with its hash.
+	 */
+	private static final long ESTIMATED_DIRTY_INTERNAL_BYTES = 192;
+
 	/**
 	 * The number of threads to use when cleaning. Can either be supplied by a system property, or
 	 * will compute a default based on "percentCleanerThreads".
@@ -216,18 +236,19 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	private final Map<K, Mutation<VirtualLeafRecord<K, V>>> keyToDirtyLeafIndex;
 
 	/**
-	 * A shared index of paths to leaves, via {@link Mutation}s. Works the same as {@link #keyToDirtyLeafIndex}.
+	 * A shared index of paths to leaves, via {@link Mutation}s. Works the same as {@link #keyToDirtyLeafIndex},
+	 * but is keyed by primitive paths so updating it does not box paths or allocate map nodes.
 	 * <p>
 	 * <strong>ONE PER CHAIN OF CACHES</strong>.
 	 */
-	private final Map<Long, Mutation<K>> pathToDirtyLeafIndex;
+	private final ConcurrentPathIndex<Mutation<K>> pathToDirtyLeafIndex;
 
 	/**
-	 * A shared index of paths to internals, via {@link Mutation}s. Works the same as {@link #keyToDirtyLeafIndex}.
+	 * A shared index of paths to internals, via {@link Mutation}s. Works the same as {@link #pathToDirtyLeafIndex}.
 	 * <p>
 	 * <strong>ONE PER CHAIN OF CACHES</strong>.
 	 */
-	private final Map<Long, Mutation<VirtualInternalRecord>> pathToDirtyInternalIndex;
+	private final ConcurrentPathIndex<Mutation<VirtualInternalRecord>> pathToDirtyInternalIndex;
 
 	/**
 	 * Whether this instance is released. A released cache is often the last in the
@@ -305,8 +326,8 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	 */
 	public VirtualNodeCache() {
 		this.keyToDirtyLeafIndex = new ConcurrentHashMap<>();
-		this.pathToDirtyLeafIndex = new ConcurrentHashMap<>();
-		this.pathToDirtyInternalIndex = new ConcurrentHashMap<>();
+		this.pathToDirtyLeafIndex = new ConcurrentPathIndex<>();
+		this.pathToDirtyInternalIndex = new ConcurrentPathIndex<>();
 		this.releaseLock = new ReentrantLock();
 	}
 
@@ -414,8 +435,8 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 		// to be there anymore.
 		CLEANING_POOL.execute(() -> {
 			purge(dirtyLeaves, keyToDirtyLeafIndex);
-			purge(dirtyLeafPaths, pathToDirtyLeafIndex);
-			purge(dirtyInternals, pathToDirtyInternalIndex);
+			purgePaths(dirtyLeafPaths, pathToDirtyLeafIndex);
+			purgePaths(dirtyInternals, pathToDirtyInternalIndex);
 
 			dirtyLeaves = null;
 			dirtyLeafPaths = null;
@@ -487,6 +508,22 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 		dirtyLeafPaths.seal();
 	}
 
+	/**
+	 * Gets a rough estimate of the heap in bytes used by the mutations made in this version of the cache, or merged
+	 * into it from older versions. This is only based on the number of mutations, not on the actual sizes of keys and
+	 * values, and is meant for deciding when to flush.
+	 *
+	 * @return the estimated size in bytes, zero if this cache has been released
+	 */
+	public long estimatedSize() {
+		final ConcurrentArray<Mutation<VirtualLeafRecord<K, V>>> leaves = dirtyLeaves;
+		final ConcurrentArray<Mutation<K>> leafPaths = dirtyLeafPaths;
+		final ConcurrentArray<Mutation<VirtualInternalRecord>> internals = dirtyInternals;
+		return (leaves == null ? 0 : leaves.size() * ESTIMATED_DIRTY_LEAF_BYTES)
+				+ (leafPaths == null ? 0 : leafPaths.size() * ESTIMATED_DIRTY_LEAF_PATH_BYTES)
+				+ (internals == null ? 0 : internals.size() * ESTIMATED_DIRTY_INTERNAL_BYTES);
+	}
+
 	// --------------------------------------------------------------------------------------------
 	// API for caching leaves.
 	//
@@ -947,9 +984,10 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	 */
 	public VirtualNodeCache<K, V> snapshot() {
 		final VirtualNodeCache<K, V> newSnapshot = new VirtualNodeCache<>();
-		setMapSnapshotAndArray(
+		setIndexSnapshotAndArray(
 				this.pathToDirtyInternalIndex, newSnapshot.pathToDirtyInternalIndex, newSnapshot.dirtyInternals);
-		setMapSnapshotAndArray(this.pathToDirtyLeafIndex, newSnapshot.pathToDirtyLeafIndex, newSnapshot.dirtyLeafPaths);
+		setIndexSnapshotAndArray(
+				this.pathToDirtyLeafIndex, newSnapshot.pathToDirtyLeafIndex, newSnapshot.dirtyLeafPaths);
 		setMapSnapshotAndArray(this.keyToDirtyLeafIndex, newSnapshot.keyToDirtyLeafIndex, newSnapshot.dirtyLeaves);
 		newSnapshot.snapshot.set(true);
 		newSnapshot.fastCopyVersion.set(this.fastCopyVersion.get());
@@ -1041,7 +1079,7 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	private <T> void updatePaths(
 			final T value,
 			final long path,
-			final Map<Long, Mutation<T>> index,
+			final ConcurrentPathIndex<Mutation<T>> index,
 			final ConcurrentArray<Mutation<T>> dirtyPaths) {
 		index.compute(path, (key, mutation) -> {
 			// If there is no mutation or the mutation isn't for this version, then we need to create a new mutation.
@@ -1172,6 +1210,33 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 		);
 	}
 
+	/**
+	 * Called by one of the purge threads to purge entries from a path index that no longer have a referent
+	 * for the mutation list. This can be called concurrently.
+	 *
+	 * @param index
+	 * 		The path index to look through for entries to purge
+	 * @param <U>
+	 * 		The value type referenced by the mutation list
+	 */
+	private static <U> void purgePaths(ConcurrentArray<Mutation<U>> array, ConcurrentPathIndex<Mutation<U>> index) {
+		array.parallelTraverse(CLEANING_POOL, element ->
+				index.compute(element.path, (path, mutation) -> {
+					if (mutation == null || element.equals(mutation)) {
+						// Already removed for a more recent mutation
+						return null;
+					}
+					for (Mutation<U> m = mutation; m.next != null; m = m.next) {
+						if (element.equals(m.next)) {
+							m.next = null;
+							break;
+						}
+					}
+					return mutation;
+				})
+		);
+	}
+
 	/**
 	 * Copies the mutations from {@code src} into {@code dst}
 	 * with the following constraints:
@@ -1210,6 +1275,47 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 		}
 	}
 
+	/**
+	 * Copies the mutations from the path index {@code src} into {@code dst}, with the same constraints as
+	 * {@link #setMapSnapshotAndArray(Map, Map, ConcurrentArray)}.
+	 *
+	 * @param src
+	 * 		Index that contains the original mutations
+	 * @param dst
+	 * 		Index that acts as the destination of mutations
+	 * @param <S>
+	 * 		Value type
+	 */
+	private <S> void setIndexSnapshotAndArray(final ConcurrentPathIndex<Mutation<S>> src,
+			final ConcurrentPathIndex<Mutation<S>> dst,
+			final ConcurrentArray<Mutation<S>> array) {
+		src.forEach((path, mutation) -> {
+			while (mutation != null && mutation.version > this.fastCopyVersion.get()) {
+				mutation = mutation.next;
+			}
+
+			if (mutation != null) {
+				dst.put(path, mutation);
+				array.add(mutation);
+			}
+		});
+	}
+
+	/**
+	 * Gets the mutations in a path index, so they can be serialized outside a callback.
+	 *
+	 * @param index
+	 * 		The index. Cannot be null.
+	 * @param <S>
+	 * 		Value type
+	 * @return the mutations in the index
+	 */
+	private static <S> List<Mutation<S>> mutations(final ConcurrentPathIndex<Mutation<S>> index) {
+		final List<Mutation<S>> mutations = new ArrayList<>(index.size());
+		index.forEach((path, mutation) -> mutations.add(mutation));
+		return mutations;
+	}
+
 	/**
 	 * Serialize the {@link #pathToDirtyInternalIndex}.
 	 *
@@ -1220,14 +1326,13 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	 * @throws IOException
 	 * 		If something fails.
 	 */
-	private void serializePathToDirtyInternalIndex(final Map<Long, Mutation<VirtualInternalRecord>> map,
+	private void serializePathToDirtyInternalIndex(final ConcurrentPathIndex<Mutation<VirtualInternalRecord>> map,
 			final SerializableDataOutputStream out) throws IOException {
 		assert snapshot.get() : "Only snapshots can be serialized";
 		out.writeInt(map.size());
-		for (final Map.Entry<Long, Mutation<VirtualInternalRecord>> entry : map.entrySet()) {
-			out.writeLong(entry.getKey());
-			final Mutation<VirtualInternalRecord> mutation = entry.getValue();
+		for (final Mutation<VirtualInternalRecord> mutation : mutations(map)) {
 			assert mutation != null : "Mutations cannot be null in a snapshot";
+			out.writeLong(mutation.path);
 			assert mutation.version <= this.fastCopyVersion.get() :
 					"Trying to serialize pathToDirtyInternalIndex with a version ahead";
 
@@ -1251,7 +1356,7 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	 * @throws IOException
 	 * 		In case of trouble.
 	 */
-	private void deserializePathToDirtyInternalIndex(final Map<Long, Mutation<VirtualInternalRecord>> map,
+	private void deserializePathToDirtyInternalIndex(final ConcurrentPathIndex<Mutation<VirtualInternalRecord>> map,
 			final SerializableDataInputStream in) throws IOException {
 		final int sizeOfMap = in.readInt();
 		for (int index = 0; index < sizeOfMap; index++) {
@@ -1283,14 +1388,13 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	 * @throws IOException
 	 * 		If something fails.
 	 */
-	private void serializePathToDirtyLeafIndex(final Map<Long, Mutation<K>> map,
+	private void serializePathToDirtyLeafIndex(final ConcurrentPathIndex<Mutation<K>> map,
 			final SerializableDataOutputStream out) throws IOException {
 		assert snapshot.get() : "Only snapshots can be serialized";
 		out.writeInt(map.size());
-		for (final Map.Entry<Long, Mutation<K>> entry : map.entrySet()) {
-			out.writeLong(entry.getKey());
-			final Mutation<K> mutation = entry.getValue();
+		for (final Mutation<K> mutation : mutations(map)) {
 			assert mutation != null : "Mutations cannot be null in a snapshot";
+			out.writeLong(mutation.path);
 			assert mutation.version <= this.fastCopyVersion.get() :
 					"Trying to serialize pathToDirtyLeafIndex with a version ahead";
 
@@ -1310,11 +1414,11 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	 * @throws IOException
 	 * 		In case of trouble.
 	 */
-	private void deserializePathToDirtyLeafIndex(final Map<Long, Mutation<K>> map,
+	private void deserializePathToDirtyLeafIndex(final ConcurrentPathIndex<Mutation<K>> map,
 			final SerializableDataInputStream in) throws IOException {
 		final int sizeOfMap = in.readInt();
 		for (int index = 0; index < sizeOfMap; index++) {
-			final Long path = in.readLong();
+			final long path = in.readLong();
 			final K key = in.readSerializable();
 			final long mutationVersion = in.readLong();
 			final boolean deleted = in.readBoolean();
@@ -1508,16 +1612,33 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 	private static final class Mutation<U> {
 		private volatile Mutation<U> next;
 		private final long version; // The version of the cache that owns this mutation
-		private final Object key;
+		private final Object key; // The leaf key, or null for a mutation in one of the path indexes
+		private final long path; // The path, or -1 for a mutation in the key index
 		private volatile U value;
 		private volatile boolean deleted;
 
 		Mutation(Mutation<U> next, Object key, U value, long version) {
 			this.next = next;
 			this.key = key;
+			this.path = -1;
+			this.value = value;
+			this.version = version;
+		}
+
+		Mutation(Mutation<U> next, long path, U value, long version) {
+			this.next = next;
+			this.key = null;
+			this.path = path;
 			this.value = value;
 			this.version = version;
 		}
+
+		/**
+		 * Gets the key of the index this mutation is in, for debugging.
+		 */
+		Object indexKey() {
+			return key != null ? key : path;
+		}
 	}
 
 	/**
@@ -1640,12 +1761,10 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 		//noinspection unchecked
 		builder.append(toDebugStringIndex(
 				"keyToDirtyLeafIndex", (Map<Object, Mutation>) (Object) keyToDirtyLeafIndex)).append("\n");
-		//noinspection unchecked
 		builder.append(toDebugStringIndex(
-				"pathToDirtyLeafIndex", (Map<Object, Mutation>) (Object) pathToDirtyLeafIndex)).append("\n");
-		//noinspection unchecked
+				"pathToDirtyLeafIndex", toDebugMap(pathToDirtyLeafIndex))).append("\n");
 		builder.append(toDebugStringIndex(
-				"pathToDirtyInternalIndex", (Map<Object, Mutation>) (Object) pathToDirtyInternalIndex)).append("\n");
+				"pathToDirtyInternalIndex", toDebugMap(pathToDirtyInternalIndex))).append("\n");
 		//noinspection unchecked
 		builder.append(toDebugStringArray(
 				"dirtyLeaves", (ConcurrentArray<Mutation>) (Object) dirtyLeaves));
@@ -1680,6 +1799,13 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 		return builder.toString();
 	}
 
+	@SuppressWarnings("rawtypes")
+	private static Map<Object, Mutation> toDebugMap(final ConcurrentPathIndex<? extends Mutation> index) {
+		final Map<Object, Mutation> map = new TreeMap<>();
+		index.forEach(map::put);
+		return map;
+	}
+
 	private String toDebugStringIndex(final String indexName, @SuppressWarnings("rawtypes") final Map<Object, Mutation> index) {
 		final StringBuilder builder = new StringBuilder();
 		builder.append(indexName).append(":\n");
@@ -1688,7 +1814,7 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 			builder.append("\t").append(key).append(":==> ");
 			while (mutation != null) {
 				builder.append("[")
-						.append(mutation.key).append(",")
+						.append(mutation.indexKey()).append(",")
 						.append(mutation.value).append(",")
 						.append(mutation.deleted ? "D," : "")
 						.append("V").append(mutation.version)
@@ -1709,7 +1835,7 @@ public final class VirtualNodeCache<K extends VirtualKey<? super K>, V extends V
 		for (int i = 0; i < size; i++) {
 			final var mutation = arr.get(i);
 			builder.append("\t")
-					.append(mutation.key).append(",")
+					.append(mutation.indexKey()).append(",")
 					.append(mutation.value).append(",")
 					.append(mutation.deleted ? "D," : "")
 					.append("V").append(mutation.version)
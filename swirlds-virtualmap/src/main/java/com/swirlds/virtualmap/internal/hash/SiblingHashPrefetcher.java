@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.virtualmap.internal.hash;
+
+import com.swirlds.common.crypto.Hash;
+import com.swirlds.common.threading.ThreadConfiguration;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualMapSettingsFactory;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualInternalRecord;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+import static com.swirlds.virtualmap.internal.Path.getParentPath;
+import static com.swirlds.virtualmap.internal.Path.getSiblingPath;
+
+/**
+ * Loads the hashes of the clean siblings that the {@link VirtualHasher} needs while hashing a sub-tree, on a
+ * separate pool of IO threads. Which siblings are clean only depends on the paths of the dirty nodes, so given
+ * the leaves of a segment we can work out, before any hashing happens, every clean leaf and internal node that
+ * hashing the segment up to the stop rank will read. Loading them ahead of time lets the hashing threads stay busy
+ * with hashing instead of waiting on the data source, and lets the reads of one segment overlap the hashing of the
+ * segment before it.
+ * <p>
+ * The prefetch is only an optimization. A hash that failed to load, or has not been loaded yet, is simply missing
+ * from {@link #getHash(long)} and the hashing thread reads it itself, failing there if it really cannot be found.
+ *
+ * @param <K>
+ * 		The {@link VirtualKey} type
+ * @param <V>
+ * 		The {@link VirtualValue} type
+ */
+final class SiblingHashPrefetcher<K extends VirtualKey<? super K>, V extends VirtualValue> {
+	private static final Logger LOG = LogManager.getLogger(SiblingHashPrefetcher.class);
+
+	/**
+	 * The number of IO threads loading sibling hashes. Zero disables prefetching.
+	 */
+	static final int PREFETCH_THREAD_COUNT = VirtualMapSettingsFactory.get().getNumHashPrefetchThreads();
+
+	/**
+	 * The number of sibling paths loaded by a single task on the prefetch pool.
+	 */
+	private static final int PATHS_PER_TASK = 256;
+
+	/**
+	 * A thread pool for loading sibling hashes, shared across all virtual maps. It has a fixed size so the number of
+	 * concurrent reads from the data sources stays bounded however many maps are being hashed.
+	 */
+	private static final ExecutorService PREFETCH_POOL = Executors.newFixedThreadPool(
+			Math.max(1, PREFETCH_THREAD_COUNT),
+			new ThreadConfiguration()
+					.setThreadGroup(new ThreadGroup("virtual-map-hash-prefetchers"))
+					.setComponent("virtual-map")
+					.setThreadName("hash-prefetcher")
+					.setExceptionHandler((t, ex) ->
+							LOG.error(EXCEPTION.getMarker(), "Uncaught exception while prefetching hashes", ex))
+					.buildFactory());
+
+	/**
+	 * The loaded hashes, by path.
+	 */
+	private final Map<Long, Hash> hashes = new ConcurrentHashMap<>();
+
+	/**
+	 * For each rank of the sub-tree, completes when all the sibling hashes needed by that rank have been loaded
+	 * (or failed to load). Index 0 is the start rank, index 1 the rank above it, and so on.
+	 */
+	private final CompletableFuture<?>[] rankLoads;
+
+	/**
+	 * The rank of the leaves or internal nodes that the sub-tree starts from.
+	 */
+	private final int startRank;
+
+	/**
+	 * The total time, in nanoseconds, spent by IO threads loading hashes for this prefetcher.
+	 */
+	private final AtomicLong loadNanos;
+
+	/**
+	 * Start loading the clean sibling hashes needed to hash a sub-tree from {@code startRank} up to
+	 * {@code stopRank}. This works out the dirty nodes of each rank the same way
+	 * {@code VirtualHasher.hashSubTree} does.
+	 *
+	 * @param leafReader
+	 * 		Return a {@link VirtualLeafRecord} by path. Must be safe to call from multiple threads.
+	 * @param internalReader
+	 * 		Return a {@link VirtualInternalRecord} by path. Must be safe to call from multiple threads.
+	 * @param wq
+	 * 		The working queue the sub-tree is hashed from. Cannot be null. Only read from by this constructor.
+	 * @param lq
+	 * 		The last queue, whose leaves are added to the rank above the start rank. Can be null.
+	 * @param firstLeafPath
+	 * 		The firstLeafPath.
+	 * @param lastLeafPath
+	 * 		The lastLeafPath.
+	 * @param startRank
+	 * 		The startRank.
+	 * @param stopRank
+	 * 		The stopRank.
+	 * @param loadNanos
+	 * 		Accumulates the time spent by IO threads loading hashes. Cannot be null.
+	 */
+	SiblingHashPrefetcher(
+			final LongFunction<VirtualLeafRecord<K, V>> leafReader,
+			final LongFunction<VirtualInternalRecord> internalReader,
+			final HashingQueue<K, V> wq, final HashingQueue<K, V> lq,
+			final long firstLeafPath, final long lastLeafPath, final int startRank, final int stopRank,
+			final AtomicLong loadNanos) {
+		this.startRank = startRank;
+		this.loadNanos = loadNanos;
+		this.rankLoads = new CompletableFuture<?>[Math.max(0, startRank - stopRank)];
+
+		int size = wq.size();
+		long[] paths = new long[size];
+		for (int i = 0; i < size; i++) {
+			paths[i] = wq.get(i).getPath();
+		}
+
+		for (int rank = startRank; rank > stopRank; rank--) {
+			final long[] siblings = new long[size];
+			int siblingCount = 0;
+			int parentCount = 0;
+			for (int j = 0; j < size; j++) {
+				final long nodePath = paths[j];
+				final long siblingPath = getSiblingPath(nodePath);
+				if (j < size - 1 && paths[j + 1] == siblingPath) {
+					// both siblings are dirty, nothing to load
+					j++;
+				} else if (nodePath != firstLeafPath || nodePath != lastLeafPath) {
+					siblings[siblingCount++] = siblingPath;
+				}
+				// parents are written over the paths already visited, in the same order as the pending queue
+				paths[parentCount++] = getParentPath(nodePath);
+			}
+			rankLoads[startRank - rank] = load(leafReader, internalReader,
+					Arrays.copyOf(siblings, siblingCount), firstLeafPath);
+
+			size = parentCount;
+			if (rank == startRank && lq != null && lq.size() > 0) {
+				paths = Arrays.copyOf(paths, size + lq.size());
+				for (int i = 0; i < lq.size(); i++) {
+					paths[size++] = lq.get(i).getPath();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Submit tasks loading the hashes of the given sibling paths.
+	 *
+	 * @return a future that completes when all tasks are done
+	 */
+	private CompletableFuture<?> load(
+			final LongFunction<VirtualLeafRecord<K, V>> leafReader,
+			final LongFunction<VirtualInternalRecord> internalReader,
+			final long[] siblings, final long firstLeafPath) {
+		if (siblings.length == 0) {
+			return CompletableFuture.completedFuture(null);
+		}
+		final CompletableFuture<?>[] tasks = new CompletableFuture<?>[(siblings.length - 1) / PATHS_PER_TASK + 1];
+		for (int t = 0; t < tasks.length; t++) {
+			final int from = t * PATHS_PER_TASK;
+			final int to = Math.min(from + PATHS_PER_TASK, siblings.length);
+			tasks[t] = CompletableFuture.runAsync(() -> {
+				final long start = System.nanoTime();
+				try {
+					for (int i = from; i < to; i++) {
+						final long path = siblings[i];
+						// a sibling at or after the first leaf path is a leaf, anything else is an internal node
+						final Hash hash;
+						if (path >= firstLeafPath) {
+							final VirtualLeafRecord<K, V> leaf = leafReader.apply(path);
+							hash = leaf == null ? null : leaf.getHash();
+						} else {
+							final VirtualInternalRecord internal = internalReader.apply(path);
+							hash = internal == null ? null : internal.getHash();
+						}
+						if (hash != null) {
+							hashes.put(path, hash);
+						}
+					}
+				} catch (final RuntimeException e) {
+					// the hashing thread reads whatever is missing itself, and reports it if it fails again
+					LOG.debug(EXCEPTION.getMarker(), "Failed to prefetch a sibling hash", e);
+				} finally {
+					loadNanos.addAndGet(System.nanoTime() - start);
+				}
+			}, PREFETCH_POOL);
+		}
+		return CompletableFuture.allOf(tasks);
+	}
+
+	/**
+	 * Wait until all the sibling hashes needed to hash the given rank have been loaded.
+	 *
+	 * @param rank
+	 * 		the rank about to be hashed
+	 * @throws InterruptedException
+	 * 		if interrupted while waiting
+	 */
+	void awaitRank(final int rank) throws InterruptedException {
+		try {
+			rankLoads[startRank - rank].get();
+		} catch (final ExecutionException e) {
+			// cannot happen, failures are caught by the tasks, and anything missing is read by the hashing threads
+		}
+	}
+
+	/**
+	 * Get a prefetched hash.
+	 *
+	 * @param path
+	 * 		the path of a clean sibling
+	 * @return the hash, or null if it has not been loaded
+	 */
+	Hash getHash(final long path) {
+		return hashes.get(path);
+	}
+}
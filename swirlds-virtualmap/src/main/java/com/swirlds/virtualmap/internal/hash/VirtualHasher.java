@@ -36,6 +36,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongFunction;
 
 import static com.swirlds.logging.LogMarker.EXCEPTION;
@@ -105,6 +106,14 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 	 */
 	private final ArrayHashingQueue<K, V> queue2;
 
+	/**
+	 * The working queue of the segment read ahead of the one being hashed, alternating with {@link #queue1}.
+	 * It is kept and passed between {@link VirtualMap} copies, with the ASSUMPTION
+	 * that only a single copy of the {@link VirtualMap} is being hashed at a time (which should be true).
+	 * The reason for keeping the queue and passing it around is to cut down on garbage and temporary allocations.
+	 */
+	private final ArrayHashingQueue<K, V> queue3;
+
 	/**
 	 * The max stop queue. It is kept and passed between {@link VirtualMap} copies, with the ASSUMPTION
 	 * that only a single copy of the {@link VirtualMap} is being hashed at a time (which should be true).
@@ -141,6 +150,21 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 	 */
 	private AtomicBoolean shutdown = new AtomicBoolean(false);
 
+	/**
+	 * The time, in nanoseconds, the most recent call to hash took.
+	 */
+	private volatile long lastHashNanos;
+
+	/**
+	 * The total time, in nanoseconds, IO threads spent loading sibling hashes during the most recent call to hash.
+	 */
+	private final AtomicLong prefetchLoadNanos = new AtomicLong();
+
+	/**
+	 * The time, in nanoseconds, hashing waited for sibling hashes to be loaded during the most recent call to hash.
+	 */
+	private final AtomicLong prefetchWaitNanos = new AtomicLong();
+
 	/**
 	 * Create a new {@link VirtualHasher}. There should be one {@link VirtualHasher} shared across all copies
 	 * of a {@link VirtualMap} "family".
@@ -150,6 +174,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 		// and "lastQueue" (lq). Which queue is which changes during execution.
 		this.queue1 = new ArrayHashingQueue<>();
 		this.queue2 = new ArrayHashingQueue<>();
+		this.queue3 = new ArrayHashingQueue<>();
 		this.maxRankStopQueue = new ArrayHashingQueue<>();
 		this.lastQueue = new ArrayHashingQueue<>();
 		this.minRankStopQueue = new ArrayHashingQueue<>();
@@ -212,6 +237,55 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 	 * @return The hash of the root of the tree
 	 */
 	public Hash hash(
+			final LongFunction<VirtualLeafRecord<K, V>> leafReader,
+			final LongFunction<VirtualInternalRecord> internalReader,
+			final Iterator<VirtualLeafRecord<K, V>> sortedDirtyLeaves,
+			final long firstLeafPath,
+			final long lastLeafPath,
+			final VirtualHashListener<K, V> listener) {
+		final long start = System.nanoTime();
+		prefetchLoadNanos.set(0);
+		prefetchWaitNanos.set(0);
+		try {
+			return hashTree(leafReader, internalReader, sortedDirtyLeaves, firstLeafPath, lastLeafPath, listener);
+		} finally {
+			lastHashNanos = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Get the time the most recent call to hash took.
+	 *
+	 * @return the wall clock time in milliseconds
+	 */
+	public double getLastHashMillis() {
+		return lastHashNanos / 1_000_000.0;
+	}
+
+	/**
+	 * Get the total time IO threads spent loading clean sibling hashes during the most recent call to hash.
+	 * This is summed over all IO threads, so it can be more than the time the call took.
+	 *
+	 * @return the IO time in milliseconds
+	 */
+	public double getLastPrefetchLoadMillis() {
+		return prefetchLoadNanos.get() / 1_000_000.0;
+	}
+
+	/**
+	 * Get the time the most recent call to hash spent waiting for clean sibling hashes to be loaded before it could
+	 * hash a rank. If this is close to {@link #getLastPrefetchLoadMillis()}, reading is not overlapping hashing.
+	 *
+	 * @return the waiting time in milliseconds
+	 */
+	public double getLastPrefetchWaitMillis() {
+		return prefetchWaitNanos.get() / 1_000_000.0;
+	}
+
+	/**
+	 * Does the work of {@link #hash(LongFunction, LongFunction, Iterator, long, long, VirtualHashListener)}.
+	 */
+	private Hash hashTree(
 			final LongFunction<VirtualLeafRecord<K, V>> leafReader,
 			final LongFunction<VirtualInternalRecord> internalReader,
 			final Iterator<VirtualLeafRecord<K, V>> sortedDirtyLeaves,
@@ -339,6 +413,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 		final int maxQueueSize = maxRankSegmentSize * 2;
 		queue1.ensureCapacity(maxQueueSize);
 		queue2.ensureCapacity(maxQueueSize);
+		queue3.ensureCapacity(maxQueueSize);
 		// The stop queues only need to be the same size as the maxRankSegmentSize, not double
 		// (it may be that either stop queue needs to be large enough for the whole rank).
 		// The "lastQueue" is only ever populated with leaves on the minLeafRank, so it only
@@ -374,58 +449,80 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 		listener.onHashingStarted();
 
 		// Iterate over all dirty leaves until we encounter the very last segment (the so-called
-		// reserved segment).
+		// reserved segment). Each segment is read one segment ahead of the one being hashed, so the
+		// clean sibling hashes it needs can be prefetched while the segment before it is hashed. The
+		// segments alternate between queue1 and queue3, while queue2 is always the pending queue.
 		long lastPath = -1;
-		while (itr.hasNext()) {
-			final VirtualLeafRecord<K, V> next = itr.peek();
-			final long path = next.getPath();
-			final int rank = getRank(path);
-
-			// SANITY CHECK: Fail fast if this condition does not hold
-			if (path < lastPath) {
-				throw new IllegalStateException("The paths in the iterator must be strictly increasing! " +
-						"lastPath=" + lastPath + ", path=" + path);
+		HashingQueue<K, V> wq = null;
+		int wqRank = -1;
+		SiblingHashPrefetcher<K, V> wqPrefetcher = null;
+		while (true) {
+			HashingQueue<K, V> nextWq = null;
+			int nextRank = -1;
+			SiblingHashPrefetcher<K, V> nextPrefetcher = null;
+			if (itr.hasNext()) {
+				final VirtualLeafRecord<K, V> next = itr.peek();
+				final long path = next.getPath();
+				final int rank = getRank(path);
+
+				// SANITY CHECK: Fail fast if this condition does not hold
+				if (path < lastPath) {
+					throw new IllegalStateException("The paths in the iterator must be strictly increasing! " +
+							"lastPath=" + lastPath + ", path=" + path);
+				}
+				lastPath = path;
+
+				// The path must always be within this range. We can use an assertion here because,
+				// unless there is some bug in our code, this cannot happen.
+				assert path >= firstLeafPath && path <= lastLeafPath
+						: "Invalid path lies outside the leaf path range " + path;
+
+				// Stop reading segments if the next leaf to process is in the reserved space
+				if (rank != maxLeafRank || path < lastLeafPath - reservedLastLeafCount) {
+					// Depending on the rank we're processing, we need to know the segment size.
+					final long segmentSize = rank == minLeafRank ? minRankSegmentSize : maxRankSegmentSize;
+					// Either eof is the end of the rank, or the last leaf before the reserved section
+					final long eofPath = Math.min((1L << (rank + 1)) - 1, lastLeafPath - reservedLastLeafCount + 1);
+
+					// Populate the next wq with leaves by accumulating them from the iterator, a segment at a time.
+					nextWq = (wq == queue1 ? queue3 : queue1).reset();
+					accumulate(itr, nextWq, path - (getIndexInRank(path) % segmentSize), segmentSize, eofPath);
+					nextRank = rank;
+					nextPrefetcher = prefetch(leafReader, internalReader, nextWq, null,
+							firstLeafPath, lastLeafPath, rank, stopRank);
+				}
 			}
-			lastPath = path;
 
-			// The path must always be within this range. We can use an assertion here because,
-			// unless there is some bug in our code, this cannot happen.
-			assert path >= firstLeafPath && path <= lastLeafPath
-					: "Invalid path lies outside the leaf path range " + path;
+			if (wq != null) {
+				// Setup and hash the subtree that we have accumulated. If I am hashing the minLeafRank,
+				// then the results go into the minRankStopQueue. If I am hashing the maxLeafRank, then
+				// the results go into the maxRankStopQueue.
+				final HashingQueue<K, V> pq = queue2.reset();
+				final HashingQueue<K, V> sq = wqRank == maxLeafRank ? maxRankStopQueue : minRankStopQueue;
+				listener.onBatchStarted();
+				hashSubTree(leafReader, internalReader, listener, wq, pq, null, sq, wqPrefetcher,
+						firstLeafPath, lastLeafPath, wqRank, stopRank);
+				listener.onBatchCompleted();
+			}
 
-			// Break out of the loop if the next leaf to process is in the reserved space
-			if (rank == maxLeafRank && path >= lastLeafPath - reservedLastLeafCount) {
+			if (nextWq == null) {
 				break;
 			}
-
-			// Depending on the rank we're processing, we need to know the segment size.
-			final long segmentSize = rank == minLeafRank ? minRankSegmentSize : maxRankSegmentSize;
-			// Either eof is the end of the rank, or the last leaf before the reserved section
-			final long eofPath = Math.min((1L << (rank + 1)) - 1, lastLeafPath - reservedLastLeafCount + 1);
-
-			// Populate the wq with leaves by accumulating them from the iterator, a segment at a time.
-			final HashingQueue<K, V> wq = queue1.reset();
-			accumulate(itr, wq, path - (getIndexInRank(path) % segmentSize), segmentSize, eofPath);
-
-			// Setup and hash the subtree that we have accumulated. If I am hashing the minLeafRank,
-			// then the results go into the minRankStopQueue. If I am hashing the maxLeafRank, then
-			// the results go into the maxRankStopQueue.
-			final HashingQueue<K, V> pq = queue2.reset();
-			final HashingQueue<K, V> sq = rank == maxLeafRank ? maxRankStopQueue : minRankStopQueue;
-			listener.onBatchStarted();
-			hashSubTree(leafReader, internalReader, listener, wq, pq, null, sq,
-					firstLeafPath, lastLeafPath, rank, stopRank);
-			listener.onBatchCompleted();
+			wq = nextWq;
+			wqRank = nextRank;
+			wqPrefetcher = nextPrefetcher;
 		}
 
 		// If there are still remaining leaves to process (which must be in the "reserved" area),
 		// or if there were some leaves put in the "lastQueue", then process them now.
 		if (itr.hasNext() || lastQueue.size() > 0) {
-			final HashingQueue<K, V> wq = queue1.reset();
-			readLeavesInSegment(itr, wq, lastLeafPath + 1);
+			final HashingQueue<K, V> lastWq = queue1.reset();
+			readLeavesInSegment(itr, lastWq, lastLeafPath + 1);
 			final HashingQueue<K, V> pq = queue2.reset();
 			listener.onBatchStarted();
-			hashSubTree(leafReader, internalReader, listener, wq, pq, lastQueue, maxRankStopQueue,
+			hashSubTree(leafReader, internalReader, listener, lastWq, pq, lastQueue, maxRankStopQueue,
+					prefetch(leafReader, internalReader, lastWq, lastQueue,
+							firstLeafPath, lastLeafPath, maxLeafRank, stopRank),
 					firstLeafPath, lastLeafPath, maxLeafRank, stopRank);
 			listener.onBatchCompleted();
 		}
@@ -434,14 +531,16 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 		// are in the maxRankStopQueue and minRankStopQueue. Now hash from the stopLevel to the root.
 		// We use a CompoundHashingQueue to combine the two stop queues to avoid any array copies.
 		listener.onBatchStarted();
+		final HashingQueue<K, V> stopWq = new CompoundHashingQueue<>(maxRankStopQueue, minRankStopQueue);
 		hashSubTree(
 				leafReader,
 				internalReader,
 				listener,
-				new CompoundHashingQueue<>(maxRankStopQueue, minRankStopQueue),
+				stopWq,
 				queue1.reset(),
 				null,
 				queue2.reset(),
+				prefetch(leafReader, internalReader, stopWq, null, firstLeafPath, lastLeafPath, stopRank, 0),
 				firstLeafPath,
 				lastLeafPath,
 				stopRank,
@@ -479,6 +578,8 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 	 * 		The last queue. Can be null.
 	 * @param sq
 	 * 		The stop queue. Cannot be null.
+	 * @param prefetcher
+	 * 		The prefetcher loading the clean sibling hashes for this sub-tree. Can be null.
 	 * @param firstLeafPath
 	 * 		The firstLeafPath.
 	 * @param lastLeafPath
@@ -493,6 +594,7 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 			final LongFunction<VirtualInternalRecord> internalReader,
 			final VirtualHashListener<K, V> listener,
 			HashingQueue<K, V> wq, HashingQueue<K, V> pq, HashingQueue<K, V> lq, final HashingQueue<K, V> sq,
+			final SiblingHashPrefetcher<K, V> prefetcher,
 			final long firstLeafPath, final long lastLeafPath, final int startRank, final int stopRank) {
 
 		// Unless we have a bug, this will always hold true
@@ -568,6 +670,20 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 			assert threadCount > 0 || hasLastQueue : "Thread count is zero for rank " + rank +
 					", max hashing threads configured to be " + HASHING_THREAD_COUNT;
 
+			// Wait for the clean sibling hashes this rank needs, so the hashing threads do not block on reads
+			if (prefetcher != null) {
+				final long waitStart = System.nanoTime();
+				try {
+					prefetcher.awaitRank(rank);
+				} catch (final InterruptedException ex) {
+					if (!shutdown.get()) {
+						LOG.error(EXCEPTION.getMarker(), "Failed to wait for sibling hashes to be loaded", ex);
+					}
+					Thread.currentThread().interrupt();
+				}
+				prefetchWaitNanos.addAndGet(System.nanoTime() - waitStart);
+			}
+
 			// This latch is used to cause this thread to wait until all hashing threads complete their work.
 			final CountDownLatch latch = new CountDownLatch(threadCount);
 			final int offset = pendingQueue == sq ? sq.size() : 0;
@@ -647,11 +763,14 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 									// it were dirty this round, it would have been in the work queue and part
 									// of this unit.
 
-									final VirtualLeafRecord<K, V> sibling =
-											Objects.requireNonNull(leafReader.apply(siblingPath),
-													"Failed to find leaf for " + siblingPath +
-															", which is a sibling of " + nodePath);
-									final Hash siblingHash = sibling.getHash();
+									Hash siblingHash = prefetcher == null ? null : prefetcher.getHash(siblingPath);
+									if (siblingHash == null) {
+										final VirtualLeafRecord<K, V> sibling =
+												Objects.requireNonNull(leafReader.apply(siblingPath),
+														"Failed to find leaf for " + siblingPath +
+																", which is a sibling of " + nodePath);
+										siblingHash = sibling.getHash();
+									}
 									Objects.requireNonNull(siblingHash,
 											"Failed to find leaf hash for " + siblingPath +
 													", which is a sibling of " + nodePath);
@@ -662,9 +781,13 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 								} else {
 									// The sibling *MUST* be a clean internal node. It isn't a clean leaf, or
 									// a dirty sibling, so it must be a clean internal.
-									final VirtualInternalRecord siblingInternal = internalReader.apply(siblingPath);
-									assert siblingInternal != null : "Should never be able to be null";
-									final Hash siblingHash = siblingInternal.getHash();
+									Hash siblingHash = prefetcher == null ? null : prefetcher.getHash(siblingPath);
+									if (siblingHash == null) {
+										final VirtualInternalRecord siblingInternal =
+												internalReader.apply(siblingPath);
+										assert siblingInternal != null : "Should never be able to be null";
+										siblingHash = siblingInternal.getHash();
+									}
 									Objects.requireNonNull(siblingHash,
 											"Failed to find internal hash for " + siblingPath +
 													", which is a sibling of " + nodePath);
@@ -745,6 +868,23 @@ public final class VirtualHasher<K extends VirtualKey<? super K>, V extends Virt
 		}
 	}
 
+	/**
+	 * Start prefetching the clean sibling hashes needed to hash a sub-tree.
+	 *
+	 * @return the prefetcher, or null if prefetching is disabled
+	 */
+	private SiblingHashPrefetcher<K, V> prefetch(
+			final LongFunction<VirtualLeafRecord<K, V>> leafReader,
+			final LongFunction<VirtualInternalRecord> internalReader,
+			final HashingQueue<K, V> wq, final HashingQueue<K, V> lq,
+			final long firstLeafPath, final long lastLeafPath, final int startRank, final int stopRank) {
+		if (SiblingHashPrefetcher.PREFETCH_THREAD_COUNT == 0) {
+			return null;
+		}
+		return new SiblingHashPrefetcher<>(leafReader, internalReader, wq, lq,
+				firstLeafPath, lastLeafPath, startRank, stopRank, prefetchLoadNanos);
+	}
+
 	/**
 	 * Read all leaves from the given iterator that are in the given rank and segment and add them to the given buffer.
 	 *
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016-2022 Hedera Hashgraph, LLC
+ *
+ * This software is owned by Hedera Hashgraph, LLC, which retains title to the software. This software is protected by various
+ * intellectual property laws throughout the world, including copyright and patent laws. This software is licensed and
+ * not sold. You must use this software only in accordance with the terms of the Hashgraph Open Review license at
+ *
+ * https://github.com/hashgraph/swirlds-open-review/raw/master/LICENSE.md
+ *
+ * HEDERA HASHGRAPH MAKES NO REPRESENTATIONS OR WARRANTIES ABOUT THE SUITABILITY OF THIS SOFTWARE, EITHER EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE,
+ * OR NON-INFRINGEMENT.
+ */
+
+
+package com.swirlds.virtualmap.internal.merkle;
+
+import com.swirlds.common.threading.ThreadConfiguration;
+import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualValue;
+import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import com.swirlds.virtualmap.internal.RecordAccessor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+
+/**
+ * A {@link Spliterator} over the leaves of a single copy of a virtual map, in path order. The leaves of a virtual
+ * tree always occupy every path from the first leaf path to the last leaf path, so a range of paths can be split in
+ * two without looking at the tree, which makes leaf streams efficient to process in parallel.
+ * <p>
+ * Leaves are loaded in batches. When a batch is taken, the next batch is loaded on a background thread so that
+ * reading from the data source overlaps with processing of the current batch. Leaves are looked up through the
+ * {@link RecordAccessor} of the copy, so leaves still in the cache are found there and the rest come from disk.
+ * <p>
+ * The copy being iterated must not be modified or released while the spliterator is in use.
+ *
+ * @param <K>
+ * 		The key
+ * @param <V>
+ * 		The value
+ */
+public final class VirtualLeafSpliterator<K extends VirtualKey<? super K>, V extends VirtualValue>
+		implements Spliterator<VirtualLeafRecord<K, V>> {
+
+	private static final Logger LOG = LogManager.getLogger(VirtualLeafSpliterator.class);
+
+	/**
+	 * A thread pool shared by all leaf spliterators for loading the next batch of leaves ahead of time. This is an
+	 * unbounded cached thread pool, each spliterator has at most one batch being loaded at any time.
+	 */
+	private static final ExecutorService READ_AHEAD_POOL = Executors.newCachedThreadPool(
+			new ThreadConfiguration()
+					.setThreadGroup(new ThreadGroup("virtual-map-leaf-readers"))
+					.setComponent("virtual-map")
+					.setThreadName("leaf-reader")
+					.setExceptionHandler((t, ex) ->
+							LOG.error(EXCEPTION.getMarker(), "Uncaught exception while reading leaves", ex))
+					.buildFactory());
+
+	/** Access to the records of the map copy being iterated */
+	private final RecordAccessor<K, V> records;
+	/** The number of leaves to load in each batch */
+	private final int batchSize;
+	/** The path after the last leaf this spliterator covers */
+	private final long endPath;
+	/** The first path that has not been loaded or requested yet */
+	private long nextPath;
+	/** The batch of leaves currently being consumed, null before the first leaf is requested */
+	private List<VirtualLeafRecord<K, V>> batch;
+	/** The index in batch of the next leaf to return */
+	private int batchIndex;
+	/** The batch being read ahead, or null if there are no more paths to load */
+	private CompletableFuture<List<VirtualLeafRecord<K, V>>> nextBatch;
+
+	/**
+	 * Create a new {@link VirtualLeafSpliterator} over a range of leaf paths.
+	 *
+	 * @param records
+	 * 		Record accessor for the copy of the map to iterate. Cannot be null.
+	 * @param firstPath
+	 * 		The first leaf path to return
+	 * @param endPath
+	 * 		The path after the last leaf path to return
+	 * @param batchSize
+	 * 		The number of leaves to load in each batch, must be positive
+	 */
+	public VirtualLeafSpliterator(final RecordAccessor<K, V> records, final long firstPath, final long endPath,
+			final int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be positive, was " + batchSize);
+		}
+		this.records = Objects.requireNonNull(records);
+		this.nextPath = firstPath;
+		this.endPath = Math.max(firstPath, endPath);
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean tryAdvance(final Consumer<? super VirtualLeafRecord<K, V>> action) {
+		while (batch == null || batchIndex >= batch.size()) {
+			if (!takeNextBatch()) {
+				return false;
+			}
+		}
+		action.accept(batch.get(batchIndex++));
+		return true;
+	}
+
+	/**
+	 * Split off the first half of the remaining paths. Splitting is only supported before the first leaf is taken,
+	 * which is when parallel streams split, so batches already loaded never have to be divided.
+	 */
+	@Override
+	public Spliterator<VirtualLeafRecord<K, V>> trySplit() {
+		final long remaining = endPath - nextPath;
+		if (batch != null || remaining < 2L * batchSize) {
+			return null;
+		}
+		final long midPath = nextPath + remaining / 2;
+		final VirtualLeafSpliterator<K, V> prefix = new VirtualLeafSpliterator<>(records, nextPath, midPath, batchSize);
+		nextPath = midPath;
+		return prefix;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long estimateSize() {
+		final long buffered = batch == null ? 0 : batch.size() - batchIndex;
+		final long requested = nextBatch == null ? 0 : batchSize;
+		return buffered + requested + endPath - nextPath;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	/**
+	 * Make the next batch of leaves current, loading it now if it was not read ahead, and start reading ahead the
+	 * batch after it.
+	 *
+	 * @return false if there are no more leaves to load
+	 */
+	private boolean takeNextBatch() {
+		if (nextBatch != null) {
+			try {
+				batch = nextBatch.join();
+			} catch (final CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		} else if (nextPath < endPath) {
+			final long batchEnd = Math.min(endPath, nextPath + batchSize);
+			batch = loadLeaves(nextPath, batchEnd);
+			nextPath = batchEnd;
+		} else {
+			return false;
+		}
+		batchIndex = 0;
+		nextBatch = null;
+		if (nextPath < endPath) {
+			final long firstPath = nextPath;
+			final long batchEnd = Math.min(endPath, nextPath + batchSize);
+			nextBatch = CompletableFuture.supplyAsync(() -> loadLeaves(firstPath, batchEnd), READ_AHEAD_POOL);
+			nextPath = batchEnd;
+		}
+		return true;
+	}
+
+	/**
+	 * Load the leaves for a range of paths.
+	 *
+	 * @param firstPath
+	 * 		The first path to load
+	 * @param batchEnd
+	 * 		The path after the last path to load
+	 * @return the leaves found, in path order
+	 */
+	private List<VirtualLeafRecord<K, V>> loadLeaves(final long firstPath, final long batchEnd) {
+		final List<VirtualLeafRecord<K, V>> leaves = new ArrayList<>((int) (batchEnd - firstPath));
+		for (long path = firstPath; path < batchEnd; path++) {
+			final VirtualLeafRecord<K, V> leaf = records.findLeafRecord(path, false);
+			if (leaf != null) {
+				leaves.add(leaf);
+			}
+		}
+		return leaves;
+	}
+}
@@ -53,6 +53,22 @@ public class VirtualMapStatistics {
 	 */
 	private StatsRunningAverage mergeLatency;
 
+	/**
+	 * The average time to hash a copy of the map.
+	 */
+	private StatsRunningAverage hashLatency;
+
+	/**
+	 * The average time IO threads spent loading clean sibling hashes while hashing a copy of the map, summed over
+	 * all IO threads.
+	 */
+	private StatsRunningAverage hashPrefetchLatency;
+
+	/**
+	 * The average time hashing a copy of the map waited for clean sibling hashes to be loaded.
+	 */
+	private StatsRunningAverage hashPrefetchWait;
+
 	/**
 	 * Create a new statistics instance for a virtual map family.
 	 *
@@ -65,6 +81,9 @@ public class VirtualMapStatistics {
 		size = new AtomicLong();
 		flushLatency = new StatsRunningAverage(DEFAULT_HALF_LIFE);
 		mergeLatency = new StatsRunningAverage(DEFAULT_HALF_LIFE);
+		hashLatency = new StatsRunningAverage(DEFAULT_HALF_LIFE);
+		hashPrefetchLatency = new StatsRunningAverage(DEFAULT_HALF_LIFE);
+		hashPrefetchWait = new StatsRunningAverage(DEFAULT_HALF_LIFE);
 
 		buildStatistics(label);
 	}
@@ -123,6 +142,36 @@ public class VirtualMapStatistics {
 				},
 				mergeLatency::getWeightedMean);
 
+		buildStatistic("vMapHashLatency_" + label,
+				"The hash latency of VirtualMap '" + label + "'",
+				FLOAT_FORMAT,
+				hashLatency,
+				h -> {
+					hashLatency = new StatsRunningAverage(h);
+					return hashLatency;
+				},
+				hashLatency::getWeightedMean);
+
+		buildStatistic("vMapHashPrefetchLatency_" + label,
+				"The time spent loading clean sibling hashes while hashing VirtualMap '" + label + "'",
+				FLOAT_FORMAT,
+				hashPrefetchLatency,
+				h -> {
+					hashPrefetchLatency = new StatsRunningAverage(h);
+					return hashPrefetchLatency;
+				},
+				hashPrefetchLatency::getWeightedMean);
+
+		buildStatistic("vMapHashPrefetchWait_" + label,
+				"The time hashing VirtualMap '" + label + "' waited for clean sibling hashes to be loaded",
+				FLOAT_FORMAT,
+				hashPrefetchWait,
+				h -> {
+					hashPrefetchWait = new StatsRunningAverage(h);
+					return hashPrefetchWait;
+				},
+				hashPrefetchWait::getWeightedMean);
+
 		buildStatistic("vMapFlushBacklog_" + label,
 				"the number of '" + label + "' copies waiting to be flushed",
 				INT_FORMAT,
@@ -171,6 +220,36 @@ public class VirtualMapStatistics {
 		this.mergeLatency.recordValue(mergeLatency);
 	}
 
+	/**
+	 * Record the time it took to hash a copy of the virtual map.
+	 *
+	 * @param hashLatency
+	 * 		the hash latency
+	 */
+	public void recordHashLatency(final double hashLatency) {
+		this.hashLatency.recordValue(hashLatency);
+	}
+
+	/**
+	 * Record the time IO threads spent loading clean sibling hashes while hashing a copy of the virtual map.
+	 *
+	 * @param hashPrefetchLatency
+	 * 		the time spent loading hashes, summed over all IO threads
+	 */
+	public void recordHashPrefetchLatency(final double hashPrefetchLatency) {
+		this.hashPrefetchLatency.recordValue(hashPrefetchLatency);
+	}
+
+	/**
+	 * Record the time hashing a copy of the virtual map waited for clean sibling hashes to be loaded.
+	 *
+	 * @param hashPrefetchWait
+	 * 		the time spent waiting
+	 */
+	public void recordHashPrefetchWait(final double hashPrefetchWait) {
+		this.hashPrefetchWait.recordValue(hashPrefetchWait);
+	}
+
 	/**
 	 * Record the current number of virtual maps that are waiting to be flushed.
 	 *
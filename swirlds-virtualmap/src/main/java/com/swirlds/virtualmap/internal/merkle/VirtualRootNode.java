@@ -68,6 +68,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.swirlds.common.merkle.io.SerializationStrategy.EXTERNAL_SELF_SERIALIZATION;
 import static com.swirlds.logging.LogMarker.EXCEPTION;
@@ -237,9 +238,10 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
 
 	/**
 	 * If true, then this copy of {@link VirtualRootNode} should eventually be flushed to disk. A heuristic is
-	 * used to determine which copy is flushed.
+	 * used to determine which copy is flushed. With size based flushes this is decided by the pipeline when
+	 * the copy is made immutable, so it is volatile for the pipeline thread.
 	 */
-	private boolean shouldBeFlushed;
+	private volatile boolean shouldBeFlushed;
 
 	/**
 	 * This latch is used to implement {@link #waitUntilFlushed()}.
@@ -373,7 +375,9 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
 		}
 
 		this.state = Objects.requireNonNull(state);
-		this.shouldBeFlushed = fastCopyVersion != 0 && fastCopyVersion % settings.getFlushInterval() == 0;
+		// With size based flushes the pipeline decides whether to flush when this copy is made immutable
+		this.shouldBeFlushed = settings.getFlushThresholdBytes() == 0
+				&& fastCopyVersion != 0 && fastCopyVersion % settings.getFlushInterval() == 0;
 		if (this.dataSourceBuilder != null && this.dataSource == null) {
 			this.dataSource = this.dataSourceBuilder.build(createUniqueDataSourceName(state.getLabel()),
 					state.getLabel(), true);
@@ -512,6 +516,10 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
 		// those background threads run. Otherwise, they may try to hash this copy before it
 		// has a chance to "seal" the cache, and we will get exceptions.
 		final VirtualRootNode<K, V> copy = new VirtualRootNode<>(this);
+		if (fastCopyVersion != 0) {
+			// Like with flush intervals, the first copy is never flushed
+			pipeline.decideFlush(this);
+		}
 		setImmutable(true);
 
 		if (isHashed()) {
@@ -758,6 +766,25 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
 		return value == null ? null : (V) value.asReadOnly();
 	}
 
+	/**
+	 * Gets a stream of all leaves of this copy in path order. Leaves are loaded in batches of
+	 * {@link VirtualMapSettings#getLeafIterationBatchSize()}, with the next batch read ahead on a background thread,
+	 * and the stream splits efficiently by path range when made parallel. This copy must not be modified or released
+	 * while the stream is being used, so it should normally be an immutable copy. The returned leaf records must not
+	 * be modified.
+	 *
+	 * @return a lazily loaded stream of the leaves, empty if the map is empty
+	 */
+	public Stream<VirtualLeafRecord<K, V>> leafStream() {
+		throwIfReleased();
+		final long firstLeafPath = state.getFirstLeafPath();
+		if (firstLeafPath == INVALID_PATH) {
+			return Stream.empty();
+		}
+		return StreamSupport.stream(new VirtualLeafSpliterator<>(records, firstLeafPath, state.getLastLeafPath() + 1,
+				settings.getLeafIterationBatchSize()), false);
+	}
+
 	/*-----------------------------------------------------------------------------
 	 * Shutdown implementation
 	 *---------------------------------------------------------------------------*/
@@ -834,10 +861,19 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
 	/**
 	 * If called, this copy of the map will eventually be flushed.
 	 */
+	@Override
 	public void enableFlush() {
 		this.shouldBeFlushed = true;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long estimatedSize() {
+		return cache.estimatedSize();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1052,6 +1088,12 @@ public final class VirtualRootNode<K extends VirtualKey<? super K>, V extends Vi
 				state.getLastLeafPath(),
 				hashListener);
 
+		if (statistics != null) {
+			statistics.recordHashLatency(hasher.getLastHashMillis());
+			statistics.recordHashPrefetchLatency(hasher.getLastPrefetchLoadMillis());
+			statistics.recordHashPrefetchWait(hasher.getLastPrefetchWaitMillis());
+		}
+
 		if (virtualHash == null) {
 			final VirtualInternalRecord rootRecord = state.size() == 0 ?
 					null :
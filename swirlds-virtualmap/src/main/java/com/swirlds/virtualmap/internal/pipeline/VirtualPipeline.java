@@ -16,13 +16,17 @@ package com.swirlds.virtualmap.internal.pipeline;
 
 import com.swirlds.common.threading.ThreadConfiguration;
 import com.swirlds.common.utility.CompareTo;
+import com.swirlds.virtualmap.VirtualMapSettings;
 import com.swirlds.virtualmap.VirtualMapSettingsFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CountDownLatch;
@@ -30,6 +34,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -68,6 +73,10 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
  * <li>
  * only the oldest unreleased copy can be <strong>flushed</strong>
  * </li>
+ * <li>
+ * copies are chosen for flushing either every {@link VirtualMapSettings#getFlushInterval()} copies, or by the
+ * estimated size of their changes when {@link VirtualMapSettings#getFlushThresholdBytes()} is set
+ * </li>
  * </ul>
  *
  * <hr>
@@ -113,6 +122,18 @@ public class VirtualPipeline {
 
 	private static final Logger LOG = LogManager.getLogger(VirtualPipeline.class);
 
+	/**
+	 * The fraction of {@link VirtualMapSettings#getFlushMemoryBudgetBytes()} that unflushed changes have to drop
+	 * below, after going over the budget, before copies are no longer all flushed and throttled.
+	 */
+	private static final double MEMORY_BUDGET_LOW_WATERMARK = 0.75;
+
+	/**
+	 * The maximum number of flush thresholds over the memory budget low watermark that are counted as backlog when
+	 * computing the fast copy throttle, so the quadratic sleep time can not overflow.
+	 */
+	private static final int MAX_MEMORY_BACKLOG_EXCESS = 1024;
+
 	/**
 	 * <p>
 	 * Keeps copies of all {@link VirtualRoot}s that are still part of this pipeline.
@@ -157,6 +178,30 @@ public class VirtualPipeline {
 	 */
 	private final AtomicInteger flushBacklog = new AtomicInteger(0);
 
+	/**
+	 * With size based flushes, the estimated bytes of changes in the copies made immutable since the last copy that
+	 * was chosen for flushing. Those copies are merged into the next copy that is flushed. Only used on the thread
+	 * making fast copies.
+	 */
+	private long bytesSinceLastFlushChoice;
+
+	/**
+	 * With size based flushes, the estimated bytes of changes in all immutable copies that are not flushed yet.
+	 */
+	private final AtomicLong unflushedBytes = new AtomicLong(0);
+
+	/**
+	 * The estimated bytes of changes each copy chosen for flushing will write, removed from {@link #unflushedBytes}
+	 * once the copy is flushed.
+	 */
+	private final Map<VirtualRoot, Long> pendingFlushBytes = Collections.synchronizedMap(new IdentityHashMap<>());
+
+	/**
+	 * True once {@link #unflushedBytes} has gone over the memory budget, until it drops below the low watermark.
+	 * While true every copy is flushed and fast copies are throttled.
+	 */
+	private volatile boolean overMemoryBudget;
+
 	private final Lock hashLock;
 
 	/**
@@ -197,10 +242,90 @@ public class VirtualPipeline {
 	}
 
 	/**
-	 * Slow down the fast copy operation if there are too many copies that need to be flushed.
+	 * Get the estimated bytes of changes in immutable copies that have not been flushed yet. Only tracked when copies
+	 * are flushed based on their size.
+	 *
+	 * @return the estimated bytes of unflushed changes
+	 */
+	public long getUnflushedBytes() {
+		return unflushedBytes.get();
+	}
+
+	/**
+	 * Decide whether a copy should be flushed, when copies are flushed based on the estimated size of their changes.
+	 * Must be called on the mutable copy just before it is made immutable, on the thread making fast copies. The copy
+	 * is flushed if the changes made since the last copy chosen for flushing reach the flush threshold, or if the
+	 * unflushed changes of all copies are over the memory budget. Otherwise, the copy will be merged into the next
+	 * one. Does nothing when copies are flushed every {@link VirtualMapSettings#getFlushInterval()} copies.
+	 *
+	 * @param copy
+	 * 		the copy about to become immutable
+	 */
+	public void decideFlush(final VirtualRoot copy) {
+		validatePipelineRegistration(copy);
+
+		final long flushThreshold = VirtualMapSettingsFactory.get().getFlushThresholdBytes();
+		if (flushThreshold <= 0 || copy.shouldBeFlushed()) {
+			return;
+		}
+
+		final long copyBytes = copy.estimatedSize();
+		bytesSinceLastFlushChoice += copyBytes;
+		updateMemoryBudgetState(unflushedBytes.addAndGet(copyBytes));
+
+		if (bytesSinceLastFlushChoice >= flushThreshold || overMemoryBudget) {
+			// Record the size and backlog before the copy can be seen as flushable by the pipeline thread
+			pendingFlushBytes.put(copy, bytesSinceLastFlushChoice);
+			bytesSinceLastFlushChoice = 0;
+			flushBacklog.getAndIncrement();
+			copy.enableFlush();
+		}
+	}
+
+	/**
+	 * Update whether unflushed changes are over the memory budget. Going over the budget and dropping back below the
+	 * low watermark use different limits so the pipeline does not flip between the two on every copy.
+	 *
+	 * @param unflushed
+	 * 		the current estimated bytes of unflushed changes
+	 */
+	private void updateMemoryBudgetState(final long unflushed) {
+		final long budget = VirtualMapSettingsFactory.get().getFlushMemoryBudgetBytes();
+		if (budget <= 0) {
+			overMemoryBudget = false;
+		} else if (unflushed > budget) {
+			overMemoryBudget = true;
+		} else if (unflushed < budget * MEMORY_BUDGET_LOW_WATERMARK) {
+			overMemoryBudget = false;
+		}
+	}
+
+	/**
+	 * Get how far unflushed changes are over the memory budget low watermark, in numbers of flush thresholds, so it
+	 * can be used like a number of copies waiting to be flushed.
+	 *
+	 * @return the number of flush thresholds over the low watermark, or zero if not over the memory budget
+	 */
+	private int getMemoryBacklogExcess() {
+		if (!overMemoryBudget) {
+			return 0;
+		}
+		final VirtualMapSettings settings = VirtualMapSettingsFactory.get();
+		final double excessBytes = unflushedBytes.get()
+				- settings.getFlushMemoryBudgetBytes() * MEMORY_BUDGET_LOW_WATERMARK;
+		return (int) Math.min(MAX_MEMORY_BACKLOG_EXCESS,
+				Math.ceil(excessBytes / settings.getFlushThresholdBytes()));
+	}
+
+	/**
+	 * Slow down the fast copy operation if there are too many copies that need to be flushed, or with size based
+	 * flushes and a memory budget, if the unflushed changes are over the memory budget.
 	 */
 	private void applyFlushBackpressure() {
-		final int backlogExcess = flushBacklog.get() - VirtualMapSettingsFactory.get().getPreferredFlushQueueSize();
+		final VirtualMapSettings settings = VirtualMapSettingsFactory.get();
+		final int backlogExcess = settings.getFlushThresholdBytes() > 0 && settings.getFlushMemoryBudgetBytes() > 0
+				? getMemoryBacklogExcess()
+				: flushBacklog.get() - settings.getPreferredFlushQueueSize();
 
 		if (backlogExcess <= 0) {
 			return;
@@ -208,10 +333,9 @@ public class VirtualPipeline {
 
 		// Sleep time grows quadratically.
 		final Duration computedSleepTime =
-				VirtualMapSettingsFactory.get().getFlushThrottleStepSize().multipliedBy(
-						(long) backlogExcess * backlogExcess);
+				settings.getFlushThrottleStepSize().multipliedBy((long) backlogExcess * backlogExcess);
 
-		final Duration maxSleepTime = VirtualMapSettingsFactory.get().getMaximumFlushThrottlePeriod();
+		final Duration maxSleepTime = settings.getMaximumFlushThrottlePeriod();
 		final Duration sleepTime = CompareTo.min(computedSleepTime, maxSleepTime);
 
 		try {
@@ -414,6 +538,10 @@ public class VirtualPipeline {
 		}
 		copy.flush();
 		flushBacklog.getAndDecrement();
+		final Long flushedBytes = pendingFlushBytes.remove(copy);
+		if (flushedBytes != null) {
+			updateMemoryBudgetState(unflushedBytes.addAndGet(-flushedBytes));
+		}
 	}
 
 	/**
@@ -610,6 +738,8 @@ public class VirtualPipeline {
 		sb.append("Virtual pipeline dump, ");
 
 		sb.append("  size = ").append(copies.getSize()).append("\n");
+		sb.append("Unflushed bytes = ").append(unflushedBytes.get())
+				.append(", over memory budget = ").append(uppercaseBoolean(overMemoryBudget)).append("\n");
 		sb.append("Copies listed oldest to newest:\n");
 
 
@@ -31,6 +31,19 @@ public interface VirtualRoot extends MerkleNode {
 	 */
 	boolean shouldBeFlushed();
 
+	/**
+	 * Designate this copy for flushing. Called by the {@link VirtualPipeline} on the mutable copy, before it becomes
+	 * immutable, when copies are flushed based on the size of their changes.
+	 */
+	void enableFlush();
+
+	/**
+	 * Get a rough estimate of the memory in bytes used by the changes made in this copy, and not yet flushed.
+	 *
+	 * @return the estimated size of this copy's changes in bytes
+	 */
+	long estimatedSize();
+
 	/**
 	 * <p>
 	 * Flush the contents of this data structure to disk. Will be called at most once. Will only be called iff
@@ -16,6 +16,7 @@ package com.swirlds.virtualmap.internal.reconnect;
 
 import com.swirlds.virtualmap.internal.merkle.VirtualRootNode;
 
+import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -42,6 +43,11 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
  */
 public class ConcurrentBlockingIterator<T> implements Iterator<T> {
 
+	/**
+	 * The maximum number of elements moved from the buffer to the consumer at once.
+	 */
+	private static final int DRAIN_BATCH_SIZE = 1024;
+
 	/**
 	 * The underlying buffer of items into which elements are placed prior to removal.
 	 */
@@ -68,6 +74,12 @@ public class ConcurrentBlockingIterator<T> implements Iterator<T> {
 	 */
 	private T next;
 
+	/**
+	 * Elements taken from the buffer but not yet consumed. Only used by the consuming thread. Taking elements in
+	 * batches means the consumer takes the buffer's lock once per batch rather than once per element.
+	 */
+	private final ArrayDeque<T> drained = new ArrayDeque<>(DRAIN_BATCH_SIZE);
+
 	/**
 	 * Create a new {@link ConcurrentBlockingIterator}.
 	 *
@@ -102,15 +114,23 @@ public class ConcurrentBlockingIterator<T> implements Iterator<T> {
 			return true;
 		}
 
+		if ((next = drained.poll()) != null) {
+			return true;
+		}
+
 		// Busy loop. This will lead to really high performance at the cost of a CPU, but since
 		// we're in the middle of some pretty serious reconnect stuff, we should allow that.
 
 		// if closed and buffer.poll != null || !closed
 		final long waitMillis = maxWaitTimeUnit.toMillis(maxWaitTime);
 		final long timeOutWhenMillisAre = System.currentTimeMillis() + waitMillis;
-		while ((next = buffer.poll()) == null) {
+		while (buffer.drainTo(drained, DRAIN_BATCH_SIZE) == 0) {
 			if (closed.get()) {
-				return false;
+				// Elements supplied just before closing may have arrived since the buffer was drained
+				if (buffer.drainTo(drained, DRAIN_BATCH_SIZE) == 0) {
+					return false;
+				}
+				break;
 			} else {
 				if (System.currentTimeMillis() > timeOutWhenMillisAre) {
 					throw new RuntimeException(
@@ -119,6 +139,7 @@ public class ConcurrentBlockingIterator<T> implements Iterator<T> {
 			}
 		}
 
+		next = drained.poll();
 		return true;
 	}
 
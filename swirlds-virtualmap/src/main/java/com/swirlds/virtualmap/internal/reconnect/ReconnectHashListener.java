@@ -14,21 +14,33 @@
 
 package com.swirlds.virtualmap.internal.reconnect;
 
+import com.swirlds.common.threading.ThreadConfiguration;
 import com.swirlds.virtualmap.VirtualKey;
+import com.swirlds.virtualmap.VirtualMapSettingsFactory;
 import com.swirlds.virtualmap.VirtualValue;
 import com.swirlds.virtualmap.datasource.VirtualDataSource;
 import com.swirlds.virtualmap.datasource.VirtualInternalRecord;
 import com.swirlds.virtualmap.datasource.VirtualLeafRecord;
+import com.swirlds.virtualmap.datasource.VirtualRecord;
 import com.swirlds.virtualmap.internal.Path;
 import com.swirlds.virtualmap.internal.hash.VirtualHashListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
+import static com.swirlds.logging.LogMarker.EXCEPTION;
+
 /**
  * A {@link VirtualHashListener} implementation used by the learner during reconnect. During reconnect, the dirty
  * leaves will be sent from the teacher to the learner in a breadth-first order. The hashing algorithm in the
@@ -50,6 +62,12 @@ import java.util.stream.Stream;
  * deepest rank (the leaves) to the lowest rank (nearest the top). When we flush, we flush in the opposite order
  * from the closest to the top of the tree to the deepest rank. Each rank is processed in ascending path order.
  * So we store each rank as a separate array and then stream them out in the proper order to disk.
+ * <p>
+ * The batches of a large tree are small compared to the whole tree, so batches are combined until they hold at
+ * least {@link com.swirlds.virtualmap.VirtualMapSettings#getReconnectFlushBatchSize()} records, then written in a
+ * single call to the data source. The write runs on a background thread while the hasher carries on with the next
+ * batches, so hashing and writing overlap. Only one write per listener is in flight at a time, a batch that is ready
+ * while the previous write is still running waits for it, which keeps the records held in memory bounded.
  *
  * @param <K>
  *     	The key
@@ -58,7 +76,25 @@ import java.util.stream.Stream;
  */
 public class ReconnectHashListener<K extends VirtualKey<? super K>, V extends VirtualValue>
 		implements VirtualHashListener<K, V> {
+	private static final Logger LOG = LogManager.getLogger(ReconnectHashListener.class);
+
 	private static final int INITIAL_BATCH_ARRAY_SIZE = 10_000;
+
+	/**
+	 * Threads writing hashed records to the data sources in the background, shared by all listeners. Each listener
+	 * has at most one write in flight, so writes of one data source are never concurrent or out of order.
+	 */
+	private static final ExecutorService FLUSH_POOL = Executors.newCachedThreadPool(
+			new ThreadConfiguration()
+					.setThreadGroup(new ThreadGroup("virtual-map-reconnect-flushers"))
+					.setComponent("virtual-map")
+					.setThreadName("reconnect-flusher")
+					.setExceptionHandler((t, ex) ->
+							LOG.error(EXCEPTION.getMarker(), "Uncaught exception while flushing reconnect records", ex))
+					.buildFactory());
+
+	private static final Comparator<VirtualRecord> BY_PATH = Comparator.comparingLong(VirtualRecord::getPath);
+
 	// Maybe it would be better to have the whole state instead of just first/last leaf path so we can use stats
 	// while flushing and reconnecting...
 	private final VirtualDataSource<K, V> dataSource;
@@ -69,6 +105,25 @@ public class ReconnectHashListener<K extends VirtualKey<? super K>, V extends Vi
 	private List<VirtualLeafRecord<K, V>> rankLeaves;
 	private List<VirtualInternalRecord> rankInternals;
 
+	/**
+	 * The minimum number of records to write to the data source at once.
+	 */
+	private final int flushBatchSize;
+
+	/**
+	 * Completed batches not yet handed to the flush pool. Each batch adds its ranks from the top of the tree down, so
+	 * each batch is a run of records in ascending path order.
+	 */
+	private List<List<VirtualLeafRecord<K, V>>> pendingLeaves = new ArrayList<>();
+	private List<List<VirtualInternalRecord>> pendingInternals = new ArrayList<>();
+	private long pendingRecordCount;
+	private int pendingBatchCount;
+
+	/**
+	 * The write currently running on the flush pool, or null if there was none yet.
+	 */
+	private Future<?> flushFuture;
+
 	/**
 	 * Create a new {@link ReconnectHashListener}.
 	 *
@@ -95,6 +150,7 @@ public class ReconnectHashListener<K extends VirtualKey<? super K>, V extends Vi
 		this.firstLeafPath = firstLeafPath;
 		this.lastLeafPath = lastLeafPath;
 		this.dataSource = Objects.requireNonNull(dataSource);
+		this.flushBatchSize = VirtualMapSettingsFactory.get().getReconnectFlushBatchSize();
 	}
 
 	/**
@@ -145,26 +201,111 @@ public class ReconnectHashListener<K extends VirtualKey<? super K>, V extends Vi
 	 */
 	@Override
 	public void onBatchCompleted() {
-		Stream<VirtualInternalRecord> sortedDirtyInternals = Stream.of();
 		for (int i = batchInternals.size() - 1; i >= 0; i--) {
-			sortedDirtyInternals = Stream.concat(sortedDirtyInternals, batchInternals.get(i).stream());
+			final List<VirtualInternalRecord> internals = batchInternals.get(i);
+			pendingInternals.add(internals);
+			pendingRecordCount += internals.size();
 		}
 
-		Stream<VirtualLeafRecord<K, V>> sortedDirtyLeaves = Stream.of();
 		for (int i = batchLeaves.size() - 1; i >= 0; i--) {
-			sortedDirtyLeaves = Stream.concat(sortedDirtyLeaves, batchLeaves.get(i).stream());
+			final List<VirtualLeafRecord<K, V>> leaves = batchLeaves.get(i);
+			pendingLeaves.add(leaves);
+			pendingRecordCount += leaves.size();
+		}
+
+		pendingBatchCount++;
+		if (pendingRecordCount >= flushBatchSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onHashingCompleted() {
+		if (pendingBatchCount > 0) {
+			flush();
 		}
+		// All records must be in the data source before hashing is reported as done
+		awaitFlush();
+	}
 
-		// flush it down
+	/**
+	 * Hand all pending batches to the flush pool, once the previous write has finished.
+	 */
+	private void flush() {
+		final List<List<VirtualInternalRecord>> internals = pendingInternals;
+		final List<List<VirtualLeafRecord<K, V>>> leaves = pendingLeaves;
+		// A single batch is already in path order, records from several batches have to be merged
+		final boolean merge = pendingBatchCount > 1;
+		pendingInternals = new ArrayList<>();
+		pendingLeaves = new ArrayList<>();
+		pendingRecordCount = 0;
+		pendingBatchCount = 0;
+
+		awaitFlush();
+		flushFuture = FLUSH_POOL.submit(() -> {
+			// flush it down
+			try {
+				dataSource.saveRecords(
+						firstLeafPath,
+						lastLeafPath,
+						sortedStream(internals, merge),
+						sortedStream(leaves, merge),
+						Stream.empty());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * Wait for the write running on the flush pool, if any, to finish.
+	 *
+	 * @throws UncheckedIOException
+	 * 		if the data source failed to save the records
+	 */
+	private void awaitFlush() {
+		if (flushFuture == null) {
+			return;
+		}
 		try {
-			dataSource.saveRecords(
-					firstLeafPath,
-					lastLeafPath,
-					sortedDirtyInternals,
-					sortedDirtyLeaves,
-					Stream.empty());
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
+			flushFuture.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while flushing reconnect records", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw (UncheckedIOException) e.getCause();
+			}
+			throw new IllegalStateException("Failed to flush reconnect records", e.getCause());
+		}
+	}
+
+	/**
+	 * Stream the records of the given runs in ascending path order.
+	 *
+	 * @param runs
+	 * 		lists of records, each in ascending path order
+	 * @param merge
+	 * 		true if the runs overlap and have to be merged, false if each run follows the one before it
+	 * @return a stream of all records in ascending path order
+	 */
+	private static <T extends VirtualRecord> Stream<T> sortedStream(final List<List<T>> runs, final boolean merge) {
+		if (!merge) {
+			return runs.stream().flatMap(List::stream);
+		}
+		int size = 0;
+		for (final List<T> run : runs) {
+			size += run.size();
+		}
+		final List<T> records = new ArrayList<>(size);
+		for (final List<T> run : runs) {
+			records.addAll(run);
 		}
+		// TimSort finds the sorted runs, so this is a merge of the runs rather than a full sort
+		records.sort(BY_PATH);
+		return records.stream();
 	}
 }